@@ -1,6 +1,7 @@
 package com.trouni.tro_uni.config;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -14,6 +15,7 @@ import java.util.concurrent.Executor;
  * Chức năng chính:
  * - Cấu hình thread pool cho async tasks
  * - Tối ưu hiệu suất cho email sending
+ * - Giới hạn số luồng băm mật khẩu (BCrypt) theo số CPU
  * - Quản lý thread pool size và queue
  * <p>
  * @author TroUni Team
@@ -88,4 +90,38 @@ public class AsyncConfig {
         
         return executor;
     }
+
+    /**
+     * Cấu hình thread pool riêng cho việc băm/kiểm tra mật khẩu (BCrypt)
+     * <p>
+     * BCrypt rất tốn CPU, nên số thread được giới hạn bằng số core và queue có giới hạn.
+     * Khi queue đầy, task bị từ chối ngay (AbortPolicy) để request được trả về 429
+     * thay vì giữ Tomcat thread chờ CPU.
+     * <p>
+     * @param queueCapacity - Số task BCrypt tối đa được phép chờ
+     * @return ThreadPoolTaskExecutor - Thread pool executor
+     */
+    @Bean(name = "passwordHashExecutor")
+    public ThreadPoolTaskExecutor passwordHashExecutor(
+            @Value("${app.auth.hashing.queue-capacity:64}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        // Cấu hình thread pool
+        executor.setCorePoolSize(cores);                 // Một thread cho mỗi core
+        executor.setMaxPoolSize(cores);                  // Không vượt quá số core
+        executor.setQueueCapacity(queueCapacity);        // Queue có giới hạn
+        executor.setThreadNamePrefix("PasswordHash-");   // Prefix cho thread name
+
+        // Không set rejection handler: mặc định AbortPolicy -> TaskRejectedException
+
+        // Khởi tạo thread pool
+        executor.initialize();
+
+        log.info("Password hash executor initialized with threads={}, queue={}",
+                cores,
+                executor.getQueueCapacity());
+
+        return executor;
+    }
 }
@@ -0,0 +1,32 @@
+package com.trouni.tro_uni.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * GoogleAuthProperties - Cấu hình đăng nhập Google
+ * <p>
+ * - clientId: OAuth client id, dùng làm audience khi verify ID token
+ * - verifyIdTokenLocally: true -> verify ID token bằng JWKS cache, không gọi Google mỗi lần login
+ * - jwksUri / userinfoUri: endpoint của Google (có thể trỏ tới stub khi test)
+ * - jwksRefreshIntervalMs: thời gian tối đa giữ key set trước khi tải lại
+ * - jwksMinRefreshIntervalMs: khoảng cách tối thiểu giữa 2 lần tải lại khi gặp kid lạ
+ * - connectTimeoutMs / readTimeoutMs: timeout cho HTTP client dùng chung
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.google")
+public class GoogleAuthProperties {
+    private String clientId;
+    private boolean verifyIdTokenLocally = true;
+    private String jwksUri = "https://www.googleapis.com/oauth2/v3/certs";
+    private String userinfoUri = "https://www.googleapis.com/oauth2/v1/userinfo";
+    private List<String> issuers = List.of("accounts.google.com", "https://accounts.google.com");
+    private long jwksRefreshIntervalMs = 3_600_000;
+    private long jwksMinRefreshIntervalMs = 30_000;
+    private long connectTimeoutMs = 2_000;
+    private long readTimeoutMs = 3_000;
+}
@@ -0,0 +1,47 @@
+package com.trouni.tro_uni.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * HttpClientConfig - HTTP client dùng chung cho các lời gọi ra ngoài
+ * <p>
+ * Chức năng chính:
+ * - Một java.net.http.HttpClient duy nhất (giữ connection pool, tái sử dụng TLS)
+ * - Connect/read timeout để login không bị treo khi Google chậm
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Configuration
+@RequiredArgsConstructor
+public class HttpClientConfig {
+
+    private final GoogleAuthProperties googleAuthProperties;
+
+    /**
+     * RestClient cho Google OAuth (userinfo + JWKS)
+     *
+     * @return RestClient - Client dùng chung, có timeout
+     */
+    @Bean(name = "googleRestClient")
+    public RestClient googleRestClient() {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(googleAuthProperties.getConnectTimeoutMs()))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(googleAuthProperties.getReadTimeoutMs()));
+
+        return RestClient.builder()
+                .requestFactory(requestFactory)
+                .build();
+    }
+}
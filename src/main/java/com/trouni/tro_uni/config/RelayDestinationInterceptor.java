@@ -0,0 +1,53 @@
+package com.trouni.tro_uni.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+
+/**
+ * RelayDestinationInterceptor - Đổi destination sang dạng RabbitMQ hiểu được khi dùng broker relay
+ * <p>
+ * RabbitMQ STOMP plugin chỉ nhận một routing key sau /topic/ hoặc /queue/ (không có thêm dấu "/"),
+ * nên "/topic/chatRoom/{id}" được đổi thành "/topic/chatRoom.{id}". Client vẫn subscribe
+ * theo destination cũ; message nhận về được khớp theo subscription id nên không bị ảnh hưởng.
+ * <p>
+ * Gắn vào cả clientInboundChannel (SUBSCRIBE/SEND của client) và brokerChannel (message do server gửi).
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+public class RelayDestinationInterceptor implements ChannelInterceptor {
+
+    private static final String[] RELAY_PREFIXES = {"/topic/", "/queue/"};
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        String translated = translate(destination);
+        if (translated == null || translated.equals(destination)) {
+            return message;
+        }
+
+        MessageHeaderAccessor accessor = MessageHeaderAccessor.getMutableAccessor(message);
+        ((SimpMessageHeaderAccessor) accessor).setDestination(translated);
+        return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+    }
+
+    /**
+     * "/topic/chatRoom/abc" -> "/topic/chatRoom.abc"; destination khác giữ nguyên
+     */
+    public static String translate(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        for (String prefix : RELAY_PREFIXES) {
+            if (destination.startsWith(prefix)) {
+                return prefix + destination.substring(prefix.length()).replace('/', '.');
+            }
+        }
+        return destination;
+    }
+}
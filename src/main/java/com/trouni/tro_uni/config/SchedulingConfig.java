@@ -0,0 +1,20 @@
+package com.trouni.tro_uni.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * SchedulingConfig - Bật các job chạy định kỳ (@Scheduled)
+ * <p>
+ * Chức năng chính:
+ * - Chạy các job của chat, thanh toán, kiểm duyệt và dashboard
+ * - Các job có từ trước nhưng chưa từng chạy (dọn token blacklist, dọn email verification, hết hạn
+ *   subscription) vẫn tắt cho đến khi cấu hình cron của chúng được bật
+ * <p>
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
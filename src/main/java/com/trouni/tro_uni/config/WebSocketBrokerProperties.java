@@ -0,0 +1,32 @@
+package com.trouni.tro_uni.config;
+
+import com.trouni.tro_uni.enums.StompBrokerMode;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * WebSocketBrokerProperties - Cấu hình message broker cho WebSocket
+ * <p>
+ * - mode: SIMPLE (broker trong JVM) hoặc RELAY (RabbitMQ STOMP plugin, dùng khi chạy nhiều instance)
+ * - relayHost / relayPort: địa chỉ STOMP của broker (RabbitMQ: cổng 61613)
+ * - clientLogin / clientPasscode: tài khoản cho kết nối của từng client
+ * - systemLogin / systemPasscode: tài khoản cho kết nối hệ thống (server gửi message)
+ * - virtualHost: virtual host của RabbitMQ (để trống = mặc định)
+ * - systemHeartbeat*: heartbeat của kết nối hệ thống, phát hiện broker bị mất kết nối
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.websocket.broker")
+public class WebSocketBrokerProperties {
+    private StompBrokerMode mode = StompBrokerMode.SIMPLE;
+    private String relayHost = "localhost";
+    private int relayPort = 61613;
+    private String clientLogin = "guest";
+    private String clientPasscode = "guest";
+    private String systemLogin = "guest";
+    private String systemPasscode = "guest";
+    private String virtualHost;
+    private long systemHeartbeatSendIntervalMs = 10_000;
+    private long systemHeartbeatReceiveIntervalMs = 10_000;
+}
@@ -0,0 +1,25 @@
+package com.trouni.tro_uni.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * WebSocketCoalescingProperties - Gộp nhiều event gửi tới cùng một subscription thành một frame
+ * <p>
+ * - enabled: tắt mặc định; khi bật, frame gộp có payload là mảng JSON và header x-batch-size
+ * - windowMs: thời gian chờ gom event kể từ event đầu tiên
+ * - maxBatchSize: gửi ngay khi đủ số event này
+ * - destinationPrefixes: chỉ gộp các destination bắt đầu bằng các prefix này
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.websocket.coalescing")
+public class WebSocketCoalescingProperties {
+    private boolean enabled = false;
+    private long windowMs = 5;
+    private int maxBatchSize = 50;
+    private List<String> destinationPrefixes = List.of("/topic/chatRoom/", "/user/queue/");
+}
@@ -1,26 +1,53 @@
 package com.trouni.tro_uni.config;
 
+import com.trouni.tro_uni.enums.StompBrokerMode;
 import com.trouni.tro_uni.security.WebSocketAuthInterceptor;
+import com.trouni.tro_uni.service.ChatPresenceRegistry;
+import com.trouni.tro_uni.service.StompFrameCoalescer;
+import com.trouni.tro_uni.service.WebSocketOutboundMonitor;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 /**
  * WebSocketConfig - Configuration for WebSocket message broker.
+ * <p>
+ * The broker is selected with {@code app.websocket.broker.mode} (SIMPLE or RELAY).
+ * Outbound limits and the outbound executor come from {@code app.websocket.outbound.*}.
  *
  * @author TroUni Team
  * @version 1.0
  */
+@Slf4j
 @Configuration
 @EnableWebSocketMessageBroker
 @RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final WebSocketAuthInterceptor webSocketAuthInterceptor;
+    private final WebSocketBrokerProperties brokerProperties;
+    private final WebSocketOutboundProperties outboundProperties;
+    private final WebSocketOutboundMonitor outboundMonitor;
+    private final StompFrameCoalescer frameCoalescer;
+    private final ChatPresenceRegistry chatPresenceRegistry;
+    private final RelayDestinationInterceptor relayDestinationInterceptor = new RelayDestinationInterceptor();
+
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    @Autowired
+    public void setMessageBrokerTaskScheduler(@Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler taskScheduler) {
+        this.messageBrokerTaskScheduler = taskScheduler;
+    }
 
     /**
      * Registers STOMP endpoints, allowing clients to connect to the WebSocket server.
@@ -39,35 +66,43 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
      * Configures the message broker.
      * <p>
      * - "/app" is the prefix for messages bound for methods annotated with @MessageMapping.
-     * - "/topic" is the prefix for topics that clients can subscribe to.
-     */
-//    @Override
-//    public void configureMessageBroker(MessageBrokerRegistry registry) {
-//        registry.setApplicationDestinationPrefixes("/app");
-//        registry.setUserDestinationPrefix("/user");
-//        registry.enableStompBrokerRelay("/topic", "/queue")
-//                .setRelayHost("localhost")
-//                .setRelayPort(61613)
-//                .setClientLogin("guest")
-//                .setClientPasscode("guest")
-//                .setSystemLogin("guest")
-//                .setSystemPasscode("guest");
-//    }
-
-    /**
-     * Configures the message broker.
-     * <p>
-     * - "/app" is the prefix for messages bound for methods annotated with @MessageMapping.
-     * - "/topic" is the prefix for topics that clients can subscribe to.
+     * - "/topic" and "/queue" are the prefixes for destinations that clients can subscribe to.
+     * - SIMPLE mode: in-JVM broker, only reaches clients connected to this instance.
+     * - RELAY mode: destinations are relayed to an external STOMP broker (RabbitMQ), so a message
+     *   sent on any instance reaches subscribers on every instance. User destinations that cannot
+     *   be resolved locally are broadcast to the other instances.
      */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
         // Prefix for application-bound messages (e.g., from client to server)
         registry.setApplicationDestinationPrefixes("/app");
-        // Prefix for topics that clients subscribe to (e.g., from server to client)
-        registry.enableSimpleBroker("/topic");
         // Use a specific prefix for user-specific destinations
         registry.setUserDestinationPrefix("/user");
+        // The outbound executor has several threads; keep frames to one session in order (seq gaps mean loss)
+        registry.setPreservePublishOrder(true);
+
+        if (brokerProperties.getMode() == StompBrokerMode.RELAY) {
+            registry.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(brokerProperties.getRelayHost())
+                    .setRelayPort(brokerProperties.getRelayPort())
+                    .setClientLogin(brokerProperties.getClientLogin())
+                    .setClientPasscode(brokerProperties.getClientPasscode())
+                    .setSystemLogin(brokerProperties.getSystemLogin())
+                    .setSystemPasscode(brokerProperties.getSystemPasscode())
+                    .setVirtualHost(brokerProperties.getVirtualHost())
+                    .setSystemHeartbeatSendInterval(brokerProperties.getSystemHeartbeatSendIntervalMs())
+                    .setSystemHeartbeatReceiveInterval(brokerProperties.getSystemHeartbeatReceiveIntervalMs())
+                    .setUserDestinationBroadcast("/topic/unresolved-user")
+                    .setUserRegistryBroadcast("/topic/user-registry");
+            registry.configureBrokerChannel().interceptors(relayDestinationInterceptor);
+            log.info("STOMP broker relay enabled: {}:{}", brokerProperties.getRelayHost(), brokerProperties.getRelayPort());
+        } else {
+            // Prefix for topics that clients subscribe to (e.g., from server to client)
+            // Heartbeats let the presence registry tell idle clients from dead connections
+            registry.enableSimpleBroker("/topic", "/queue")
+                    .setHeartbeatValue(new long[]{10000, 10000})
+                    .setTaskScheduler(messageBrokerTaskScheduler);
+        }
     }
 
     /**
@@ -75,11 +110,52 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
      * <p>
      * This method intercepts WebSocket messages to authenticate users via JWT tokens.
      * All CONNECT commands will be validated for proper authentication.
+     * The presence registry runs after authentication and tracks CONNECT/DISCONNECT/heartbeats.
      *
      * @param registration The channel registration for client inbound messages
      */
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(webSocketAuthInterceptor);
+        if (brokerProperties.getMode() == StompBrokerMode.RELAY) {
+            registration.interceptors(webSocketAuthInterceptor, chatPresenceRegistry, relayDestinationInterceptor);
+        } else {
+            registration.interceptors(webSocketAuthInterceptor, chatPresenceRegistry);
+        }
+    }
+
+    /**
+     * Configures the client outbound channel.
+     * <p>
+     * Frames to clients are sent on a dedicated, bounded executor, and the outbound monitor
+     * degrades sessions whose queue grows past the configured depth. When
+     * {@code app.websocket.coalescing.enabled} is set, events for the same subscription are
+     * batched into one frame first, so the monitor counts batches rather than single events.
+     *
+     * @param registration The channel registration for client outbound messages
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(outboundProperties.getExecutorCorePoolSize())
+                .maxPoolSize(outboundProperties.getExecutorMaxPoolSize())
+                .queueCapacity(outboundProperties.getExecutorQueueCapacity());
+        registration.interceptors(frameCoalescer, outboundMonitor);
+    }
+
+    /**
+     * Configures per-session send limits.
+     * <p>
+     * A session that cannot take a frame within the send time limit, or whose send buffer
+     * exceeds the size limit, is closed by Spring (status SESSION_NOT_RELIABLE) and counted
+     * as dropped by the outbound monitor.
+     *
+     * @param registration The WebSocket transport registration
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(outboundProperties.getSendTimeLimitMs())
+                .setSendBufferSizeLimit(outboundProperties.getSendBufferSizeLimitBytes())
+                .setMessageSizeLimit(outboundProperties.getMessageSizeLimitBytes())
+                .addDecoratorFactory(outboundMonitor::decorate);
     }
 }
@@ -0,0 +1,30 @@
+package com.trouni.tro_uni.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * WebSocketOutboundProperties - Giới hạn gửi message từ server tới client WebSocket
+ * <p>
+ * - sendTimeLimitMs / sendBufferSizeLimitBytes: vượt quá thì session bị đóng (client phải kết nối lại)
+ * - messageSizeLimitBytes: kích thước tối đa của một message từ client
+ * - executor*: thread pool riêng cho clientOutboundChannel
+ * - degradeQueueDepth: số frame đang chờ gửi của một session để bị coi là "slow consumer";
+ *   khi đó message chat mới bị bỏ qua cho tới khi hàng đợi rỗng, client phát hiện hở seq và gọi delta sync
+ *   (thông báo, presence, read receipt không có seq nên vẫn được gửi)
+ * - slowSendMs: ghi log khi một lần ghi socket chậm hơn ngưỡng này
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.websocket.outbound")
+public class WebSocketOutboundProperties {
+    private int sendTimeLimitMs = 10_000;
+    private int sendBufferSizeLimitBytes = 512 * 1024;
+    private int messageSizeLimitBytes = 64 * 1024;
+    private int executorCorePoolSize = Runtime.getRuntime().availableProcessors() * 2;
+    private int executorMaxPoolSize = Runtime.getRuntime().availableProcessors() * 4;
+    private int executorQueueCapacity = 10_000;
+    private int degradeQueueDepth = 200;
+    private long slowSendMs = 1_000;
+}
@@ -1,21 +1,33 @@
 package com.trouni.tro_uni.controller;
 
 import com.trouni.tro_uni.dto.response.AdminDashboardStatsResponse;
+import com.trouni.tro_uni.dto.response.DailyKpiResponse;
+import com.trouni.tro_uni.dto.response.PaymentBacklogResponse;
+import com.trouni.tro_uni.dto.response.WebSocketOutboundStatsResponse;
 import com.trouni.tro_uni.dto.common.ApiResponse;
 import com.trouni.tro_uni.service.AdminDashboardService;
+import com.trouni.tro_uni.service.PaymentExpiryService;
+import com.trouni.tro_uni.service.WebSocketOutboundMonitor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/v1/admin/dashboard")
 @RequiredArgsConstructor
 public class AdminDashboardController {
 
     private final AdminDashboardService adminDashboardService;
+    private final WebSocketOutboundMonitor webSocketOutboundMonitor;
+    private final PaymentExpiryService paymentExpiryService;
 
     @GetMapping("/stats")
     @PreAuthorize("hasRole('ADMIN')")
@@ -23,4 +35,37 @@ public class AdminDashboardController {
         AdminDashboardStatsResponse stats = adminDashboardService.getDashboardStats();
         return ResponseEntity.ok(ApiResponse.success("Dashboard stats retrieved successfully", stats));
     }
+
+    /**
+     * Số liệu theo ngày trong khoảng [from, to] (tối đa 366 ngày), dùng cho biểu đồ
+     */
+    @GetMapping("/kpis")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<DailyKpiResponse>>> getDailyKpis(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(ApiResponse.success("Daily KPIs retrieved successfully",
+                adminDashboardService.getDailyKpis(from, to)));
+    }
+
+    /**
+     * Số liệu gửi WebSocket của instance hiện tại: độ dài hàng đợi theo session,
+     * số session bị ngắt, độ trễ gửi
+     */
+    @GetMapping("/websocket")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<WebSocketOutboundStatsResponse>> getWebSocketStats() {
+        return ResponseEntity.ok(ApiResponse.success("WebSocket stats retrieved successfully",
+                webSocketOutboundMonitor.getStats()));
+    }
+
+    /**
+     * Backlog thanh toán: payment PENDING, payment quá hạn chưa được xử lý, webhook đang chờ
+     */
+    @GetMapping("/payments/backlog")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<PaymentBacklogResponse>> getPaymentBacklog() {
+        return ResponseEntity.ok(ApiResponse.success("Payment backlog retrieved successfully",
+                paymentExpiryService.getBacklog()));
+    }
 }
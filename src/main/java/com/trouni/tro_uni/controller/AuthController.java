@@ -13,6 +13,7 @@ import com.trouni.tro_uni.dto.request.ResetPasswordRequest;
 import com.trouni.tro_uni.dto.response.ResetPasswordResponse;
 import com.trouni.tro_uni.entity.User;
 import com.trouni.tro_uni.exception.AppException;
+import com.trouni.tro_uni.security.LoginRateLimiter;
 import com.trouni.tro_uni.service.AuthService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
@@ -44,6 +45,7 @@ import java.util.Map;
 public class AuthController {
     
     private final AuthService authService;
+    private final LoginRateLimiter loginRateLimiter;
 
     /**
      * API đăng nhập user
@@ -51,10 +53,14 @@ public class AuthController {
      * Endpoint: POST /api/auth/login
 
      * @param loginRequest - Thông tin đăng nhập
+     * @param request - HttpServletRequest để lấy IP client (rate limit)
      * @return ResponseEntity - Response chứa JWT token và thông tin user
      */
     @PostMapping("/login")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest,
+                                              HttpServletRequest request) {
+        // Giới hạn theo IP và tài khoản, vượt giới hạn -> 429 qua GlobalExceptionHandler
+        loginRateLimiter.checkLimit(request, loginRequest.getUsernameOrEmail());
         try {
             AuthResponse authResponse = authService.authenticateUser(loginRequest);
             return ResponseEntity.ok(ApiResponse.success("Login successful", authResponse));
@@ -73,14 +79,25 @@ public class AuthController {
      * Endpoint: POST /api/auth/signup
 
      * @param signUpRequest - Thông tin đăng ký
+     * @param request - HttpServletRequest để lấy IP client (rate limit)
      * @return ResponseEntity - Response thông báo kết quả đăng ký
      */
     @PostMapping("/signup")
-    public ResponseEntity<?> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
+    public ResponseEntity<?> registerUser(@Valid @RequestBody SignupRequest signUpRequest,
+                                          HttpServletRequest request) {
+        // Giới hạn theo IP và email, vượt giới hạn -> 429 qua GlobalExceptionHandler
+        loginRateLimiter.checkLimit(request, signUpRequest.getEmail());
         try {
             Map<String, String> response = authService.registerUser(signUpRequest);
             return ResponseEntity.status(HttpStatus.CREATED)
                     .body(ApiResponse.success("Registration successful", response));
+        } catch (AppException e) {
+            // Executor BCrypt quá tải -> giữ nguyên 429
+            if (e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+                throw e;
+            }
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("REGISTRATION_ERROR", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest()
                     .body(ApiResponse.error("REGISTRATION_ERROR", e.getMessage()));
@@ -114,6 +131,19 @@ public class AuthController {
         }
     }
     
+    /**
+     * API đăng xuất khỏi tất cả thiết bị
+
+     * Endpoint: POST /api/auth/logout-all
+
+     * @return ResponseEntity - Response thông báo đăng xuất thành công
+     */
+    @PostMapping("/logout-all")
+    public ResponseEntity<?> logoutEverywhere() {
+        authService.logoutEverywhere();
+        return ResponseEntity.ok(ApiResponse.success("Logged out from all devices successfully!", null));
+    }
+    
     /**
      * Extract JWT token từ HttpServletRequest
      */
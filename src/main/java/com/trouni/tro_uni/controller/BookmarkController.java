@@ -3,6 +3,7 @@ package com.trouni.tro_uni.controller;
 import com.trouni.tro_uni.dto.common.ApiResponse;
 import com.trouni.tro_uni.dto.request.BookmarkRequest;
 import com.trouni.tro_uni.dto.response.BookmarkResponse;
+import com.trouni.tro_uni.entity.User;
 import com.trouni.tro_uni.service.BookmarkService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -13,9 +14,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -144,6 +147,27 @@ public class BookmarkController {
         }
     }
     
+    /**
+     * API kiểm tra trạng thái bookmark của nhiều phòng (dùng cho trang danh sách phòng)
+     * Endpoint: GET /api/bookmarks/status?roomIds=...
+     * 
+     * @param roomIds - Danh sách ID phòng (tối đa 100)
+     * @return ResponseEntity - Map roomId -> đã bookmark hay chưa
+     */
+    @GetMapping("/status")
+    @PreAuthorize("hasAnyRole('STUDENT', 'ADMIN')")
+    public ResponseEntity<?> checkBookmarkStatuses(@AuthenticationPrincipal User currentUser,
+                                                   @RequestParam List<UUID> roomIds) {
+        try {
+            Map<UUID, Boolean> statuses = bookmarkService.getBookmarkStatuses(currentUser, roomIds);
+            return ResponseEntity.ok(ApiResponse.success("Bookmark statuses retrieved successfully", statuses));
+        } catch (Exception e) {
+            log.error("Error checking bookmark statuses: ", e);
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("CHECK_BOOKMARK_STATUSES_ERROR", "Failed to check bookmark statuses: " + e.getMessage()));
+        }
+    }
+    
     /**
      * API kiểm tra trạng thái bookmark của một phòng
      * Endpoint: GET /api/bookmarks/{roomId}/status
@@ -3,25 +3,34 @@ package com.trouni.tro_uni.controller;
 import com.trouni.tro_uni.dto.common.ApiResponse;
 import com.trouni.tro_uni.dto.request.chat.ChatMessageRequest;
 import com.trouni.tro_uni.dto.request.chat.CreateChatRoomRequest;
-import com.trouni.tro_uni.dto.response.chat.ChatMessageResponse;
+import com.trouni.tro_uni.dto.request.chat.MarkReadRequest;
+import com.trouni.tro_uni.dto.request.chat.TypingRequest;
+import com.trouni.tro_uni.dto.response.chat.ChatHistoryResponse;
 import com.trouni.tro_uni.dto.response.chat.ChatRoomResponse;
+import com.trouni.tro_uni.dto.response.chat.InboxResponse;
+import com.trouni.tro_uni.dto.response.chat.PresenceResponse;
+import com.trouni.tro_uni.dto.response.chat.ReadReceiptResponse;
 import com.trouni.tro_uni.entity.User;
 import com.trouni.tro_uni.exception.AppException;
 import com.trouni.tro_uni.exception.errorcode.AuthenticationErrorCode;
-import com.trouni.tro_uni.repository.UserRepository;
+import com.trouni.tro_uni.security.StompUserPrincipal;
 import com.trouni.tro_uni.service.ChatService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 
 import java.security.Principal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Controller
@@ -31,7 +40,6 @@ import java.util.UUID;
 public class ChatController {
 
     private final ChatService chatService;
-    private final UserRepository userRepository;
     private final SimpMessagingTemplate messagingTemplate;
 
     /**
@@ -58,22 +66,144 @@ public class ChatController {
     public void sendMessage(
             Principal principal,
             @Payload ChatMessageRequest request) {
-            User sender = userRepository.findByUsername(principal.getName())
-                .orElseThrow(() -> new AppException(AuthenticationErrorCode.USER_NOT_FOUND));
-        chatService.processMessage(sender, request);
+        StompUserPrincipal sender = sessionUser(principal);
+        chatService.processMessage(sender.userId(), sender.username(), request);
     }
 
 
 
     /**
-     * REST endpoint để lấy lịch sử chat theo room
+     * Handles "read up to" receipts sent via WebSocket.
+     * The destination for this mapping is "/app/chat.markRead".
+     *
+     * @param principal The authenticated user who read the messages.
+     * @param request   The chat room and the read position (upToSeq or upToTime).
+     */
+    @MessageMapping("/chat.markRead")
+    public void markRead(
+            Principal principal,
+            @Payload MarkReadRequest request) {
+        chatService.markRead(sessionUser(principal).userId(), request);
+    }
+
+    /**
+     * Handles typing indicators sent via WebSocket.
+     * The destination for this mapping is "/app/chat.typing"; the indicator is broadcast
+     * to "/topic/chatRoom/{chatRoomId}/typing" and never stored.
+     *
+     * @param principal The authenticated user who is typing.
+     * @param request   The chat room and the typing state.
+     */
+    @MessageMapping("/chat.typing")
+    public void typing(
+            Principal principal,
+            @Payload TypingRequest request) {
+        StompUserPrincipal sender = sessionUser(principal);
+        chatService.processTyping(sender.userId(), sender.username(), request);
+    }
+
+    /**
+     * Lấy user của WebSocket session (được gắn lúc CONNECT), không truy vấn database
+     */
+    private StompUserPrincipal sessionUser(Principal principal) {
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof StompUserPrincipal sessionUser) {
+            return sessionUser;
+        }
+        throw new AppException(AuthenticationErrorCode.UNAUTHENTICATED);
+    }
+
+    /**
+     * REST endpoint đánh dấu đã đọc các message của room đến seq (hoặc thời điểm) cho trước
+     */
+    @PostMapping("/{roomId}/read")
+    public ResponseEntity<ApiResponse<ReadReceiptResponse>> markRead(
+            @AuthenticationPrincipal User currentUser,
+            @PathVariable UUID roomId,
+            @RequestBody MarkReadRequest request) {
+        if (currentUser == null) {
+            throw new AppException(AuthenticationErrorCode.UNAUTHENTICATED);
+        }
+        request.setChatRoomId(roomId);
+        ReadReceiptResponse receipt = chatService.markRead(currentUser.getId(), request);
+        return ResponseEntity.ok(ApiResponse.success("Messages marked as read!", receipt));
+    }
+
+    /**
+     * REST endpoint lấy số message chưa đọc của từng room (đọc từ bộ đếm trong bộ nhớ)
+     */
+    @GetMapping("/unread")
+    public ResponseEntity<ApiResponse<Map<UUID, Long>>> getUnreadCounts(@AuthenticationPrincipal User currentUser) {
+        if (currentUser == null) {
+            throw new AppException(AuthenticationErrorCode.UNAUTHENTICATED);
+        }
+        Map<UUID, Long> unreadCounts = chatService.getUnreadCounts(currentUser.getId());
+        return ResponseEntity.ok(ApiResponse.success("Unread counts retrieved successfully!", unreadCounts));
+    }
+
+    /**
+     * REST endpoint lấy trạng thái online của những người đang chat cùng user hiện tại
+     * <p>
+     * Dùng để hiển thị trạng thái ban đầu; các thay đổi sau đó được đẩy qua /user/queue/presence.
+     * <p>
+     * Mỗi instance chỉ biết các session kết nối tới nó. Với broker SIMPLE (một instance) online luôn là
+     * true/false; với broker RELAY (nhiều instance), người không kết nối tới instance này có online = null
+     * (không xác định), client nên hiển thị là "không rõ" thay vì offline.
+     */
+    @GetMapping("/presence")
+    public ResponseEntity<ApiResponse<List<PresenceResponse>>> getContactPresence(@AuthenticationPrincipal User currentUser) {
+        if (currentUser == null) {
+            throw new AppException(AuthenticationErrorCode.UNAUTHENTICATED);
+        }
+        List<PresenceResponse> presence = chatService.getContactPresence(currentUser.getId());
+        return ResponseEntity.ok(ApiResponse.success("Presence retrieved successfully!", presence));
+    }
+
+    /**
+     * REST endpoint để lấy lịch sử chat theo room (phân trang theo seq)
+     * <p>
+     * - GET /chat/{roomId}/history                 -> trang mới nhất
+     * - GET /chat/{roomId}/history?beforeSeq=120   -> các message cũ hơn seq 120
+     * - GET /chat/{roomId}/history?afterSeq=340    -> delta sync khi client kết nối lại
+     * <p>
+     * Client giữ seq lớn nhất đã nhận; nếu message realtime có seq > lastSeq + 1
+     * thì đã bị mất message và cần gọi lại với afterSeq=lastSeq.
+     * <p>
+     * Chỉ participant của room mới được xem lịch sử.
      */
     @GetMapping("/{roomId}/history")
-    public ResponseEntity<ApiResponse<List<ChatMessageResponse>>> getChatHistory(@PathVariable UUID roomId) {
-        List<ChatMessageResponse> history = chatService.getChatHistory(roomId);
+    public ResponseEntity<ApiResponse<ChatHistoryResponse>> getChatHistory(
+            @AuthenticationPrincipal User currentUser,
+            @PathVariable UUID roomId,
+            @RequestParam(required = false) Long beforeSeq,
+            @RequestParam(required = false) Long afterSeq,
+            @RequestParam(required = false) Integer limit) {
+        if (currentUser == null) {
+            throw new AppException(AuthenticationErrorCode.UNAUTHENTICATED);
+        }
+        ChatHistoryResponse history = chatService.getChatHistory(currentUser.getId(), roomId, beforeSeq, afterSeq, limit);
         return ResponseEntity.ok(ApiResponse.success("Chat history retrieved successfully!", history));
     }
 
+    /**
+     * REST endpoint để lấy inbox của user hiện tại (phân trang theo cursor)
+     * <p>
+     * Mỗi room gồm: thông tin người chat cùng, preview message cuối, số message chưa đọc.
+     * Sắp xếp theo hoạt động gần nhất; trang tiếp theo dùng nextBefore + nextBeforeRoomId.
+     */
+    @GetMapping("/inbox")
+    public ResponseEntity<ApiResponse<InboxResponse>> getInbox(
+            @AuthenticationPrincipal User currentUser,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+            @RequestParam(required = false) UUID beforeRoomId,
+            @RequestParam(required = false) Integer limit) {
+        if (currentUser == null) {
+            throw new AppException(AuthenticationErrorCode.UNAUTHENTICATED);
+        }
+        InboxResponse inbox = chatService.getInbox(currentUser.getId(), before, beforeRoomId, limit);
+        return ResponseEntity.ok(ApiResponse.success("Inbox retrieved successfully!", inbox));
+    }
+
     /**
      * REST endpoint to get all chat rooms for a specific user.
      */
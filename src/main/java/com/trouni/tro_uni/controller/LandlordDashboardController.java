@@ -5,6 +5,7 @@ import com.trouni.tro_uni.dto.request.landlord.UpdateRoomStatusRequest;
 import com.trouni.tro_uni.dto.response.MessageResponse;
 import com.trouni.tro_uni.dto.response.landlord.DashboardStatsResponse;
 import com.trouni.tro_uni.dto.response.landlord.RoomPerformanceResponse;
+import com.trouni.tro_uni.dto.response.landlord.RoomViewSeriesResponse;
 import com.trouni.tro_uni.service.LandlordDashboardService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -42,6 +43,16 @@ public class LandlordDashboardController {
         return ResponseEntity.ok(landlordDashboardService.getViewCount(roomId));
     }
 
+    /**
+     * Lượt xem theo ngày của phòng trong {@code days} ngày gần nhất (mặc định 30)
+     */
+    @GetMapping("/dashboard/rooms/{roomId}/views/series")
+    public ResponseEntity<RoomViewSeriesResponse> getViewSeries(
+            @PathVariable UUID roomId,
+            @RequestParam(defaultValue = "30") int days) {
+        return ResponseEntity.ok(landlordDashboardService.getViewSeries(roomId, days));
+    }
+
     @PatchMapping("/rooms/{roomId}/status")
     public ResponseEntity<MessageResponse> updateRoomStatus(
             @PathVariable UUID roomId,
@@ -3,12 +3,10 @@ package com.trouni.tro_uni.controller;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.trouni.tro_uni.config.PayOSProperties;
 import com.trouni.tro_uni.dto.request.payment.PayOSPaymentRequest;
-import com.trouni.tro_uni.dto.request.payment.PayOSWebhookRequest;
 import com.trouni.tro_uni.dto.response.payment.PayOSPaymentResponse;
 import com.trouni.tro_uni.dto.response.payment.PaymentResponse;
-import com.trouni.tro_uni.exception.AppException;
-import com.trouni.tro_uni.exception.errorcode.PaymentErrorCode;
 import com.trouni.tro_uni.service.PaymentService;
+import com.trouni.tro_uni.service.PaymentWebhookService;
 import jakarta.validation.Valid;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -44,6 +42,7 @@ import java.util.UUID;
 public class PaymentController {
 
     PaymentService paymentService;
+    PaymentWebhookService paymentWebhookService;
     PayOSProperties payOSProperties;
 
     /**
@@ -69,16 +68,18 @@ public class PaymentController {
      * Webhook để xác nhận thanh toán từ ngân hàng
      *
      * Endpoint này sẽ được gọi bởi ngân hàng/payment gateway
-     * khi có giao dịch chuyển khoản thành công
+     * khi có giao dịch chuyển khoản thành công.
+     * Chỉ xác thực chữ ký và lưu lại rồi trả lời ngay; payment được cập nhật bởi worker.
+     * Webhook gửi lại (trùng orderCode/reference) vẫn nhận 200 nhưng không được xử lý lần hai.
      *
      * @param rawRequestBody - Thông tin từ webhook
-     * @return PaymentResponse - Payment đã được cập nhật
+     * @return Map - success và duplicate
      */
     @PostMapping("/webhook")
-    public ResponseEntity<PaymentResponse> handlePaymentWebhook(
+    public ResponseEntity<Map<String, Object>> handlePaymentWebhook(
             @RequestBody String rawRequestBody) {
 
-        log.info("Received raw payment webhook request: {}", rawRequestBody);
+        log.debug("Received raw payment webhook request: {}", rawRequestBody);
 
         // Handle PayOS webhook URL validation request (empty body)
         if (rawRequestBody == null || rawRequestBody.trim().isEmpty()) {
@@ -86,25 +87,8 @@ public class PaymentController {
             return ResponseEntity.ok().build();
         }
 
-        log.debug("Attempting to validate and parse webhook request.");
-        // Validate PayOS webhook signature and parse request in PayOSService
-        PayOSWebhookRequest request = paymentService.validateAndParsePayOSWebhook(rawRequestBody);
-
-        log.info("Webhook request successfully validated and parsed. OrderCode: {}", request.getOrderCode());
-
-        try {
-            PaymentResponse response = paymentService.confirmPayment(request);
-            log.info("Payment webhook processed successfully for transaction: {}", request.getOrderCode());
-            return ResponseEntity.ok(response);
-        } catch (AppException e) {
-            if (e.getErrorCode().equals(PaymentErrorCode.PAYMENT_NOT_FOUND.name())) {
-                log.warn("Payment not found for webhook validation ping (orderCode: {}). Returning 200 OK.", request.getOrderCode());
-                return ResponseEntity.ok().build(); // Return 200 OK for validation pings
-            } else {
-                throw e; // Re-throw other AppExceptions
-            }
-        }
-
+        boolean accepted = paymentWebhookService.receive(rawRequestBody);
+        return ResponseEntity.ok(Map.of("success", true, "duplicate", !accepted));
     }
 
     /**
@@ -2,6 +2,7 @@ package com.trouni.tro_uni.controller;
 
 import com.trouni.tro_uni.dto.common.ApiResponse;
 import com.trouni.tro_uni.dto.request.CreateReportRequest;
+import com.trouni.tro_uni.dto.response.ModerationQueueItemResponse;
 import com.trouni.tro_uni.dto.response.ReportResponse;
 import com.trouni.tro_uni.service.ReportService;
 import jakarta.validation.Valid;
@@ -103,6 +104,26 @@ public class ReportController {
         }
     }
     
+    /**
+     * API lấy hàng đợi kiểm duyệt: các nội dung bị báo cáo cần xử lý gấp nhất (dành cho Manager/Admin)
+     * Endpoint: GET /api/reports/moderation-queue
+     * 
+     * @param limit - Số nội dung tối đa (1 - 100)
+     * @return ResponseEntity - Danh sách nội dung theo độ khẩn cấp giảm dần
+     */
+    @GetMapping("/moderation-queue")
+    @PreAuthorize("hasRole('MANAGER') or hasRole('ADMIN')")
+    public ResponseEntity<?> getModerationQueue(@RequestParam(defaultValue = "20") int limit) {
+        try {
+            List<ModerationQueueItemResponse> items = reportService.getModerationQueue(limit);
+            return ResponseEntity.ok(ApiResponse.success("Moderation queue retrieved successfully", items));
+        } catch (Exception e) {
+            log.error("Error getting moderation queue: ", e);
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("GET_MODERATION_QUEUE_ERROR", "Failed to get moderation queue: " + e.getMessage()));
+        }
+    }
+    
     /**
      * API cập nhật trạng thái báo cáo (dành cho Manager/Admin)
      * Endpoint: PUT /api/reports/{reportId}/status
@@ -9,7 +9,9 @@ import com.trouni.tro_uni.dto.response.RoomSummaryResponse;
 import com.trouni.tro_uni.dto.response.RoomImagesResponse;
 import com.trouni.tro_uni.dto.response.room.RoomResponse;
 import com.trouni.tro_uni.entity.User;
+import com.trouni.tro_uni.security.ClientIpResolver;
 import com.trouni.tro_uni.service.RoomService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -32,6 +34,8 @@ import java.util.UUID;
 public class RoomController {
     @Autowired
     private RoomService roomService;
+    @Autowired
+    private ClientIpResolver clientIpResolver;
 
     // ================== ORIGINAL SEARCH AND FILTER APIs (from main branch) ==================
     
@@ -120,10 +124,12 @@ public class RoomController {
      */
     @GetMapping("/{roomId}/details")
     public ResponseEntity<?> getRoomById(
-            @PathVariable UUID roomId
+            @PathVariable UUID roomId,
+            @AuthenticationPrincipal User currentUser,
+            HttpServletRequest request
     ) {
         try {
-            RoomResponse room = roomService.getRoomById(roomId);
+            RoomResponse room = roomService.getRoomById(roomId, viewerKey(currentUser, request));
             return ResponseEntity.ok(ApiResponse.success("Room details retrieved successfully", room));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
@@ -224,4 +230,15 @@ public class RoomController {
                     .body(ApiResponse.error("GET_ALL_ROOMS_ERROR", "Failed to get all rooms: " + e.getMessage()));
         }
     }
+
+    /**
+     * Định danh người xem để đếm số người xem khác nhau: user id nếu đã đăng nhập,
+     * nếu không thì IP client (qua ClientIpResolver) + User-Agent. Chỉ được hash, không lưu lại.
+     */
+    private String viewerKey(User currentUser, HttpServletRequest request) {
+        if (currentUser != null) {
+            return "u:" + currentUser.getId();
+        }
+        return "c:" + clientIpResolver.resolve(request) + "|" + request.getHeader("User-Agent");
+    }
 }
@@ -1,17 +1,19 @@
 package com.trouni.tro_uni.dto.request;
 
-import jakarta.validation.constraints.NotBlank;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.util.StringUtils;
 
 /**
  * GoogleLoginRequest - DTO cho request đăng nhập bằng Google
  * <p>
  * Chức năng chính:
- * - Nhận access token từ Google OAuth
- * - Validate access token với Google API
+ * - Nhận access token hoặc ID token từ Google OAuth
+ * - Validate ID token tại server (JWKS cache) hoặc access token với Google API
  * - Tạo hoặc cập nhật user từ Google profile
  * 
  * @author TroUni Team
@@ -25,10 +27,21 @@ public class GoogleLoginRequest {
     
     /**
      * Google Access Token - Token từ Google OAuth flow
-     * - Required: true
+     * - Required: khi không gửi idToken
      * - Sử dụng để lấy thông tin user từ Google API
      */
-    @NotBlank(message = "Access token is required")
     private String accessToken;
+
+    /**
+     * Google ID Token - JWT từ Google Sign-In
+     * - Optional: nếu có, server verify ngay bằng JWKS đã cache (không gọi Google)
+     */
+    private String idToken;
+
+    @JsonIgnore
+    @AssertTrue(message = "Access token or ID token is required")
+    public boolean isTokenProvided() {
+        return StringUtils.hasText(accessToken) || StringUtils.hasText(idToken);
+    }
 }
 
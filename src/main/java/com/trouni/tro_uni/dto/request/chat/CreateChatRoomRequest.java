@@ -18,4 +18,11 @@ import java.util.UUID;
 public class CreateChatRoomRequest {
     @NotNull(message = "Recipient ID is required")
     UUID recipientId;
+
+    // Optional: the listing the chat was opened from, counted as a chat started for its owner
+    UUID roomId;
+
+    public CreateChatRoomRequest(UUID recipientId) {
+        this.recipientId = recipientId;
+    }
 }
@@ -0,0 +1,27 @@
+package com.trouni.tro_uni.dto.request.chat;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * "Read up to" receipt: every message from the other participants with seq <= upToSeq
+ * (or, when upToSeq is missing, sent at or before upToTime) is marked as read.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class MarkReadRequest {
+
+    @NotNull
+    UUID chatRoomId;
+
+    Long upToSeq;
+
+    LocalDateTime upToTime;
+}
@@ -0,0 +1,23 @@
+package com.trouni.tro_uni.dto.request.chat;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.UUID;
+
+/**
+ * Typing indicator sent via /app/chat.typing; broadcast to the room, never persisted.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class TypingRequest {
+
+    @NotNull
+    UUID chatRoomId;
+
+    boolean typing;
+}
@@ -0,0 +1,24 @@
+package com.trouni.tro_uni.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DailyKpiResponse {
+    private LocalDate date;
+    private long newUsers;
+    private long newRooms;
+    private long newReviews;
+    private long completedPayments;
+    private BigDecimal revenue;
+}
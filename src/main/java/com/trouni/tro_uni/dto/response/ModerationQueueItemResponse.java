@@ -0,0 +1,26 @@
+package com.trouni.tro_uni.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * ModerationQueueItemResponse - Một nội dung trong hàng đợi kiểm duyệt, xếp theo độ khẩn cấp
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ModerationQueueItemResponse {
+    String contentType;
+    UUID contentId;
+    long pendingReports;           // Số báo cáo đang chờ xử lý
+    long totalReports;             // Tổng số báo cáo từ trước đến nay
+    LocalDateTime lastReportedAt;
+    boolean autoHidden;            // Nội dung đã bị ẩn tự động khi vượt ngưỡng báo cáo
+    double urgency;                // Trọng số loại nội dung × số báo cáo đang chờ, giảm dần theo thời gian
+    ReportedContentResponse reportedContent;
+}
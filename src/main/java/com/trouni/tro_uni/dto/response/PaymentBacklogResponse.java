@@ -0,0 +1,23 @@
+package com.trouni.tro_uni.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * PaymentBacklogResponse - Số payment đang chờ và kết quả lần chạy gần nhất của job hết hạn
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PaymentBacklogResponse {
+    long pendingPayments;          // Tổng số payment PENDING
+    long expiredBacklog;           // Payment PENDING đã quá hạn nhưng chưa được chuyển sang EXPIRED
+    int webhookQueue;              // Webhook PayOS đang chờ worker xử lý
+    long expiredTotal;             // Tổng số payment đã hết hạn từ khi instance khởi động
+    int lastRunExpired;
+    LocalDateTime lastRunAt;
+}
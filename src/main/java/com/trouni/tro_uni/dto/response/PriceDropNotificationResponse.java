@@ -0,0 +1,28 @@
+package com.trouni.tro_uni.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * PriceDropNotificationResponse - Thông báo giảm giá phòng được đẩy qua /user/queue/notifications
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PriceDropNotificationResponse {
+    UUID notificationId;
+    String type;                   // PRICE_DROP
+    UUID roomId;
+    String roomTitle;
+    BigDecimal oldPrice;
+    BigDecimal newPrice;
+    String content;
+    String linkUrl;
+    LocalDateTime createdAt;
+}
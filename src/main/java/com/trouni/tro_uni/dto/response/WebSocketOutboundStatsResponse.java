@@ -0,0 +1,38 @@
+package com.trouni.tro_uni.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * WebSocketOutboundStatsResponse - Số liệu gửi message WebSocket của instance hiện tại
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class WebSocketOutboundStatsResponse {
+    int activeSessions;
+    int degradedSessions;          // Session đang bị coi là slow consumer
+    long droppedSessions;          // Tổng số session bị đóng vì vượt giới hạn gửi
+    long droppedFrames;            // Tổng số frame bị bỏ qua khi session bị degrade
+    long sentFrames;
+    double averageSendLatencyMs;
+    double maxSendLatencyMs;
+    List<SessionQueue> slowestSessions; // Các session có hàng đợi dài nhất
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class SessionQueue {
+        String sessionId;
+        String username;
+        int queueDepth;
+        boolean degraded;
+        long droppedFrames;
+    }
+}
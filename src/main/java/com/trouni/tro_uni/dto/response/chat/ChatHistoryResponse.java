@@ -0,0 +1,26 @@
+package com.trouni.tro_uni.dto.response.chat;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * One page of chat history, ordered by ascending seq.
+ * <p>
+ * - Backward paging: pass {@code nextBeforeSeq} as {@code beforeSeq} to load older messages.
+ * - Delta sync: pass the last seq the client has as {@code afterSeq}; repeat with
+ *   {@code lastSeq} while {@code hasMore} is true.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ChatHistoryResponse {
+    List<ChatMessageResponse> messages;
+    Long firstSeq;       // Lowest seq in this page (null when empty)
+    Long lastSeq;        // Highest seq in this page (null when empty)
+    Long nextBeforeSeq;  // Cursor for the next older page (null when there is none)
+    boolean hasMore;     // More messages exist in the requested direction
+}
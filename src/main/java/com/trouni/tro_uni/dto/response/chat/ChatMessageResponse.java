@@ -19,8 +19,9 @@ public class ChatMessageResponse {
     UUID senderId;
     String senderName;
     UUID recipientId; // Added recipientId
-    String content;
+    String content; // null for a message that could not be saved (its seq is kept so there is no gap)
     LocalDateTime timestamp;
+    Long seq; // Per-room sequence number, used for paging and gap detection
 
     public static ChatMessageResponse fromMessage(Message message) {
         // Assuming ChatRoom has a way to get the other participant if there are only two
@@ -41,6 +42,7 @@ public class ChatMessageResponse {
                 .recipientId(recipientId)
                 .content(message.getContent())
                 .timestamp(message.getSentAt())
+                .seq(message.getSeq())
                 .build();
     }
 }
@@ -0,0 +1,31 @@
+package com.trouni.tro_uni.dto.response.chat;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One inbox row: a chat room seen from one participant.
+ * <p>
+ * Built directly by the inbox JPQL query, so the field order must match the constructor
+ * expression in {@code ChatRoomRepository.INBOX_SELECT}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class InboxItemResponse {
+    UUID chatRoomId;
+    LocalDateTime lastActivityAt;   // Time of the last message (or room creation)
+    String lastMessagePreview;      // Null when the room has no message yet
+    UUID lastMessageSenderId;
+    Long lastMessageSeq;            // Seq of the last written message, a starting point for afterSeq sync
+    UUID counterpartId;
+    String counterpartUsername;
+    String counterpartFullName;
+    String counterpartAvatarUrl;
+    Long unreadCount;               // Messages from the counterpart not read yet
+}
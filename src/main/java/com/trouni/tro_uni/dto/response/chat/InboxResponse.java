@@ -0,0 +1,26 @@
+package com.trouni.tro_uni.dto.response.chat;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One page of a user's inbox, most recent activity first.
+ * <p>
+ * Pass {@code nextBefore} and {@code nextBeforeRoomId} back as {@code before} and
+ * {@code beforeRoomId} to load the next page.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class InboxResponse {
+    List<InboxItemResponse> items;
+    LocalDateTime nextBefore;  // Cursor: lastActivityAt of the last item (null when there is no next page)
+    UUID nextBeforeRoomId;     // Cursor tie-breaker: chatRoomId of the last item
+    boolean hasMore;
+}
@@ -0,0 +1,23 @@
+package com.trouni.tro_uni.dto.response.chat;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Online status of a user, pushed on /user/queue/presence to users sharing a chat room.
+ * online is null when the status is unknown: with the RELAY broker the user may be connected to
+ * another instance. lastSeenAt is the last time the user left this instance.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PresenceResponse {
+    UUID userId;
+    Boolean online;
+    LocalDateTime lastSeenAt;
+}
@@ -0,0 +1,23 @@
+package com.trouni.tro_uni.dto.response.chat;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Read receipt broadcast on /topic/chatRoom/{chatRoomId}/read so the sender can show "seen".
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ReadReceiptResponse {
+    UUID chatRoomId;
+    UUID readerId;
+    Long upToSeq;
+    LocalDateTime upToTime;
+    LocalDateTime readAt;
+}
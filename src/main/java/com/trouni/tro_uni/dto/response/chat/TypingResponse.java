@@ -0,0 +1,23 @@
+package com.trouni.tro_uni.dto.response.chat;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Typing indicator broadcast on /topic/chatRoom/{chatRoomId}/typing.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class TypingResponse {
+    UUID chatRoomId;
+    UUID userId;
+    String username;
+    boolean typing;
+    LocalDateTime at;
+}
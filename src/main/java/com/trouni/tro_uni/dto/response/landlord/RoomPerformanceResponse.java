@@ -18,4 +18,5 @@ public class RoomPerformanceResponse {
     private long viewCount;
     private long bookmarkCount;
     private double averageRating;
+    private long chatsStarted;
 }
@@ -0,0 +1,32 @@
+package com.trouni.tro_uni.dto.response.landlord;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomViewSeriesResponse {
+    private UUID roomId;
+    private LocalDate from;
+    private LocalDate to;
+    private long totalViews;
+    private long uniqueViewers; // Ước lượng (HyperLogLog), sai số khoảng 2%
+    private List<DailyViews> days;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class DailyViews {
+        private LocalDate date;
+        private long views;
+        private long uniqueViewers;
+    }
+}
@@ -7,7 +7,9 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "bookmarks")
+@Table(name = "bookmarks", indexes = {
+    @Index(name = "idx_bookmarks_room", columnList = "room_id")
+})
 @IdClass(BookmarkId.class)
 @Getter
 @Setter
@@ -3,6 +3,7 @@ package com.trouni.tro_uni.entity;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Nationalized;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -10,7 +11,11 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "chat_rooms")
+@Table(name = "chat_rooms", indexes = {
+        @Index(name = "idx_chat_rooms_last_activity", columnList = "last_activity_at, id")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_chat_rooms_participant_key", columnNames = "participant_key")
+})
 @Getter
 @Setter
 @Builder
@@ -26,6 +31,45 @@ public class ChatRoom {
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    /**
+     * Seq lớn nhất đã cấp (đặt trước) cho message trong room (null = chưa đánh số, cần backfill).
+     * Chỉ là bộ đếm cấp phát: có thể lớn hơn seq của message cuối cùng đã ghi.
+     */
+    @Column(name = "last_message_seq")
+    private Long lastMessageSeq;
+
+    /**
+     * Seq của message cuối cùng đã ghi (null = room chưa có message); cập nhật cùng batch ghi message
+     */
+    @Column(name = "last_sent_seq")
+    private Long lastSentSeq;
+
+    /**
+     * Thời điểm hoạt động gần nhất (message cuối, hoặc lúc tạo room) - dùng để sắp xếp inbox
+     */
+    @Builder.Default
+    @Column(name = "last_activity_at")
+    private LocalDateTime lastActivityAt = LocalDateTime.now();
+
+    /**
+     * Nội dung rút gọn của message cuối, cập nhật cùng batch ghi message
+     */
+    @Nationalized
+    @Column(name = "last_message_preview", length = 200)
+    private String lastMessagePreview;
+
+    @Column(name = "last_message_sender_id")
+    private UUID lastMessageSenderId;
+
+    /**
+     * Khóa của room chat 1-1: id hai người tham gia đã sắp xếp, nối bằng ":" (xem {@link #participantKey})
+     * <p>
+     * Unique, nên tìm room của hai người chỉ cần một lần dò index và không thể tạo trùng room.
+     * Room cũ trùng cặp (hoặc không đủ hai người) dùng chính id của room làm khóa, để không dòng nào NULL
+     */
+    @Column(name = "participant_key", length = 73)
+    private String participantKey;
+
     @ManyToMany
     @JoinTable(
             name = "chat_room_participants",
@@ -39,4 +83,13 @@ public class ChatRoom {
     @JsonIgnore
     @Builder.Default
     private List<Message> messages = new ArrayList<>();
+
+    /**
+     * Tạo khóa chuẩn cho cặp người tham gia, không phụ thuộc thứ tự truyền vào
+     */
+    public static String participantKey(UUID userId1, UUID userId2) {
+        String first = userId1.toString();
+        String second = userId2.toString();
+        return first.compareTo(second) <= 0 ? first + ":" + second : second + ":" + first;
+    }
 }
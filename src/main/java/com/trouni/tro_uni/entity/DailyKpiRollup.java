@@ -0,0 +1,54 @@
+package com.trouni.tro_uni.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * DailyKpiRollup Entity - Số liệu tổng hợp theo ngày cho admin dashboard
+ *
+ * Chức năng chính:
+ * - Mỗi ngày một dòng: user mới, phòng mới, review, payment hoàn thành, doanh thu
+ * - Được cộng dồn từ các thao tác ghi (DashboardKpiRollupService) và tính lại định kỳ từ bảng gốc
+ * - Dashboard chỉ đọc bảng này thay vì COUNT/SUM trên toàn bộ bảng gốc
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Entity
+@Table(name = "daily_kpi_rollups")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyKpiRollup {
+
+    @Id
+    @Column(name = "bucket_date")
+    private LocalDate bucketDate;
+
+    @Column(name = "new_users", nullable = false)
+    private long newUsers;
+
+    @Column(name = "new_rooms", nullable = false)
+    private long newRooms;
+
+    @Column(name = "new_reviews", nullable = false)
+    private long newReviews;
+
+    @Column(name = "completed_payments", nullable = false)
+    private long completedPayments;
+
+    @Column(precision = 15, nullable = false)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    public DailyKpiRollup(LocalDate bucketDate) {
+        this.bucketDate = bucketDate;
+    }
+}
@@ -9,7 +9,10 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+        @Index(name = "idx_messages_room_seq", columnList = "chat_room_id, seq"),
+        @Index(name = "idx_messages_room_read", columnList = "chat_room_id, is_read")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -17,8 +20,11 @@ import java.util.UUID;
 @Builder
 public class Message {
     
+    /**
+     * ID được server gán ngay khi nhận message (trước khi lưu DB)
+     * để có thể broadcast trước và ghi DB theo batch sau
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
     
     @ManyToOne
@@ -39,4 +45,18 @@ public class Message {
     
     @Column(name = "sent_at")
     private LocalDateTime sentAt = LocalDateTime.now();
+
+    /**
+     * Số thứ tự tăng dần trong từng chat room (1, 2, 3...)
+     * Dùng làm cursor phân trang lịch sử và đồng bộ delta khi client kết nối lại
+     */
+    @Column(name = "seq")
+    private Long seq;
+
+    @PrePersist
+    public void prePersist() {
+        if (id == null) {
+            id = UUID.randomUUID();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.trouni.tro_uni.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * PaymentWebhookEvent Entity - Webhook PayOS đã nhận, dùng để chống xử lý trùng
+ *
+ * Chức năng chính:
+ * - dedupe_key (orderCode:reference) là unique: PayOS gửi lại cùng một webhook sẽ không được lưu lần hai
+ * - Lưu dữ liệu đã xác thực chữ ký để worker xử lý sau khi đã trả 200 cho PayOS
+ * - Webhook chưa xử lý xong (RECEIVED) được job định kỳ đưa lại vào hàng đợi
+ * - Worker nhận event bằng một UPDATE RECEIVED -> PROCESSING, nên mỗi event chỉ được một instance xử lý
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Entity
+@Table(name = "payment_webhook_events", indexes = {
+    @Index(name = "idx_webhook_events_status_received", columnList = "status, received_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentWebhookEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "dedupe_key", nullable = false, unique = true, length = 100)
+    private String dedupeKey;
+
+    @Column(name = "order_code", nullable = false)
+    private Long orderCode;
+
+    @Column(name = "reference", length = 100)
+    private String reference;
+
+    /**
+     * PayOSWebhookRequest đã xác thực, dạng JSON
+     */
+    @Column(name = "payload", nullable = false, length = 4000)
+    private String payload;
+
+    @Column(nullable = false, length = 20)
+    private String status; // WebhookEventStatus, lưu dạng String như Payment
+
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt = LocalDateTime.now();
+
+    /**
+     * Thời điểm worker nhận xử lý (PROCESSING); quá lâu thì coi như worker đã chết
+     */
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+}
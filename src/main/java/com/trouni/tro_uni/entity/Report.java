@@ -8,7 +8,10 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "reports")
+@Table(name = "reports", indexes = {
+    @Index(name = "idx_reports_reporter_content", columnList = "reporter_user_id, reported_content_type, reported_content_id"),
+    @Index(name = "idx_reports_content", columnList = "reported_content_type, reported_content_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,67 @@
+package com.trouni.tro_uni.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * ReportedContentCounter Entity - Bộ đếm báo cáo của một nội dung (phòng, user, bài ở ghép, review)
+ *
+ * Chức năng chính:
+ * - Mỗi nội dung bị báo cáo một dòng, được cộng dồn khi có báo cáo mới và khi báo cáo đổi trạng thái
+ * - pending_count là số báo cáo đang chờ xử lý; hàng đợi kiểm duyệt được nạp từ các dòng có pending_count > 0
+ *   mà không cần quét bảng reports
+ * - revision tăng ở mỗi lần cập nhật để hàng đợi trong bộ nhớ bỏ qua các bản chụp cũ hơn
+ * - hidden_from_status giữ trạng thái của nội dung trước khi bị ẩn tự động, để hiện lại đúng trạng thái
+ *   khi số báo cáo đang chờ xuống dưới ngưỡng
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Entity
+@Table(name = "reported_content_counters", indexes = {
+    @Index(name = "idx_reported_content_pending", columnList = "pending_count")
+})
+@IdClass(ReportedContentCounterId.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportedContentCounter {
+
+    @Id
+    @Column(name = "content_type", length = 20)
+    private String contentType;
+
+    @Id
+    @Column(name = "content_id")
+    private UUID contentId;
+
+    @Column(name = "pending_count", nullable = false)
+    private long pendingCount;
+
+    @Column(name = "total_count", nullable = false)
+    private long totalCount;
+
+    @Column(name = "last_reported_at")
+    private LocalDateTime lastReportedAt;
+
+    @Column(name = "auto_hidden", nullable = false)
+    private boolean autoHidden;
+
+    @Column(name = "hidden_from_status", length = 50)
+    private String hiddenFromStatus;
+
+    @Column(name = "revision", nullable = false)
+    private long revision;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    public ReportedContentCounter(String contentType, UUID contentId) {
+        this.contentType = contentType;
+        this.contentId = contentId;
+    }
+}
@@ -0,0 +1,30 @@
+package com.trouni.tro_uni.entity;
+
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportedContentCounterId implements Serializable {
+
+    private String contentType;
+    private UUID contentId;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ReportedContentCounterId that = (ReportedContentCounterId) o;
+        return Objects.equals(contentType, that.contentType) && Objects.equals(contentId, that.contentId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(contentType, contentId);
+    }
+}
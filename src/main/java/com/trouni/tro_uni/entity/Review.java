@@ -10,7 +10,8 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "reviews", indexes = {
-    @Index(name = "idx_user_room_unique", columnList = "user_id, room_id", unique = true)
+    @Index(name = "idx_user_room_unique", columnList = "user_id, room_id", unique = true),
+    @Index(name = "idx_reviews_created_at", columnList = "created_at")
 })
 @Getter
 @Setter
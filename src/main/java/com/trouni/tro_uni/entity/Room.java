@@ -15,7 +15,8 @@ import java.util.UUID;
 @Entity
 @Table(name = "rooms", indexes = {
     @Index(name = "idx_owner_user_id", columnList = "owner_user_id"),
-    @Index(name = "idx_city_district", columnList = "city, district")
+    @Index(name = "idx_city_district", columnList = "city, district"),
+    @Index(name = "idx_rooms_created_at", columnList = "created_at")
 })
 @Getter
 @Setter
@@ -0,0 +1,42 @@
+package com.trouni.tro_uni.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * RoomDailyViews Entity - Lượt xem của một phòng trong một ngày
+ *
+ * Chức năng chính:
+ * - Khóa (room_id, view_date): chuỗi lượt xem theo ngày của một phòng là một lần quét theo khóa chính
+ * - Được ghi từ bộ đếm trong bộ nhớ (RoomViewSeriesService) mỗi giờ, không lưu từng lượt xem
+ * - viewer_sketch: HyperLogLog của người xem trong ngày, gộp nhiều ngày để ước lượng số người xem khác nhau
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Entity
+@Table(name = "room_daily_views")
+@IdClass(RoomDailyViewsId.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomDailyViews {
+
+    @Id
+    @Column(name = "room_id")
+    private UUID roomId;
+
+    @Id
+    @Column(name = "view_date")
+    private LocalDate viewDate;
+
+    @Column(nullable = false)
+    private int views;
+
+    @Column(name = "viewer_sketch", length = 2048) // HyperLogLog.REGISTER_COUNT
+    private byte[] viewerSketch;
+}
@@ -0,0 +1,31 @@
+package com.trouni.tro_uni.entity;
+
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomDailyViewsId implements Serializable {
+
+    private UUID roomId;
+    private LocalDate viewDate;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RoomDailyViewsId that = (RoomDailyViewsId) o;
+        return Objects.equals(roomId, that.roomId) && Objects.equals(viewDate, that.viewDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(roomId, viewDate);
+    }
+}
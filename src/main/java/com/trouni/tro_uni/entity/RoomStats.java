@@ -0,0 +1,63 @@
+package com.trouni.tro_uni.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * RoomStats Entity - Số liệu hiệu quả của một phòng cho landlord dashboard
+ *
+ * Chức năng chính:
+ * - Mỗi phòng một dòng, được cộng/trừ trực tiếp khi có lượt xem, bookmark, review, chat mới
+ * - Lưu tổng điểm và số review để tính rating trung bình mà không cần AVG trên bảng reviews
+ * - owner_id có index: dashboard của landlord chỉ đọc các dòng của mình rồi cộng trong bộ nhớ
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Entity
+@Table(name = "room_stats", indexes = {
+    @Index(name = "idx_room_stats_owner", columnList = "owner_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomStats {
+
+    @Id
+    @Column(name = "room_id")
+    private UUID roomId;
+
+    @Column(name = "owner_id", nullable = false)
+    private UUID ownerId;
+
+    @Column(name = "view_count", nullable = false)
+    private long viewCount;
+
+    @Column(name = "bookmark_count", nullable = false)
+    private long bookmarkCount;
+
+    @Column(name = "rating_sum", nullable = false)
+    private long ratingSum;
+
+    @Column(name = "rating_count", nullable = false)
+    private long ratingCount;
+
+    @Column(name = "chats_started", nullable = false)
+    private long chatsStarted;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    public RoomStats(UUID roomId, UUID ownerId) {
+        this.roomId = roomId;
+        this.ownerId = ownerId;
+    }
+
+    public double getAverageRating() {
+        return ratingCount > 0 ? (double) ratingSum / ratingCount : 0.0;
+    }
+}
@@ -41,7 +41,7 @@ public class RoommatePost {
     private BigDecimal budgetMax;
     
     @Column(length = 20)
-    private String status = "open"; // open, closed
+    private String status = "open"; // open, closed, hidden (ẩn tự động khi bị báo cáo nhiều)
     
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
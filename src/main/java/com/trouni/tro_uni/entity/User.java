@@ -29,7 +29,9 @@ import java.util.UUID;
  * @version 1.0
  */
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+    @Index(name = "idx_users_created_at", columnList = "created_at")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -96,6 +98,21 @@ public class User implements UserDetails {
     @Column(name = "google_account")
     private boolean googleAccount = false;
 
+    // ===============================
+    // Token Revocation Fields
+    // ===============================
+
+    /**
+     * Token Epoch - Phiên bản token của user
+     * - Được ghi vào JWT (claim "epoch") khi tạo token
+     * - Tăng lên khi reset password, admin khóa/xóa tài khoản...
+     * - Token có epoch nhỏ hơn giá trị hiện tại bị coi là đã thu hồi
+     * - Null (dữ liệu cũ) được coi là 0
+     * - Chỉ thay đổi qua UserRepository.incrementTokenEpoch; save() entity không ghi cột này
+     */
+    @Column(name = "token_epoch", updatable = false)
+    private Integer tokenEpoch = 0;
+
     // ===============================
     // Relationship Fields
     // ===============================
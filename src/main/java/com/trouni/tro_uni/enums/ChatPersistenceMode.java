@@ -0,0 +1,15 @@
+package com.trouni.tro_uni.enums;
+
+/**
+ * ChatPersistenceMode Enum - Cách lưu chat message vào database
+ *
+ * Các chế độ:
+ * - SYNC: Lưu ngay trên thread nhận message, broadcast sau khi commit (chậm nhất, an toàn nhất)
+ * - GROUP_COMMIT: Đưa vào hàng đợi, chờ batch commit rồi mới broadcast (an toàn, ít transaction hơn)
+ * - ASYNC: Broadcast ngay, lưu sau theo batch (nhanh nhất, có thể mất message nếu instance chết đột ngột)
+ */
+public enum ChatPersistenceMode {
+    SYNC,          // Ghi trực tiếp
+    GROUP_COMMIT,  // Ghi theo batch, chờ commit
+    ASYNC          // Ghi theo batch, không chờ (write-behind)
+}
@@ -0,0 +1,15 @@
+package com.trouni.tro_uni.enums;
+
+/**
+ * StompBrokerMode - Loại message broker cho WebSocket (STOMP)
+ * <p>
+ * - SIMPLE: Broker trong JVM, chỉ phục vụ client kết nối tới cùng instance (mặc định, dùng khi chạy 1 instance)
+ * - RELAY: Chuyển tiếp /topic và /queue tới broker STOMP bên ngoài (RabbitMQ) để mọi instance cùng nhận message
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+public enum StompBrokerMode {
+    SIMPLE,
+    RELAY
+}
@@ -0,0 +1,19 @@
+package com.trouni.tro_uni.enums;
+
+/**
+ * WebhookEventStatus Enum - Trạng thái xử lý webhook đã nhận
+ *
+ * Các trạng thái:
+ * - RECEIVED: Đã xác thực và lưu, chờ worker xử lý
+ * - PROCESSING: Một worker (trên một instance) đã nhận xử lý, worker khác bỏ qua
+ * - PROCESSED: Đã cập nhật payment
+ * - IGNORED: Không có payment tương ứng (ví dụ: webhook kiểm tra URL của PayOS)
+ * - FAILED: Lỗi không thể thử lại (sai số tiền) hoặc đã hết số lần thử
+ */
+public enum WebhookEventStatus {
+    RECEIVED,     // Chờ xử lý
+    PROCESSING,   // Đang xử lý
+    PROCESSED,    // Đã xử lý
+    IGNORED,      // Bỏ qua
+    FAILED        // Thất bại
+}
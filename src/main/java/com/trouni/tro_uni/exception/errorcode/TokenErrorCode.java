@@ -73,7 +73,13 @@ public enum TokenErrorCode {
     
     BLACKLIST_NOT_FOUND("TOKEN_020", "Blacklisted token not found", HttpStatus.NOT_FOUND),
     BLACKLIST_STATS_FAILED("TOKEN_021", "Failed to get blacklist statistics", HttpStatus.INTERNAL_SERVER_ERROR),
-    BLACKLIST_CHECK_FAILED("TOKEN_022", "Failed to check token blacklist status", HttpStatus.INTERNAL_SERVER_ERROR);
+    BLACKLIST_CHECK_FAILED("TOKEN_022", "Failed to check token blacklist status", HttpStatus.INTERNAL_SERVER_ERROR),
+    
+    // ===============================
+    // Token Revocation Errors
+    // ===============================
+    
+    TOKEN_REVOKED("TOKEN_023", "JWT token has been revoked", HttpStatus.UNAUTHORIZED);
     
     String code;
     String message;
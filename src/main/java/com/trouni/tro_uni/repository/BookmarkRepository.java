@@ -7,9 +7,13 @@ import com.trouni.tro_uni.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.UUID;
 
 @Repository
 public interface BookmarkRepository extends JpaRepository<Bookmark, BookmarkId> {
@@ -25,4 +29,20 @@ public interface BookmarkRepository extends JpaRepository<Bookmark, BookmarkId>
     boolean existsByUserAndRoom(User user, Room room);
     
     void deleteByUserAndRoom(User user, Room room);
+
+    // Số bookmark của từng phòng: {roomId, count}
+    @Query("SELECT b.room.id, COUNT(b) FROM Bookmark b WHERE b.room.id IN :roomIds GROUP BY b.room.id")
+    List<Object[]> countByRoomIds(@Param("roomIds") Collection<UUID> roomIds);
+
+    // Tập phòng đã bookmark của một user (theo khóa chính user_id, room_id)
+    @Query("SELECT b.room.id FROM Bookmark b WHERE b.user.id = :userId")
+    List<UUID> findRoomIdsByUserId(@Param("userId") UUID userId);
+
+    // Những user đã bookmark một phòng (index idx_bookmarks_room)
+    @Query("SELECT b.user.id FROM Bookmark b WHERE b.room.id = :roomId")
+    List<UUID> findUserIdsByRoomId(@Param("roomId") UUID roomId);
+
+    // {roomId, userId} của các bookmark trên phòng của một chủ nhà (đọc trước khi hard delete chủ nhà)
+    @Query("SELECT b.room.id, b.user.id FROM Bookmark b WHERE b.room.owner.id = :ownerId")
+    List<Object[]> findRoomAndUserIdsByRoomOwnerId(@Param("ownerId") UUID ownerId);
 }
\ No newline at end of file
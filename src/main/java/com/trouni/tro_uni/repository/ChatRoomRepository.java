@@ -1,19 +1,31 @@
 package com.trouni.tro_uni.repository;
 
+import com.trouni.tro_uni.dto.response.chat.InboxItemResponse;
+
 import com.trouni.tro_uni.entity.ChatRoom;
 
 import com.trouni.tro_uni.entity.User;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import org.springframework.data.domain.Pageable;
+
+import org.springframework.data.jpa.repository.Lock;
+
+import org.springframework.data.jpa.repository.Modifying;
+
 import org.springframework.data.jpa.repository.Query;
 
 import org.springframework.data.repository.query.Param;
 
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.LockModeType;
 
 
+
+import java.time.LocalDateTime;
+
 import java.util.List;
 
 import java.util.Optional;
@@ -26,25 +38,50 @@ import java.util.UUID;
 
 public interface ChatRoomRepository extends JpaRepository<ChatRoom, UUID> {
 
-
-
     /**
+     * Shared projection for the inbox queries (unread count as a correlated subquery).
+     */
+    String INBOX_SELECT = "SELECT new com.trouni.tro_uni.dto.response.chat.InboxItemResponse(" +
+            "cr.id, cr.lastActivityAt, cr.lastMessagePreview, cr.lastMessageSenderId, cr.lastSentSeq, " +
+            "p.id, p.username, pr.fullName, pr.avatarUrl, " +
+            "(SELECT COUNT(m) FROM Message m WHERE m.chatRoom = cr AND m.read = false AND m.sender.id <> :userId)) " +
+            "FROM ChatRoom cr JOIN cr.participants me JOIN cr.participants p LEFT JOIN p.profile pr " +
+            "WHERE me.id = :userId AND p.id <> :userId ";
 
-     * Finds a chat room that contains exactly the two specified users as participants.
-
-     *
-
-     * @param user1 The first user.
 
-     * @param user2 The second user.
 
+    /**
+     * Finds the direct chat room of two users by their canonical pair key (one unique index probe).
+     *
+     * @param participantKey The key built with {@link ChatRoom#participantKey}.
      * @return An Optional containing the ChatRoom if found, otherwise empty.
+     */
+    Optional<ChatRoom> findByParticipantKey(String participantKey);
 
+    /**
+     * Lists (room id, created at, participant id) for rooms without a pair key yet.
      */
+    @Query("SELECT cr.id, cr.createdAt, p.id FROM ChatRoom cr JOIN cr.participants p WHERE cr.participantKey IS NULL")
+    List<Object[]> findParticipantsOfUnkeyedRooms();
 
-    @Query("SELECT cr FROM ChatRoom cr WHERE :user1 MEMBER OF cr.participants AND :user2 MEMBER OF cr.participants AND SIZE(cr.participants) = 2")
+    /**
+     * Sets the pair key of a room created before the column existed.
+     *
+     * @return The number of rows updated.
+     */
+    @Modifying
+    @Query("UPDATE ChatRoom cr SET cr.participantKey = :participantKey WHERE cr.id = :chatRoomId AND cr.participantKey IS NULL")
+    int assignParticipantKey(@Param("chatRoomId") UUID chatRoomId, @Param("participantKey") String participantKey);
 
-    Optional<ChatRoom> findChatRoomByParticipants(@Param("user1") User user1, @Param("user2") User user2);
+    /**
+     * Gives every room still without a pair key its own id as key (legacy duplicates of a pair,
+     * rooms without exactly two participants). A room id never collides with a pair key.
+     *
+     * @return The number of rows updated.
+     */
+    @Modifying
+    @Query("UPDATE ChatRoom cr SET cr.participantKey = CAST(cr.id AS String) WHERE cr.participantKey IS NULL")
+    int assignRoomIdAsParticipantKey();
 
 
 
@@ -62,4 +99,99 @@ public interface ChatRoomRepository extends JpaRepository<ChatRoom, UUID> {
 
     List<ChatRoom> findByParticipantsContains(User user);
 
+    /**
+     * Loads a chat room and locks its row until the surrounding transaction ends.
+     * Used to reserve message sequence numbers without races.
+     *
+     * @param chatRoomId The ID of the chat room.
+     * @return An Optional containing the locked ChatRoom.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT cr FROM ChatRoom cr WHERE cr.id = :chatRoomId")
+    Optional<ChatRoom> findByIdForUpdate(@Param("chatRoomId") UUID chatRoomId);
+
+    /**
+     * Returns only the participant IDs of a chat room, without loading the users.
+     *
+     * @param chatRoomId The ID of the chat room.
+     * @return The participant IDs (empty if the room does not exist).
+     */
+    @Query("SELECT p.id FROM ChatRoom cr JOIN cr.participants p WHERE cr.id = :chatRoomId")
+    List<UUID> findParticipantIdsByChatRoomId(@Param("chatRoomId") UUID chatRoomId);
+
+    /**
+     * Returns the IDs of all chat rooms a user participates in.
+     *
+     * @param userId The ID of the user.
+     * @return The chat room IDs.
+     */
+    @Query("SELECT cr.id FROM ChatRoom cr JOIN cr.participants p WHERE p.id = :userId")
+    List<UUID> findChatRoomIdsByParticipantId(@Param("userId") UUID userId);
+
+    /**
+     * Gives back the unused tail of a reserved seq block, unless another instance reserved after it.
+     *
+     * @return The number of rows updated.
+     */
+    @Modifying
+    @Query("UPDATE ChatRoom cr SET cr.lastMessageSeq = :used WHERE cr.id = :chatRoomId AND cr.lastMessageSeq = :reserved")
+    int releaseMessageSeq(@Param("chatRoomId") UUID chatRoomId, @Param("reserved") Long reserved, @Param("used") Long used);
+
+    /**
+     * Returns the next rooms (by id, after {@code afterId}) whose messages have not been numbered yet.
+     */
+    @Query("SELECT cr.id FROM ChatRoom cr WHERE cr.lastMessageSeq IS NULL AND cr.id > :afterId ORDER BY cr.id")
+    List<UUID> findIdsWithoutMessageSeq(@Param("afterId") UUID afterId, Pageable pageable);
+
+    /**
+     * Tells whether the messages of a room still have to be numbered.
+     */
+    boolean existsByIdAndLastMessageSeqIsNull(UUID chatRoomId);
+
+    /**
+     * Records the latest message of a room for the inbox. Ignored if a newer message was already recorded.
+     *
+     * @return The number of rows updated.
+     */
+    @Modifying
+    @Query("UPDATE ChatRoom cr SET cr.lastActivityAt = :sentAt, cr.lastMessagePreview = :preview, cr.lastMessageSenderId = :senderId, " +
+            "cr.lastSentSeq = :seq " +
+            "WHERE cr.id = :chatRoomId AND (cr.lastActivityAt IS NULL OR cr.lastActivityAt <= :sentAt)")
+    int updateLastMessage(@Param("chatRoomId") UUID chatRoomId,
+                          @Param("sentAt") LocalDateTime sentAt,
+                          @Param("preview") String preview,
+                          @Param("senderId") UUID senderId,
+                          @Param("seq") long seq);
+
+    /**
+     * Fills last_activity_at for rooms created before the column existed.
+     *
+     * @return The number of rows updated.
+     */
+    @Modifying
+    @Query("UPDATE ChatRoom cr SET cr.lastActivityAt = COALESCE(" +
+            "(SELECT MAX(m.sentAt) FROM Message m WHERE m.chatRoom = cr), cr.createdAt) " +
+            "WHERE cr.lastActivityAt IS NULL")
+    int backfillLastActivity();
+
+    /**
+     * First page of a user's inbox: one row per room with the counterpart profile,
+     * last message preview and unread count, newest activity first.
+     */
+    @Query(INBOX_SELECT +
+            "ORDER BY cr.lastActivityAt DESC, cr.id DESC")
+    List<InboxItemResponse> findInbox(@Param("userId") UUID userId, Pageable pageable);
+
+    /**
+     * Next page of a user's inbox, after the (lastActivityAt, id) cursor.
+     */
+    @Query(INBOX_SELECT +
+            "AND (cr.lastActivityAt < :before OR (cr.lastActivityAt = :before AND cr.id < :beforeRoomId)) " +
+            "ORDER BY cr.lastActivityAt DESC, cr.id DESC")
+    List<InboxItemResponse> findInboxBefore(@Param("userId") UUID userId,
+                                            @Param("before") LocalDateTime before,
+                                            @Param("beforeRoomId") UUID beforeRoomId,
+                                            Pageable pageable);
+
+
 }
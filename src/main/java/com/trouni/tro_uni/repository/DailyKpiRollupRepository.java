@@ -0,0 +1,41 @@
+package com.trouni.tro_uni.repository;
+
+import com.trouni.tro_uni.entity.DailyKpiRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyKpiRollupRepository extends JpaRepository<DailyKpiRollup, LocalDate> {
+
+    List<DailyKpiRollup> findByBucketDateBetweenOrderByBucketDateAsc(LocalDate from, LocalDate to);
+
+    /**
+     * Tổng của tất cả các ngày: {users, rooms, reviews, payments, revenue}
+     */
+    @Query("SELECT COALESCE(SUM(k.newUsers), 0), COALESCE(SUM(k.newRooms), 0), COALESCE(SUM(k.newReviews), 0), " +
+           "COALESCE(SUM(k.completedPayments), 0), COALESCE(SUM(k.revenue), 0) FROM DailyKpiRollup k")
+    List<Object[]> sumTotals();
+
+    /**
+     * Cộng dồn vào bucket của một ngày; trả về 0 nếu bucket chưa tồn tại
+     */
+    @Modifying
+    @Query("UPDATE DailyKpiRollup k SET k.newUsers = k.newUsers + :users, k.newRooms = k.newRooms + :rooms, " +
+           "k.newReviews = k.newReviews + :reviews, k.completedPayments = k.completedPayments + :payments, " +
+           "k.revenue = k.revenue + :revenue, k.updatedAt = :now WHERE k.bucketDate = :bucketDate")
+    int addToBucket(@Param("bucketDate") LocalDate bucketDate,
+                    @Param("users") long users,
+                    @Param("rooms") long rooms,
+                    @Param("reviews") long reviews,
+                    @Param("payments") long payments,
+                    @Param("revenue") BigDecimal revenue,
+                    @Param("now") LocalDateTime now);
+}
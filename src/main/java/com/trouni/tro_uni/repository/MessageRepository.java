@@ -5,11 +5,15 @@ import com.trouni.tro_uni.entity.Message;
 import com.trouni.tro_uni.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -30,4 +34,41 @@ public interface MessageRepository extends JpaRepository<Message, UUID> {
     List<Message> findByChatRoomAndReadFalse(ChatRoom chatRoom);
 
     List<Message> findByChatRoomIdOrderBySentAtAsc(UUID roomId);
+
+    // Cursor pagination theo seq (dùng index chat_room_id, seq)
+    @EntityGraph(attributePaths = "sender")
+    List<Message> findByChatRoomIdAndSeqNotNullOrderBySeqDesc(UUID chatRoomId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "sender")
+    List<Message> findByChatRoomIdAndSeqLessThanOrderBySeqDesc(UUID chatRoomId, Long beforeSeq, Pageable pageable);
+
+    @EntityGraph(attributePaths = "sender")
+    List<Message> findByChatRoomIdAndSeqGreaterThanOrderBySeqAsc(UUID chatRoomId, Long afterSeq, Pageable pageable);
+
+    // Backfill seq cho message cũ (trước khi có cột seq): đánh số cả phòng bằng một câu lệnh, theo (sent_at, id).
+    // UPDATE với subquery tương quan chạy được trên PostgreSQL (mọi phiên bản), SQL Server và H2; subquery đọc
+    // trạng thái trước câu lệnh nên seq của mỗi message là số message chưa đánh số đứng trước nó, tính cả nó.
+    // Chi phí O(n²) theo số message của phòng, nhưng mỗi phòng cũ chỉ chạy một lần (dùng index chat_room_id, seq)
+    @Modifying
+    @Query(value = "UPDATE messages SET seq = (" +
+            "SELECT COUNT(*) FROM messages o WHERE o.chat_room_id = messages.chat_room_id AND o.seq IS NULL " +
+            "AND (o.sent_at < messages.sent_at OR (o.sent_at = messages.sent_at AND o.id <= messages.id))) " +
+            "WHERE chat_room_id = :chatRoomId AND seq IS NULL", nativeQuery = true)
+    int assignSeqBySentAt(@Param("chatRoomId") UUID chatRoomId);
+
+    // Read receipts: đánh dấu đã đọc theo tập (một câu UPDATE), chỉ message của người khác
+    @Modifying
+    @Query("UPDATE Message m SET m.read = true WHERE m.chatRoom.id = :chatRoomId AND m.sender.id <> :readerId " +
+            "AND m.read = false AND m.seq <= :upToSeq")
+    int markReadUpToSeq(@Param("chatRoomId") UUID chatRoomId, @Param("readerId") UUID readerId, @Param("upToSeq") Long upToSeq);
+
+    @Modifying
+    @Query("UPDATE Message m SET m.read = true WHERE m.chatRoom.id = :chatRoomId AND m.sender.id <> :readerId " +
+            "AND m.read = false AND m.sentAt <= :upToTime")
+    int markReadUpToTime(@Param("chatRoomId") UUID chatRoomId, @Param("readerId") UUID readerId, @Param("upToTime") LocalDateTime upToTime);
+
+    // Đếm message chưa đọc của user, gom theo room (dùng để nạp/đối soát bộ đếm unread)
+    @Query("SELECT m.chatRoom.id, COUNT(m) FROM Message m WHERE m.chatRoom.id IN :chatRoomIds " +
+            "AND m.sender.id <> :userId AND m.read = false GROUP BY m.chatRoom.id")
+    List<Object[]> countUnreadGroupByChatRoom(@Param("userId") UUID userId, @Param("chatRoomIds") Collection<UUID> chatRoomIds);
 }
\ No newline at end of file
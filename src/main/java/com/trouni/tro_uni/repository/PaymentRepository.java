@@ -5,11 +5,17 @@ import com.trouni.tro_uni.entity.Subscription;
 import com.trouni.tro_uni.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import java.util.Optional;
@@ -28,6 +34,14 @@ public interface PaymentRepository extends JpaRepository<Payment, UUID> {
     Page<Payment> findByUserOrderByCreatedAtDesc(User user, Pageable pageable);
     
     Optional<Payment> findByTransactionCode(String transactionCode);
+
+    /**
+     * Loads a payment by transaction code and locks its row until the surrounding transaction ends,
+     * so two webhook deliveries for the same payment are confirmed one after the other.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Payment p WHERE p.transactionCode = :transactionCode")
+    Optional<Payment> findByTransactionCodeForUpdate(@Param("transactionCode") String transactionCode);
     
     boolean existsByTransactionCode(String transactionCode);
 
@@ -35,4 +49,34 @@ public interface PaymentRepository extends JpaRepository<Payment, UUID> {
     BigDecimal sumAmountByStatus(String status);
 
     long countByStatus(String status);
+
+    /**
+     * IDs of payments in a status created before a time, oldest first (uses idx_payments_status_created_at).
+     */
+    @Query("SELECT p.id FROM Payment p WHERE p.status = :status AND p.createdAt < :createdBefore ORDER BY p.createdAt")
+    List<UUID> findIdsByStatusCreatedBefore(@Param("status") String status,
+                                            @Param("createdBefore") LocalDateTime createdBefore,
+                                            Pageable pageable);
+
+    long countByStatusAndCreatedAtBefore(String status, LocalDateTime createdBefore);
+
+    /**
+     * Moves payments from one status to another, skipping rows whose status changed meanwhile
+     * (e.g. a webhook that arrived while the job was running).
+     *
+     * @return The number of payments updated.
+     */
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = :newStatus WHERE p.id IN :ids AND p.status = :currentStatus")
+    int updateStatusByIds(@Param("ids") Collection<UUID> ids,
+                          @Param("currentStatus") String currentStatus,
+                          @Param("newStatus") String newStatus);
+
+    // Thống kê theo ngày cho admin dashboard: {ngày, số payment, tổng tiền}
+    @Query("SELECT CAST(p.createdAt AS LocalDate), COUNT(p), SUM(p.amount) FROM Payment p " +
+           "WHERE p.status = :status AND p.createdAt >= :from AND p.createdAt < :to " +
+           "GROUP BY CAST(p.createdAt AS LocalDate)")
+    List<Object[]> sumAmountPerDayByStatus(@Param("status") String status,
+                                           @Param("from") LocalDateTime from,
+                                           @Param("to") LocalDateTime to);
 }
@@ -0,0 +1,54 @@
+package com.trouni.tro_uni.repository;
+
+import com.trouni.tro_uni.entity.PaymentWebhookEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface PaymentWebhookEventRepository extends JpaRepository<PaymentWebhookEvent, UUID> {
+
+    boolean existsByDedupeKey(String dedupeKey);
+
+    List<PaymentWebhookEvent> findByStatusAndReceivedAtBeforeOrderByReceivedAtAsc(String status,
+                                                                                  LocalDateTime receivedBefore,
+                                                                                  Pageable pageable);
+
+    long countByStatus(String status);
+
+    /**
+     * Claims an event for processing: only one worker, on any instance, moves it out of the
+     * current status, and the attempt is counted in the same statement.
+     *
+     * @return 1 if this caller claimed the event, 0 if another worker claimed or finished it first.
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE PaymentWebhookEvent e SET e.status = :newStatus, e.attempts = e.attempts + 1, e.claimedAt = :now " +
+           "WHERE e.id = :id AND e.status = :currentStatus")
+    int claim(@Param("id") UUID id,
+              @Param("currentStatus") String currentStatus,
+              @Param("newStatus") String newStatus,
+              @Param("now") LocalDateTime now);
+
+    /**
+     * Hands events claimed before a time back to the queue (the worker that claimed them died).
+     *
+     * @return The number of events released.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentWebhookEvent e SET e.status = :newStatus " +
+           "WHERE e.status = :currentStatus AND e.claimedAt < :claimedBefore")
+    int releaseClaimedBefore(@Param("currentStatus") String currentStatus,
+                             @Param("newStatus") String newStatus,
+                             @Param("claimedBefore") LocalDateTime claimedBefore);
+}
@@ -4,6 +4,7 @@ import com.trouni.tro_uni.entity.Report;
 import com.trouni.tro_uni.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -19,12 +20,33 @@ public interface ReportRepository extends JpaRepository<Report, UUID> {
     
     List<Report> findByStatus(String status);
     
+    @EntityGraph(attributePaths = "reporter")
     Page<Report> findByStatus(String status, Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = "reporter")
+    Page<Report> findAll(Pageable pageable);
     
     Page<Report> findByStatusOrderByCreatedAtDesc(String status, Pageable pageable);
     
     List<Report> findByReportedContentTypeAndReportedContentId(String contentType, UUID contentId);
+
+    // Kiểm tra trùng khi tạo báo cáo, dùng index (reporter, type, contentId)
+    boolean existsByReporterIdAndReportedContentTypeAndReportedContentId(UUID reporterId, String contentType, UUID contentId);
     
     @Query("SELECT COUNT(r) FROM Report r WHERE r.reportedContentType = :contentType AND r.reportedContentId = :contentId")
     long countByReportedContent(@Param("contentType") String contentType, @Param("contentId") UUID contentId);
+
+    // Bộ đếm báo cáo: {count, pendingCount, lastReportedAt} của một nội dung
+    @Query("SELECT COUNT(r), SUM(CASE WHEN r.status = :pendingStatus THEN 1 ELSE 0 END), MAX(r.createdAt) FROM Report r " +
+           "WHERE r.reportedContentType = :contentType AND r.reportedContentId = :contentId")
+    List<Object[]> summarizeByContent(@Param("contentType") String contentType,
+                                      @Param("contentId") UUID contentId,
+                                      @Param("pendingStatus") String pendingStatus);
+
+    // Tính lại bộ đếm hằng đêm: {contentType, contentId, count, pendingCount, lastReportedAt} theo từng nội dung
+    @Query("SELECT r.reportedContentType, r.reportedContentId, COUNT(r), " +
+           "SUM(CASE WHEN r.status = :pendingStatus THEN 1 ELSE 0 END), MAX(r.createdAt) FROM Report r " +
+           "GROUP BY r.reportedContentType, r.reportedContentId")
+    List<Object[]> summarizeAllByContent(@Param("pendingStatus") String pendingStatus);
 }
\ No newline at end of file
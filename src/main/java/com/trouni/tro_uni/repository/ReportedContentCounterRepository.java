@@ -0,0 +1,44 @@
+package com.trouni.tro_uni.repository;
+
+import com.trouni.tro_uni.entity.ReportedContentCounter;
+import com.trouni.tro_uni.entity.ReportedContentCounterId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ReportedContentCounterRepository extends JpaRepository<ReportedContentCounter, ReportedContentCounterId> {
+
+    // Nạp hàng đợi kiểm duyệt: chỉ các nội dung còn báo cáo đang chờ (index pending_count)
+    List<ReportedContentCounter> findByPendingCountGreaterThan(long pendingCount);
+
+    // Các câu UPDATE cộng dồn trả về 0 nếu nội dung chưa có dòng bộ đếm
+    @Modifying
+    @Query("UPDATE ReportedContentCounter c SET c.pendingCount = c.pendingCount + 1, c.totalCount = c.totalCount + 1, " +
+           "c.lastReportedAt = :reportedAt, c.revision = c.revision + 1, c.updatedAt = :now " +
+           "WHERE c.contentType = :contentType AND c.contentId = :contentId")
+    int addReport(@Param("contentType") String contentType,
+                  @Param("contentId") UUID contentId,
+                  @Param("reportedAt") LocalDateTime reportedAt,
+                  @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE ReportedContentCounter c SET c.pendingCount = c.pendingCount + :delta, c.revision = c.revision + 1, " +
+           "c.updatedAt = :now WHERE c.contentType = :contentType AND c.contentId = :contentId")
+    int addPending(@Param("contentType") String contentType,
+                   @Param("contentId") UUID contentId,
+                   @Param("delta") long delta,
+                   @Param("now") LocalDateTime now);
+
+    // Tính lại hằng đêm: đưa mọi bộ đếm về 0 rồi ghi lại từ bảng reports trong cùng transaction
+    @Modifying
+    @Query("UPDATE ReportedContentCounter c SET c.pendingCount = 0, c.totalCount = 0, c.revision = c.revision + 1, " +
+           "c.updatedAt = :now WHERE c.pendingCount <> 0 OR c.totalCount <> 0")
+    int resetCounts(@Param("now") LocalDateTime now);
+}
@@ -10,6 +10,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -40,4 +42,18 @@ public interface ReviewRepository extends JpaRepository<Review, UUID> {
     // Fix: Thay đổi method để check existence đúng cách
     @Query("SELECT CASE WHEN COUNT(r) > 0 THEN true ELSE false END FROM Review r WHERE r.user = :user AND r.room.id = :roomId")
     boolean existsByUserAndRoomId(@Param("user") User user, @Param("roomId") UUID roomId);
+
+    // Thống kê theo ngày cho admin dashboard: {ngày, số review}
+    @Query("SELECT CAST(r.createdAt AS LocalDate), COUNT(r) FROM Review r " +
+           "WHERE r.createdAt >= :from AND r.createdAt < :to GROUP BY CAST(r.createdAt AS LocalDate)")
+    List<Object[]> countCreatedPerDay(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Tổng điểm và số review có điểm của từng phòng: {roomId, sum, count}
+    @Query("SELECT r.room.id, COALESCE(SUM(r.score), 0), COUNT(r.score) FROM Review r " +
+           "WHERE r.room.id IN :roomIds GROUP BY r.room.id")
+    List<Object[]> sumScoresByRoomIds(@Param("roomIds") Collection<UUID> roomIds);
+
+    // Moderation: {id, score} cho một trang báo cáo
+    @Query("SELECT r.id, r.score FROM Review r WHERE r.id IN :ids")
+    List<Object[]> findScoresByIds(@Param("ids") Collection<UUID> ids);
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.trouni.tro_uni.repository;
+
+import com.trouni.tro_uni.entity.RoomDailyViews;
+import com.trouni.tro_uni.entity.RoomDailyViewsId;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface RoomDailyViewsRepository extends JpaRepository<RoomDailyViews, RoomDailyViewsId> {
+
+    List<RoomDailyViews> findByRoomIdAndViewDateBetween(UUID roomId, LocalDate from, LocalDate to);
+
+    // Khóa dòng khi ghi: lượt xem cộng dồn và sketch gộp từ nhiều instance không ghi đè lên nhau
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT v FROM RoomDailyViews v WHERE v.roomId = :roomId AND v.viewDate = :viewDate")
+    Optional<RoomDailyViews> findForUpdate(@Param("roomId") UUID roomId, @Param("viewDate") LocalDate viewDate);
+}
@@ -6,11 +6,15 @@ import com.trouni.tro_uni.enums.RoomType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -87,20 +91,6 @@ public interface RoomRepository extends JpaRepository<Room, UUID> {
     Optional<Room> findByIdAndOwner(UUID id, User owner);
     boolean existsByIdAndOwner(UUID id, User owner);
 
-    @Query("SELECT r.id, r.title, r.status, r.viewCount, SIZE(r.bookmarks), COALESCE(AVG(rev.score), 0.0) " +
-            "FROM Room r LEFT JOIN r.reviews rev " +
-            "WHERE r.owner.id = :ownerId " +
-            "GROUP BY r.id, r.title, r.status, r.viewCount " +
-            "ORDER BY r.createdAt DESC") // Thêm ORDER BY để danh sách có thứ tự mặc định
-    List<Object[]> findRoomPerformanceProjectionByOwnerAsList(@Param("ownerId") UUID ownerId);
-
-    // Lấy tổng số bookmark và rating trung bình của tất cả các phòng của chủ nhà
-    @Query("SELECT COUNT(b) FROM Bookmark b WHERE b.room.owner.id = :ownerId")
-    long countTotalBookmarksByOwner(@Param("ownerId") UUID ownerId);
-
-    @Query("SELECT COALESCE(AVG(rev.score), 0.0) FROM Review rev WHERE rev.room.owner.id = :ownerId")
-    double findAverageRatingByOwner(@Param("ownerId") UUID ownerId);
-
     @Query("SELECT COUNT(r) FROM Room r WHERE r.owner.id = :ownerId")
     long countByOwnerId(@Param("ownerId") UUID ownerId);
 
@@ -110,4 +100,45 @@ public interface RoomRepository extends JpaRepository<Room, UUID> {
     Page<Room> findByStatusNot(String status, Pageable pageable);
 
     List<Room> findByOwnerIdAndStatusNot(UUID ownerId, String status);
+
+    // Thống kê theo ngày cho admin dashboard: {ngày, số phòng tạo mới}
+    @Query("SELECT CAST(r.createdAt AS LocalDate), COUNT(r) FROM Room r " +
+           "WHERE r.createdAt >= :from AND r.createdAt < :to GROUP BY CAST(r.createdAt AS LocalDate)")
+    List<Object[]> countCreatedPerDay(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Landlord dashboard: {id, title, status} các phòng của chủ nhà, mới nhất trước
+    @Query("SELECT r.id, r.title, r.status FROM Room r WHERE r.owner.id = :ownerId ORDER BY r.createdAt DESC")
+    List<Object[]> findSummariesByOwnerId(@Param("ownerId") UUID ownerId);
+
+    // Lượt xem: tăng trực tiếp trong database, không ghi lại cả phòng (các lượt xem đồng thời không bị mất)
+    @Modifying
+    @Transactional
+    @Query("UPDATE Room r SET r.viewCount = r.viewCount + 1 WHERE r.id = :roomId")
+    int incrementViewCount(@Param("roomId") UUID roomId);
+
+    // Nguồn để tính lại room_stats: {id, ownerId, viewCount}
+    @Query("SELECT r.id, r.owner.id, r.viewCount FROM Room r WHERE r.id IN :ids")
+    List<Object[]> findStatsSourceByIds(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT r.id FROM Room r ORDER BY r.id")
+    List<UUID> findIdsOrderById(Pageable pageable);
+
+    @Query("SELECT r.id FROM Room r WHERE NOT EXISTS (SELECT 1 FROM RoomStats s WHERE s.roomId = r.id)")
+    List<UUID> findIdsWithoutStats(Pageable pageable);
+
+    // Moderation: {id, title, city, district} cho một trang báo cáo
+    @Query("SELECT r.id, r.title, r.city, r.district FROM Room r WHERE r.id IN :ids")
+    List<Object[]> findReportSummariesByIds(@Param("ids") Collection<UUID> ids);
+
+    // Moderation: đọc trạng thái hiện tại mà không nạp cả phòng
+    @Query("SELECT r.status FROM Room r WHERE r.id = :roomId")
+    Optional<String> findStatusById(@Param("roomId") UUID roomId);
+
+    // Moderation: ẩn/hiện lại phòng theo số báo cáo, chỉ khi phòng đang ở một trong các trạng thái fromStatuses
+    @Modifying
+    @Query("UPDATE Room r SET r.status = :newStatus, r.updatedAt = :now WHERE r.id = :roomId AND r.status IN :fromStatuses")
+    int updateStatusIfIn(@Param("roomId") UUID roomId,
+                         @Param("fromStatuses") Collection<String> fromStatuses,
+                         @Param("newStatus") String newStatus,
+                         @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,53 @@
+package com.trouni.tro_uni.repository;
+
+import com.trouni.tro_uni.entity.RoomStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface RoomStatsRepository extends JpaRepository<RoomStats, UUID> {
+
+    List<RoomStats> findByOwnerId(UUID ownerId);
+
+    // Khóa các dòng trước khi tính lại: thao tác cộng dồn đồng thời phải chờ, không bị ghi đè
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM RoomStats s WHERE s.roomId IN :roomIds")
+    List<RoomStats> findAllByIdForUpdate(@Param("roomIds") Collection<UUID> roomIds);
+
+    // Các câu UPDATE cộng dồn trả về 0 nếu phòng chưa có dòng thống kê
+    @Modifying
+    @Query("UPDATE RoomStats s SET s.viewCount = s.viewCount + :views, s.updatedAt = :now WHERE s.roomId = :roomId")
+    int addViews(@Param("roomId") UUID roomId, @Param("views") long views, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE RoomStats s SET s.bookmarkCount = s.bookmarkCount + :delta, s.updatedAt = :now WHERE s.roomId = :roomId")
+    int addBookmarks(@Param("roomId") UUID roomId, @Param("delta") long delta, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE RoomStats s SET s.ratingSum = s.ratingSum + :scoreDelta, s.ratingCount = s.ratingCount + :countDelta, " +
+           "s.updatedAt = :now WHERE s.roomId = :roomId")
+    int addRating(@Param("roomId") UUID roomId,
+                  @Param("scoreDelta") long scoreDelta,
+                  @Param("countDelta") long countDelta,
+                  @Param("now") LocalDateTime now);
+
+    // Chỉ tính khi người nhận tin nhắn là chủ phòng
+    @Modifying
+    @Query("UPDATE RoomStats s SET s.chatsStarted = s.chatsStarted + 1, s.updatedAt = :now " +
+           "WHERE s.roomId = :roomId AND s.ownerId = :ownerId")
+    int incrementChatsStarted(@Param("roomId") UUID roomId, @Param("ownerId") UUID ownerId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM RoomStats s WHERE s.ownerId = :ownerId")
+    int deleteByOwnerId(@Param("ownerId") UUID ownerId);
+}
@@ -5,12 +5,16 @@ import com.trouni.tro_uni.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -31,4 +35,20 @@ public interface RoommatePostRepository extends JpaRepository<RoommatePost, UUID
     Page<RoommatePost> findByDesiredLocationContaining(@Param("location") String location, Pageable pageable);
     
     Page<RoommatePost> findByStatusOrderByCreatedAtDesc(String status, Pageable pageable);
+
+    // Moderation: {id, title} cho một trang báo cáo
+    @Query("SELECT rp.id, rp.title FROM RoommatePost rp WHERE rp.id IN :ids")
+    List<Object[]> findTitlesByIds(@Param("ids") Collection<UUID> ids);
+
+    // Moderation: đọc trạng thái hiện tại mà không nạp cả bài đăng
+    @Query("SELECT rp.status FROM RoommatePost rp WHERE rp.id = :id")
+    Optional<String> findStatusById(@Param("id") UUID id);
+
+    // Moderation: ẩn/hiện lại bài đăng theo số báo cáo, chỉ khi bài đang ở trạng thái fromStatus
+    @Modifying
+    @Query("UPDATE RoommatePost rp SET rp.status = :newStatus, rp.updatedAt = :now WHERE rp.id = :id AND rp.status = :fromStatus")
+    int updateStatusIfCurrent(@Param("id") UUID id,
+                              @Param("fromStatus") String fromStatus,
+                              @Param("newStatus") String newStatus,
+                              @Param("now") LocalDateTime now);
 }
\ No newline at end of file
@@ -9,6 +9,9 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -24,6 +27,15 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     boolean existsByEmail(String email);
     
     boolean existsByRole(UserRole role);
+
+    // Token epoch (revocation) - chỉ đọc 1 cột, không load entity
+    @Query("SELECT u.tokenEpoch FROM User u WHERE u.id = :userId")
+    Optional<Integer> findTokenEpochById(@Param("userId") UUID userId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.tokenEpoch = COALESCE(u.tokenEpoch, 0) + 1 WHERE u.id = :userId")
+    int incrementTokenEpoch(@Param("userId") UUID userId);
     
     // Hard delete methods for admin
     @Modifying
@@ -55,4 +67,16 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     @Transactional
     @Query("DELETE FROM Room r WHERE r.owner.id = :userId")
     int deleteUserRoomsAndRelated(@Param("userId") UUID userId);
+
+    // Thống kê theo ngày cho admin dashboard: {ngày, số user tạo mới}
+    @Query("SELECT CAST(u.createdAt AS LocalDate), COUNT(u) FROM User u " +
+           "WHERE u.createdAt >= :from AND u.createdAt < :to GROUP BY CAST(u.createdAt AS LocalDate)")
+    List<Object[]> countCreatedPerDay(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT MIN(u.createdAt) FROM User u")
+    Optional<LocalDateTime> findEarliestCreatedAt();
+
+    // Moderation: {id, username} cho một trang báo cáo (không load rooms EAGER)
+    @Query("SELECT u.id, u.username FROM User u WHERE u.id IN :ids")
+    List<Object[]> findUsernamesByIds(@Param("ids") Collection<UUID> ids);
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.trouni.tro_uni.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * ClientIpResolver - Xác định IP thật của client khi ứng dụng đứng sau proxy/load balancer
+ * <p>
+ * Chức năng chính:
+ * - Chỉ đọc X-Forwarded-For khi kết nối tới từ một proxy tin cậy (app.security.trusted-proxies)
+ * - Duyệt X-Forwarded-For từ phải sang trái, bỏ qua các hop là proxy tin cậy; hop đầu tiên không tin cậy
+ *   là client. Các giá trị client tự thêm vào bên trái header không được dùng, nên không giả mạo được
+ * - Dùng chung cho giới hạn tần suất đăng nhập và đếm người xem phòng
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class ClientIpResolver {
+
+    private static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+    private static final Pattern IPV4_LITERAL = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+
+    private final List<IpAddressMatcher> trustedProxies = new ArrayList<>();
+
+    public ClientIpResolver(@Value("${app.security.trusted-proxies:127.0.0.0/8,::1/128,10.0.0.0/8,172.16.0.0/12,"
+            + "192.168.0.0/16,169.254.0.0/16,fc00::/7}") List<String> trustedProxies) {
+        for (String proxy : trustedProxies) {
+            if (StringUtils.hasText(proxy)) {
+                this.trustedProxies.add(new IpAddressMatcher(proxy.trim()));
+            }
+        }
+    }
+
+    /**
+     * Lấy IP client của request
+     *
+     * @param request - HttpServletRequest
+     * @return String - IP client
+     */
+    public String resolve(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        String forwardedFor = request.getHeader(FORWARDED_FOR_HEADER);
+        if (!StringUtils.hasText(forwardedFor) || !isTrusted(remoteAddr)) {
+            return remoteAddr;
+        }
+
+        // Hop bên phải nhất do proxy gần nhất thêm vào; dừng ở hop đầu tiên không phải proxy tin cậy
+        String clientIp = remoteAddr;
+        String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (hop.isEmpty()) {
+                continue;
+            }
+            clientIp = hop;
+            if (!isTrusted(hop)) {
+                break;
+            }
+        }
+        return clientIp;
+    }
+
+    private boolean isTrusted(String address) {
+        // Chỉ so khớp địa chỉ IP dạng literal, tránh phân giải DNS với giá trị lấy từ header
+        if (address == null || !(address.indexOf(':') >= 0 || IPV4_LITERAL.matcher(address).matches())) {
+            return false;
+        }
+        try {
+            for (IpAddressMatcher matcher : trustedProxies) {
+                if (matcher.matches(address)) {
+                    return true;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            log.debug("Ignoring malformed forwarded address: {}", address);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,220 @@
+package com.trouni.tro_uni.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trouni.tro_uni.config.GoogleAuthProperties;
+import com.trouni.tro_uni.exception.AppException;
+import com.trouni.tro_uni.exception.errorcode.AuthenticationErrorCode;
+import com.trouni.tro_uni.exception.errorcode.GeneralErrorCode;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestClient;
+
+import java.math.BigInteger;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * GoogleIdTokenVerifier - Verify Google ID token ngay tại server bằng JWKS đã cache
+ * <p>
+ * Chức năng chính:
+ * - Tải key set (JWKS) của Google và cache trong bộ nhớ theo Cache-Control max-age
+ * - Tải lại key set khi hết hạn hoặc khi gặp "kid" lạ (Google xoay vòng key)
+ * - Kiểm tra chữ ký RS256, issuer, audience (client id) và thời hạn token
+ * - Nếu Google không phản hồi khi refresh, tiếp tục dùng key set cũ
+ * <p>
+ * Phần lớn các lần login không cần gọi ra ngoài vì key set đã có sẵn trong cache.
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class GoogleIdTokenVerifier {
+
+    // Thời gian chờ trước khi thử refresh lại nếu lần trước thất bại
+    private static final long FAILED_REFRESH_BACKOFF_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final Pattern MAX_AGE_PATTERN = Pattern.compile("max-age=(\\d+)");
+
+    private final RestClient googleRestClient;
+    private final ObjectMapper objectMapper;
+    private final GoogleAuthProperties properties;
+    // Thời gian tối thiểu giữa 2 lần refresh bắt buộc (khi gặp kid lạ)
+    private final long minForcedRefreshNanos;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile KeySet keySet = KeySet.EMPTY;
+
+    public GoogleIdTokenVerifier(@Qualifier("googleRestClient") RestClient googleRestClient,
+                                 ObjectMapper objectMapper,
+                                 GoogleAuthProperties properties) {
+        this.googleRestClient = googleRestClient;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.minForcedRefreshNanos = TimeUnit.MILLISECONDS.toNanos(properties.getJwksMinRefreshIntervalMs());
+    }
+
+    /**
+     * Verify Google ID token và trả về thông tin user
+     *
+     * @param idToken - ID token nhận từ Google Sign-In
+     * @return GoogleUserInfo - Email, tên, avatar của user
+     * @throws AppException - TOKEN_INVALID khi token sai chữ ký, sai audience/issuer hoặc hết hạn
+     */
+    public GoogleUserInfo verify(String idToken) {
+        Claims claims;
+        try {
+            claims = Jwts.parserBuilder()
+                    .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                        @Override
+                        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                            return resolveKey(header.getKeyId());
+                        }
+                    })
+                    .requireAudience(properties.getClientId())
+                    .setAllowedClockSkewSeconds(60)
+                    .build()
+                    .parseClaimsJws(idToken)
+                    .getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            log.warn("Google ID token rejected: {}", e.getMessage());
+            throw new AppException(AuthenticationErrorCode.TOKEN_INVALID);
+        }
+
+        if (!properties.getIssuers().contains(claims.getIssuer())) {
+            log.warn("Google ID token has unexpected issuer: {}", claims.getIssuer());
+            throw new AppException(AuthenticationErrorCode.TOKEN_INVALID);
+        }
+
+        String email = claims.get("email", String.class);
+        Boolean emailVerified = claims.get("email_verified", Boolean.class);
+        if (!StringUtils.hasText(email) || !Boolean.TRUE.equals(emailVerified)) {
+            throw new AppException(AuthenticationErrorCode.EMAIL_NOT_VERIFIED);
+        }
+
+        String name = claims.get("name", String.class);
+        String picture = claims.get("picture", String.class);
+        return GoogleUserInfo.builder()
+                .email(email)
+                .name(name != null ? name : email)
+                .picture(picture != null ? picture : "")
+                .gender("")
+                .build();
+    }
+
+    /**
+     * Lấy public key theo kid, refresh key set khi cần
+     */
+    private PublicKey resolveKey(String kid) {
+        long now = System.nanoTime();
+        KeySet current = keySet;
+        if (current.isExpired(now)) {
+            current = refresh(false);
+        }
+
+        PublicKey key = kid != null ? current.keys().get(kid) : null;
+        if (key == null) {
+            // Có thể Google vừa xoay vòng key -> refresh bắt buộc (có giới hạn tần suất)
+            current = refresh(true);
+            key = kid != null ? current.keys().get(kid) : null;
+        }
+        if (key == null) {
+            throw new AppException(AuthenticationErrorCode.TOKEN_INVALID);
+        }
+        return key;
+    }
+
+    /**
+     * Tải lại key set, chỉ một thread thực hiện, các thread khác dùng kết quả
+     */
+    private KeySet refresh(boolean forced) {
+        refreshLock.lock();
+        try {
+            long now = System.nanoTime();
+            KeySet current = keySet;
+            if (!forced && !current.isExpired(now)) {
+                return current; // Thread khác vừa refresh xong
+            }
+            if (forced && !current.keys().isEmpty() && now - current.fetchedAt() < minForcedRefreshNanos) {
+                return current;
+            }
+
+            try {
+                keySet = fetchKeySet(now);
+                log.info("Loaded {} Google signing keys", keySet.keys().size());
+            } catch (Exception e) {
+                log.error("Failed to refresh Google JWKS from {}: {}", properties.getJwksUri(), e.getMessage());
+                if (current.keys().isEmpty()) {
+                    throw new AppException(GeneralErrorCode.EXTERNAL_SERVICE_ERROR);
+                }
+                // Giữ key set cũ, thử lại sau một khoảng backoff
+                keySet = new KeySet(current.keys(), now, FAILED_REFRESH_BACKOFF_NANOS);
+            }
+            return keySet;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private KeySet fetchKeySet(long now) throws Exception {
+        ResponseEntity<String> response = googleRestClient.get()
+                .uri(properties.getJwksUri())
+                .retrieve()
+                .toEntity(String.class);
+
+        JsonNode root = objectMapper.readTree(response.getBody());
+        Map<String, PublicKey> keys = new HashMap<>();
+        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+        for (JsonNode jwk : root.path("keys")) {
+            if (!"RSA".equals(jwk.path("kty").asText())) {
+                continue;
+            }
+            BigInteger modulus = new BigInteger(1, Base64.getUrlDecoder().decode(jwk.path("n").asText()));
+            BigInteger exponent = new BigInteger(1, Base64.getUrlDecoder().decode(jwk.path("e").asText()));
+            keys.put(jwk.path("kid").asText(), keyFactory.generatePublic(new RSAPublicKeySpec(modulus, exponent)));
+        }
+
+        return new KeySet(Map.copyOf(keys), now, resolveMaxAge(response.getHeaders()));
+    }
+
+    /**
+     * Thời gian cache: lấy theo Cache-Control max-age, không vượt quá cấu hình
+     */
+    private long resolveMaxAge(HttpHeaders headers) {
+        long configured = TimeUnit.MILLISECONDS.toNanos(properties.getJwksRefreshIntervalMs());
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl != null) {
+            Matcher matcher = MAX_AGE_PATTERN.matcher(cacheControl);
+            if (matcher.find()) {
+                return Math.min(configured, TimeUnit.SECONDS.toNanos(Long.parseLong(matcher.group(1))));
+            }
+        }
+        return configured;
+    }
+
+    private record KeySet(Map<String, PublicKey> keys, long fetchedAt, long maxAgeNanos) {
+        static final KeySet EMPTY = new KeySet(Map.of(), 0, 0);
+
+        boolean isExpired(long now) {
+            return keys.isEmpty() || now - fetchedAt >= maxAgeNanos;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.trouni.tro_uni.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * GoogleUserInfo - Thông tin user lấy từ Google (ID token hoặc userinfo endpoint)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GoogleUserInfo {
+    private String email;
+    private String name;
+    private String picture;
+    private String gender;
+}
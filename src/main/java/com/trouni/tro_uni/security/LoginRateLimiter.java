@@ -0,0 +1,220 @@
+package com.trouni.tro_uni.security;
+
+import com.trouni.tro_uni.exception.AppException;
+import com.trouni.tro_uni.exception.errorcode.GeneralErrorCode;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LoginRateLimiter - Giới hạn tần suất login/signup theo IP và theo tài khoản
+ * <p>
+ * Chức năng chính:
+ * - Token bucket cho mỗi IP và mỗi tài khoản (username/email)
+ * - Lưu trong ConcurrentHashMap (striped), mỗi bucket cập nhật bằng một CAS (lock-free)
+ * - Từ chối ngay với 429 trước khi chạm tới database hoặc BCrypt
+ * - Số key được giới hạn: khi đầy, chỉ bucket đã nạp đầy token bị loại; nếu không có thì key mới bị từ chối
+ * - IP client lấy qua ClientIpResolver (chỉ tin X-Forwarded-For từ proxy tin cậy)
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class LoginRateLimiter {
+
+    private static final int MAX_REQUEUED_PER_INSERT = 8;
+    private static final int SEGMENTS = 16;
+
+    private final ClientIpResolver clientIpResolver;
+    private final BucketMap ipBuckets;
+    private final BucketMap accountBuckets;
+
+    private final BucketPolicy ipPolicy;
+    private final BucketPolicy accountPolicy;
+
+    public LoginRateLimiter(ClientIpResolver clientIpResolver,
+                            @Value("${app.auth.rate-limit.ip.capacity:20}") int ipCapacity,
+                            @Value("${app.auth.rate-limit.ip.refill-per-minute:20}") int ipRefillPerMinute,
+                            @Value("${app.auth.rate-limit.account.capacity:5}") int accountCapacity,
+                            @Value("${app.auth.rate-limit.account.refill-per-minute:5}") int accountRefillPerMinute,
+                            @Value("${app.auth.rate-limit.max-tracked-keys:100000}") int maxTrackedKeys) {
+        this.ipPolicy = new BucketPolicy(ipCapacity, ipRefillPerMinute);
+        this.accountPolicy = new BucketPolicy(accountCapacity, accountRefillPerMinute);
+        this.clientIpResolver = clientIpResolver;
+        this.ipBuckets = new BucketMap(maxTrackedKeys);
+        this.accountBuckets = new BucketMap(maxTrackedKeys);
+    }
+
+    /**
+     * Kiểm tra giới hạn cho một request login/signup
+     *
+     * @param request - HttpServletRequest để lấy IP client
+     * @param account - Username hoặc email (có thể null)
+     * @throws AppException - RATE_LIMIT_EXCEEDED khi vượt giới hạn
+     */
+    public void checkLimit(HttpServletRequest request, String account) {
+        String clientIp = clientIpResolver.resolve(request);
+        if (!ipBuckets.tryAcquire(clientIp, ipPolicy)) {
+            log.warn("Auth request throttled for IP: {}", clientIp);
+            throw new AppException(GeneralErrorCode.RATE_LIMIT_EXCEEDED);
+        }
+
+        if (StringUtils.hasText(account)) {
+            String accountKey = account.trim().toLowerCase(Locale.ROOT);
+            if (!accountBuckets.tryAcquire(accountKey, accountPolicy)) {
+                log.warn("Auth request throttled for account: {}", accountKey);
+                throw new AppException(GeneralErrorCode.RATE_LIMIT_EXCEEDED);
+            }
+        }
+    }
+
+    /**
+     * Số IP đang được theo dõi
+     */
+    int trackedIpKeys() {
+        return ipBuckets.size();
+    }
+
+    /**
+     * Số tài khoản đang được theo dõi
+     */
+    int trackedAccountKeys() {
+        return accountBuckets.size();
+    }
+
+    /**
+     * Tập bucket có giới hạn số key
+     * <p>
+     * Key đã có: đọc ConcurrentHashMap và CAS, không lock. Key mới: thêm dưới lock của segment theo hash
+     * của key, mỗi segment có hàng đợi theo thứ tự thêm vào và sức chứa riêng (tổng không vượt maxKeys).
+     * Khi segment đầy chỉ xem vài key ở đầu hàng đợi (O(1)): bucket đã nạp đầy token thì xóa, bucket còn
+     * đang bị giới hạn được đưa về cuối. Không bao giờ xóa bucket còn đang bị giới hạn: nếu không tìm được
+     * chỗ thì từ chối key mới (fail closed), để việc xoay vòng key không xóa được giới hạn của key khác.
+     */
+    private static final class BucketMap {
+
+        private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+        private final Segment[] segments;
+
+        private BucketMap(int maxKeys) {
+            int keys = Math.max(1, maxKeys);
+            int segmentCount = Math.min(SEGMENTS, keys);
+            this.segments = new Segment[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                segments[i] = new Segment(keys / segmentCount);
+            }
+        }
+
+        private boolean tryAcquire(String key, BucketPolicy policy) {
+            long now = System.nanoTime();
+            TokenBucket bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = segmentFor(key).insert(key, now);
+                if (bucket == null) {
+                    log.debug("Rate-limit key table full of throttled keys, refusing new key");
+                    return false;
+                }
+            }
+            return bucket.tryAcquire(now, policy);
+        }
+
+        private Segment segmentFor(String key) {
+            return segments[Math.floorMod(key.hashCode(), segments.length)];
+        }
+
+        private int size() {
+            return buckets.size();
+        }
+
+        /**
+         * Một phần của bảng key: chỉ các key có hash thuộc segment này được thêm/xóa dưới lock của nó
+         */
+        private final class Segment {
+
+            private final ArrayDeque<String> insertionOrder = new ArrayDeque<>();
+            private final int maxKeys;
+
+            private Segment(int maxKeys) {
+                this.maxKeys = maxKeys;
+            }
+
+            /**
+             * @return bucket của key, hoặc null khi segment đầy và không có bucket nào đã nạp đầy token
+             */
+            private synchronized TokenBucket insert(String key, long now) {
+                TokenBucket existing = buckets.get(key);
+                if (existing != null) {
+                    return existing;
+                }
+                if (insertionOrder.size() >= maxKeys && !evictIdle(now)) {
+                    return null;
+                }
+                TokenBucket bucket = new TokenBucket(now);
+                buckets.put(key, bucket);
+                insertionOrder.addLast(key);
+                return bucket;
+            }
+
+            private boolean evictIdle(long now) {
+                for (int i = 0; i < MAX_REQUEUED_PER_INSERT; i++) {
+                    String candidate = insertionOrder.pollFirst();
+                    if (buckets.get(candidate).isIdle(now)) {
+                        buckets.remove(candidate);
+                        return true;
+                    }
+                    insertionOrder.addLast(candidate);
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Cấu hình của một loại bucket: dung lượng và khoảng thời gian nạp lại 1 token
+     */
+    private record BucketPolicy(long intervalNanos, long burstToleranceNanos) {
+        BucketPolicy(int capacity, int refillPerMinute) {
+            this(TimeUnit.MINUTES.toNanos(1) / Math.max(1, refillPerMinute),
+                    (TimeUnit.MINUTES.toNanos(1) / Math.max(1, refillPerMinute)) * (Math.max(1, capacity) - 1L));
+        }
+    }
+
+    /**
+     * Token bucket dạng GCRA: chỉ lưu "thời điểm đến lý thuyết" trong một AtomicLong,
+     * nên mỗi lần lấy token chỉ cần một compareAndSet, không cần lock.
+     */
+    private static final class TokenBucket {
+
+        private final AtomicLong theoreticalArrival;
+
+        private TokenBucket(long now) {
+            this.theoreticalArrival = new AtomicLong(now);
+        }
+
+        private boolean tryAcquire(long now, BucketPolicy policy) {
+            while (true) {
+                long current = theoreticalArrival.get();
+                long base = Math.max(current, now);
+                if (base - now > policy.burstToleranceNanos()) {
+                    return false;
+                }
+                if (theoreticalArrival.compareAndSet(current, base + policy.intervalNanos())) {
+                    return true;
+                }
+            }
+        }
+
+        private boolean isIdle(long now) {
+            return theoreticalArrival.get() <= now;
+        }
+    }
+}
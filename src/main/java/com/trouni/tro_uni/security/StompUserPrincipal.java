@@ -0,0 +1,25 @@
+package com.trouni.tro_uni.security;
+
+import com.trouni.tro_uni.enums.UserRole;
+
+import java.security.Principal;
+import java.util.UUID;
+
+/**
+ * StompUserPrincipal - Thông tin user gắn vào WebSocket session lúc CONNECT
+ * <p>
+ * Chỉ giữ id, username và role (không giữ User entity) để các message handler
+ * dùng trực tiếp mà không cần truy vấn lại database cho mỗi message.
+ * getName() trả về username để /user/** destinations vẫn hoạt động như trước.
+ *
+ * @param userId   - ID của user
+ * @param username - Username (tên của principal)
+ * @param role     - Role của user tại thời điểm CONNECT
+ */
+public record StompUserPrincipal(UUID userId, String username, UserRole role) implements Principal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -1,5 +1,6 @@
 package com.trouni.tro_uni.security;
 
+import com.trouni.tro_uni.entity.User;
 import com.trouni.tro_uni.service.CustomUserDetailsService;
 import com.trouni.tro_uni.util.JwtUtil;
 import lombok.RequiredArgsConstructor;
@@ -20,6 +21,7 @@ import org.springframework.util.StringUtils;
  * Interceptor xác thực JWT token cho kết nối WebSocket (STOMP).
  * Khi client gửi token qua header Authorization (Bearer token),
  * interceptor này sẽ validate và gắn thông tin user vào session.
+ * User chỉ được load một lần lúc CONNECT; principal của session là StompUserPrincipal.
  *
  * @author TroUni Team
  * @version 2.0
@@ -56,9 +58,14 @@ public class WebSocketAuthInterceptor implements ChannelInterceptor {
                     String username = jwtUtil.extractUsername(token);
                     UserDetails userDetails = userDetailsService.loadUserByUsername(username);
 
+                    // Chỉ gắn id/username/role vào session, message handler không cần load lại User
+                    Object principal = userDetails instanceof User user
+                            ? new StompUserPrincipal(user.getId(), user.getUsername(), user.getRole())
+                            : userDetails;
+
                     UsernamePasswordAuthenticationToken authentication =
                             new UsernamePasswordAuthenticationToken(
-                                    userDetails,
+                                    principal,
                                     null,
                                     userDetails.getAuthorities()
                             );
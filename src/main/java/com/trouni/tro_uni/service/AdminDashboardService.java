@@ -1,42 +1,24 @@
 package com.trouni.tro_uni.service;
 
 import com.trouni.tro_uni.dto.response.AdminDashboardStatsResponse;
-import com.trouni.tro_uni.enums.PaymentStatus;
-import com.trouni.tro_uni.repository.PaymentRepository;
-import com.trouni.tro_uni.repository.ReviewRepository;
-import com.trouni.tro_uni.repository.RoomRepository;
-import com.trouni.tro_uni.repository.UserRepository;
+import com.trouni.tro_uni.dto.response.DailyKpiResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class AdminDashboardService {
 
-    private final UserRepository userRepository;
-    private final RoomRepository roomRepository;
-    private final ReviewRepository reviewRepository;
-    private final PaymentRepository paymentRepository;
+    private final DashboardKpiRollupService kpiRollupService;
 
     public AdminDashboardStatsResponse getDashboardStats() {
-        long totalUsers = userRepository.count();
-        long totalRooms = roomRepository.count();
-        long totalReviews = reviewRepository.count();
-        long totalTransactions = paymentRepository.countByStatus(PaymentStatus.COMPLETED.name());
-        BigDecimal totalRevenue = paymentRepository.sumAmountByStatus(PaymentStatus.COMPLETED.name());
-
-        if (totalRevenue == null) {
-            totalRevenue = BigDecimal.ZERO;
-        }
+        return kpiRollupService.getTotals();
+    }
 
-        return AdminDashboardStatsResponse.builder()
-                .totalUsers(totalUsers)
-                .totalRooms(totalRooms)
-                .totalReviews(totalReviews)
-                .totalTransactions(totalTransactions)
-                .totalRevenue(totalRevenue)
-                .build();
+    public List<DailyKpiResponse> getDailyKpis(LocalDate from, LocalDate to) {
+        return kpiRollupService.getDailySeries(from, to);
     }
 }
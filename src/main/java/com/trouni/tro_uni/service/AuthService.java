@@ -31,12 +31,17 @@ import com.trouni.tro_uni.repository.NotificationRepository;
 import com.trouni.tro_uni.repository.PackageRepository;
 import com.trouni.tro_uni.repository.PaymentRepository;
 import com.trouni.tro_uni.repository.ReportRepository;
+import com.trouni.tro_uni.repository.ReportedContentCounterRepository;
 import com.trouni.tro_uni.repository.ReviewRepository;
 import com.trouni.tro_uni.repository.RoomImageRepository;
 import com.trouni.tro_uni.repository.RoommatePostRepository;
 import com.trouni.tro_uni.repository.RoomRepository;
+import com.trouni.tro_uni.repository.RoomStatsRepository;
 import com.trouni.tro_uni.repository.SubscriptionRepository;
 import com.trouni.tro_uni.repository.UserVerificationRepository;
+import com.trouni.tro_uni.security.GoogleIdTokenVerifier;
+import com.trouni.tro_uni.security.GoogleUserInfo;
+import com.trouni.tro_uni.config.GoogleAuthProperties;
 import com.trouni.tro_uni.util.JwtUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -45,17 +50,20 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -80,10 +88,18 @@ public class AuthService {
     private final AuthenticationManager authenticationManager;  // Quản lý xác thực
     private final UserRepository userRepository;               // Repository cho User
     private final ProfileRepository profileRepository;         // Repository cho Profile
-    private final PasswordEncoder passwordEncoder;             // Mã hóa password
+    private final PasswordHashingService passwordHashingService; // Chạy BCrypt trên executor có giới hạn
     private final JwtUtil jwtUtil;                             // Utility tạo JWT token
+    private final TokenEpochService tokenEpochService;         // Thu hồi toàn bộ token của user
     private final EmailVerificationService emailVerificationService; // Service xác thực email
     private final UserMapper userMapper;                       // MapStruct mapper for User
+    private final GoogleIdTokenVerifier googleIdTokenVerifier; // Verify Google ID token bằng JWKS cache
+    private final GoogleAuthProperties googleAuthProperties;   // Cấu hình Google OAuth
+    private final RestClient googleRestClient;                 // HTTP client dùng chung (pool + timeout)
+    private final ObjectMapper objectMapper;                   // Jackson ObjectMapper dùng chung
+    private final DashboardKpiRollupService kpiRollupService;  // Số liệu KPI theo ngày cho admin dashboard
+    private final BookmarkIndex bookmarkIndex;                 // Tập phòng đã bookmark của từng user
+    private final ChatMembershipIndex chatMembershipIndex;     // Thành viên của từng phòng chat
     
     // Additional repositories for delete all functionality
     private final BlacklistedTokenRepository blacklistedTokenRepository;
@@ -96,10 +112,12 @@ public class AuthService {
     private final PackageRepository packageRepository;
     private final PaymentRepository paymentRepository;
     private final ReportRepository reportRepository;
+    private final ReportedContentCounterRepository reportedContentCounterRepository;
     private final ReviewRepository reviewRepository;
     private final RoomImageRepository roomImageRepository;
     private final RoommatePostRepository roommatePostRepository;
     private final RoomRepository roomRepository;
+    private final RoomStatsRepository roomStatsRepository;
     private final SubscriptionRepository subscriptionRepository;
     private final UserVerificationRepository userVerificationRepository;
 
@@ -108,7 +126,7 @@ public class AuthService {
 
      * Quy trình:
      * 1. Tạo UsernamePasswordAuthenticationToken với thông tin đăng nhập
-     * 2. Sử dụng AuthenticationManager để xác thực
+     * 2. Sử dụng AuthenticationManager để xác thực (BCrypt chạy trên executor có giới hạn)
      * 3. Lưu authentication vào SecurityContext
      * 4. Tạo JWT token từ thông tin user
      * 5. Trả về AuthResponse chứa token và thông tin user
@@ -118,8 +136,10 @@ public class AuthService {
      */
     public AuthResponse authenticateUser(LoginRequest loginRequest) {
         // Bước 0: Kiểm tra user có đăng ký bằng Google không
+        // Chỉ tìm theo email khi không tìm thấy theo username
         User existingUser = userRepository.findByUsername(loginRequest.getUsernameOrEmail())
-                .orElse(userRepository.findByEmail(loginRequest.getUsernameOrEmail()).orElse(null));
+                .or(() -> userRepository.findByEmail(loginRequest.getUsernameOrEmail()))
+                .orElse(null);
         
         if (existingUser != null && existingUser.isGoogleAccount()) {
             throw new AppException(AuthenticationErrorCode.ACCOUNT_REGISTERED_WITH_GOOGLE);
@@ -131,10 +151,10 @@ public class AuthService {
         }
         
         // Bước 1: Tạo authentication token
-        Authentication authentication = authenticationManager
+        Authentication authentication = passwordHashingService.execute(() -> authenticationManager
                 .authenticate(new UsernamePasswordAuthenticationToken(
                         loginRequest.getUsernameOrEmail(),
-                        loginRequest.getPassword()));
+                        loginRequest.getPassword())));
 
         // Bước 2: Lưu authentication vào SecurityContext
         SecurityContextHolder.getContext().setAuthentication(authentication);
@@ -187,6 +207,8 @@ public class AuthService {
         try {
             emailVerificationService.createAndSendVerificationForSignup(signUpRequest);
             log.info("Verification email sent to: {}", signUpRequest.getEmail());
+        } catch (AppException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Failed to send verification email to {}: {}", signUpRequest.getEmail(), e.getMessage());
             throw new AppException(GeneralErrorCode.INTERNAL_SERVER_ERROR);
@@ -233,6 +255,22 @@ public class AuthService {
         }
     }
     
+    /**
+     * Đăng xuất khỏi tất cả thiết bị
+
+     * Tăng token epoch của user hiện tại, mọi JWT đã cấp trước đó đều bị từ chối
+     * mà không cần lưu từng token vào blacklist
+     */
+    @Transactional
+    public void logoutEverywhere() {
+        try {
+            User currentUser = getCurrentUser();
+            tokenEpochService.revokeAllTokens(currentUser);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
     /**
      * Đăng xuất người dùng (không có token)
 
@@ -273,39 +311,21 @@ public class AuthService {
      * Đăng nhập bằng Google OAuth
      * <p>
      * Chức năng chính:
-     * - Validate Google access token
-     * - Lấy thông tin user từ Google API
+     * - Verify Google ID token tại server bằng JWKS đã cache (không gọi Google), hoặc
+     * - Validate Google access token qua userinfo endpoint (HTTP client dùng chung, có timeout)
      * - Tạo user mới nếu chưa tồn tại
      * - Trả về JWT token và thông tin user
      * 
-     * @param googleLoginRequest - Request chứa Google access token
+     * @param googleLoginRequest - Request chứa Google ID token hoặc access token
      * @return AuthResponse - Response chứa JWT token và user info
-     * @throws AppException - Khi access token không hợp lệ hoặc có lỗi xảy ra
+     * @throws AppException - Khi token không hợp lệ hoặc có lỗi xảy ra
      */
     @Transactional
     public AuthResponse authenticateWithGoogle(GoogleLoginRequest googleLoginRequest) throws JsonProcessingException {
         try {
-            // Bước 1: Lấy thông tin user từ Google API
-            String userInfoEndpoint = "https://www.googleapis.com/oauth2/v1/userinfo?access_token=" + 
-                    googleLoginRequest.getAccessToken();
-            
-            RestTemplate restTemplate = new RestTemplate();
-            ResponseEntity<String> response = restTemplate.getForEntity(userInfoEndpoint, String.class);
-            
-            // Bước 2: Kiểm tra access token có hợp lệ không
-            if (response.getStatusCode() != HttpStatus.OK) {
-                throw new AppException(AuthenticationErrorCode.TOKEN_INVALID);
-            }
-            
-            // Bước 3: Parse JSON response từ Google
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode userInfoJson = objectMapper.readTree(response.getBody());
-            
-            // Bước 4: Lấy các trường thông tin từ Google
-            String email = userInfoJson.get("email").asText();
-            String name = userInfoJson.get("name").asText();
-            String picture = userInfoJson.has("picture") ? userInfoJson.get("picture").asText() : "";
-            String gender = userInfoJson.has("gender") ? userInfoJson.get("gender").asText() : "";
+            // Bước 1-4: Lấy thông tin user từ Google
+            GoogleUserInfo userInfo = resolveGoogleUserInfo(googleLoginRequest);
+            String email = userInfo.getEmail();
             
             // Bước 5: Kiểm tra user đã tồn tại chưa
             User existingUser = userRepository.findByEmail(email).orElse(null);
@@ -322,7 +342,7 @@ public class AuthService {
                 }
             } else {
                 // User chưa tồn tại - tạo user mới
-                existingUser = createGoogleUser(email, name, picture, gender);
+                existingUser = createGoogleUser(email, userInfo.getName(), userInfo.getPicture(), userInfo.getGender());
             }
             
             // Bước 6: Tạo JWT token
@@ -346,6 +366,53 @@ public class AuthService {
         }
     }
 
+    /**
+     * Lấy thông tin user từ Google
+     * <p>
+     * - Có ID token và bật verify local: verify chữ ký bằng JWKS cache, không gọi ra ngoài
+     * - Ngược lại: gọi userinfo endpoint với access token
+     */
+    private GoogleUserInfo resolveGoogleUserInfo(GoogleLoginRequest googleLoginRequest) throws JsonProcessingException {
+        if (StringUtils.hasText(googleLoginRequest.getIdToken())
+                && googleAuthProperties.isVerifyIdTokenLocally()
+                && StringUtils.hasText(googleAuthProperties.getClientId())) {
+            return googleIdTokenVerifier.verify(googleLoginRequest.getIdToken());
+        }
+
+        if (!StringUtils.hasText(googleLoginRequest.getAccessToken())) {
+            throw new AppException(AuthenticationErrorCode.TOKEN_INVALID);
+        }
+
+        String body;
+        try {
+            body = googleRestClient.get()
+                    .uri(googleAuthProperties.getUserinfoUri())
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + googleLoginRequest.getAccessToken())
+                    .retrieve()
+                    .body(String.class);
+        } catch (RestClientResponseException e) {
+            // Google trả về 4xx/5xx -> access token không hợp lệ
+            log.warn("Google userinfo rejected access token: {}", e.getStatusCode());
+            throw new AppException(AuthenticationErrorCode.TOKEN_INVALID);
+        } catch (ResourceAccessException e) {
+            // Timeout hoặc lỗi kết nối tới Google
+            log.error("Google userinfo unreachable: {}", e.getMessage());
+            throw new AppException(GeneralErrorCode.EXTERNAL_SERVICE_ERROR);
+        }
+
+        JsonNode userInfoJson = objectMapper.readTree(body);
+        if (userInfoJson == null || !userInfoJson.hasNonNull("email")) {
+            throw new AppException(AuthenticationErrorCode.TOKEN_INVALID);
+        }
+
+        return GoogleUserInfo.builder()
+                .email(userInfoJson.get("email").asText())
+                .name(userInfoJson.path("name").asText(userInfoJson.get("email").asText()))
+                .picture(userInfoJson.path("picture").asText(""))
+                .gender(userInfoJson.path("gender").asText(""))
+                .build();
+    }
+
     private void checkStatusAccount(User existingUser) {
         switch (existingUser.getStatus()) {
             case LOCKED:
@@ -381,6 +448,7 @@ public class AuthService {
         
         // Lưu User
         User savedUser = userRepository.save(user);
+        kpiRollupService.recordUserCreated(savedUser.getCreatedAt());
         
         // Tạo Profile cho user
         Profile profile = new Profile();
@@ -471,9 +539,19 @@ public class AuthService {
         // Cập nhật email (nếu có)
         validateAndUpdateEmail(targetUser, updateRequest.getEmail());
         
+        // Ghi nhận role/status cũ để quyết định có thu hồi token không
+        UserRole previousRole = targetUser.getRole();
+        AccountStatus previousStatus = targetUser.getStatus();
+        
         // Use mapper to update fields
         userMapper.updateUserFields(updateRequest, targetUser);
         
+        // Đổi role hoặc khóa tài khoản -> thu hồi tất cả token đang có
+        if (targetUser.getRole() != previousRole
+                || (targetUser.getStatus() != previousStatus && targetUser.getStatus() != AccountStatus.ACTIVE)) {
+            tokenEpochService.revokeAllTokens(targetUser);
+        }
+        
         // Lưu user đã cập nhật
         User savedUser = userRepository.save(targetUser);
         
@@ -499,8 +577,9 @@ public class AuthService {
         User targetUser = userRepository.findById(targetUserId)
                 .orElseThrow(() -> new AppException(AuthenticationErrorCode.USER_NOT_FOUND));
         
-        // Vô hiệu hóa tài khoản (soft delete)
+        // Vô hiệu hóa tài khoản (soft delete) và thu hồi tất cả token
         targetUser.setStatus(AccountStatus.DELETED);
+        tokenEpochService.revokeAllTokens(targetUser);
         User savedUser = userRepository.save(targetUser);
         
         log.info("Admin {} deleted user: {}", currentUser.getUsername(), targetUser.getUsername());
@@ -533,7 +612,8 @@ public class AuthService {
             // Cascade sẽ tự động xóa Profile, Subscription, Payment, UserVerification
             // Cần xóa thủ công các mối quan hệ khác
             
-            // Xóa Bookmark (user bookmarked rooms)
+            // Xóa Bookmark (user bookmarked rooms), giữ lại ID để dọn bookmark index
+            List<UUID> bookmarkedRoomIds = bookmarkRepository.findRoomIdsByUserId(targetUserId);
             userRepository.deleteUserBookmarks(targetUserId);
             
             // Xóa Review (user reviewed rooms)
@@ -546,7 +626,15 @@ public class AuthService {
             userRepository.deleteUserNotifications(targetUserId);
             
             // Xóa Room và các mối quan hệ liên quan (nếu user là landlord)
+            Map<UUID, List<UUID>> bookmarkersByDeletedRoom = new HashMap<>();
             if (targetUser.getRole() == UserRole.LANDLORD) {
+                for (Object[] row : roomRepository.findSummariesByOwnerId(targetUserId)) {
+                    bookmarkersByDeletedRoom.put((UUID) row[0], new ArrayList<>());
+                }
+                for (Object[] row : bookmarkRepository.findRoomAndUserIdsByRoomOwnerId(targetUserId)) {
+                    bookmarkersByDeletedRoom.computeIfAbsent((UUID) row[0], id -> new ArrayList<>()).add((UUID) row[1]);
+                }
+                roomStatsRepository.deleteByOwnerId(targetUserId);
                 userRepository.deleteUserRoomsAndRelated(targetUserId);
             }
             
@@ -555,6 +643,10 @@ public class AuthService {
             
             // Cuối cùng xóa User (cascade sẽ xóa Profile, Subscription, Payment)
             userRepository.delete(targetUser);
+            tokenEpochService.evict(targetUserId);
+            bookmarkIndex.evictUser(targetUserId, bookmarkedRoomIds);
+            bookmarkersByDeletedRoom.forEach(bookmarkIndex::evictDeletedRoom);
+            chatMembershipIndex.evictUser(targetUserId);
             
             log.info("Admin {} hard deleted user: {}.",
                     currentUser.getUsername(), targetUser.getUsername());
@@ -626,8 +718,11 @@ public class AuthService {
             }
             
             // Bước 5: Cập nhật password mới
-            String encodedPassword = passwordEncoder.encode(request.getNewPassword());
+            String encodedPassword = passwordHashingService.encode(request.getNewPassword());
             user.setPassword(encodedPassword);
+            
+            // Thu hồi tất cả token cũ (đăng xuất khỏi mọi thiết bị)
+            tokenEpochService.revokeAllTokens(user);
             userRepository.save(user);
             
             // Bước 6: Xóa token đã sử dụng
@@ -680,11 +775,13 @@ public class AuthService {
             // Xóa Bookmark
             long bookmarkCount = bookmarkRepository.count();
             bookmarkRepository.deleteAll();
+            bookmarkIndex.evictAll();
             deleteStats.put("bookmarks", bookmarkCount);
             
             // Xóa ChatRoom
             long chatRoomCount = chatRoomRepository.count();
             chatRoomRepository.deleteAll();
+            chatMembershipIndex.evictAll();
             deleteStats.put("chatRooms", chatRoomCount);
             
             // Xóa EmailVerification
@@ -720,6 +817,7 @@ public class AuthService {
             // Xóa Report
             long reportCount = reportRepository.count();
             reportRepository.deleteAll();
+            reportedContentCounterRepository.deleteAll();
             deleteStats.put("reports", reportCount);
             
             // Xóa Review
@@ -737,6 +835,9 @@ public class AuthService {
             roommatePostRepository.deleteAll();
             deleteStats.put("roommatePosts", roommatePostCount);
             
+            // Xóa RoomStats
+            roomStatsRepository.deleteAll();
+
             // Xóa Room
             long roomCount = roomRepository.count();
             roomRepository.deleteAll();
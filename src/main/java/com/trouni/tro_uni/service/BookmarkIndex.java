@@ -0,0 +1,252 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.repository.BookmarkRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * BookmarkIndex - Quan hệ bookmark giữa user và phòng, giữ trong bộ nhớ theo hai chiều
+ * <p>
+ * Chức năng chính:
+ * - userId -> roomIds: tải lười bằng một truy vấn theo khóa chính (user_id, room_id), dùng để trả lời
+ *   trạng thái bookmark của cả trang danh sách phòng
+ * - roomId -> userIds: tải lười theo index room_id, dùng để thông báo cho người đã bookmark khi phòng giảm giá
+ * - Cập nhật khi user bookmark/unbookmark, sau khi transaction commit; lần tải đang chạy khi có cập nhật
+ *   cho cùng key thì không được lưu lại (kết quả truy vấn có thể đã cũ), lần đọc sau sẽ tải lại
+ * - Xóa user/phòng: người gọi truyền các id liên quan (đọc trước khi xóa) để gỡ đúng các entry, không quét toàn bộ index
+ * - Mỗi chiều giới hạn số entry (LRU) và có TTL để nhận thay đổi từ các instance khác
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class BookmarkIndex {
+
+    private final BookmarkRepository bookmarkRepository;
+    private final IdIndex roomIdsByUser;
+    private final IdIndex userIdsByRoom;
+
+    public BookmarkIndex(BookmarkRepository bookmarkRepository,
+                         @Value("${app.bookmark.index.max-users:10000}") int maxUsers,
+                         @Value("${app.bookmark.index.max-rooms:10000}") int maxRooms,
+                         @Value("${app.bookmark.index.ttl-ms:600000}") long ttlMs) {
+        this.bookmarkRepository = bookmarkRepository;
+        long ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.roomIdsByUser = new IdIndex(maxUsers, ttlNanos);
+        this.userIdsByRoom = new IdIndex(maxRooms, ttlNanos);
+    }
+
+    /**
+     * Lấy tập phòng user đã bookmark
+     *
+     * @param userId - ID của user
+     * @return Set<UUID> - Các roomId đã bookmark (không được sửa)
+     */
+    public Set<UUID> getBookmarkedRoomIds(UUID userId) {
+        return roomIdsByUser.getOrLoad(userId, bookmarkRepository::findRoomIdsByUserId);
+    }
+
+    /**
+     * Lấy tập user đã bookmark một phòng
+     *
+     * @param roomId - ID của phòng
+     * @return Set<UUID> - Các userId đã bookmark (không được sửa)
+     */
+    public Set<UUID> getBookmarkerIds(UUID roomId) {
+        return userIdsByRoom.getOrLoad(roomId, bookmarkRepository::findUserIdsByRoomId);
+    }
+
+    /**
+     * User vừa bookmark một phòng
+     */
+    public void recordBookmarked(UUID userId, UUID roomId) {
+        afterCommit(() -> update(userId, roomId, true));
+    }
+
+    /**
+     * User vừa bỏ bookmark một phòng
+     */
+    public void recordUnbookmarked(UUID userId, UUID roomId) {
+        afterCommit(() -> update(userId, roomId, false));
+    }
+
+    /**
+     * Xóa user khỏi cả hai chiều của index (khi user bị hard delete), sau khi transaction commit
+     *
+     * @param userId - ID của user
+     * @param bookmarkedRoomIds - Các phòng user đã bookmark (đọc trước khi xóa bookmark)
+     */
+    public void evictUser(UUID userId, Collection<UUID> bookmarkedRoomIds) {
+        afterCommit(() -> {
+            roomIdsByUser.evict(userId);
+            for (UUID roomId : bookmarkedRoomIds) {
+                userIdsByRoom.update(roomId, userId, false);
+            }
+        });
+    }
+
+    /**
+     * Phòng bị xóa mềm: không còn nhận thông báo giảm giá nên bỏ tập người bookmark khỏi bộ nhớ;
+     * bookmark vẫn còn nên chiều userId -> roomIds giữ nguyên
+     */
+    public void evictRoom(UUID roomId) {
+        afterCommit(() -> userIdsByRoom.evict(roomId));
+    }
+
+    /**
+     * Phòng bị xóa hẳn cùng các bookmark của nó (khi chủ nhà bị hard delete), sau khi transaction commit
+     *
+     * @param roomId - ID của phòng
+     * @param bookmarkerIds - Các user đã bookmark phòng (đọc trước khi xóa)
+     */
+    public void evictDeletedRoom(UUID roomId, Collection<UUID> bookmarkerIds) {
+        afterCommit(() -> {
+            userIdsByRoom.evict(roomId);
+            for (UUID userId : bookmarkerIds) {
+                roomIdsByUser.update(userId, roomId, false);
+            }
+        });
+    }
+
+    /**
+     * Xóa toàn bộ index (khi toàn bộ bookmark bị xóa), sau khi transaction commit
+     */
+    public void evictAll() {
+        afterCommit(() -> {
+            roomIdsByUser.clear();
+            userIdsByRoom.clear();
+        });
+    }
+
+    private void update(UUID userId, UUID roomId, boolean bookmarked) {
+        // Entry chưa được tải thì bỏ qua; lần đọc sau sẽ tải từ database
+        roomIdsByUser.update(userId, roomId, bookmarked);
+        userIdsByRoom.update(roomId, userId, bookmarked);
+    }
+
+    private void afterCommit(Runnable apply) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    /**
+     * Một chiều của index: key -> tập id, giới hạn số entry (LRU) và có TTL; mọi thao tác trên map
+     * được bảo vệ bởi monitor của đối tượng
+     */
+    private static final class IdIndex {
+
+        private final long ttlNanos;
+        // LinkedHashMap theo thứ tự truy cập: entry ít dùng nhất bị loại khi vượt giới hạn
+        private final Map<UUID, CachedIds> entries;
+        // Các lần tải đang chạy theo key; cập nhật hoặc xóa key trong lúc tải đánh dấu lần tải đó là cũ
+        private final Map<UUID, LoadToken> loads = new HashMap<>();
+
+        private IdIndex(int maxEntries, long ttlNanos) {
+            int capacity = Math.max(1, maxEntries);
+            this.ttlNanos = ttlNanos;
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, CachedIds> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        private Set<UUID> getOrLoad(UUID key, Function<UUID, List<UUID>> loader) {
+            long now = System.nanoTime();
+            LoadToken token;
+            synchronized (this) {
+                CachedIds cached = entries.get(key);
+                if (cached != null && now - cached.loadedAt() < ttlNanos) {
+                    return cached.ids();
+                }
+                token = loads.computeIfAbsent(key, k -> new LoadToken());
+                token.loaders++;
+            }
+
+            // Truy vấn ngoài khóa để không chặn các key khác
+            Set<UUID> ids = ConcurrentHashMap.newKeySet();
+            try {
+                ids.addAll(loader.apply(key));
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    release(key, token);
+                }
+                throw e;
+            }
+            synchronized (this) {
+                release(key, token);
+                if (!token.stale) {
+                    entries.put(key, new CachedIds(ids, now));
+                }
+            }
+            return ids;
+        }
+
+        private void release(UUID key, LoadToken token) {
+            if (--token.loaders == 0) {
+                loads.remove(key);
+            }
+        }
+
+        private synchronized void update(UUID key, UUID id, boolean add) {
+            CachedIds cached = entries.get(key);
+            if (cached != null) {
+                if (add) {
+                    cached.ids().add(id);
+                } else {
+                    cached.ids().remove(id);
+                }
+            }
+            markLoadsStale(key);
+        }
+
+        private synchronized void evict(UUID key) {
+            entries.remove(key);
+            markLoadsStale(key);
+        }
+
+        private synchronized void clear() {
+            entries.clear();
+            loads.values().forEach(token -> token.stale = true);
+        }
+
+        private void markLoadsStale(UUID key) {
+            LoadToken token = loads.get(key);
+            if (token != null) {
+                token.stale = true;
+            }
+        }
+    }
+
+    private record CachedIds(Set<UUID> ids, long loadedAt) {
+    }
+
+    private static final class LoadToken {
+        private int loaders;
+        private boolean stale;
+    }
+}
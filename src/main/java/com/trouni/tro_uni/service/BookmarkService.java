@@ -19,8 +19,12 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -30,7 +34,7 @@ import java.util.stream.Collectors;
  * Chức năng chính:
  * - Bookmark/unbookmark phòng
  * - Lấy danh sách phòng đã bookmark
- * - Kiểm tra trạng thái bookmark
+ * - Kiểm tra trạng thái bookmark (từng phòng hoặc cả danh sách phòng qua BookmarkIndex)
  */
 @Slf4j
 @Service
@@ -40,6 +44,10 @@ public class BookmarkService {
     private final BookmarkRepository bookmarkRepository;
     private final RoomRepository roomRepository;
     private final UserRepository userRepository;
+    private final RoomStatsService roomStatsService;
+    private final BookmarkIndex bookmarkIndex;
+    
+    private static final int MAX_STATUS_BATCH = 100;
     
     /**
      * Bookmark một phòng
@@ -60,6 +68,8 @@ public class BookmarkService {
         bookmark.setRoom(room);
         
         bookmark = bookmarkRepository.save(bookmark);
+        roomStatsService.recordBookmarkAdded(roomId);
+        bookmarkIndex.recordBookmarked(currentUser.getId(), roomId);
         
         log.info("User {} bookmarked room {}", currentUser.getUsername(), roomId);
         return BookmarkResponse.fromBookmark(bookmark);
@@ -80,6 +90,8 @@ public class BookmarkService {
         }
         
         bookmarkRepository.deleteByUserAndRoom(currentUser, room);
+        roomStatsService.recordBookmarkRemoved(roomId);
+        bookmarkIndex.recordUnbookmarked(currentUser.getId(), roomId);
         
         log.info("User {} unbookmarked room {}", currentUser.getUsername(), roomId);
     }
@@ -118,6 +130,24 @@ public class BookmarkService {
         return bookmarkRepository.existsByUserAndRoom(currentUser, room);
     }
     
+    /**
+     * Kiểm tra trạng thái bookmark của nhiều phòng cùng lúc (trang danh sách phòng)
+     * Trả lời từ tập phòng đã bookmark của user trong bộ nhớ, không truy vấn từng phòng
+     */
+    public Map<UUID, Boolean> getBookmarkStatuses(User currentUser, Collection<UUID> roomIds) {
+        if (roomIds == null || roomIds.isEmpty() || roomIds.size() > MAX_STATUS_BATCH) {
+            throw new AppException(GeneralErrorCode.INVALID_INPUT,
+                    "Provide between 1 and " + MAX_STATUS_BATCH + " room IDs");
+        }
+        
+        Set<UUID> bookmarked = bookmarkIndex.getBookmarkedRoomIds(currentUser.getId());
+        Map<UUID, Boolean> statuses = new LinkedHashMap<>();
+        for (UUID roomId : roomIds) {
+            statuses.put(roomId, bookmarked.contains(roomId));
+        }
+        return statuses;
+    }
+    
     /**
      * Toggle bookmark status của một phòng
      */
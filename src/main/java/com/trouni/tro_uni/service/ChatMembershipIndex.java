@@ -0,0 +1,297 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.entity.ChatRoom;
+import com.trouni.tro_uni.entity.User;
+import com.trouni.tro_uni.repository.ChatRoomRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ChatMembershipIndex - In-memory index of who is in which chat room.
+ * <p>
+ * Keeps two maps, both filled lazily from the database and updated when rooms are created:
+ * - chatRoomId -> participant ids (used to route messages and authorize room access)
+ * - userId -> chatRoomIds (used to list a user's rooms)
+ * <p>
+ * Participants never change after a room is created, so room entries only have to be evicted when
+ * rooms or users are deleted. A user's room list does change when a room is created, and rooms
+ * created on another instance are not registered here, so user entries expire after a TTL and
+ * are bounded (least recently used first). Every change (new room, eviction) bumps a generation;
+ * a lazy load that overlapped a change drops its entry again, so a query that ran before the
+ * change committed cannot leave a stale entry behind.
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class ChatMembershipIndex {
+
+    private final ChatRoomRepository chatRoomRepository;
+
+    private final ConcurrentHashMap<UUID, Set<UUID>> participantsByRoom = new ConcurrentHashMap<>();
+    private final RoomsByUser roomsByUser;
+    private final AtomicLong generation = new AtomicLong();
+
+    public ChatMembershipIndex(ChatRoomRepository chatRoomRepository,
+                               @Value("${app.chat.membership.max-users:10000}") int maxUsers,
+                               @Value("${app.chat.membership.user-ttl-ms:60000}") long userTtlMs) {
+        this.chatRoomRepository = chatRoomRepository;
+        this.roomsByUser = new RoomsByUser(maxUsers, TimeUnit.MILLISECONDS.toNanos(userTtlMs));
+    }
+
+    /**
+     * Returns the participant IDs of a chat room.
+     *
+     * @param chatRoomId The ID of the chat room.
+     * @return The participant IDs, or an empty set if the room does not exist.
+     */
+    public Set<UUID> getParticipantIds(UUID chatRoomId) {
+        Set<UUID> participants = participantsByRoom.get(chatRoomId);
+        if (participants != null) {
+            return participants;
+        }
+        long loadedAt = generation.get();
+        List<UUID> loaded = chatRoomRepository.findParticipantIdsByChatRoomId(chatRoomId);
+        if (loaded.isEmpty()) {
+            // Unknown room: not cached, so a room created on another instance is found later
+            return Set.of();
+        }
+        return cache(participantsByRoom, chatRoomId, Set.copyOf(loaded), loadedAt);
+    }
+
+    /**
+     * Checks whether a user is a participant of a chat room.
+     *
+     * @param chatRoomId The ID of the chat room.
+     * @param userId     The ID of the user.
+     * @return true if the user belongs to the room.
+     */
+    public boolean isParticipant(UUID chatRoomId, UUID userId) {
+        return userId != null && getParticipantIds(chatRoomId).contains(userId);
+    }
+
+    /**
+     * Finds the other participant of a two-person chat room.
+     *
+     * @param chatRoomId The ID of the chat room.
+     * @param userId     The ID of the participant asking.
+     * @return The ID of the other participant, if any.
+     */
+    public Optional<UUID> findCounterpartId(UUID chatRoomId, UUID userId) {
+        return getParticipantIds(chatRoomId).stream()
+                .filter(id -> !id.equals(userId))
+                .findFirst();
+    }
+
+    /**
+     * Returns the IDs of all chat rooms a user participates in.
+     *
+     * @param userId The ID of the user.
+     * @return The chat room IDs.
+     */
+    public Set<UUID> getChatRoomIds(UUID userId) {
+        Set<UUID> roomIds = roomsByUser.get(userId);
+        if (roomIds != null) {
+            return roomIds;
+        }
+        long loadedAt = generation.get();
+        long loadedAtNanos = System.nanoTime();
+        Set<UUID> loaded = ConcurrentHashMap.newKeySet();
+        loaded.addAll(chatRoomRepository.findChatRoomIdsByParticipantId(userId));
+        Set<UUID> current = roomsByUser.putIfAbsent(userId, loaded, loadedAtNanos);
+        if (current != null) {
+            return current;
+        }
+        // A room was created or evicted while the query ran: the loaded value may miss it
+        if (generation.get() != loadedAt) {
+            roomsByUser.remove(userId, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Adds a newly created chat room to the index. Must be called after the room is committed.
+     *
+     * @param chatRoom The chat room with its participants.
+     */
+    public void register(ChatRoom chatRoom) {
+        Set<UUID> participantIds = Set.copyOf(chatRoom.getParticipants().stream().map(User::getId).toList());
+        // Loads already running may have queried before the room existed
+        generation.incrementAndGet();
+        participantsByRoom.put(chatRoom.getId(), participantIds);
+        for (UUID userId : participantIds) {
+            // Only update users already loaded; others will load their rooms from the database
+            Set<UUID> roomIds = roomsByUser.get(userId);
+            if (roomIds != null) {
+                roomIds.add(chatRoom.getId());
+            }
+        }
+        log.debug("Indexed chat room {} with participants {}", chatRoom.getId(), participantIds);
+    }
+
+    /**
+     * Removes a chat room from the index, once the current transaction commits.
+     *
+     * @param chatRoomId The ID of the chat room.
+     */
+    public void evict(UUID chatRoomId) {
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            Set<UUID> participantIds = participantsByRoom.remove(chatRoomId);
+            if (participantIds != null) {
+                for (UUID userId : participantIds) {
+                    Set<UUID> roomIds = roomsByUser.get(userId);
+                    if (roomIds != null) {
+                        roomIds.remove(chatRoomId);
+                    }
+                }
+            } else {
+                roomsByUser.removeRoom(chatRoomId);
+            }
+        });
+    }
+
+    /**
+     * Removes a user and the rooms they belong to from the index (hard delete), once the current
+     * transaction commits. The rooms are loaded again from the database when next used.
+     *
+     * @param userId The ID of the user.
+     */
+    public void evictUser(UUID userId) {
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            roomsByUser.remove(userId);
+            participantsByRoom.values().removeIf(participantIds -> participantIds.contains(userId));
+        });
+    }
+
+    /**
+     * Empties the index (all chat rooms deleted), once the current transaction commits.
+     */
+    public void evictAll() {
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            participantsByRoom.clear();
+            roomsByUser.clear();
+            log.info("Chat membership index cleared");
+        });
+    }
+
+    private Set<UUID> cache(ConcurrentHashMap<UUID, Set<UUID>> map, UUID key, Set<UUID> loaded, long loadedAt) {
+        Set<UUID> current = map.putIfAbsent(key, loaded);
+        if (current != null) {
+            return current;
+        }
+        // A room was created or evicted while the query ran: the loaded value may miss it
+        if (generation.get() != loadedAt) {
+            map.remove(key, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Number of users whose room list is cached.
+     */
+    int cachedUserCount() {
+        return roomsByUser.size();
+    }
+
+    private void afterCommit(Runnable apply) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    /**
+     * userId -> chatRoomIds with a TTL and a size bound (LRU); every access is guarded by the
+     * object's monitor. The sets themselves are concurrent, so they are updated outside of it.
+     */
+    private static final class RoomsByUser {
+
+        private final long ttlNanos;
+        // Access-ordered: the least recently used user is dropped beyond the limit
+        private final Map<UUID, CachedRooms> entries;
+
+        private RoomsByUser(int maxUsers, long ttlNanos) {
+            int capacity = Math.max(1, maxUsers);
+            this.ttlNanos = ttlNanos;
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, CachedRooms> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        private synchronized Set<UUID> get(UUID userId) {
+            CachedRooms cached = entries.get(userId);
+            if (cached == null) {
+                return null;
+            }
+            if (System.nanoTime() - cached.loadedAt() >= ttlNanos) {
+                entries.remove(userId);
+                return null;
+            }
+            return cached.roomIds();
+        }
+
+        /**
+         * @return The room IDs already cached for the user, or null if the loaded ones were stored.
+         */
+        private synchronized Set<UUID> putIfAbsent(UUID userId, Set<UUID> roomIds, long loadedAt) {
+            CachedRooms cached = entries.get(userId);
+            if (cached != null && System.nanoTime() - cached.loadedAt() < ttlNanos) {
+                return cached.roomIds();
+            }
+            entries.put(userId, new CachedRooms(roomIds, loadedAt));
+            return null;
+        }
+
+        private synchronized void remove(UUID userId, Set<UUID> roomIds) {
+            CachedRooms cached = entries.get(userId);
+            if (cached != null && cached.roomIds() == roomIds) {
+                entries.remove(userId);
+            }
+        }
+
+        private synchronized void remove(UUID userId) {
+            entries.remove(userId);
+        }
+
+        private synchronized void removeRoom(UUID chatRoomId) {
+            entries.values().forEach(cached -> cached.roomIds().remove(chatRoomId));
+        }
+
+        private synchronized void clear() {
+            entries.clear();
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+    }
+
+    private record CachedRooms(Set<UUID> roomIds, long loadedAt) {
+    }
+}
@@ -0,0 +1,330 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.config.WebSocketBrokerProperties;
+import com.trouni.tro_uni.dto.response.chat.PresenceResponse;
+import com.trouni.tro_uni.enums.StompBrokerMode;
+import com.trouni.tro_uni.security.StompUserPrincipal;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ChatPresenceRegistry - In-memory online status of WebSocket users.
+ * <p>
+ * Registered on the client inbound channel (after authentication):
+ * - CONNECT registers the session, DISCONNECT (also sent when the socket closes) removes it
+ * - any other frame, including heartbeats, extends the session's lease
+ * <p>
+ * Leases expire through a timing wheel: each tick only looks at the sessions in one slot, and
+ * sessions that were touched since they were scheduled are moved to their new slot. A lease is
+ * extended and expired under its own lock, so a frame racing the tick either keeps the session or
+ * registers it again. A user is tracked while at least one session is alive; when the last one
+ * ends only the last-seen time is kept, in a bounded LRU map. Online/offline changes are pushed on
+ * /user/queue/presence, only to users sharing a chat room, from a separate thread.
+ * <p>
+ * The registry only knows the sessions of this instance. With the SIMPLE broker that is every
+ * session; with the RELAY broker a user may be connected to another instance, so a contact without
+ * a session here is reported as unknown (online = null) rather than offline.
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class ChatPresenceRegistry implements ChannelInterceptor {
+
+    private static final String PRESENCE_DESTINATION = "/queue/presence";
+
+    private final ChatMembershipIndex chatMembershipIndex;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final WebSocketBrokerProperties brokerProperties;
+    private final long ttlTicks;
+
+    private final ConcurrentHashMap<String, SessionLease> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, UserPresence> users = new ConcurrentHashMap<>();
+    private final Map<UUID, LocalDateTime> lastSeen;
+    private final Set<String>[] wheel;
+    private final AtomicLong currentTick = new AtomicLong();
+    private final ExecutorService fanOutExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "PresenceFanOut");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @SuppressWarnings("unchecked")
+    public ChatPresenceRegistry(ChatMembershipIndex chatMembershipIndex,
+                                @Lazy SimpMessagingTemplate messagingTemplate,
+                                WebSocketBrokerProperties brokerProperties,
+                                @Value("${app.chat.presence.ttl-ms:30000}") long ttlMs,
+                                @Value("${app.chat.presence.tick-ms:1000}") long tickMs,
+                                @Value("${app.chat.presence.last-seen-capacity:10000}") int lastSeenCapacity) {
+        this.chatMembershipIndex = chatMembershipIndex;
+        this.messagingTemplate = messagingTemplate;
+        this.brokerProperties = brokerProperties;
+        this.ttlTicks = Math.max(1, (ttlMs + tickMs - 1) / tickMs);
+        // One rotation covers a full lease, so a slot never holds sessions due in a later rotation
+        this.wheel = new Set[(int) ttlTicks + 1];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = ConcurrentHashMap.newKeySet();
+        }
+        int capacity = Math.max(1, lastSeenCapacity);
+        this.lastSeen = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, LocalDateTime> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        String sessionId = accessor.getSessionId();
+        if (sessionId == null || accessor.getMessageType() == null) {
+            return message;
+        }
+        switch (accessor.getMessageType()) {
+            case CONNECT -> connect(sessionId, accessor.getUser());
+            case DISCONNECT -> disconnect(sessionId);
+            default -> touch(sessionId, accessor.getUser());
+        }
+        return message;
+    }
+
+    private void connect(String sessionId, Principal principal) {
+        StompUserPrincipal user = stompUser(principal);
+        if (user == null) {
+            return;
+        }
+        SessionLease lease = new SessionLease(user.userId(), currentTick.get() + ttlTicks);
+        if (sessions.putIfAbsent(sessionId, lease) != null) {
+            return;
+        }
+        schedule(sessionId, lease);
+
+        boolean[] cameOnline = new boolean[1];
+        users.compute(user.userId(), (id, presence) -> {
+            Set<String> sessionIds = new HashSet<>();
+            if (presence != null) {
+                sessionIds.addAll(presence.sessionIds());
+            }
+            cameOnline[0] = sessionIds.isEmpty();
+            sessionIds.add(sessionId);
+            return new UserPresence(user.username(), Set.copyOf(sessionIds));
+        });
+        if (cameOnline[0]) {
+            log.debug("User {} is online", user.userId());
+            fanOut(user.userId(), true, null);
+        }
+    }
+
+    private void disconnect(String sessionId) {
+        SessionLease lease = sessions.remove(sessionId);
+        if (lease != null) {
+            release(sessionId, lease.userId);
+        }
+    }
+
+    private void touch(String sessionId, Principal principal) {
+        SessionLease lease = sessions.get(sessionId);
+        if (lease != null) {
+            synchronized (lease) {
+                if (!lease.expired) {
+                    lease.deadlineTick = currentTick.get() + ttlTicks;
+                    return;
+                }
+            }
+        }
+        // The lease expired but the socket is still sending frames: register again
+        connect(sessionId, principal);
+    }
+
+    private void release(String sessionId, UUID userId) {
+        LocalDateTime now = LocalDateTime.now();
+        boolean[] wentOffline = new boolean[1];
+        users.computeIfPresent(userId, (id, presence) -> {
+            Set<String> sessionIds = new HashSet<>(presence.sessionIds());
+            if (!sessionIds.remove(sessionId)) {
+                return presence;
+            }
+            if (sessionIds.isEmpty()) {
+                // Offline users are not tracked; only their last-seen time is kept
+                wentOffline[0] = true;
+                return null;
+            }
+            return new UserPresence(presence.username(), Set.copyOf(sessionIds));
+        });
+        if (wentOffline[0]) {
+            lastSeen.put(userId, now);
+            log.debug("User {} is offline", userId);
+            fanOut(userId, false, now);
+        }
+    }
+
+    private void schedule(String sessionId, SessionLease lease) {
+        long deadlineTick;
+        synchronized (lease) {
+            deadlineTick = lease.deadlineTick;
+        }
+        wheel[(int) (deadlineTick % wheel.length)].add(sessionId);
+    }
+
+    /**
+     * Advances the timing wheel by one slot and expires the leases due in it.
+     */
+    @Scheduled(fixedRateString = "${app.chat.presence.tick-ms:1000}")
+    public void tick() {
+        long tick = currentTick.incrementAndGet();
+        Set<String> slot = wheel[(int) (tick % wheel.length)];
+        List<String> due = new ArrayList<>(slot);
+        slot.removeAll(due);
+        int expired = 0;
+        for (String sessionId : due) {
+            SessionLease lease = sessions.get(sessionId);
+            if (lease == null) {
+                continue;
+            }
+            boolean expire = false;
+            synchronized (lease) {
+                // Checked under the lease lock: a concurrent touch either lands first or finds it expired
+                if (lease.deadlineTick > tick) {
+                    schedule(sessionId, lease);
+                } else if (sessions.remove(sessionId, lease)) {
+                    lease.expired = true;
+                    expire = true;
+                }
+            }
+            if (expire) {
+                release(sessionId, lease.userId);
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            log.debug("Expired {} WebSocket presence leases", expired);
+        }
+    }
+
+    /**
+     * @param userId The ID of the user.
+     * @return true if the user has a live WebSocket session on this instance.
+     */
+    public boolean isOnline(UUID userId) {
+        return users.containsKey(userId);
+    }
+
+    /**
+     * @return the number of users with a live session on this instance.
+     */
+    int trackedUserCount() {
+        return users.size();
+    }
+
+    /**
+     * Returns the online status of everyone sharing a chat room with the user.
+     * <p>
+     * With the RELAY broker, contacts without a session on this instance are returned with
+     * online = null: they may be connected to another instance.
+     *
+     * @param userId The ID of the user.
+     * @return One entry per contact.
+     */
+    public List<PresenceResponse> getContactPresence(UUID userId) {
+        return contactsOf(userId).stream()
+                .map(contactId -> PresenceResponse.builder()
+                        .userId(contactId)
+                        .online(users.containsKey(contactId) ? Boolean.TRUE : offlineStatus())
+                        .lastSeenAt(lastSeen.get(contactId))
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Status of a user without a session here: offline with the SIMPLE broker, unknown with RELAY.
+     */
+    private Boolean offlineStatus() {
+        return brokerProperties.getMode() == StompBrokerMode.RELAY ? null : Boolean.FALSE;
+    }
+
+    private Set<UUID> contactsOf(UUID userId) {
+        Set<UUID> contacts = new HashSet<>();
+        for (UUID chatRoomId : chatMembershipIndex.getChatRoomIds(userId)) {
+            contacts.addAll(chatMembershipIndex.getParticipantIds(chatRoomId));
+        }
+        contacts.remove(userId);
+        return contacts;
+    }
+
+    private void fanOut(UUID userId, boolean online, LocalDateTime lastSeenAt) {
+        fanOutExecutor.execute(() -> {
+            try {
+                // Leaving this instance is not going offline when other instances may hold sessions
+                PresenceResponse payload = PresenceResponse.builder()
+                        .userId(userId)
+                        .online(online ? Boolean.TRUE : offlineStatus())
+                        .lastSeenAt(lastSeenAt)
+                        .build();
+                for (UUID contactId : contactsOf(userId)) {
+                    UserPresence contact = users.get(contactId);
+                    // Only contacts online on this instance can receive it
+                    if (contact != null) {
+                        messagingTemplate.convertAndSendToUser(contact.username(), PRESENCE_DESTINATION, payload);
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Failed to send presence of user {}: {}", userId, e.getMessage());
+            }
+        });
+    }
+
+    private StompUserPrincipal stompUser(Principal principal) {
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof StompUserPrincipal user) {
+            return user;
+        }
+        return null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanOutExecutor.shutdownNow();
+    }
+
+    private record UserPresence(String username, Set<String> sessionIds) {
+    }
+
+    private static final class SessionLease {
+        private final UUID userId;
+        // Guarded by the lease
+        private long deadlineTick;
+        private boolean expired;
+
+        private SessionLease(UUID userId, long deadlineTick) {
+            this.userId = userId;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -2,11 +2,20 @@ package com.trouni.tro_uni.service;
 
 import com.trouni.tro_uni.dto.request.chat.ChatMessageRequest;
 import com.trouni.tro_uni.dto.request.chat.CreateChatRoomRequest;
+import com.trouni.tro_uni.dto.request.chat.MarkReadRequest;
+import com.trouni.tro_uni.dto.request.chat.TypingRequest;
+import com.trouni.tro_uni.dto.response.chat.ChatHistoryResponse;
 import com.trouni.tro_uni.dto.response.chat.ChatMessageResponse;
 import com.trouni.tro_uni.dto.response.chat.ChatRoomResponse;
+import com.trouni.tro_uni.dto.response.chat.InboxItemResponse;
+import com.trouni.tro_uni.dto.response.chat.InboxResponse;
+import com.trouni.tro_uni.dto.response.chat.PresenceResponse;
+import com.trouni.tro_uni.dto.response.chat.ReadReceiptResponse;
+import com.trouni.tro_uni.dto.response.chat.TypingResponse;
 import com.trouni.tro_uni.entity.ChatRoom;
 import com.trouni.tro_uni.entity.Message;
 import com.trouni.tro_uni.entity.User;
+import com.trouni.tro_uni.enums.ChatPersistenceMode;
 import com.trouni.tro_uni.exception.AppException;
 import com.trouni.tro_uni.exception.errorcode.AuthenticationErrorCode;
 import com.trouni.tro_uni.exception.errorcode.GeneralErrorCode;
@@ -15,14 +24,33 @@ import com.trouni.tro_uni.repository.MessageRepository;
 import com.trouni.tro_uni.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 @Service
@@ -34,98 +62,383 @@ public class ChatService {
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
     private final SimpMessagingTemplate messagingTemplate; // Used to send messages to clients
+    private final MessageSequenceAllocator messageSequenceAllocator;
+    private final MessagePersistencePipeline messagePersistencePipeline;
+    private final ChatMembershipIndex chatMembershipIndex;
+    private final ChatUnreadCounterService chatUnreadCounterService;
+    private final ChatPresenceRegistry chatPresenceRegistry;
+    private final RoomStatsService roomStatsService;
+    private final PlatformTransactionManager transactionManager;
+
+    private static final int DEFAULT_HISTORY_LIMIT = 50;
+    private static final int MAX_HISTORY_LIMIT = 200;
+    private static final long GROUP_COMMIT_WAIT_SECONDS = 10;
+    private static final int DEFAULT_INBOX_LIMIT = 20;
+    private static final int MAX_INBOX_LIMIT = 100;
 
     /**
      * Creates a new chat room between the current user and a recipient.
+     * <p>
+     * Not wrapped in a transaction: the insert runs in its own short transaction, so a request
+     * never holds more than one pooled connection, and a lost race is resolved by re-reading
+     * the room that won.
      *
      * @param sender  The user initiating the chat room creation.
-     * @param request The request containing the recipient's ID.
+     * @param request The request containing the recipient's ID and, optionally, the listing it was opened from.
      * @return ChatRoomResponse - Details of the created or existing chat room.
      */
-    @Transactional
     public ChatRoomResponse createChatRoom(User sender, CreateChatRoomRequest request) {
         log.info("Attempting to create/retrieve chat room between senderId={} and recipientId={}", sender.getId(), request.getRecipientId());
 
         User recipient = userRepository.findById(request.getRecipientId())
                 .orElseThrow(() -> new AppException(AuthenticationErrorCode.PROFILE_NOT_FOUND));
 
-        ChatRoom chatRoom = getOrCreateChatRoom(sender, recipient);
+        String participantKey = ChatRoom.participantKey(sender.getId(), recipient.getId());
+        if (chatRoomRepository.findByParticipantKey(participantKey).isEmpty()) {
+            createDirectChatRoom(participantKey, sender, recipient, request.getRoomId());
+        }
+
+        TransactionTemplate read = new TransactionTemplate(transactionManager);
+        read.setReadOnly(true);
+        ChatRoomResponse chatRoom = read.execute(status -> chatRoomRepository.findByParticipantKey(participantKey)
+                .map(ChatRoomResponse::fromChatRoom)
+                .orElseThrow(() -> new AppException(GeneralErrorCode.RESOURCE_NOT_FOUND, "Chat room not found")));
 
         log.info("Chat room created/retrieved with ID: {}", chatRoom.getId());
-        return ChatRoomResponse.fromChatRoom(chatRoom);
+        return chatRoom;
     }
 
     /**
-     * Processes an incoming chat message, saves it, and sends it to the recipient.
+     * Processes an incoming chat message and broadcasts it to the chat room.
+     * <p>
+     * The message gets a server-assigned id and seq up front; the insert is handed to
+     * {@link MessagePersistencePipeline}. In ASYNC mode the message is broadcast right away,
+     * in SYNC/GROUP_COMMIT mode only after it has been committed.
      *
-     * @param sender  The user sending the message.
-     * @param request The message payload containing chatRoomId and content.
+     * @param senderId   The ID of the user sending the message.
+     * @param senderName The username of the sender (shown to the recipient).
+     * @param request    The message payload containing chatRoomId and content.
      */
-    @Transactional
-    public void processMessage(User sender, ChatMessageRequest request) {
-        log.info("📨 Processing message from senderId={} to chatRoomId={}", sender.getId(), request.getChatRoomId());
+    public void processMessage(UUID senderId, String senderName, ChatMessageRequest request) {
+        log.debug("Processing message from senderId={} to chatRoomId={}", senderId, request.getChatRoomId());
 
-        ChatRoom chatRoom = chatRoomRepository.findById(request.getChatRoomId())
-                .orElseThrow(() -> new AppException(GeneralErrorCode.RESOURCE_NOT_FOUND, "Chat room not found"));
-        log.info("✅ ChatRoom found: {} (ID: {})", chatRoom.getId(), chatRoom.getId());
+        UUID chatRoomId = request.getChatRoomId();
+        checkParticipant(chatRoomId, senderId);
 
-        User recipient = chatRoom.getParticipants().stream()
-                .filter(p -> !p.getId().equals(sender.getId()))
-                .findFirst()
+        UUID recipientId = chatMembershipIndex.findCounterpartId(chatRoomId, senderId)
                 .orElseThrow(() -> new AppException(AuthenticationErrorCode.PROFILE_NOT_FOUND));
-        log.info("✅ Recipient found: {} (ID: {})", recipient.getUsername(), recipient.getId());
 
-        // Create and save the message
-        Message message = new Message(null, chatRoom, sender, request.getContent(), false, LocalDateTime.now());
-        Message savedMessage = messageRepository.save(message);
-        log.info("Message from {} to {} saved in chat room {}", sender.getUsername(), recipient.getUsername(), chatRoom.getId());
+        MessagePersistencePipeline.PendingMessage pending = new MessagePersistencePipeline.PendingMessage(
+                UUID.randomUUID(),
+                chatRoomId,
+                senderId,
+                request.getContent(),
+                LocalDateTime.now(),
+                messageSequenceAllocator.next(chatRoomId));
 
-        // Convert to DTO to send to the client
-        ChatMessageResponse response = ChatMessageResponse.fromMessage(savedMessage);
+        ChatMessageResponse response = ChatMessageResponse.builder()
+                .messageId(pending.id())
+                .chatRoomId(chatRoomId)
+                .senderId(senderId)
+                .senderName(senderName)
+                .recipientId(recipientId)
+                .content(pending.content())
+                .timestamp(pending.sentAt())
+                .seq(pending.seq())
+                .build();
 
-        // Send the message to the recipient's private topic
-        // The recipient must be subscribed to /topic/user/{userId}
-        try {
-            messagingTemplate.convertAndSend("/topic/chatRoom/" + chatRoom.getId().toString(), response);
-            log.info("📨 Sent to chatRoom {} on /topic/chatRoom/{}", chatRoom.getId(), chatRoom.getId());
-        } catch (Exception e) {
-            log.error("❌ Failed to send message via WebSocket: {}", e.getMessage(), e);
+        chatUnreadCounterService.increment(recipientId, chatRoomId, pending.committed());
+        messagePersistencePipeline.submit(pending);
+        awaitGroupCommit(pending.committed(), chatRoomId);
+
+        broadcast("/topic/chatRoom/" + chatRoomId, response);
+    }
+
+    /**
+     * Marks the other participants' messages as read up to a seq (or timestamp).
+     * <p>
+     * The receipt goes through the persistence pipeline behind the messages it covers and is
+     * applied with one set-based UPDATE; the unread counter is decremented once it commits.
+     * The receipt is broadcast to /topic/chatRoom/{chatRoomId}/read right away.
+     *
+     * @param readerId The ID of the user who read the messages.
+     * @param request  The chat room and the read position.
+     * @return The read receipt.
+     */
+    public ReadReceiptResponse markRead(UUID readerId, MarkReadRequest request) {
+        UUID chatRoomId = request.getChatRoomId();
+        if (request.getUpToSeq() == null && request.getUpToTime() == null) {
+            throw new AppException(GeneralErrorCode.INVALID_INPUT, "upToSeq or upToTime is required");
         }
+        checkParticipant(chatRoomId, readerId);
+
+        MessagePersistencePipeline.PendingReadMarker marker = new MessagePersistencePipeline.PendingReadMarker(
+                chatRoomId, readerId, request.getUpToSeq(), request.getUpToTime());
+        chatUnreadCounterService.decrement(readerId, chatRoomId, marker.marked());
+        messagePersistencePipeline.submit(marker);
+        awaitGroupCommit(marker.marked(), chatRoomId);
+
+        ReadReceiptResponse receipt = ReadReceiptResponse.builder()
+                .chatRoomId(chatRoomId)
+                .readerId(readerId)
+                .upToSeq(request.getUpToSeq())
+                .upToTime(request.getUpToTime())
+                .readAt(LocalDateTime.now())
+                .build();
+        broadcast("/topic/chatRoom/" + chatRoomId + "/read", receipt);
+        return receipt;
+    }
+
+    /**
+     * Broadcasts a typing indicator to /topic/chatRoom/{chatRoomId}/typing. Nothing is persisted.
+     *
+     * @param senderId   The ID of the user typing.
+     * @param senderName The username of the user typing.
+     * @param request    The chat room and whether the user started or stopped typing.
+     */
+    public void processTyping(UUID senderId, String senderName, TypingRequest request) {
+        UUID chatRoomId = request.getChatRoomId();
+        checkParticipant(chatRoomId, senderId);
 
+        broadcast("/topic/chatRoom/" + chatRoomId + "/typing", TypingResponse.builder()
+                .chatRoomId(chatRoomId)
+                .userId(senderId)
+                .username(senderName)
+                .typing(request.isTyping())
+                .at(LocalDateTime.now())
+                .build());
+    }
 
+    /**
+     * Returns the online status of everyone the user shares a chat room with.
+     *
+     * @param userId The ID of the user.
+     * @return One entry per contact.
+     */
+    public List<PresenceResponse> getContactPresence(UUID userId) {
+        return chatPresenceRegistry.getContactPresence(userId);
     }
 
+    /**
+     * Returns the unread counts of all the user's chat rooms from the in-memory counters.
+     *
+     * @param userId The ID of the user.
+     * @return chatRoomId -> unread count.
+     */
+    public Map<UUID, Long> getUnreadCounts(UUID userId) {
+        return chatUnreadCounterService.getUnreadCounts(userId, chatMembershipIndex.getChatRoomIds(userId));
+    }
 
+    /**
+     * In GROUP_COMMIT mode, waits until the write is committed before the caller acknowledges it.
+     */
+    private void awaitGroupCommit(CompletableFuture<?> committed, UUID chatRoomId) {
+        if (messagePersistencePipeline.getMode() != ChatPersistenceMode.GROUP_COMMIT) {
+            return;
+        }
+        try {
+            committed.get(GROUP_COMMIT_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException(GeneralErrorCode.SERVICE_UNAVAILABLE, "Message was not saved");
+        } catch (ExecutionException | TimeoutException e) {
+            log.error("Chat write in chat room {} was not saved: {}", chatRoomId, e.getMessage());
+            throw new AppException(GeneralErrorCode.SERVICE_UNAVAILABLE, "Message was not saved");
+        }
+    }
 
     /**
-     * Retrieves or creates a chat room for two users.
+     * Ensures the chat room exists and the user is one of its participants (served from memory).
      *
-     * @param sender    The first user.
-     * @param recipient The second user.
-     * @return The existing or newly created ChatRoom.
+     * @param chatRoomId The ID of the chat room.
+     * @param userId     The ID of the user.
+     * @throws AppException RESOURCE_NOT_FOUND or ACCESS_DENIED.
+     */
+    public void checkParticipant(UUID chatRoomId, UUID userId) {
+        Set<UUID> participantIds = chatMembershipIndex.getParticipantIds(chatRoomId);
+        if (participantIds.isEmpty()) {
+            throw new AppException(GeneralErrorCode.RESOURCE_NOT_FOUND, "Chat room not found");
+        }
+        if (!participantIds.contains(userId)) {
+            throw new AppException(GeneralErrorCode.ACCESS_DENIED, "You are not a participant of this chat room");
+        }
+    }
+
+    private void broadcast(String destination, Object payload) {
+        try {
+            messagingTemplate.convertAndSend(destination, payload);
+            log.debug("Sent {} to {}", payload.getClass().getSimpleName(), destination);
+        } catch (Exception e) {
+            log.error("❌ Failed to send message via WebSocket: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Inserts a direct chat room in its own transaction. If another request created the room
+     * for the same pair first, the unique participant key rejects the insert and the caller
+     * reads the existing room instead. A new room opened from a listing counts as a chat started
+     * for that listing when the recipient owns it.
      */
-    private ChatRoom getOrCreateChatRoom(User sender, User recipient) {
-        return chatRoomRepository.findChatRoomByParticipants(sender, recipient)
-                .orElseGet(() -> {
-                    ChatRoom newChatRoom = ChatRoom.builder()
-                            .participants(Arrays.asList(sender, recipient))
-                            .build();
-                    log.info("Creating new chat room for users {} and {}", sender.getUsername(), recipient.getUsername());
-                    return chatRoomRepository.save(newChatRoom);
-                });
+    private void createDirectChatRoom(String participantKey, User sender, User recipient, UUID roomId) {
+        TransactionTemplate insert = new TransactionTemplate(transactionManager);
+        try {
+            ChatRoom savedChatRoom = insert.execute(status -> chatRoomRepository.saveAndFlush(ChatRoom.builder()
+                    .participantKey(participantKey)
+                    .participants(Arrays.asList(sender, recipient))
+                    .build()));
+            log.info("Created new chat room for users {} and {}", sender.getUsername(), recipient.getUsername());
+            chatMembershipIndex.register(savedChatRoom);
+            if (roomId != null) {
+                roomStatsService.recordChatStarted(roomId, recipient.getId());
+            }
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Chat room for {} was created concurrently, using the existing one", participantKey);
+        }
     }
 
     /**
-     * Retrieves the message history for a given chat room.
+     * Retrieves one page of message history for a chat room, using seq as the cursor.
+     * <p>
+     * - {@code afterSeq} set: delta sync, messages with seq > afterSeq (oldest first)
+     * - {@code beforeSeq} set: older page, messages with seq < beforeSeq
+     * - neither: the latest page
      *
-     * @param roomId The ID of the chat room.
-     * @return A list of chat messages.
+     * @param userId    The ID of the user asking (must be a participant).
+     * @param roomId    The ID of the chat room.
+     * @param beforeSeq Only return messages older than this seq (optional).
+     * @param afterSeq  Only return messages newer than this seq (optional).
+     * @param limit     Maximum number of messages (defaults to 50, capped at 200).
+     * @return A page of chat messages ordered by ascending seq.
      */
-    public List<ChatMessageResponse> getChatHistory(UUID roomId) {
-        List<Message> messages = messageRepository.findByChatRoomIdOrderBySentAtAsc(roomId);
-        return messages.stream()
+    public ChatHistoryResponse getChatHistory(UUID userId, UUID roomId, Long beforeSeq, Long afterSeq, Integer limit) {
+        checkParticipant(roomId, userId);
+        // Rooms from before seq existed are numbered first, otherwise their history would be empty
+        messageSequenceAllocator.ensureSequenced(roomId);
+
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_HISTORY_LIMIT : Math.min(limit, MAX_HISTORY_LIMIT);
+        // Fetch one extra row to know whether another page exists
+        Pageable pageable = PageRequest.of(0, pageSize + 1);
+
+        List<Message> messages;
+        if (afterSeq != null) {
+            messages = messageRepository.findByChatRoomIdAndSeqGreaterThanOrderBySeqAsc(roomId, afterSeq, pageable);
+        } else if (beforeSeq != null) {
+            messages = new ArrayList<>(messageRepository.findByChatRoomIdAndSeqLessThanOrderBySeqDesc(roomId, beforeSeq, pageable));
+        } else {
+            messages = new ArrayList<>(messageRepository.findByChatRoomIdAndSeqNotNullOrderBySeqDesc(roomId, pageable));
+        }
+
+        boolean hasMore = messages.size() > pageSize;
+        if (hasMore) {
+            messages = messages.subList(0, pageSize);
+        }
+        if (afterSeq == null) {
+            // Backward pages are loaded newest first; return them oldest first
+            Collections.reverse(messages);
+        }
+
+        List<ChatMessageResponse> responses = messages.stream()
                 .map(ChatMessageResponse::fromMessage)
                 .collect(Collectors.toList());
+
+        Long firstSeq = messages.isEmpty() ? null : messages.get(0).getSeq();
+        Long lastSeq = messages.isEmpty() ? null : messages.get(messages.size() - 1).getSeq();
+
+        return ChatHistoryResponse.builder()
+                .messages(responses)
+                .firstSeq(firstSeq)
+                .lastSeq(lastSeq)
+                .nextBeforeSeq(afterSeq == null && hasMore ? firstSeq : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Retrieves one page of the user's inbox, most recent activity first.
+     * <p>
+     * Each row carries the counterpart profile, the last message preview and the unread count,
+     * all produced by a single query per page.
+     *
+     * @param userId       The ID of the user.
+     * @param before       Cursor from the previous page (lastActivityAt), null for the first page.
+     * @param beforeRoomId Cursor tie-breaker from the previous page (chatRoomId).
+     * @param limit        Maximum number of rooms (defaults to 20, capped at 100).
+     * @return A page of inbox rows.
+     */
+    public InboxResponse getInbox(UUID userId, LocalDateTime before, UUID beforeRoomId, Integer limit) {
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_INBOX_LIMIT : Math.min(limit, MAX_INBOX_LIMIT);
+        Pageable pageable = PageRequest.of(0, pageSize + 1);
+
+        long queriedAt = System.nanoTime();
+        List<InboxItemResponse> items = before != null && beforeRoomId != null
+                ? chatRoomRepository.findInboxBefore(userId, before, beforeRoomId, pageable)
+                : chatRoomRepository.findInbox(userId, pageable);
+
+        boolean hasMore = items.size() > pageSize;
+        if (hasMore) {
+            items = new ArrayList<>(items.subList(0, pageSize));
+        }
+        for (InboxItemResponse item : items) {
+            // The query's count seeds a missing or stale counter
+            item.setUnreadCount(chatUnreadCounterService.seed(userId, item.getChatRoomId(), item.getUnreadCount(),
+                    queriedAt));
+        }
+        InboxItemResponse last = items.isEmpty() ? null : items.get(items.size() - 1);
+
+        return InboxResponse.builder()
+                .items(items)
+                .nextBefore(hasMore ? last.getLastActivityAt() : null)
+                .nextBeforeRoomId(hasMore ? last.getChatRoomId() : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Fills the inbox sort key for rooms created before it existed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillLastActivity() {
+        int updated = chatRoomRepository.backfillLastActivity();
+        if (updated > 0) {
+            log.info("Backfilled last activity time for {} chat rooms", updated);
+        }
+    }
+
+    /**
+     * Sets the participant key of direct rooms created before it existed. When a pair already
+     * has several rooms, only the oldest one gets the key and is returned by later lookups.
+     * Every other room (later duplicates, rooms without exactly two participants) gets its own
+     * id as key, so no row is left NULL under the unique constraint (SQL Server allows only one).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillParticipantKeys() {
+        Map<UUID, List<UUID>> participantsByRoom = new LinkedHashMap<>();
+        Map<UUID, LocalDateTime> createdAtByRoom = new HashMap<>();
+        for (Object[] row : chatRoomRepository.findParticipantsOfUnkeyedRooms()) {
+            participantsByRoom.computeIfAbsent((UUID) row[0], id -> new ArrayList<>()).add((UUID) row[2]);
+            createdAtByRoom.put((UUID) row[0], (LocalDateTime) row[1]);
+        }
+
+        Set<String> assigned = new HashSet<>();
+        int updated = 0;
+        for (UUID chatRoomId : participantsByRoom.keySet().stream()
+                .sorted(Comparator.comparing(createdAtByRoom::get, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .toList()) {
+            List<UUID> participantIds = participantsByRoom.get(chatRoomId);
+            if (participantIds.size() != 2) {
+                continue;
+            }
+            String participantKey = ChatRoom.participantKey(participantIds.get(0), participantIds.get(1));
+            if (assigned.add(participantKey) && chatRoomRepository.findByParticipantKey(participantKey).isEmpty()) {
+                updated += chatRoomRepository.assignParticipantKey(chatRoomId, participantKey);
+            }
+        }
+        updated += chatRoomRepository.assignRoomIdAsParticipantKey();
+        if (updated > 0) {
+            log.info("Backfilled participant key for {} chat rooms", updated);
+        }
     }
 
     /**
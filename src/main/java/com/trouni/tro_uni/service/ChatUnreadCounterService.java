@@ -0,0 +1,210 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.repository.MessageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ChatUnreadCounterService - In-memory unread counters per (user, chat room).
+ * <p>
+ * Counters are loaded lazily (one grouped COUNT query for many rooms), incremented once a sent
+ * message is committed and decremented once a read receipt is committed, so reading a badge is
+ * a map lookup and the database always holds every change a counter has seen.
+ * - Counters older than max-staleness are re-counted from the database when read, so messages
+ *   and receipts handled by other instances show up within that bound
+ * - A re-count is discarded when the counter changed, or had a write in flight, while the query ran
+ * - Idle counters are dropped periodically to keep memory bounded
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class ChatUnreadCounterService {
+
+    private final MessageRepository messageRepository;
+    private final long maxStalenessNanos;
+    private final long idleTtlNanos;
+
+    private final ConcurrentHashMap<CounterKey, Counter> counters = new ConcurrentHashMap<>();
+
+    public ChatUnreadCounterService(MessageRepository messageRepository,
+                                    @Value("${app.chat.unread.max-staleness-ms:30000}") long maxStalenessMs,
+                                    @Value("${app.chat.unread.idle-ttl-ms:3600000}") long idleTtlMs) {
+        this.messageRepository = messageRepository;
+        this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMs);
+        this.idleTtlNanos = TimeUnit.MILLISECONDS.toNanos(idleTtlMs);
+    }
+
+    /**
+     * Returns the unread counts of a user for several rooms. Missing and stale counters are
+     * (re)loaded with one query.
+     *
+     * @param userId      The ID of the user.
+     * @param chatRoomIds The chat rooms to read.
+     * @return chatRoomId -> unread count.
+     */
+    public Map<UUID, Long> getUnreadCounts(UUID userId, Collection<UUID> chatRoomIds) {
+        long now = System.nanoTime();
+        List<UUID> toLoad = new ArrayList<>();
+        for (UUID chatRoomId : chatRoomIds) {
+            Counter counter = counters.get(new CounterKey(userId, chatRoomId));
+            if (counter == null || now - counter.syncedAt > maxStalenessNanos) {
+                toLoad.add(chatRoomId);
+            }
+        }
+        if (!toLoad.isEmpty()) {
+            sync(userId, toLoad);
+        }
+
+        Map<UUID, Long> result = new HashMap<>();
+        for (UUID chatRoomId : chatRoomIds) {
+            Counter counter = counters.get(new CounterKey(userId, chatRoomId));
+            result.put(chatRoomId, counter != null ? counter.value.get() : 0L);
+        }
+        return result;
+    }
+
+    /**
+     * Applies a count loaded elsewhere (e.g. by the inbox query): installs the counter if missing,
+     * or refreshes it if stale and unchanged since the query started.
+     *
+     * @param queriedAt System.nanoTime() taken before the query ran.
+     * @return The current counter value.
+     */
+    public long seed(UUID userId, UUID chatRoomId, long unread, long queriedAt) {
+        CounterKey key = new CounterKey(userId, chatRoomId);
+        Counter counter = counters.computeIfAbsent(key, missing -> new Counter(unread, queriedAt));
+        if (System.nanoTime() - counter.syncedAt > maxStalenessNanos) {
+            apply(key, counter, unread, queriedAt);
+        }
+        return counter.value.get();
+    }
+
+    /**
+     * Counts a new message for the recipient once it is committed. Must be called before the
+     * message is submitted. Not-yet-loaded counters are left alone; they are read from the
+     * database when first needed.
+     */
+    public void increment(UUID userId, UUID chatRoomId, CompletableFuture<?> committed) {
+        track(userId, chatRoomId, committed.thenApply(ignored -> 1L));
+    }
+
+    /**
+     * Removes the messages a read receipt marks as read once it is committed. Must be called
+     * before the receipt is submitted.
+     */
+    public void decrement(UUID userId, UUID chatRoomId, CompletableFuture<? extends Number> marked) {
+        track(userId, chatRoomId, marked.thenApply(read -> -read.longValue()));
+    }
+
+    private void track(UUID userId, UUID chatRoomId, CompletableFuture<Long> delta) {
+        Counter counter = counters.get(new CounterKey(userId, chatRoomId));
+        if (counter == null) {
+            return;
+        }
+        synchronized (counter) {
+            counter.inFlight++;
+            counter.touch();
+        }
+        delta.whenComplete((change, error) -> {
+            synchronized (counter) {
+                counter.inFlight--;
+                if (error == null && change != 0) {
+                    counter.value.updateAndGet(value -> Math.max(0, value + change));
+                }
+                counter.touch();
+            }
+        });
+    }
+
+    /**
+     * Drops counters that were neither changed nor read for idle-ttl.
+     */
+    @Scheduled(fixedDelayString = "${app.chat.unread.evict-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Map.Entry<CounterKey, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            if (now - counter.touchedAt > idleTtlNanos && now - counter.syncedAt > idleTtlNanos
+                    && counters.remove(entry.getKey(), counter)) {
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} idle chat unread counters", evicted);
+        }
+    }
+
+    /**
+     * Loads the counts of the given rooms with one query, installing missing counters and
+     * refreshing existing ones.
+     */
+    private void sync(UUID userId, List<UUID> chatRoomIds) {
+        long queriedAt = System.nanoTime();
+        Map<UUID, Long> actual = countFromDatabase(userId, chatRoomIds);
+        for (UUID chatRoomId : chatRoomIds) {
+            CounterKey key = new CounterKey(userId, chatRoomId);
+            long value = actual.getOrDefault(chatRoomId, 0L);
+            Counter counter = counters.computeIfAbsent(key, missing -> new Counter(value, queriedAt));
+            apply(key, counter, value, queriedAt);
+        }
+    }
+
+    private void apply(CounterKey key, Counter counter, long value, long queriedAt) {
+        synchronized (counter) {
+            // Skip counters that changed or had a write in flight while the query ran; the query may
+            // already include a commit that the counter has not counted yet, or the other way round
+            if (counter.touchedAt >= queriedAt || counter.inFlight > 0 || counter.syncedAt >= queriedAt) {
+                return;
+            }
+            if (counter.value.getAndSet(value) != value) {
+                log.debug("Unread counter drift fixed for user {} in chat room {}", key.userId(), key.chatRoomId());
+            }
+            counter.syncedAt = queriedAt;
+        }
+    }
+
+    private Map<UUID, Long> countFromDatabase(UUID userId, List<UUID> chatRoomIds) {
+        Map<UUID, Long> counts = new HashMap<>();
+        for (Object[] row : messageRepository.countUnreadGroupByChatRoom(userId, chatRoomIds)) {
+            counts.put((UUID) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    private record CounterKey(UUID userId, UUID chatRoomId) {
+    }
+
+    private static final class Counter {
+        private final AtomicLong value;
+        private volatile long touchedAt = System.nanoTime();
+        // System.nanoTime() taken before the query that last set the value
+        private volatile long syncedAt;
+        // Messages and read receipts counted on this counter but not committed yet; guarded by the counter
+        private int inFlight;
+
+        private Counter(long initial, long syncedAt) {
+            this.value = new AtomicLong(initial);
+            this.syncedAt = syncedAt;
+        }
+
+        private void touch() {
+            touchedAt = System.nanoTime();
+        }
+    }
+}
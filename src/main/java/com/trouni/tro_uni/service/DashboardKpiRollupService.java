@@ -0,0 +1,399 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.dto.response.AdminDashboardStatsResponse;
+import com.trouni.tro_uni.dto.response.DailyKpiResponse;
+import com.trouni.tro_uni.entity.DailyKpiRollup;
+import com.trouni.tro_uni.enums.PaymentStatus;
+import com.trouni.tro_uni.exception.AppException;
+import com.trouni.tro_uni.exception.errorcode.GeneralErrorCode;
+import com.trouni.tro_uni.repository.DailyKpiRollupRepository;
+import com.trouni.tro_uni.repository.PaymentRepository;
+import com.trouni.tro_uni.repository.ReviewRepository;
+import com.trouni.tro_uni.repository.RoomRepository;
+import com.trouni.tro_uni.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DashboardKpiRollupService - Số liệu KPI theo ngày cho admin dashboard
+ *
+ * Chức năng chính:
+ * - Các service ghi dữ liệu gọi record*() sau khi transaction commit; delta được gom trong bộ nhớ
+ *   theo ngày và ghi xuống bảng daily_kpi_rollups định kỳ (một câu UPDATE cộng dồn cho mỗi ngày)
+ * - Job hằng đêm tính lại các ngày đã qua từ bảng gốc theo từng đoạn ngày (GROUP BY theo index created_at),
+ *   sửa các sai lệch mà delta không bắt được (ví dụ xóa user kéo theo xóa phòng, review); delta đang chờ
+ *   của các ngày trong đoạn được bỏ đi trước khi đếm vì thay đổi của chúng đã commit và có trong bảng gốc
+ * - Dashboard đọc tổng và chuỗi theo ngày từ bảng rollup cộng với delta chưa ghi xuống, cùng khóa với flush
+ *   để một delta không bị tính hai lần (hoặc bị bỏ sót) khi đang được ghi xuống
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class DashboardKpiRollupService {
+
+    private static final int MAX_SERIES_DAYS = 366;
+
+    private final DailyKpiRollupRepository rollupRepository;
+    private final UserRepository userRepository;
+    private final RoomRepository roomRepository;
+    private final ReviewRepository reviewRepository;
+    private final PaymentRepository paymentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int rebuildChunkDays;
+
+    private final ConcurrentHashMap<LocalDate, Delta> pending = new ConcurrentHashMap<>();
+    // Flush, rebuild (từng đoạn) và các lần đọc không chạy song song: mỗi delta nằm ở đúng một chỗ,
+    // hoặc trong pending hoặc trong bảng rollup
+    private final Object writeLock = new Object();
+
+    public DashboardKpiRollupService(DailyKpiRollupRepository rollupRepository,
+                                     UserRepository userRepository,
+                                     RoomRepository roomRepository,
+                                     ReviewRepository reviewRepository,
+                                     PaymentRepository paymentRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${app.dashboard.kpi.rebuild-chunk-days:31}") int rebuildChunkDays) {
+        this.rollupRepository = rollupRepository;
+        this.userRepository = userRepository;
+        this.roomRepository = roomRepository;
+        this.reviewRepository = reviewRepository;
+        this.paymentRepository = paymentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rebuildChunkDays = Math.max(1, rebuildChunkDays);
+    }
+
+    // ===============================
+    // Ghi nhận từ các thao tác ghi
+    // ===============================
+
+    public void recordUserCreated(LocalDateTime createdAt) {
+        afterCommit(createdAt, delta -> delta.users++);
+    }
+
+    public void recordRoomCreated(LocalDateTime createdAt) {
+        afterCommit(createdAt, delta -> delta.rooms++);
+    }
+
+    public void recordReviewCreated(LocalDateTime createdAt) {
+        afterCommit(createdAt, delta -> delta.reviews++);
+    }
+
+    public void recordReviewDeleted(LocalDateTime createdAt) {
+        afterCommit(createdAt, delta -> delta.reviews--);
+    }
+
+    /**
+     * Payment hoàn thành được tính vào ngày tạo payment, giống truy vấn tính lại từ bảng gốc
+     */
+    public void recordPaymentCompleted(LocalDateTime createdAt, BigDecimal amount) {
+        afterCommit(createdAt, delta -> {
+            delta.payments++;
+            delta.revenue = delta.revenue.add(amount);
+        });
+    }
+
+    private void afterCommit(LocalDateTime createdAt, DeltaUpdate update) {
+        LocalDate day = (createdAt != null ? createdAt : LocalDateTime.now()).toLocalDate();
+        Runnable apply = () -> pending.compute(day, (key, delta) -> {
+            Delta target = delta != null ? delta : new Delta();
+            update.apply(target);
+            return target;
+        });
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    // ===============================
+    // Ghi xuống database
+    // ===============================
+
+    /**
+     * Ghi các delta đang chờ xuống bảng rollup, mỗi ngày một câu UPDATE cộng dồn
+     */
+    @Scheduled(fixedDelayString = "${app.dashboard.kpi.flush-interval-ms:10000}")
+    public void flush() {
+        synchronized (writeLock) {
+            for (LocalDate day : new ArrayList<>(pending.keySet())) {
+                Delta delta = pending.remove(day);
+                if (delta == null || delta.isEmpty()) {
+                    continue;
+                }
+                try {
+                    addToBucket(day, delta);
+                } catch (Exception e) {
+                    // Giữ lại delta để lần sau ghi tiếp
+                    pending.merge(day, delta, Delta::plus);
+                    log.error("Error flushing KPI rollup for {}: {}", day, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void addToBucket(LocalDate day, Delta delta) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                int updated = rollupRepository.addToBucket(day, delta.users, delta.rooms, delta.reviews,
+                        delta.payments, delta.revenue, LocalDateTime.now());
+                if (updated == 0) {
+                    DailyKpiRollup bucket = new DailyKpiRollup(day);
+                    bucket.setNewUsers(delta.users);
+                    bucket.setNewRooms(delta.rooms);
+                    bucket.setNewReviews(delta.reviews);
+                    bucket.setCompletedPayments(delta.payments);
+                    bucket.setRevenue(delta.revenue);
+                    rollupRepository.saveAndFlush(bucket);
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Instance khác vừa tạo bucket của ngày này: cộng dồn vào bucket đó
+            transactionTemplate.executeWithoutResult(status -> rollupRepository.addToBucket(day, delta.users,
+                    delta.rooms, delta.reviews, delta.payments, delta.revenue, LocalDateTime.now()));
+        }
+    }
+
+    /**
+     * Lần khởi động đầu tiên (bảng rollup trống): tính toàn bộ lịch sử từ bảng gốc
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        try {
+            if (rollupRepository.count() == 0) {
+                rebuildHistory();
+            }
+        } catch (Exception e) {
+            log.error("Error during KPI rollup backfill: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Tính lại tất cả các ngày đã qua, chạy hằng đêm
+     */
+    @Scheduled(cron = "${app.dashboard.kpi.rebuild-cron:0 30 3 * * *}")
+    public void rebuildHistory() {
+        try {
+            userRepository.findEarliestCreatedAt().ifPresent(earliest ->
+                    rebuild(earliest.toLocalDate(), LocalDate.now().minusDays(1)));
+        } catch (Exception e) {
+            log.error("Error during KPI rollup rebuild: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Tính lại các bucket trong khoảng [from, to] từ bảng gốc, mỗi đoạn rebuild-chunk-days ngày một transaction.
+     * Ngày hôm nay không được tính lại vì vẫn đang nhận delta.
+     */
+    public void rebuild(LocalDate from, LocalDate to) {
+        LocalDate last = to.isBefore(LocalDate.now()) ? to : LocalDate.now().minusDays(1);
+        int days = 0;
+        for (LocalDate start = from; !start.isAfter(last); start = start.plusDays(rebuildChunkDays)) {
+            LocalDate end = start.plusDays(rebuildChunkDays - 1);
+            LocalDate chunkEnd = end.isAfter(last) ? last : end;
+            LocalDate chunkStart = start;
+            synchronized (writeLock) {
+                // Delta chỉ vào pending sau khi commit nên bảng gốc đã có; giữ lại thì flush sau sẽ cộng lần nữa
+                Map<LocalDate, Delta> drained = drain(chunkStart, chunkEnd);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> rebuildChunk(chunkStart, chunkEnd));
+                } catch (RuntimeException e) {
+                    drained.forEach((day, delta) -> pending.merge(day, delta, Delta::plus));
+                    throw e;
+                }
+            }
+            days += (int) ChronoUnit.DAYS.between(chunkStart, chunkEnd) + 1;
+        }
+        log.info("Rebuilt KPI rollups for {} days from {} to {}", days, from, last);
+    }
+
+    private Map<LocalDate, Delta> drain(LocalDate from, LocalDate to) {
+        Map<LocalDate, Delta> drained = new HashMap<>();
+        for (LocalDate day : new ArrayList<>(pending.keySet())) {
+            if (!day.isBefore(from) && !day.isAfter(to)) {
+                Delta delta = pending.remove(day);
+                if (delta != null) {
+                    drained.put(day, delta);
+                }
+            }
+        }
+        return drained;
+    }
+
+    private void rebuildChunk(LocalDate from, LocalDate to) {
+        LocalDateTime fromTime = from.atStartOfDay();
+        LocalDateTime toTime = to.plusDays(1).atStartOfDay();
+
+        Map<LocalDate, DailyKpiRollup> buckets = new HashMap<>();
+        for (DailyKpiRollup bucket : rollupRepository.findByBucketDateBetweenOrderByBucketDateAsc(from, to)) {
+            bucket.setNewUsers(0);
+            bucket.setNewRooms(0);
+            bucket.setNewReviews(0);
+            bucket.setCompletedPayments(0);
+            bucket.setRevenue(BigDecimal.ZERO);
+            buckets.put(bucket.getBucketDate(), bucket);
+        }
+
+        for (Object[] row : userRepository.countCreatedPerDay(fromTime, toTime)) {
+            bucket(buckets, row).setNewUsers((Long) row[1]);
+        }
+        for (Object[] row : roomRepository.countCreatedPerDay(fromTime, toTime)) {
+            bucket(buckets, row).setNewRooms((Long) row[1]);
+        }
+        for (Object[] row : reviewRepository.countCreatedPerDay(fromTime, toTime)) {
+            bucket(buckets, row).setNewReviews((Long) row[1]);
+        }
+        for (Object[] row : paymentRepository.sumAmountPerDayByStatus(PaymentStatus.COMPLETED.name(), fromTime, toTime)) {
+            DailyKpiRollup bucket = bucket(buckets, row);
+            bucket.setCompletedPayments((Long) row[1]);
+            bucket.setRevenue(row[2] != null ? (BigDecimal) row[2] : BigDecimal.ZERO);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        buckets.values().forEach(bucket -> bucket.setUpdatedAt(now));
+        rollupRepository.saveAll(buckets.values());
+    }
+
+    private DailyKpiRollup bucket(Map<LocalDate, DailyKpiRollup> buckets, Object[] row) {
+        return buckets.computeIfAbsent((LocalDate) row[0], DailyKpiRollup::new);
+    }
+
+    // ===============================
+    // Đọc cho dashboard
+    // ===============================
+
+    /**
+     * Tổng của tất cả các bucket, cộng với delta chưa ghi xuống
+     */
+    public AdminDashboardStatsResponse getTotals() {
+        Object[] row;
+        Delta total = new Delta();
+        synchronized (writeLock) {
+            row = rollupRepository.sumTotals().get(0);
+            for (LocalDate day : pending.keySet()) {
+                total.plus(pendingCopy(day));
+            }
+        }
+
+        return AdminDashboardStatsResponse.builder()
+                .totalUsers(((Number) row[0]).longValue() + total.users)
+                .totalRooms(((Number) row[1]).longValue() + total.rooms)
+                .totalReviews(((Number) row[2]).longValue() + total.reviews)
+                .totalTransactions(((Number) row[3]).longValue() + total.payments)
+                .totalRevenue(toBigDecimal(row[4]).add(total.revenue))
+                .build();
+    }
+
+    /**
+     * Số liệu từng ngày trong khoảng [from, to], ngày không có dữ liệu trả về 0
+     */
+    public List<DailyKpiResponse> getDailySeries(LocalDate from, LocalDate to) {
+        if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) >= MAX_SERIES_DAYS) {
+            throw new AppException(GeneralErrorCode.INVALID_INPUT);
+        }
+
+        Map<LocalDate, DailyKpiRollup> buckets = new HashMap<>();
+        Map<LocalDate, Delta> deltas = new HashMap<>();
+        synchronized (writeLock) {
+            for (DailyKpiRollup bucket : rollupRepository.findByBucketDateBetweenOrderByBucketDateAsc(from, to)) {
+                buckets.put(bucket.getBucketDate(), bucket);
+            }
+            for (LocalDate day : pending.keySet()) {
+                if (!day.isBefore(from) && !day.isAfter(to)) {
+                    deltas.put(day, pendingCopy(day));
+                }
+            }
+        }
+
+        List<DailyKpiResponse> series = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            DailyKpiRollup bucket = buckets.get(day);
+            Delta delta = deltas.getOrDefault(day, new Delta());
+            series.add(DailyKpiResponse.builder()
+                    .date(day)
+                    .newUsers((bucket != null ? bucket.getNewUsers() : 0) + delta.users)
+                    .newRooms((bucket != null ? bucket.getNewRooms() : 0) + delta.rooms)
+                    .newReviews((bucket != null ? bucket.getNewReviews() : 0) + delta.reviews)
+                    .completedPayments((bucket != null ? bucket.getCompletedPayments() : 0) + delta.payments)
+                    .revenue((bucket != null ? bucket.getRevenue() : BigDecimal.ZERO).add(delta.revenue))
+                    .build());
+        }
+        return series;
+    }
+
+    /**
+     * Bản sao delta của một ngày, đọc trong pending.computeIfPresent để không đọc dở một lần cộng đang chạy
+     */
+    private Delta pendingCopy(LocalDate day) {
+        Delta copy = new Delta();
+        pending.computeIfPresent(day, (key, delta) -> {
+            copy.plus(delta);
+            return delta;
+        });
+        return copy;
+    }
+
+    private BigDecimal toBigDecimal(Object value) {
+        if (value instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        return value != null ? new BigDecimal(value.toString()) : BigDecimal.ZERO;
+    }
+
+    @FunctionalInterface
+    private interface DeltaUpdate {
+        void apply(Delta delta);
+    }
+
+    /**
+     * Delta của một ngày; chỉ được sửa hoặc đọc bên trong pending.compute* (hoặc sau khi đã lấy ra khỏi pending)
+     * nên không cần khóa riêng
+     */
+    private static final class Delta {
+        private long users;
+        private long rooms;
+        private long reviews;
+        private long payments;
+        private BigDecimal revenue = BigDecimal.ZERO;
+
+        private boolean isEmpty() {
+            return users == 0 && rooms == 0 && reviews == 0 && payments == 0 && revenue.signum() == 0;
+        }
+
+        private Delta plus(Delta other) {
+            users += other.users;
+            rooms += other.rooms;
+            reviews += other.reviews;
+            payments += other.payments;
+            revenue = revenue.add(other.revenue);
+            return this;
+        }
+    }
+}
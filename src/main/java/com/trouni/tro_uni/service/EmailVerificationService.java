@@ -11,7 +11,6 @@ import com.trouni.tro_uni.exception.errorcode.GeneralErrorCode;
 import com.trouni.tro_uni.repository.EmailVerificationRepository;
 import com.trouni.tro_uni.repository.ProfileRepository;
 import com.trouni.tro_uni.repository.UserRepository;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -45,7 +44,8 @@ public class EmailVerificationService {
     private final ProfileRepository profileRepository;
     private final VerificationCodeService verificationCodeService;
     private final EmailService emailService;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final DashboardKpiRollupService kpiRollupService;
 
     // Rate limiting: tối đa 3 lần gửi email trong 1 giờ
     private static final int MAX_EMAILS_PER_HOUR = 3;
@@ -188,9 +188,9 @@ public class EmailVerificationService {
     }
 
     /**
-     * Cleanup expired verifications (chạy mỗi 30 phút)
+     * Cleanup expired verifications (tắt mặc định, bật bằng app.email-verification.cleanup-cron)
      */
-    @Scheduled(fixedRate = 30 * 60 * 1000) // 30 phút
+    @Scheduled(cron = "${app.email-verification.cleanup-cron:-}")
     @Transactional
     public void cleanupExpiredVerifications() {
         try {
@@ -232,6 +232,7 @@ public class EmailVerificationService {
     
             // Lưu User vào database
             User savedUser = userRepository.save(user);
+            kpiRollupService.recordUserCreated(savedUser.getCreatedAt());
 
             // Tạo Profile cho user (để trống, user sẽ cập nhật sau)
             Profile profile = new Profile();
@@ -278,7 +279,7 @@ public class EmailVerificationService {
             // Không set user vì chưa tạo user trong database
             
             // Hash password trước khi lưu
-            String hashedPassword = passwordEncoder.encode(signupRequest.getPassword());
+            String hashedPassword = passwordHashingService.encode(signupRequest.getPassword());
             emailVerification.setPasswordHash(hashedPassword);
             
             // Set role từ signup request
@@ -296,6 +297,8 @@ public class EmailVerificationService {
 
             log.info("Verification code created and sent for signup: {} ({})", signupRequest.getUsername(), signupRequest.getEmail());
 
+        } catch (AppException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Failed to create verification for signup: {}", e.getMessage());
             throw new AppException(GeneralErrorCode.INTERNAL_SERVER_ERROR);
@@ -3,7 +3,9 @@ package com.trouni.tro_uni.service;
 import com.trouni.tro_uni.dto.request.landlord.UpdateRoomStatusRequest;
 import com.trouni.tro_uni.dto.response.landlord.DashboardStatsResponse;
 import com.trouni.tro_uni.dto.response.landlord.RoomPerformanceResponse;
+import com.trouni.tro_uni.dto.response.landlord.RoomViewSeriesResponse;
 import com.trouni.tro_uni.entity.Room;
+import com.trouni.tro_uni.entity.RoomStats;
 import com.trouni.tro_uni.entity.User;
 import com.trouni.tro_uni.enums.RoomStatus;
 import com.trouni.tro_uni.exception.AppException;
@@ -16,6 +18,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -25,22 +28,38 @@ public class LandlordDashboardService {
 
     private final RoomRepository roomRepository;
     private final AuthService authService; // Giả định service này để lấy user hiện tại
+    private final RoomStatsService roomStatsService;
+    private final RoomViewSeriesService roomViewSeriesService;
 
     @Transactional(readOnly = true)
     public DashboardStatsResponse getOverviewStatistics() {
         User currentUser = authService.getCurrentUser();
 
-        long totalRooms = roomRepository.countByOwner(currentUser);
-        // Chuyển Enum thành String khi gọi repository
-        long activeRooms = roomRepository.countByOwnerAndStatus(currentUser, RoomStatus.AVAILABLE.getValue());
-        long totalBookmarks = roomRepository.countTotalBookmarksByOwner(currentUser.getId());
-        double averageRating = roomRepository.findAverageRatingByOwner(currentUser.getId());
+        // Đọc danh sách phòng và room_stats của chủ nhà, cộng trong bộ nhớ
+        List<Object[]> rooms = roomRepository.findSummariesByOwnerId(currentUser.getId());
+        Map<UUID, RoomStats> stats = roomStatsService.getStatsByOwner(currentUser.getId());
+
+        long activeRooms = 0;
+        long totalBookmarks = 0;
+        long ratingSum = 0;
+        long ratingCount = 0;
+        for (Object[] room : rooms) {
+            if (RoomStatus.AVAILABLE.getValue().equals(room[2])) {
+                activeRooms++;
+            }
+            RoomStats roomStats = stats.get((UUID) room[0]);
+            if (roomStats != null) {
+                totalBookmarks += roomStats.getBookmarkCount();
+                ratingSum += roomStats.getRatingSum();
+                ratingCount += roomStats.getRatingCount();
+            }
+        }
 
         return DashboardStatsResponse.builder()
-                .totalRooms(totalRooms)
+                .totalRooms(rooms.size())
                 .activeRooms(activeRooms)
                 .totalBookmarks(totalBookmarks)
-                .averageRating(averageRating)
+                .averageRating(ratingCount > 0 ? (double) ratingSum / ratingCount : 0.0)
                 .build();
     }
 
@@ -48,24 +67,23 @@ public class LandlordDashboardService {
     public List<RoomPerformanceResponse> getRoomPerformanceMetrics() {
         User currentUser = authService.getCurrentUser();
 
-        // Gọi phương thức repository mới trả về List
-        List<Object[]> projections = roomRepository.findRoomPerformanceProjectionByOwnerAsList(currentUser.getId());
+        List<Object[]> rooms = roomRepository.findSummariesByOwnerId(currentUser.getId());
+        Map<UUID, RoomStats> stats = roomStatsService.getStatsByOwner(currentUser.getId());
 
-        // Map từ List<Object[]> sang List<RoomPerformanceResponse>
-        return projections.stream()
-                .map(this::mapProjectionToRoomPerformanceResponse)
+        return rooms.stream()
+                .map(room -> mapToRoomPerformanceResponse(room, stats.get((UUID) room[0])))
                 .collect(Collectors.toList());
     }
 
-    private RoomPerformanceResponse mapProjectionToRoomPerformanceResponse(Object[] projection) {
-        // Phương thức helper này không cần thay đổi
+    private RoomPerformanceResponse mapToRoomPerformanceResponse(Object[] room, RoomStats stats) {
         return RoomPerformanceResponse.builder()
-                .roomId((UUID) projection[0])
-                .title((String) projection[1])
-                .status(RoomStatus.fromValue((String) projection[2]))
-                .viewCount(projection[3] != null ? ((Number) projection[3]).longValue() : 0L)
-                .bookmarkCount(projection[4] != null ? ((Number) projection[4]).longValue() : 0L)
-                .averageRating(projection[5] != null ? ((Number) projection[5]).doubleValue() : 0.0)
+                .roomId((UUID) room[0])
+                .title((String) room[1])
+                .status(RoomStatus.fromValue((String) room[2]))
+                .viewCount(stats != null ? stats.getViewCount() : 0L)
+                .bookmarkCount(stats != null ? stats.getBookmarkCount() : 0L)
+                .averageRating(stats != null ? stats.getAverageRating() : 0.0)
+                .chatsStarted(stats != null ? stats.getChatsStarted() : 0L)
                 .build();
     }
 
@@ -76,6 +94,14 @@ public class LandlordDashboardService {
         return room.getViewCount();
     }
 
+    public RoomViewSeriesResponse getViewSeries(UUID roomId, int days) {
+        User currentUser = authService.getCurrentUser();
+        if (!roomRepository.existsByIdAndOwner(roomId, currentUser)) {
+            throw new AppException(RoomErrorCode.NOT_ROOM_OWNER);
+        }
+        return roomViewSeriesService.getSeries(roomId, days);
+    }
+
     @Transactional
     public void updateRoomStatus(UUID roomId, UpdateRoomStatusRequest request) {
         User currentUser = authService.getCurrentUser();
@@ -0,0 +1,418 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.entity.ChatRoom;
+import com.trouni.tro_uni.entity.Message;
+import com.trouni.tro_uni.entity.User;
+import com.trouni.tro_uni.enums.ChatPersistenceMode;
+import com.trouni.tro_uni.exception.AppException;
+import com.trouni.tro_uni.exception.errorcode.GeneralErrorCode;
+import com.trouni.tro_uni.repository.ChatRoomRepository;
+import com.trouni.tro_uni.repository.MessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MessagePersistencePipeline - Write-behind queue that group-commits chat messages and read markers.
+ * <p>
+ * Messages are routed to one of N shards by chat room id, so every room is written by a single
+ * worker and keeps its order. Each worker drains up to {@code batch-size} messages (waiting at most
+ * {@code linger-ms} for a batch to fill) and inserts them in one transaction with JDBC batching.
+ * <p>
+ * Durability is chosen per deployment with {@code app.chat.persistence.mode}:
+ * - SYNC: insert on the caller thread, one transaction per message
+ * - GROUP_COMMIT: queued and batched, the returned future completes after commit
+ * - ASYNC: queued and batched, the caller does not wait (messages in the queue are lost on a crash)
+ * <p>
+ * Queues are bounded; when a shard is full the caller waits up to {@code enqueue-timeout-ms} and is
+ * then rejected with SERVICE_UNAVAILABLE instead of growing memory without limit.
+ * <p>
+ * A message that is rejected, or still cannot be written after the retries, is replaced by a
+ * placeholder row (same id and seq, no content), so clients doing gap detection on seq do not wait
+ * for it forever.
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class MessagePersistencePipeline {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MS = 200;
+    private static final int PREVIEW_LENGTH = 200;
+
+    private final EntityManager entityManager;
+    private final ChatRoomRepository chatRoomRepository;
+    private final MessageRepository messageRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Getter
+    private final ChatPersistenceMode mode;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final long enqueueTimeoutMs;
+    private final List<BlockingQueue<PendingWrite>> shards;
+    private final List<Thread> workers = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running = true;
+
+    public MessagePersistencePipeline(EntityManager entityManager,
+                                      ChatRoomRepository chatRoomRepository,
+                                      MessageRepository messageRepository,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${app.chat.persistence.mode:ASYNC}") ChatPersistenceMode mode,
+                                      @Value("${app.chat.persistence.shards:4}") int shardCount,
+                                      @Value("${app.chat.persistence.batch-size:100}") int batchSize,
+                                      @Value("${app.chat.persistence.linger-ms:10}") long lingerMs,
+                                      @Value("${app.chat.persistence.queue-capacity:10000}") int queueCapacity,
+                                      @Value("${app.chat.persistence.enqueue-timeout-ms:500}") long enqueueTimeoutMs) {
+        this.entityManager = entityManager;
+        this.chatRoomRepository = chatRoomRepository;
+        this.messageRepository = messageRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.mode = mode;
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, lingerMs));
+        this.enqueueTimeoutMs = Math.max(0, enqueueTimeoutMs);
+
+        int count = mode == ChatPersistenceMode.SYNC ? 0 : Math.max(1, shardCount);
+        int perShardCapacity = Math.max(1, queueCapacity / Math.max(1, count));
+        this.shards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            shards.add(new ArrayBlockingQueue<>(perShardCapacity));
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        for (int i = 0; i < shards.size(); i++) {
+            startWorker(i);
+        }
+        log.info("Chat persistence pipeline started: mode={}, shards={}, batchSize={}",
+                mode, shards.size(), batchSize);
+    }
+
+    /**
+     * Persists a message or read marker according to the configured mode.
+     * <p>
+     * Writes of the same room go through the same shard, so a read marker is always applied
+     * after the messages it covers have been inserted.
+     *
+     * A write that is rejected or fails here has its future completed exceptionally before the
+     * exception is thrown (listeners such as the unread counters never wait on it), and a rejected
+     * message keeps its seq with a placeholder row, as on the drop path.
+     *
+     * @param message The write to apply (for messages: id, seq and sentAt already assigned).
+     * @throws AppException SERVICE_UNAVAILABLE if the shard queue stays full.
+     */
+    public void submit(PendingWrite message) {
+        if (mode == ChatPersistenceMode.SYNC) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(List.of(message)));
+            } catch (RuntimeException e) {
+                log.error("Chat write {} in chat room {} failed: {}", message, message.chatRoomId(), e.getMessage());
+                throw reject(message, e);
+            }
+            message.complete();
+            return;
+        }
+        if (!running) {
+            throw reject(message, new AppException(GeneralErrorCode.SERVICE_UNAVAILABLE, "Chat is shutting down"));
+        }
+
+        BlockingQueue<PendingWrite> queue = shards.get(Math.floorMod(message.chatRoomId().hashCode(), shards.size()));
+        boolean accepted;
+        try {
+            accepted = queue.offer(message, enqueueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (!accepted) {
+            log.warn("Chat persistence queue full, rejecting message for chat room {}", message.chatRoomId());
+            throw reject(message, new AppException(GeneralErrorCode.SERVICE_UNAVAILABLE, "Chat is busy, please retry"));
+        }
+    }
+
+    private RuntimeException reject(PendingWrite write, RuntimeException cause) {
+        if (write instanceof PendingMessage message) {
+            writePlaceholder(message);
+        }
+        write.fail(cause);
+        return cause;
+    }
+
+    /**
+     * Number of messages waiting to be written, across all shards.
+     */
+    public int getBacklog() {
+        int backlog = 0;
+        for (BlockingQueue<PendingWrite> queue : shards) {
+            backlog += queue.size();
+        }
+        return backlog;
+    }
+
+    private void startWorker(int shard) {
+        BlockingQueue<PendingWrite> queue = shards.get(shard);
+        Thread worker = new Thread(() -> runWorker(shard, queue), "ChatPersist-" + shard);
+        worker.setDaemon(true);
+        workers.add(worker);
+        worker.start();
+    }
+
+    private void runWorker(int shard, BlockingQueue<PendingWrite> queue) {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while ((running || !queue.isEmpty()) && !Thread.currentThread().isInterrupted()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(queue, batch);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                // Only this worker stops; shutdown is driven by the running flag
+                Thread.currentThread().interrupt();
+            } finally {
+                batch.clear();
+            }
+        }
+
+        workers.remove(Thread.currentThread());
+        if (running) {
+            log.warn("Chat persistence worker for shard {} was interrupted, starting a new one", shard);
+            startWorker(shard);
+        }
+    }
+
+    /**
+     * Collects more messages until the batch is full or the linger time has passed.
+     */
+    private void fillBatch(BlockingQueue<PendingWrite> queue, List<PendingWrite> batch) {
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                return;
+            }
+            PendingWrite next;
+            try {
+                next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                // Write what has been collected so far, then let the worker exit
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(batch));
+                batch.forEach(PendingWrite::complete);
+                return;
+            } catch (Exception e) {
+                log.warn("Chat batch insert failed (attempt {}/{}, {} messages): {}",
+                        attempt, MAX_ATTEMPTS, batch.size(), e.getMessage());
+                if (attempt < MAX_ATTEMPTS) {
+                    sleepQuietly(RETRY_BACKOFF_MS * attempt);
+                }
+            }
+        }
+
+        // Batch keeps failing: write one by one so a single bad message cannot drop the others
+        for (PendingWrite pending : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(List.of(pending)));
+                pending.complete();
+            } catch (Exception e) {
+                log.error("Dropping chat write {} in chat room {}: {}", pending, pending.chatRoomId(), e.getMessage());
+                if (pending instanceof PendingMessage message) {
+                    writePlaceholder(message);
+                }
+                pending.fail(e);
+            }
+        }
+    }
+
+    /**
+     * Keeps the seq of a dropped message taken, with a content-less row, so it does not show up as a gap.
+     */
+    private void writePlaceholder(PendingMessage dropped) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(new PendingMessage(dropped.id(),
+                    dropped.chatRoomId(), dropped.senderId(), null, dropped.sentAt(), dropped.seq())));
+        } catch (Exception e) {
+            log.error("Could not keep seq {} of dropped message in chat room {}: {}",
+                    dropped.seq(), dropped.chatRoomId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Inserts the messages, applies read markers in queue order and records the latest
+     * message of each room for the inbox (one UPDATE per room per batch instead of one per message).
+     */
+    private void write(List<PendingWrite> writes) {
+        Map<UUID, PendingMessage> latestByRoom = new LinkedHashMap<>();
+        for (PendingWrite pending : writes) {
+            switch (pending) {
+                case PendingMessage message -> {
+                    insert(message);
+                    latestByRoom.merge(message.chatRoomId(), message, (a, b) -> b.seq() > a.seq() ? b : a);
+                }
+                case PendingReadMarker marker -> {
+                    // Make the messages queued before this marker visible to the UPDATE
+                    entityManager.flush();
+                    marker.updated().set(markRead(marker));
+                }
+            }
+        }
+        for (PendingMessage latest : latestByRoom.values()) {
+            chatRoomRepository.updateLastMessage(latest.chatRoomId(), latest.sentAt(),
+                    preview(latest.content()), latest.senderId(), latest.seq());
+        }
+    }
+
+    private int markRead(PendingReadMarker marker) {
+        if (marker.upToSeq() != null) {
+            return messageRepository.markReadUpToSeq(marker.chatRoomId(), marker.readerId(), marker.upToSeq());
+        }
+        return messageRepository.markReadUpToTime(marker.chatRoomId(), marker.readerId(), marker.upToTime());
+    }
+
+    private String preview(String content) {
+        if (content == null || content.length() <= PREVIEW_LENGTH) {
+            return content;
+        }
+        return content.substring(0, PREVIEW_LENGTH - 1) + "…";
+    }
+
+    private void insert(PendingMessage pending) {
+        Message message = Message.builder()
+                .id(pending.id())
+                .chatRoom(entityManager.getReference(ChatRoom.class, pending.chatRoomId()))
+                .sender(entityManager.getReference(User.class, pending.senderId()))
+                .content(pending.content())
+                .read(false)
+                .sentAt(pending.sentAt())
+                .seq(pending.seq())
+                .build();
+        entityManager.persist(message);
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops accepting messages and lets the workers flush what is queued.
+     */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        int leftover = getBacklog();
+        if (leftover > 0) {
+            log.error("Chat persistence pipeline stopped with {} unsaved messages", leftover);
+        }
+    }
+
+    /**
+     * A write waiting in a shard queue.
+     */
+    public sealed interface PendingWrite permits PendingMessage, PendingReadMarker {
+
+        UUID chatRoomId();
+
+        void complete();
+
+        void fail(Throwable cause);
+    }
+
+    /**
+     * A message accepted by the chat service and waiting to be written.
+     */
+    public record PendingMessage(UUID id,
+                                 UUID chatRoomId,
+                                 UUID senderId,
+                                 String content,
+                                 LocalDateTime sentAt,
+                                 long seq,
+                                 CompletableFuture<Void> committed) implements PendingWrite {
+
+        public PendingMessage(UUID id, UUID chatRoomId, UUID senderId, String content, LocalDateTime sentAt, long seq) {
+            this(id, chatRoomId, senderId, content, sentAt, seq, new CompletableFuture<>());
+        }
+
+        @Override
+        public void complete() {
+            committed.complete(null);
+        }
+
+        @Override
+        public void fail(Throwable cause) {
+            committed.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * "Read up to" marker: marks the other participants' messages as read up to a seq
+     * (or, for clients without seq, up to a timestamp). {@code marked} completes with
+     * the number of messages that changed state.
+     */
+    public record PendingReadMarker(UUID chatRoomId,
+                                    UUID readerId,
+                                    Long upToSeq,
+                                    LocalDateTime upToTime,
+                                    AtomicInteger updated,
+                                    CompletableFuture<Integer> marked) implements PendingWrite {
+
+        public PendingReadMarker(UUID chatRoomId, UUID readerId, Long upToSeq, LocalDateTime upToTime) {
+            this(chatRoomId, readerId, upToSeq, upToTime, new AtomicInteger(), new CompletableFuture<>());
+        }
+
+        @Override
+        public void complete() {
+            marked.complete(updated.get());
+        }
+
+        @Override
+        public void fail(Throwable cause) {
+            marked.completeExceptionally(cause);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.entity.ChatRoom;
+import com.trouni.tro_uni.exception.AppException;
+import com.trouni.tro_uni.exception.errorcode.GeneralErrorCode;
+import com.trouni.tro_uni.repository.ChatRoomRepository;
+import com.trouni.tro_uni.repository.MessageRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MessageSequenceAllocator - Hands out per-room, monotonically increasing message sequence numbers.
+ * <p>
+ * The authoritative counter is {@code chat_rooms.last_message_seq}. Numbers are reserved in blocks
+ * under a row lock in a short, separate transaction and then handed out from memory:
+ * - block size 1 (default): every number is reserved in the database, ordered across instances
+ * - larger blocks: one round trip per block, only for a single instance serving chat; several
+ *   instances would hand out interleaved ranges that clients see as gaps
+ * <p>
+ * On a clean shutdown the unused tail of a block is given back; after a crash it stays a gap.
+ * {@code last_message_seq} is the reservation counter, not the seq of the latest message
+ * (that one is {@code last_sent_seq}, written with the message).
+ * <p>
+ * Rooms created before sequence numbers existed are backfilled (ordered by sentAt) with one
+ * set-based statement per room: all of them at startup, and on demand for a room that is read
+ * or written to before the startup pass reached it.
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class MessageSequenceAllocator {
+
+    private static final int BACKFILL_PAGE_SIZE = 100;
+
+    private final ChatRoomRepository chatRoomRepository;
+    private final MessageRepository messageRepository;
+    private final TransactionTemplate reserveTransaction;
+    private final int blockSize;
+
+    private final ConcurrentHashMap<UUID, SequenceBlock> blocks = new ConcurrentHashMap<>();
+
+    // Set once every room has been numbered; history reads then skip the per-room check
+    private volatile boolean backfillComplete;
+
+    public MessageSequenceAllocator(ChatRoomRepository chatRoomRepository,
+                                    MessageRepository messageRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.chat.seq.block-size:1}") int blockSize) {
+        this.chatRoomRepository = chatRoomRepository;
+        this.messageRepository = messageRepository;
+        this.reserveTransaction = new TransactionTemplate(transactionManager);
+        this.reserveTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    /**
+     * Returns the next sequence number for a chat room.
+     *
+     * @param chatRoomId The ID of the chat room.
+     * @return The next sequence number (starting at 1).
+     */
+    public long next(UUID chatRoomId) {
+        SequenceBlock block = blocks.computeIfAbsent(chatRoomId, id -> new SequenceBlock());
+        synchronized (block) {
+            if (block.next > block.limit) {
+                long last = reserve(chatRoomId, blockSize);
+                block.next = last - blockSize + 1;
+                block.limit = last;
+            }
+            return block.next++;
+        }
+    }
+
+    /**
+     * Makes sure the messages of a room carry sequence numbers before its history is read.
+     *
+     * @param chatRoomId The ID of the chat room.
+     */
+    public void ensureSequenced(UUID chatRoomId) {
+        if (!backfillComplete && chatRoomRepository.existsByIdAndLastMessageSeqIsNull(chatRoomId)) {
+            reserve(chatRoomId, 0);
+        }
+    }
+
+    /**
+     * Numbers the messages of every room created before sequence numbers existed, one room
+     * per transaction so the row locks stay short.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillAll() {
+        UUID afterId = new UUID(0L, 0L);
+        int rooms = 0;
+        boolean failed = false;
+        List<UUID> page;
+        do {
+            page = chatRoomRepository.findIdsWithoutMessageSeq(afterId, PageRequest.of(0, BACKFILL_PAGE_SIZE));
+            for (UUID chatRoomId : page) {
+                try {
+                    reserve(chatRoomId, 0);
+                    rooms++;
+                } catch (Exception e) {
+                    failed = true;
+                    log.error("Failed to backfill message sequence numbers for chat room {}: {}", chatRoomId, e.getMessage());
+                }
+                afterId = chatRoomId;
+            }
+        } while (page.size() == BACKFILL_PAGE_SIZE);
+
+        // A room that failed keeps being checked (and backfilled) when its history is read
+        backfillComplete = !failed;
+        if (rooms > 0) {
+            log.info("Backfilled message sequence numbers for {} chat rooms", rooms);
+        }
+    }
+
+    /**
+     * Forgets the in-memory block of a room (e.g. when the room is deleted).
+     *
+     * @param chatRoomId The ID of the chat room.
+     */
+    public void evict(UUID chatRoomId) {
+        blocks.remove(chatRoomId);
+    }
+
+    /**
+     * Gives back the numbers reserved but not handed out, so the next reservation continues without a gap.
+     */
+    @PreDestroy
+    void releaseUnused() {
+        blocks.forEach((chatRoomId, block) -> {
+            synchronized (block) {
+                if (block.next > block.limit) {
+                    return;
+                }
+                long reserved = block.limit;
+                long used = block.next - 1;
+                block.limit = used;
+                try {
+                    reserveTransaction.executeWithoutResult(status ->
+                            chatRoomRepository.releaseMessageSeq(chatRoomId, reserved, used));
+                } catch (Exception e) {
+                    log.warn("Could not release seq block of chat room {}: {}", chatRoomId, e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Reserves {@code count} numbers for a room and returns the last reserved number.
+     */
+    private long reserve(UUID chatRoomId, int count) {
+        Long last = reserveTransaction.execute(status -> {
+            ChatRoom chatRoom = chatRoomRepository.findByIdForUpdate(chatRoomId)
+                    .orElseThrow(() -> new AppException(GeneralErrorCode.RESOURCE_NOT_FOUND, "Chat room not found"));
+
+            long current;
+            if (chatRoom.getLastMessageSeq() != null) {
+                current = chatRoom.getLastMessageSeq();
+            } else {
+                current = backfill(chatRoomId);
+                chatRoom.setLastSentSeq(current > 0 ? current : null);
+            }
+
+            chatRoom.setLastMessageSeq(current + count);
+            return current + count;
+        });
+        return last != null ? last : 0L;
+    }
+
+    /**
+     * Numbers the messages of a room that predate sequence numbers, oldest first.
+     * Runs under the room's row lock, inside {@link #reserve}.
+     *
+     * @return The highest number assigned (0 for an empty room).
+     */
+    private long backfill(UUID chatRoomId) {
+        long seq = messageRepository.assignSeqBySentAt(chatRoomId);
+        if (seq > 0) {
+            log.info("Backfilled {} message sequence numbers for chat room {}", seq, chatRoomId);
+        }
+        return seq;
+    }
+
+    private static final class SequenceBlock {
+        private long next = 1;
+        private long limit = 0;
+    }
+}
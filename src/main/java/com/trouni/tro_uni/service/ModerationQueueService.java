@@ -0,0 +1,399 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.dto.response.ModerationQueueItemResponse;
+import com.trouni.tro_uni.entity.ReportedContentCounter;
+import com.trouni.tro_uni.entity.ReportedContentCounterId;
+import com.trouni.tro_uni.repository.ReportRepository;
+import com.trouni.tro_uni.repository.ReportedContentCounterRepository;
+import com.trouni.tro_uni.repository.RoomRepository;
+import com.trouni.tro_uni.repository.RoommatePostRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.IntSupplier;
+
+/**
+ * ModerationQueueService - Hàng đợi ưu tiên các nội dung bị báo cáo cho Manager/Admin
+ *
+ * Chức năng chính:
+ * - Bảng reported_content_counters được cộng dồn sau khi báo cáo được tạo hoặc đổi trạng thái
+ * - Hàng đợi trong bộ nhớ (TreeSet theo độ ưu tiên + HashMap theo nội dung): cập nhật một nội dung
+ *   mất O(log n), lấy top-K mất O(log n + K), không quét bảng reports
+ * - Độ khẩn cấp = trọng số loại nội dung × số báo cáo đang chờ, giảm một nửa sau mỗi half-life kể từ
+ *   báo cáo gần nhất. Hàng đợi sắp theo logarit của giá trị này, vốn không đổi theo thời gian, nên không
+ *   cần sắp xếp lại khi thời gian trôi
+ * - Phòng và bài ở ghép bị ẩn tự động khi số báo cáo đang chờ chạm ngưỡng, và được hiện lại về trạng thái
+ *   trước đó khi số báo cáo đang chờ xuống dưới ngưỡng (báo cáo bị bác bỏ hoặc đã xử lý); user và review
+ *   không có trạng thái hiển thị nên chỉ được xếp lên đầu hàng đợi
+ * - Định kỳ nạp lại từ bảng bộ đếm (instance khác cũng ghi vào đó); hằng đêm tính lại bộ đếm từ bảng reports
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class ModerationQueueService {
+
+    private static final String PENDING = "pending";
+    private static final String HIDDEN = "hidden";
+    private static final List<String> VISIBLE_ROOM_STATUSES = List.of("available", "rented");
+    private static final String OPEN_POST_STATUS = "open";
+    private static final String DEFAULT_ROOM_STATUS = "available";
+    private static final double LN_2 = Math.log(2);
+
+    private static final Comparator<QueueEntry> PRIORITY_ORDER = Comparator
+            .comparingDouble(QueueEntry::rank).reversed()
+            .thenComparing(entry -> entry.key().type())
+            .thenComparing(entry -> entry.key().id());
+
+    private final ReportedContentCounterRepository counterRepository;
+    private final ReportRepository reportRepository;
+    private final RoomRepository roomRepository;
+    private final RoommatePostRepository roommatePostRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long autoHideThreshold;
+    private final double halfLifeSeconds;
+    private final Map<String, Double> typeWeights;
+
+    // Được bảo vệ bởi monitor của service
+    private final TreeSet<QueueEntry> queue = new TreeSet<>(PRIORITY_ORDER);
+    private final Map<ContentKey, QueueEntry> entries = new HashMap<>();
+
+    public ModerationQueueService(ReportedContentCounterRepository counterRepository,
+                                  ReportRepository reportRepository,
+                                  RoomRepository roomRepository,
+                                  RoommatePostRepository roommatePostRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.moderation.auto-hide-threshold:5}") long autoHideThreshold,
+                                  @Value("${app.moderation.half-life-hours:24}") double halfLifeHours,
+                                  @Value("${app.moderation.type-weights:user:2.0,room:1.5,roommate_post:1.0,review:0.5}")
+                                  String typeWeights) {
+        this.counterRepository = counterRepository;
+        this.reportRepository = reportRepository;
+        this.roomRepository = roomRepository;
+        this.roommatePostRepository = roommatePostRepository;
+        // Bộ đếm được ghi sau khi transaction của báo cáo đã commit, nên luôn cần transaction mới
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.autoHideThreshold = Math.max(1, autoHideThreshold);
+        this.halfLifeSeconds = Math.max(1.0, halfLifeHours * 3600);
+        this.typeWeights = parseWeights(typeWeights);
+    }
+
+    // ===============================
+    // Cập nhật từ ReportService
+    // ===============================
+
+    /**
+     * Báo cáo mới: cộng bộ đếm, ẩn nội dung nếu chạm ngưỡng và xếp lại nội dung trong hàng đợi
+     */
+    public void recordReportCreated(String contentType, UUID contentId, LocalDateTime reportedAt) {
+        ContentKey key = new ContentKey(contentType, contentId);
+        afterCommit(key, () -> counterRepository.addReport(contentType, contentId, reportedAt, LocalDateTime.now()));
+    }
+
+    /**
+     * Báo cáo đổi trạng thái: chỉ thay đổi từ/sang pending mới ảnh hưởng đến hàng đợi;
+     * nội dung đã bị ẩn tự động được hiện lại khi số báo cáo đang chờ xuống dưới ngưỡng
+     */
+    public void recordStatusChanged(String contentType, UUID contentId, String oldStatus, String newStatus) {
+        long delta = (PENDING.equals(newStatus) ? 1 : 0) - (PENDING.equals(oldStatus) ? 1 : 0);
+        if (delta == 0) {
+            return;
+        }
+        ContentKey key = new ContentKey(contentType, contentId);
+        afterCommit(key, () -> counterRepository.addPending(contentType, contentId, delta, LocalDateTime.now()));
+    }
+
+    private void afterCommit(ContentKey key, IntSupplier update) {
+        Runnable apply = () -> apply(key, update);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    private void apply(ContentKey key, IntSupplier update) {
+        try {
+            ReportedContentCounter counter;
+            try {
+                counter = transactionTemplate.execute(status -> {
+                    // Nội dung chưa có dòng bộ đếm: tính từ bảng reports (đã gồm thay đổi vừa commit)
+                    ReportedContentCounter updated = update.getAsInt() > 0
+                            ? counterRepository.findById(key.toId()).orElseThrow()
+                            : rebuild(key);
+                    return updateVisibility(updated);
+                });
+            } catch (DataIntegrityViolationException e) {
+                // Instance khác vừa tạo dòng bộ đếm: ghi đè bằng số liệu tính lại từ bảng reports
+                counter = transactionTemplate.execute(status -> updateVisibility(rebuild(key)));
+            }
+            index(counter);
+        } catch (Exception e) {
+            // Bộ đếm sẽ được sửa ở lần tính lại hằng đêm
+            log.error("Error updating report counter for {} {}: {}", key.type(), key.id(), e.getMessage());
+        }
+    }
+
+    /**
+     * Tính bộ đếm của một nội dung từ bảng reports (index theo type, contentId)
+     */
+    private ReportedContentCounter rebuild(ContentKey key) {
+        ReportedContentCounter counter = counterRepository.findById(key.toId())
+                .orElseGet(() -> new ReportedContentCounter(key.type(), key.id()));
+        List<Object[]> rows = reportRepository.summarizeByContent(key.type(), key.id(), PENDING);
+        if (!rows.isEmpty()) {
+            Object[] row = rows.get(0);
+            counter.setTotalCount(toLong(row[0]));
+            counter.setPendingCount(toLong(row[1]));
+            counter.setLastReportedAt((LocalDateTime) row[2]);
+        }
+        counter.setRevision(counter.getRevision() + 1);
+        counter.setUpdatedAt(LocalDateTime.now());
+        return counterRepository.saveAndFlush(counter);
+    }
+
+    /**
+     * Ẩn nội dung khi số báo cáo đang chờ chạm ngưỡng (chỉ nội dung đang hiển thị), và hiện lại nội dung
+     * đã bị ẩn tự động khi số báo cáo đang chờ xuống dưới ngưỡng. Chạy trong transaction của bộ đếm
+     */
+    private ReportedContentCounter updateVisibility(ReportedContentCounter counter) {
+        boolean overThreshold = counter.getPendingCount() >= autoHideThreshold;
+        if (overThreshold && !counter.isAutoHidden()) {
+            hide(counter);
+        } else if (!overThreshold && counter.isAutoHidden()) {
+            restore(counter);
+        }
+        return counter;
+    }
+
+    private void hide(ReportedContentCounter counter) {
+        String current = switch (counter.getContentType()) {
+            case "room" -> roomRepository.findStatusById(counter.getContentId())
+                    .filter(VISIBLE_ROOM_STATUSES::contains).orElse(null);
+            case "roommate_post" -> roommatePostRepository.findStatusById(counter.getContentId())
+                    .filter(OPEN_POST_STATUS::equals).orElse(null);
+            default -> null;
+        };
+        if (current != null && setStatusIfCurrent(counter, current, HIDDEN)) {
+            counter.setAutoHidden(true);
+            counter.setHiddenFromStatus(current);
+            log.warn("Auto-hid {} {} after {} pending reports",
+                    counter.getContentType(), counter.getContentId(), counter.getPendingCount());
+        }
+    }
+
+    private void restore(ReportedContentCounter counter) {
+        // Bộ đếm ẩn trước khi có hidden_from_status: hiện lại về trạng thái hiển thị mặc định
+        String previous = counter.getHiddenFromStatus() != null
+                ? counter.getHiddenFromStatus()
+                : "room".equals(counter.getContentType()) ? DEFAULT_ROOM_STATUS : OPEN_POST_STATUS;
+        // Chỉ đổi khi nội dung vẫn đang ẩn; nếu người kiểm duyệt đã đổi trạng thái thì giữ nguyên
+        if (setStatusIfCurrent(counter, HIDDEN, previous)) {
+            log.info("Restored {} {} to {} after pending reports dropped to {}",
+                    counter.getContentType(), counter.getContentId(), previous, counter.getPendingCount());
+        }
+        counter.setAutoHidden(false);
+        counter.setHiddenFromStatus(null);
+    }
+
+    private boolean setStatusIfCurrent(ReportedContentCounter counter, String fromStatus, String newStatus) {
+        LocalDateTime now = LocalDateTime.now();
+        return switch (counter.getContentType()) {
+            case "room" -> roomRepository.updateStatusIfIn(counter.getContentId(), List.of(fromStatus), newStatus, now) > 0;
+            case "roommate_post" -> roommatePostRepository.updateStatusIfCurrent(
+                    counter.getContentId(), fromStatus, newStatus, now) > 0;
+            default -> false;
+        };
+    }
+
+    // ===============================
+    // Hàng đợi trong bộ nhớ
+    // ===============================
+
+    /**
+     * Các nội dung khẩn cấp nhất, nhiều nhất limit phần tử
+     */
+    public synchronized List<ModerationQueueItemResponse> getTop(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<ModerationQueueItemResponse> items = new ArrayList<>(Math.min(limit, queue.size()));
+        for (QueueEntry entry : queue) {
+            if (items.size() >= limit) {
+                break;
+            }
+            items.add(ModerationQueueItemResponse.builder()
+                    .contentType(entry.key().type())
+                    .contentId(entry.key().id())
+                    .pendingReports(entry.pendingCount())
+                    .totalReports(entry.totalCount())
+                    .lastReportedAt(entry.lastReportedAt())
+                    .autoHidden(entry.autoHidden())
+                    .urgency(urgency(entry, now))
+                    .build());
+        }
+        return items;
+    }
+
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    /**
+     * Đưa bản chụp mới nhất của bộ đếm vào hàng đợi; bỏ qua bản chụp cũ hơn bản đang có
+     */
+    synchronized void index(ReportedContentCounter counter) {
+        QueueEntry entry = toEntry(counter);
+        QueueEntry current = entries.get(entry.key());
+        if (current != null) {
+            if (current.revision() > entry.revision()) {
+                return;
+            }
+            queue.remove(current);
+            entries.remove(entry.key());
+        }
+        if (entry.pendingCount() > 0) {
+            queue.add(entry);
+            entries.put(entry.key(), entry);
+        }
+    }
+
+    /**
+     * Nạp lại hàng đợi từ các dòng bộ đếm còn báo cáo đang chờ
+     */
+    @Scheduled(fixedDelayString = "${app.moderation.queue.reload-interval-ms:300000}")
+    public void reload() {
+        try {
+            List<ReportedContentCounter> counters = counterRepository.findByPendingCountGreaterThan(0);
+            synchronized (this) {
+                Map<ContentKey, QueueEntry> previous = new HashMap<>(entries);
+                queue.clear();
+                entries.clear();
+                for (ReportedContentCounter counter : counters) {
+                    QueueEntry entry = toEntry(counter);
+                    QueueEntry current = previous.get(entry.key());
+                    // Giữ bản trong bộ nhớ nếu nó được cập nhật sau khi truy vấn chạy
+                    QueueEntry kept = current != null && current.revision() > entry.revision() ? current : entry;
+                    queue.add(kept);
+                    entries.put(kept.key(), kept);
+                }
+            }
+            log.debug("Moderation queue reloaded with {} items", counters.size());
+        } catch (Exception e) {
+            log.error("Error reloading moderation queue: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Tính lại toàn bộ bộ đếm từ bảng reports (một truy vấn GROUP BY), chạy hằng đêm;
+     * trạng thái ẩn/hiện của nội dung được đối chiếu lại theo số báo cáo đang chờ vừa tính
+     */
+    @Scheduled(cron = "${app.moderation.queue.rebuild-cron:0 15 4 * * *}")
+    public void rebuildCounters() {
+        try {
+            Integer rebuilt = transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                counterRepository.resetCounts(now);
+                Map<ContentKey, ReportedContentCounter> counters = new HashMap<>();
+                for (ReportedContentCounter counter : counterRepository.findAll()) {
+                    counters.put(new ContentKey(counter.getContentType(), counter.getContentId()), counter);
+                }
+                List<Object[]> rows = reportRepository.summarizeAllByContent(PENDING);
+                for (Object[] row : rows) {
+                    ContentKey key = new ContentKey((String) row[0], (UUID) row[1]);
+                    ReportedContentCounter counter = counters.computeIfAbsent(key,
+                            missing -> new ReportedContentCounter(missing.type(), missing.id()));
+                    counter.setTotalCount(toLong(row[2]));
+                    counter.setPendingCount(toLong(row[3]));
+                    counter.setLastReportedAt((LocalDateTime) row[4]);
+                    counter.setRevision(counter.getRevision() + 1);
+                    counter.setUpdatedAt(now);
+                }
+                counters.values().forEach(this::updateVisibility);
+                counterRepository.saveAll(counters.values());
+                return rows.size();
+            });
+            log.info("Rebuilt report counters for {} contents", rebuilt);
+        } catch (Exception e) {
+            log.error("Error during report counter rebuild: {}", e.getMessage());
+        }
+        reload();
+    }
+
+    // ===============================
+    // Độ ưu tiên
+    // ===============================
+
+    private QueueEntry toEntry(ReportedContentCounter counter) {
+        ContentKey key = new ContentKey(counter.getContentType(), counter.getContentId());
+        double rank = Double.NEGATIVE_INFINITY;
+        if (counter.getPendingCount() > 0) {
+            // log(urgency) = log(trọng số × số báo cáo) + last·ln2/halfLife - now·ln2/halfLife;
+            // số hạng cuối như nhau cho mọi nội dung nên bỏ đi, phần còn lại cố định cho mỗi bản chụp
+            rank = Math.log(weight(key.type()) * counter.getPendingCount())
+                    + epochSeconds(counter.getLastReportedAt()) * LN_2 / halfLifeSeconds;
+        }
+        return new QueueEntry(key, counter.getPendingCount(), counter.getTotalCount(),
+                counter.getLastReportedAt(), counter.isAutoHidden(), counter.getRevision(), rank);
+    }
+
+    private double urgency(QueueEntry entry, LocalDateTime now) {
+        double ageSeconds = Math.max(0, epochSeconds(now) - epochSeconds(entry.lastReportedAt()));
+        return weight(entry.key().type()) * entry.pendingCount() * Math.pow(2, -ageSeconds / halfLifeSeconds);
+    }
+
+    private double weight(String contentType) {
+        return typeWeights.getOrDefault(contentType, 1.0);
+    }
+
+    private static long epochSeconds(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toEpochSecond() : 0L;
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private static Map<String, Double> parseWeights(String value) {
+        Map<String, Double> weights = new HashMap<>();
+        for (String pair : value.split(",")) {
+            String[] parts = pair.trim().split(":");
+            if (parts.length == 2) {
+                weights.put(parts[0].trim(), Math.max(0.01, Double.parseDouble(parts[1].trim())));
+            }
+        }
+        return weights;
+    }
+
+    private record ContentKey(String type, UUID id) {
+        private ReportedContentCounterId toId() {
+            return new ReportedContentCounterId(type, id);
+        }
+    }
+
+    private record QueueEntry(ContentKey key, long pendingCount, long totalCount, LocalDateTime lastReportedAt,
+                              boolean autoHidden, long revision, double rank) {
+    }
+}
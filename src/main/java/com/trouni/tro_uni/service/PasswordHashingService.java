@@ -0,0 +1,97 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.exception.AppException;
+import com.trouni.tro_uni.exception.errorcode.GeneralErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * PasswordHashingService - Chạy các thao tác BCrypt trên executor có giới hạn
+ * <p>
+ * Chức năng chính:
+ * - Giới hạn số thao tác BCrypt chạy đồng thời bằng số CPU core
+ * - Từ chối nhanh (429) khi hàng đợi đầy thay vì chiếm Tomcat thread
+ * - Dùng cho login (AuthenticationManager), signup và reset password
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class PasswordHashingService {
+
+    private final ThreadPoolTaskExecutor passwordHashExecutor;
+    private final PasswordEncoder passwordEncoder;
+    private final long waitTimeoutMs;
+
+    public PasswordHashingService(@Qualifier("passwordHashExecutor") ThreadPoolTaskExecutor passwordHashExecutor,
+                                  PasswordEncoder passwordEncoder,
+                                  @Value("${app.auth.hashing.wait-timeout-ms:3000}") long waitTimeoutMs) {
+        this.passwordHashExecutor = passwordHashExecutor;
+        this.passwordEncoder = passwordEncoder;
+        this.waitTimeoutMs = waitTimeoutMs;
+    }
+
+    /**
+     * Mã hóa password trên executor BCrypt
+     *
+     * @param rawPassword - Password gốc
+     * @return String - Password hash
+     * @throws AppException - RATE_LIMIT_EXCEEDED khi executor quá tải
+     */
+    public String encode(String rawPassword) {
+        return execute(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Chạy một tác vụ tốn CPU liên quan đến password (ví dụ AuthenticationManager.authenticate)
+     * <p>
+     * RuntimeException từ tác vụ (BadCredentialsException, AppException...) được ném lại nguyên vẹn
+     * để controller xử lý như khi chạy trực tiếp.
+     *
+     * @param task - Tác vụ cần chạy
+     * @return T - Kết quả của tác vụ
+     * @throws AppException - RATE_LIMIT_EXCEEDED khi executor quá tải hoặc chờ quá lâu
+     */
+    public <T> T execute(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = passwordHashExecutor.submit(task);
+        } catch (TaskRejectedException e) {
+            log.warn("Password hashing rejected, executor saturated (active={}, queued={})",
+                    passwordHashExecutor.getActiveCount(),
+                    passwordHashExecutor.getThreadPoolExecutor().getQueue().size());
+            throw new AppException(GeneralErrorCode.RATE_LIMIT_EXCEEDED);
+        }
+
+        try {
+            return future.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("Password hashing timed out after {} ms", waitTimeoutMs);
+            throw new AppException(GeneralErrorCode.RATE_LIMIT_EXCEEDED);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AppException(GeneralErrorCode.SERVICE_UNAVAILABLE);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            log.error("Password hashing failed: {}", cause != null ? cause.getMessage() : e.getMessage());
+            throw new AppException(GeneralErrorCode.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -24,9 +24,11 @@ public class PayOSService {
 
     PayOSProperties payOSProperties;
     PayOS payOS;
+    PaymentOrderCodeAllocator orderCodeAllocator;
 
-    public PayOSService(PayOSProperties payOSProperties) {
+    public PayOSService(PayOSProperties payOSProperties, PaymentOrderCodeAllocator orderCodeAllocator) {
         this.payOSProperties = payOSProperties;
+        this.orderCodeAllocator = orderCodeAllocator;
         this.payOS = new PayOS(payOSProperties.getClientId(), payOSProperties.getApiKey(), payOSProperties.getChecksumKey());
     }
 
@@ -38,7 +40,8 @@ public class PayOSService {
      */
     public CreatePaymentLinkResponse createPaymentLink(CreatePaymentRequestServiceDto request) {
         try {
-            long orderCode = System.currentTimeMillis() / 1000;
+            // Không trùng kể cả khi nhiều người thanh toán trong cùng một giây hoặc chạy nhiều instance
+            long orderCode = orderCodeAllocator.next();
             PaymentLinkItem item = PaymentLinkItem.builder()
                     .name(request.getProductName())
                     .quantity(1)
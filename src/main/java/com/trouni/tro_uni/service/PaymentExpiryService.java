@@ -0,0 +1,116 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.dto.response.PaymentBacklogResponse;
+import com.trouni.tro_uni.enums.PaymentStatus;
+import com.trouni.tro_uni.repository.PaymentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PaymentExpiryService - Chuyển các payment PENDING quá hạn sang EXPIRED
+ *
+ * Chức năng chính:
+ * - Link PayOS hết hạn sau 15 phút; payment không nhận được webhook sau thời gian này là bị bỏ dở
+ * - Xử lý theo từng lô: lấy ID theo index (status, created_at), rồi một câu UPDATE cho cả lô
+ * - Payment PENDING không giữ phòng (trạng thái phòng chỉ đổi khi payment COMPLETED/CANCELLED), nên hết hạn
+ *   không cần cập nhật phòng
+ * - Cung cấp số liệu backlog cho admin dashboard
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class PaymentExpiryService {
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentWebhookService paymentWebhookService;
+    private final TransactionTemplate transactionTemplate;
+    private final long timeoutMinutes;
+    private final int chunkSize;
+
+    private final AtomicLong expiredTotal = new AtomicLong();
+    private volatile int lastRunExpired;
+    private volatile LocalDateTime lastRunAt;
+
+    public PaymentExpiryService(PaymentRepository paymentRepository,
+                                PaymentWebhookService paymentWebhookService,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.payment.expiry.timeout-minutes:15}") long timeoutMinutes,
+                                @Value("${app.payment.expiry.chunk-size:500}") int chunkSize) {
+        this.paymentRepository = paymentRepository;
+        this.paymentWebhookService = paymentWebhookService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.timeoutMinutes = timeoutMinutes;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Hết hạn các payment PENDING quá thời gian, mỗi lô một transaction ngắn
+     * Chạy định kỳ, mặc định mỗi phút
+     */
+    @Scheduled(fixedDelayString = "${app.payment.expiry.interval-ms:60000}")
+    public void expireStalePayments() {
+        try {
+            LocalDateTime cutoff = cutoff();
+            int expired = 0;
+            while (true) {
+                int[] result = transactionTemplate.execute(status -> expireChunk(cutoff));
+                expired += result[0];
+                if (result[1] < chunkSize) {
+                    break;
+                }
+            }
+
+            lastRunExpired = expired;
+            lastRunAt = LocalDateTime.now();
+            expiredTotal.addAndGet(expired);
+            if (expired > 0) {
+                log.info("Expired {} stale pending payments", expired);
+            }
+        } catch (Exception e) {
+            log.error("Error during pending payment expiry: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return {payment hết hạn, số ID đã lấy}
+     */
+    private int[] expireChunk(LocalDateTime cutoff) {
+        List<UUID> ids = paymentRepository.findIdsByStatusCreatedBefore(
+                PaymentStatus.PENDING.name(), cutoff, PageRequest.of(0, chunkSize));
+        if (ids.isEmpty()) {
+            return new int[]{0, 0};
+        }
+        int expired = paymentRepository.updateStatusByIds(ids, PaymentStatus.PENDING.name(), PaymentStatus.EXPIRED.name());
+        return new int[]{expired, ids.size()};
+    }
+
+    /**
+     * Số liệu backlog của payment và webhook
+     */
+    public PaymentBacklogResponse getBacklog() {
+        return PaymentBacklogResponse.builder()
+                .pendingPayments(paymentRepository.countByStatus(PaymentStatus.PENDING.name()))
+                .expiredBacklog(paymentRepository.countByStatusAndCreatedAtBefore(PaymentStatus.PENDING.name(), cutoff()))
+                .webhookQueue(paymentWebhookService.getBacklog())
+                .expiredTotal(expiredTotal.get())
+                .lastRunExpired(lastRunExpired)
+                .lastRunAt(lastRunAt)
+                .build();
+    }
+
+    private LocalDateTime cutoff() {
+        return LocalDateTime.now().minusMinutes(timeoutMinutes);
+    }
+}
@@ -0,0 +1,81 @@
+package com.trouni.tro_uni.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * PaymentOrderCodeAllocator - Cấp orderCode cho PayOS, không trùng và không cần truy vấn database
+ * <p>
+ * orderCode là số dương tối đa 2^53 - 1 (giới hạn của PayOS), gồm:
+ * - 40 bit: mili giây tính từ 2025-01-01 (đủ tới khoảng năm 2059)
+ * - 4 bit: node id của instance ({@code app.payment.order-code.node-id}, 0-15)
+ * - 9 bit: số thứ tự trong cùng mili giây (512 mã/ms, khoảng 500 nghìn mã/giây mỗi instance)
+ * <p>
+ * Trạng thái (mili giây + số thứ tự) nằm trong một AtomicLong và được cập nhật bằng CAS.
+ * Khi hết số thứ tự trong một mili giây, mã tiếp theo mượn mili giây kế tiếp, nên mã luôn tăng
+ * và không trùng kể cả khi đồng hồ lùi lại trong lúc chạy.
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class PaymentOrderCodeAllocator {
+
+    static final long EPOCH_MILLIS = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+    static final int TIMESTAMP_BITS = 40;
+    static final int NODE_BITS = 4;
+    static final int SEQUENCE_BITS = 9;
+    static final long MAX_ORDER_CODE = (1L << (TIMESTAMP_BITS + NODE_BITS + SEQUENCE_BITS)) - 1;
+
+    private final long nodeId;
+    private final LongSupplier clock;
+    // (mili giây << SEQUENCE_BITS) | số thứ tự của mã cấp gần nhất
+    private final AtomicLong lastState = new AtomicLong();
+
+    public PaymentOrderCodeAllocator(@Value("${app.payment.order-code.node-id:0}") int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    PaymentOrderCodeAllocator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId >= (1 << NODE_BITS)) {
+            throw new IllegalArgumentException("app.payment.order-code.node-id must be between 0 and "
+                    + ((1 << NODE_BITS) - 1) + ", got " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+        log.info("Payment order codes allocated with node id {}", nodeId);
+    }
+
+    /**
+     * Cấp orderCode tiếp theo
+     *
+     * @return long - orderCode dương, không vượt quá 2^53 - 1
+     */
+    public long next() {
+        while (true) {
+            long previous = lastState.get();
+            long now = clock.getAsLong() - EPOCH_MILLIS;
+            long next = now > (previous >>> SEQUENCE_BITS)
+                    ? now << SEQUENCE_BITS
+                    : previous + 1; // Cùng mili giây (hoặc đồng hồ lùi): tăng số thứ tự, tràn thì sang mili giây sau
+            if (lastState.compareAndSet(previous, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    /**
+     * Lấy node id từ một orderCode (dùng để tra cứu và kiểm thử)
+     */
+    public static int nodeIdOf(long orderCode) {
+        return (int) ((orderCode >>> SEQUENCE_BITS) & ((1L << NODE_BITS) - 1));
+    }
+}
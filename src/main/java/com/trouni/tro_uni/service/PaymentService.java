@@ -62,6 +62,8 @@ public class PaymentService {
     SubscriptionRepository subscriptionRepository;
     RoomRepository roomRepository;
     PayOSService payOSService;
+    PaymentOrderCodeAllocator orderCodeAllocator;
+    DashboardKpiRollupService kpiRollupService;
     PayOSProperties payOSProperties;
     ObjectMapper objectMapper;
 
@@ -170,10 +172,11 @@ public class PaymentService {
     public PaymentResponse confirmPayment(PayOSWebhookRequest request) {
         log.debug("Starting confirmPayment for orderCode: {}", request.getOrderCode());
 
-        // Tìm payment theo transaction code
+        // Tìm payment theo transaction code và khóa dòng: lần xác nhận thứ hai chờ lần đầu commit
+        // rồi thấy trạng thái đã xử lý, nên doanh thu không bị cộng hai lần
         String transactionCodeToSearch = String.valueOf(request.getOrderCode());
         log.info("Searching for payment with transactionCode: {}", transactionCodeToSearch);
-        Payment payment = paymentRepository.findByTransactionCode(transactionCodeToSearch)
+        Payment payment = paymentRepository.findByTransactionCodeForUpdate(transactionCodeToSearch)
                 .orElseThrow(() -> {
                     log.error("Payment not found for transactionCode: {}", transactionCodeToSearch);
                     return new AppException(PaymentErrorCode.PAYMENT_NOT_FOUND);
@@ -181,11 +184,13 @@ public class PaymentService {
         log.info("Payment found: {} for transactionCode: {}", payment.getId(), transactionCodeToSearch);
 
         // Kiểm tra payment đã được xử lý chưa
-        // Nếu đã hoàn thành, thất bại hoặc bị hủy, không xử lý lại
+        // Nếu đã hoàn thành, thất bại hoặc bị hủy, không xử lý lại và không báo lỗi:
+        // PayOS gửi lại webhook thì chỉ cần trả về trạng thái hiện tại
         if (PaymentStatus.COMPLETED.name().equals(payment.getStatus()) ||
             PaymentStatus.FAILED.name().equals(payment.getStatus()) ||
             PaymentStatus.CANCELLED.name().equals(payment.getStatus())) {
-            throw new AppException(PaymentErrorCode.PAYMENT_ALREADY_PROCESSED);
+            log.info("Payment {} already {}, webhook ignored", transactionCodeToSearch, payment.getStatus());
+            return PaymentResponse.fromPayment(payment);
         }
 
         // Kiểm tra số tiền
@@ -206,6 +211,7 @@ public class PaymentService {
         switch (newStatus) {
             case COMPLETED:
                 payment.setStatus(PaymentStatus.COMPLETED.name());
+                kpiRollupService.recordPaymentCompleted(payment.getCreatedAt(), payment.getAmount());
                 // Nếu có subscription, cập nhật subscription
 //                if (payment.getSubscription() != null) {
 //                    updateSubscription(payment.getSubscription());
@@ -371,14 +377,10 @@ public class PaymentService {
     }
 
     /**
-     * Generate unique transaction code
+     * Generate unique transaction code (no database round trip)
      */
     private String generateTransactionCode() {
-        String code;
-        do {
-            code = String.valueOf(System.currentTimeMillis());
-        } while (paymentRepository.existsByTransactionCode(code));
-        return code;
+        return String.valueOf(orderCodeAllocator.next());
     }
 
     /**
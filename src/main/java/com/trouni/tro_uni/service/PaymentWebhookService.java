@@ -0,0 +1,238 @@
+package com.trouni.tro_uni.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trouni.tro_uni.dto.request.payment.PayOSWebhookRequest;
+import com.trouni.tro_uni.entity.PaymentWebhookEvent;
+import com.trouni.tro_uni.enums.WebhookEventStatus;
+import com.trouni.tro_uni.exception.AppException;
+import com.trouni.tro_uni.exception.errorcode.PaymentErrorCode;
+import com.trouni.tro_uni.repository.PaymentWebhookEventRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PaymentWebhookService - Nhận và xử lý webhook PayOS theo kiểu hàng đợi
+ *
+ * Chức năng chính:
+ * - Nhận webhook: xác thực chữ ký, lưu event với khóa orderCode:reference rồi trả lời ngay
+ * - Webhook trùng (PayOS gửi lại) bị bỏ qua nhờ khóa unique, không ném lỗi
+ * - Worker xử lý event theo thứ tự: các event của cùng orderCode luôn vào cùng một worker
+ * - Event chưa xử lý (hàng đợi đầy, lỗi tạm thời, restart) được job định kỳ đưa lại vào hàng đợi
+ * - Trước khi xử lý, worker nhận event bằng UPDATE RECEIVED -> PROCESSING: job chạy trên mọi instance,
+ *   nhưng chỉ worker nhận được event mới xác nhận payment
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class PaymentWebhookService {
+
+    private static final int RECOVERY_BATCH_SIZE = 500;
+
+    private final PaymentService paymentService;
+    private final PaymentWebhookEventRepository webhookEventRepository;
+    private final ObjectMapper objectMapper;
+    private final int maxAttempts;
+    private final long recoveryDelayMs;
+    private final long processingTimeoutMs;
+
+    private final ThreadPoolExecutor[] workers;
+    private final Set<UUID> queued = ConcurrentHashMap.newKeySet();
+
+    public PaymentWebhookService(PaymentService paymentService,
+                                 PaymentWebhookEventRepository webhookEventRepository,
+                                 ObjectMapper objectMapper,
+                                 @Value("${app.payment.webhook.workers:2}") int workerCount,
+                                 @Value("${app.payment.webhook.queue-capacity:1000}") int queueCapacity,
+                                 @Value("${app.payment.webhook.max-attempts:5}") int maxAttempts,
+                                 @Value("${app.payment.webhook.recovery-delay-ms:10000}") long recoveryDelayMs,
+                                 @Value("${app.payment.webhook.processing-timeout-ms:300000}") long processingTimeoutMs) {
+        this.paymentService = paymentService;
+        this.webhookEventRepository = webhookEventRepository;
+        this.objectMapper = objectMapper;
+        this.maxAttempts = maxAttempts;
+        this.recoveryDelayMs = recoveryDelayMs;
+        this.processingTimeoutMs = processingTimeoutMs;
+        this.workers = new ThreadPoolExecutor[Math.max(1, workerCount)];
+        for (int i = 0; i < workers.length; i++) {
+            String name = "PayOSWebhook-" + i;
+            workers[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueCapacity / workers.length)),
+                    runnable -> new Thread(runnable, name));
+        }
+    }
+
+    /**
+     * Nhận webhook: xác thực, lưu event và đưa vào hàng đợi
+     *
+     * @param rawRequestBody - Body gốc của webhook
+     * @return boolean - true nếu là webhook mới, false nếu là webhook trùng
+     */
+    public boolean receive(String rawRequestBody) {
+        PayOSWebhookRequest request = paymentService.validateAndParsePayOSWebhook(rawRequestBody);
+        String dedupeKey = request.getOrderCode() + ":" + Objects.toString(request.getReference(), "");
+
+        // Trường hợp thường gặp khi PayOS gửi lại: chỉ cần một lần dò index
+        if (webhookEventRepository.existsByDedupeKey(dedupeKey)) {
+            log.info("Duplicate PayOS webhook ignored: {}", dedupeKey);
+            return false;
+        }
+
+        PaymentWebhookEvent event = new PaymentWebhookEvent();
+        event.setDedupeKey(dedupeKey);
+        event.setOrderCode(request.getOrderCode());
+        event.setReference(request.getReference());
+        event.setStatus(WebhookEventStatus.RECEIVED.name());
+        try {
+            event.setPayload(objectMapper.writeValueAsString(request));
+            event = webhookEventRepository.saveAndFlush(event);
+        } catch (DataIntegrityViolationException e) {
+            // Hai lần gửi cùng lúc: lần lưu sau vi phạm khóa unique
+            log.info("Duplicate PayOS webhook ignored: {}", dedupeKey);
+            return false;
+        } catch (Exception e) {
+            log.error("Error storing PayOS webhook {}: {}", dedupeKey, e.getMessage());
+            throw new AppException(PaymentErrorCode.PAYMENT_PROCESSING_FAILED);
+        }
+
+        enqueue(event.getId(), event.getOrderCode());
+        log.info("PayOS webhook accepted: {}", dedupeKey);
+        return true;
+    }
+
+    private void enqueue(UUID eventId, Long orderCode) {
+        if (!queued.add(eventId)) {
+            return;
+        }
+        ThreadPoolExecutor worker = workers[Math.floorMod(orderCode.hashCode(), workers.length)];
+        try {
+            worker.execute(() -> process(eventId));
+        } catch (RejectedExecutionException e) {
+            queued.remove(eventId);
+            log.warn("PayOS webhook queue is full, event {} will be picked up by the recovery job", eventId);
+        }
+    }
+
+    /**
+     * Xử lý một event sau khi nhận được nó. Instance khác có thể cũng đã đưa event vào hàng đợi,
+     * nhưng chỉ một worker chuyển được RECEIVED sang PROCESSING
+     */
+    private void process(UUID eventId) {
+        try {
+            int claimed = webhookEventRepository.claim(eventId, WebhookEventStatus.RECEIVED.name(),
+                    WebhookEventStatus.PROCESSING.name(), LocalDateTime.now());
+            if (claimed == 0) {
+                return;
+            }
+            PaymentWebhookEvent event = webhookEventRepository.findById(eventId).orElse(null);
+            if (event == null) {
+                return;
+            }
+            try {
+                PayOSWebhookRequest request = objectMapper.readValue(event.getPayload(), PayOSWebhookRequest.class);
+                paymentService.confirmPayment(request);
+                finish(event, WebhookEventStatus.PROCESSED, null);
+            } catch (AppException e) {
+                // Lỗi nghiệp vụ: thử lại cũng không thay đổi kết quả
+                WebhookEventStatus status = PaymentErrorCode.PAYMENT_NOT_FOUND.name().equals(e.getErrorCode())
+                        ? WebhookEventStatus.IGNORED
+                        : WebhookEventStatus.FAILED;
+                log.warn("PayOS webhook {} {}: {}", event.getDedupeKey(), status, e.getErrorCode());
+                finish(event, status, e.getErrorCode());
+            } catch (Exception e) {
+                log.error("Error processing PayOS webhook {} (attempt {}): {}",
+                        event.getDedupeKey(), event.getAttempts(), e.getMessage());
+                if (event.getAttempts() >= maxAttempts) {
+                    finish(event, WebhookEventStatus.FAILED, e.getMessage());
+                } else {
+                    // Trả lại hàng đợi để job định kỳ thử lại
+                    event.setStatus(WebhookEventStatus.RECEIVED.name());
+                    event.setLastError(truncate(e.getMessage()));
+                    webhookEventRepository.save(event);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error updating PayOS webhook event {}: {}", eventId, e.getMessage());
+        } finally {
+            queued.remove(eventId);
+        }
+    }
+
+    private void finish(PaymentWebhookEvent event, WebhookEventStatus status, String error) {
+        event.setStatus(status.name());
+        event.setLastError(truncate(error));
+        event.setProcessedAt(LocalDateTime.now());
+        webhookEventRepository.save(event);
+    }
+
+    private String truncate(String error) {
+        return error != null && error.length() > 500 ? error.substring(0, 500) : error;
+    }
+
+    /**
+     * Đưa lại vào hàng đợi các event chưa xử lý sau một khoảng thời gian
+     * Event đã được nhận quá processing-timeout-ms (worker chết giữa chừng) được trả về RECEIVED trước
+     * Chạy định kỳ, mặc định mỗi 30 giây
+     */
+    @Scheduled(fixedDelayString = "${app.payment.webhook.recovery-interval-ms:30000}")
+    public void requeuePendingEvents() {
+        try {
+            int released = webhookEventRepository.releaseClaimedBefore(WebhookEventStatus.PROCESSING.name(),
+                    WebhookEventStatus.RECEIVED.name(), LocalDateTime.now().minusNanos(processingTimeoutMs * 1_000_000));
+            if (released > 0) {
+                log.warn("Released {} PayOS webhook events claimed by a worker that did not finish", released);
+            }
+            LocalDateTime receivedBefore = LocalDateTime.now().minusNanos(recoveryDelayMs * 1_000_000);
+            List<PaymentWebhookEvent> pending = webhookEventRepository.findByStatusAndReceivedAtBeforeOrderByReceivedAtAsc(
+                    WebhookEventStatus.RECEIVED.name(), receivedBefore, PageRequest.of(0, RECOVERY_BATCH_SIZE));
+            for (PaymentWebhookEvent event : pending) {
+                enqueue(event.getId(), event.getOrderCode());
+            }
+            if (!pending.isEmpty()) {
+                log.info("Requeued {} pending PayOS webhook events", pending.size());
+            }
+        } catch (Exception e) {
+            log.error("Error during PayOS webhook recovery: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Số event đang chờ trong hàng đợi của các worker
+     */
+    public int getBacklog() {
+        int backlog = 0;
+        for (ThreadPoolExecutor worker : workers) {
+            backlog += worker.getQueue().size();
+        }
+        return backlog;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Event còn trong hàng đợi vẫn ở trạng thái RECEIVED và được xử lý sau khi khởi động lại
+        // (event đang PROCESSING được trả lại sau processing-timeout-ms)
+        for (ThreadPoolExecutor worker : workers) {
+            worker.shutdown();
+        }
+        for (ThreadPoolExecutor worker : workers) {
+            worker.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
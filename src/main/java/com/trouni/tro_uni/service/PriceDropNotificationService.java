@@ -0,0 +1,188 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.config.WebSocketBrokerProperties;
+import com.trouni.tro_uni.dto.response.PriceDropNotificationResponse;
+import com.trouni.tro_uni.entity.Notification;
+import com.trouni.tro_uni.entity.Room;
+import com.trouni.tro_uni.enums.StompBrokerMode;
+import com.trouni.tro_uni.repository.NotificationRepository;
+import com.trouni.tro_uni.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * PriceDropNotificationService - Thông báo cho những người đã bookmark khi phòng giảm giá
+ * <p>
+ * Chức năng chính:
+ * - RoomService gọi recordPriceDrop() khi cập nhật phòng; chỉ xử lý khi giá mới thấp hơn và phòng còn trống
+ * - Sau khi transaction commit, việc gửi được đẩy sang taskExecutor để request của chủ nhà trả về ngay
+ * - Người nhận lấy từ BookmarkIndex (roomId -> userIds); Notification được ghi theo lô (JDBC batch insert),
+ *   mỗi lô một transaction
+ * - Đẩy qua /user/queue/notifications: broker SIMPLE chỉ gửi cho user đang online ở instance này;
+ *   broker RELAY gửi cho tất cả, broker tự chuyển tới instance đang giữ kết nối của user
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class PriceDropNotificationService {
+
+    private static final String NOTIFICATION_DESTINATION = "/queue/notifications";
+    private static final String TYPE_PRICE_DROP = "PRICE_DROP";
+    private static final String AVAILABLE_STATUS = "available";
+
+    private final BookmarkIndex bookmarkIndex;
+    private final NotificationRepository notificationRepository;
+    private final UserRepository userRepository;
+    private final ChatPresenceRegistry presenceRegistry;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final WebSocketBrokerProperties brokerProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor taskExecutor;
+    private final int batchSize;
+
+    public PriceDropNotificationService(BookmarkIndex bookmarkIndex,
+                                        NotificationRepository notificationRepository,
+                                        UserRepository userRepository,
+                                        ChatPresenceRegistry presenceRegistry,
+                                        SimpMessagingTemplate messagingTemplate,
+                                        WebSocketBrokerProperties brokerProperties,
+                                        PlatformTransactionManager transactionManager,
+                                        @Qualifier("taskExecutor") Executor taskExecutor,
+                                        @Value("${app.notification.price-drop.batch-size:100}") int batchSize) {
+        this.bookmarkIndex = bookmarkIndex;
+        this.notificationRepository = notificationRepository;
+        this.userRepository = userRepository;
+        this.presenceRegistry = presenceRegistry;
+        this.messagingTemplate = messagingTemplate;
+        this.brokerProperties = brokerProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.taskExecutor = taskExecutor;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Ghi nhận giá phòng thay đổi; chỉ gửi thông báo khi giá giảm và phòng còn trống
+     *
+     * @param room - Phòng sau khi cập nhật
+     * @param oldPrice - Giá trước khi cập nhật
+     */
+    public void recordPriceDrop(Room room, BigDecimal oldPrice) {
+        BigDecimal newPrice = room.getPricePerMonth();
+        if (oldPrice == null || newPrice == null || newPrice.compareTo(oldPrice) >= 0
+                || !AVAILABLE_STATUS.equalsIgnoreCase(room.getStatus())) {
+            return;
+        }
+        PriceDrop drop = new PriceDrop(room.getId(), room.getTitle(), room.getOwner().getId(), oldPrice, newPrice);
+        Runnable submit = () -> taskExecutor.execute(() -> fanOut(drop));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit.run();
+                }
+            });
+        } else {
+            submit.run();
+        }
+    }
+
+    private void fanOut(PriceDrop drop) {
+        try {
+            List<UUID> recipients = new ArrayList<>(bookmarkIndex.getBookmarkerIds(drop.roomId()));
+            recipients.remove(drop.ownerId());
+            if (recipients.isEmpty()) {
+                return;
+            }
+
+            String content = "Phòng \"" + drop.title() + "\" vừa giảm giá từ " + formatPrice(drop.oldPrice())
+                    + " xuống " + formatPrice(drop.newPrice()) + "/tháng";
+            String linkUrl = "/rooms/" + drop.roomId();
+            int sent = 0;
+            for (int from = 0; from < recipients.size(); from += batchSize) {
+                List<UUID> batch = recipients.subList(from, Math.min(from + batchSize, recipients.size()));
+                try {
+                    sent += sendBatch(drop, batch, content, linkUrl);
+                } catch (Exception e) {
+                    log.error("Failed to send price drop notifications for room {}: {}", drop.roomId(), e.getMessage());
+                }
+            }
+            log.info("Sent price drop notifications for room {} to {} users", drop.roomId(), sent);
+        } catch (Exception e) {
+            log.error("Error during price drop fan-out for room {}: {}", drop.roomId(), e.getMessage());
+        }
+    }
+
+    private int sendBatch(PriceDrop drop, List<UUID> userIds, String content, String linkUrl) {
+        // Chỉ những user còn tồn tại (index có thể còn user vừa bị xóa ở instance khác); lấy luôn username để đẩy STOMP
+        Map<UUID, String> usernames = new HashMap<>();
+        for (Object[] row : userRepository.findUsernamesByIds(userIds)) {
+            usernames.put((UUID) row[0], (String) row[1]);
+        }
+        if (usernames.isEmpty()) {
+            return 0;
+        }
+
+        List<Notification> notifications = transactionTemplate.execute(status -> {
+            List<Notification> batch = new ArrayList<>(usernames.size());
+            for (UUID userId : usernames.keySet()) {
+                Notification notification = new Notification();
+                notification.setUser(userRepository.getReferenceById(userId));
+                notification.setContent(content);
+                notification.setLinkUrl(linkUrl);
+                batch.add(notification);
+            }
+            return notificationRepository.saveAll(batch);
+        });
+
+        boolean relay = brokerProperties.getMode() == StompBrokerMode.RELAY;
+        for (Notification notification : notifications) {
+            UUID userId = notification.getUser().getId();
+            if (!relay && !presenceRegistry.isOnline(userId)) {
+                continue;
+            }
+            try {
+                messagingTemplate.convertAndSendToUser(usernames.get(userId), NOTIFICATION_DESTINATION,
+                        PriceDropNotificationResponse.builder()
+                                .notificationId(notification.getId())
+                                .type(TYPE_PRICE_DROP)
+                                .roomId(drop.roomId())
+                                .roomTitle(drop.title())
+                                .oldPrice(drop.oldPrice())
+                                .newPrice(drop.newPrice())
+                                .content(content)
+                                .linkUrl(linkUrl)
+                                .createdAt(notification.getCreatedAt())
+                                .build());
+            } catch (Exception e) {
+                log.warn("Failed to push price drop notification to user {}: {}", userId, e.getMessage());
+            }
+        }
+        return notifications.size();
+    }
+
+    private static String formatPrice(BigDecimal price) {
+        return NumberFormat.getNumberInstance(Locale.forLanguageTag("vi-VN")).format(price) + " đ";
+    }
+
+    private record PriceDrop(UUID roomId, String title, UUID ownerId, BigDecimal oldPrice, BigDecimal newPrice) {
+    }
+}
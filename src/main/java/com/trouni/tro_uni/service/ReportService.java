@@ -1,6 +1,7 @@
 package com.trouni.tro_uni.service;
 
 import com.trouni.tro_uni.dto.request.CreateReportRequest;
+import com.trouni.tro_uni.dto.response.ModerationQueueItemResponse;
 import com.trouni.tro_uni.dto.response.ReportResponse;
 import com.trouni.tro_uni.dto.response.ReportedContentResponse;
 import com.trouni.tro_uni.entity.Report;
@@ -21,8 +22,13 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -46,11 +52,14 @@ public class ReportService {
     private final RoommatePostRepository roommatePostRepository;
     private final ReviewRepository reviewRepository;
     private final ReportMapper reportMapper;
+    private final ModerationQueueService moderationQueueService;
     
     private static final List<String> VALID_CONTENT_TYPES = Arrays.asList(
             "room", "user", "roommate_post", "review"
     );
     
+    private static final int MAX_QUEUE_LIMIT = 100;
+    
     /**
      * Tạo báo cáo vi phạm mới
      */
@@ -69,14 +78,9 @@ public class ReportService {
             throw new AppException(GeneralErrorCode.RESOURCE_NOT_FOUND, "Reported content not found");
         }
         
-        // Check if user already reported this content
-        List<Report> existingReports = reportRepository.findByReportedContentTypeAndReportedContentId(
-                request.getReportedContentType(), request.getReportedContentId());
-        
-        boolean alreadyReported = existingReports != null && existingReports.stream()
-                .filter(Objects::nonNull)
-                .anyMatch(report -> report.getReporter() != null && 
-                        report.getReporter().getId().equals(currentUser.getId()));
+        // Check if user already reported this content (single index probe on reporter, type, contentId)
+        boolean alreadyReported = reportRepository.existsByReporterIdAndReportedContentTypeAndReportedContentId(
+                currentUser.getId(), request.getReportedContentType(), request.getReportedContentId());
         
         if (alreadyReported) {
             throw new AppException(GeneralErrorCode.RESOURCE_ALREADY_EXISTS,
@@ -87,6 +91,8 @@ public class ReportService {
         report.setStatus("pending");
         
         report = reportRepository.save(report);
+        moderationQueueService.recordReportCreated(
+                report.getReportedContentType(), report.getReportedContentId(), report.getCreatedAt());
         
         log.info("User {} reported {} with ID {}", 
                 currentUser.getUsername(), request.getReportedContentType(), request.getReportedContentId());
@@ -104,16 +110,15 @@ public class ReportService {
     public List<ReportResponse> getCurrentUserReports() {
         User currentUser = getCurrentUser();
         List<Report> reports = reportRepository.findByReporter(currentUser);
+        if (reports == null) {
+            return new ArrayList<>();
+        }
         
-        return reports != null ? reports.stream()
-                .filter(Objects::nonNull)
-                .map(report -> {
-                    ReportResponse response = ReportResponse.fromReport(report);
-                    response.setReportedContent(getReportedContentInfo(
-                            report.getReportedContentType(), report.getReportedContentId()));
-                    return response;
-                })
-                .collect(Collectors.toList()) : new ArrayList<>();
+        List<Report> nonNullReports = reports.stream().filter(Objects::nonNull).collect(Collectors.toList());
+        Map<ContentKey, ReportedContentResponse> contents = resolveReportedContents(nonNullReports);
+        return nonNullReports.stream()
+                .map(report -> toResponse(report, contents))
+                .collect(Collectors.toList());
     }
     
     /**
@@ -136,12 +141,9 @@ public class ReportService {
             reports = reportRepository.findAll(pageable);
         }
         
-        return reports.map(report -> {
-            ReportResponse response = ReportResponse.fromReport(report);
-            response.setReportedContent(getReportedContentInfo(
-                    report.getReportedContentType(), report.getReportedContentId()));
-            return response;
-        });
+        // Nội dung bị báo cáo của cả trang: một truy vấn IN cho mỗi loại nội dung
+        Map<ContentKey, ReportedContentResponse> contents = resolveReportedContents(reports.getContent());
+        return reports.map(report -> toResponse(report, contents));
     }
     
     /**
@@ -168,8 +170,11 @@ public class ReportService {
                     "Invalid status. Valid statuses: " + String.join(", ", validStatuses));
         }
         
+        String oldStatus = report.getStatus();
         reportMapper.updateStatus(newStatus, report);
         report = reportRepository.save(report);
+        moderationQueueService.recordStatusChanged(
+                report.getReportedContentType(), report.getReportedContentId(), oldStatus, newStatus);
         
         log.info("User {} updated report {} status to {}", 
                 currentUser.getUsername(), reportId, newStatus);
@@ -181,6 +186,32 @@ public class ReportService {
         return response;
     }
     
+    /**
+     * Lấy các nội dung cần kiểm duyệt gấp nhất từ hàng đợi ưu tiên (dành cho Manager/Admin)
+     */
+    public List<ModerationQueueItemResponse> getModerationQueue(int limit) {
+        User currentUser = getCurrentUser();
+        
+        if (!currentUser.getRole().equals(UserRole.MANAGER) && 
+            !currentUser.getRole().equals(UserRole.ADMIN)) {
+            throw new AppException(GeneralErrorCode.ACCESS_DENIED,
+                    "Only managers and admins can view the moderation queue");
+        }
+        
+        if (limit < 1 || limit > MAX_QUEUE_LIMIT) {
+            throw new AppException(GeneralErrorCode.INVALID_INPUT,
+                    "Limit must be between 1 and " + MAX_QUEUE_LIMIT);
+        }
+        
+        List<ModerationQueueItemResponse> items = moderationQueueService.getTop(limit);
+        Map<ContentKey, ReportedContentResponse> contents = resolveContents(items.stream()
+                .map(item -> new ContentKey(item.getContentType(), item.getContentId()))
+                .collect(Collectors.toSet()));
+        items.forEach(item -> item.setReportedContent(
+                contents.get(new ContentKey(item.getContentType(), item.getContentId()))));
+        return items;
+    }
+    
     /**
      * Lấy thống kê báo cáo theo loại nội dung
      */
@@ -205,45 +236,68 @@ public class ReportService {
      * Lấy thông tin nội dung bị báo cáo
      */
     private ReportedContentResponse getReportedContentInfo(String contentType, UUID contentId) {
-        return switch (contentType) {
-            case "room" -> roomRepository.findById(contentId)
-                    .map(room -> ReportedContentResponse.builder()
-                            .contentId(contentId)
-                            .contentType(contentType)
-                            .title(room.getTitle())
-                            .summary("Room in " + room.getCity() + ", " + room.getDistrict())
-                            .exists(true)
-                            .build())
-                    .orElse(createNotFoundContent(contentType, contentId));
-            case "user" -> userRepository.findById(contentId)
-                    .map(user -> ReportedContentResponse.builder()
-                            .contentId(contentId)
-                            .contentType(contentType)
-                            .title(user.getUsername())
-                            .summary("User account")
-                            .exists(true)
-                            .build())
-                    .orElse(createNotFoundContent(contentType, contentId));
-            case "roommate_post" -> roommatePostRepository.findById(contentId)
-                    .map(post -> ReportedContentResponse.builder()
-                            .contentId(contentId)
-                            .contentType(contentType)
-                            .title(post.getTitle())
-                            .summary("Roommate seeking post")
-                            .exists(true)
-                            .build())
-                    .orElse(createNotFoundContent(contentType, contentId));
-            case "review" -> reviewRepository.findById(contentId)
-                    .map(review -> ReportedContentResponse.builder()
-                            .contentId(contentId)
-                            .contentType(contentType)
-                            .title("Review")
-                            .summary("Room review with score: " + review.getScore())
-                            .exists(true)
-                            .build())
-                    .orElse(createNotFoundContent(contentType, contentId));
-            default -> createNotFoundContent(contentType, contentId);
-        };
+        ContentKey key = new ContentKey(contentType, contentId);
+        return resolveContents(List.of(key)).get(key);
+    }
+    
+    private ReportResponse toResponse(Report report, Map<ContentKey, ReportedContentResponse> contents) {
+        ReportResponse response = ReportResponse.fromReport(report);
+        response.setReportedContent(contents.get(
+                new ContentKey(report.getReportedContentType(), report.getReportedContentId())));
+        return response;
+    }
+    
+    private Map<ContentKey, ReportedContentResponse> resolveReportedContents(List<Report> reports) {
+        return resolveContents(reports.stream()
+                .map(report -> new ContentKey(report.getReportedContentType(), report.getReportedContentId()))
+                .collect(Collectors.toSet()));
+    }
+    
+    /**
+     * Lấy thông tin nhiều nội dung bị báo cáo: gom theo loại, mỗi loại một truy vấn IN chỉ lấy các cột cần hiển thị
+     */
+    private Map<ContentKey, ReportedContentResponse> resolveContents(Collection<ContentKey> keys) {
+        Map<String, Set<UUID>> idsByType = new HashMap<>();
+        for (ContentKey key : keys) {
+            idsByType.computeIfAbsent(key.type(), type -> new HashSet<>()).add(key.id());
+        }
+        
+        Map<ContentKey, ReportedContentResponse> contents = new HashMap<>();
+        idsByType.forEach((contentType, ids) -> {
+            switch (contentType) {
+                case "room" -> roomRepository.findReportSummariesByIds(ids).forEach(row ->
+                        contents.put(new ContentKey(contentType, (UUID) row[0]),
+                                existingContent(contentType, (UUID) row[0], (String) row[1],
+                                        "Room in " + row[2] + ", " + row[3])));
+                case "user" -> userRepository.findUsernamesByIds(ids).forEach(row ->
+                        contents.put(new ContentKey(contentType, (UUID) row[0]),
+                                existingContent(contentType, (UUID) row[0], (String) row[1], "User account")));
+                case "roommate_post" -> roommatePostRepository.findTitlesByIds(ids).forEach(row ->
+                        contents.put(new ContentKey(contentType, (UUID) row[0]),
+                                existingContent(contentType, (UUID) row[0], (String) row[1], "Roommate seeking post")));
+                case "review" -> reviewRepository.findScoresByIds(ids).forEach(row ->
+                        contents.put(new ContentKey(contentType, (UUID) row[0]),
+                                existingContent(contentType, (UUID) row[0], "Review", "Room review with score: " + row[1])));
+                default -> {
+                    // Loại nội dung không hợp lệ: trả về "không tồn tại" bên dưới
+                }
+            }
+        });
+        
+        for (ContentKey key : keys) {
+            contents.computeIfAbsent(key, missing -> createNotFoundContent(missing.type(), missing.id()));
+        }
+        return contents;
+    }
+    
+    private ReportedContentResponse existingContent(String contentType, UUID contentId, String title, String summary) {
+        return ReportedContentResponse.builder()
+                .contentId(contentId)
+                .contentType(contentType)
+                .title(title)
+                .summary(summary)
+                .exists(true)
+                .build();
     }
     
     /**
@@ -269,4 +323,7 @@ public class ReportService {
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new AppException(GeneralErrorCode.RESOURCE_NOT_FOUND, "User not found"));
     }
+    
+    private record ContentKey(String type, UUID id) {
+    }
 }
@@ -34,6 +34,8 @@ import com.trouni.tro_uni.repository.RoomRepository;
      ReviewRepository reviewRepository;
      RoomRepository  roomRepository;
      ReviewMapper reviewMapper;
+     DashboardKpiRollupService kpiRollupService;
+     RoomStatsService roomStatsService;
 
 
       /*
@@ -67,6 +69,8 @@ import com.trouni.tro_uni.repository.RoomRepository;
                  .build();
 
          Review savedReview = reviewRepository.save(review);
+         kpiRollupService.recordReviewCreated(savedReview.getCreatedAt());
+         roomStatsService.recordReviewScore(roomId, null, savedReview.getScore());
          log.info("User '{}' created a review with ID '{}' for room ID '{}'", currentUser.getUsername(), savedReview.getId(), roomId);
          return ReviewResponse.fromReview(savedReview);
      }
@@ -109,9 +113,11 @@ import com.trouni.tro_uni.repository.RoomRepository;
          }
 
          // Update review using mapper
+         Integer oldScore = review.getScore();
          reviewMapper.updateReviewFields(request, review);
 
          Review updatedReview = reviewRepository.save(review);
+         roomStatsService.recordReviewScore(updatedReview.getRoom().getId(), oldScore, updatedReview.getScore());
          log.info("User '{}' updated review ID '{}'", currentUser.getUsername(), reviewId);
          return ReviewResponse.fromReview(updatedReview);
      }
@@ -133,6 +139,8 @@ import com.trouni.tro_uni.repository.RoomRepository;
          }
 
          reviewRepository.delete(review);
+         kpiRollupService.recordReviewDeleted(review.getCreatedAt());
+         roomStatsService.recordReviewScore(review.getRoom().getId(), review.getScore(), null);
          log.info("User '{}' deleted review ID '{}'", currentUser.getUsername(), reviewId);
      }
 
@@ -61,6 +61,16 @@ public class RoomService {
 
     MasterAmenityRepository masterAmenityRepository;
 
+    DashboardKpiRollupService kpiRollupService;
+
+    RoomStatsService roomStatsService;
+
+    PriceDropNotificationService priceDropNotificationService;
+
+    BookmarkIndex bookmarkIndex;
+
+    RoomViewSeriesService roomViewSeriesService;
+
     /**
      * Create a new room listing
      *
@@ -95,6 +105,8 @@ public class RoomService {
                 .build();
 
         Room savedRoom = roomRepository.save(room); // Save first to get ID
+        kpiRollupService.recordRoomCreated(savedRoom.getCreatedAt());
+        roomStatsService.recordRoomCreated(savedRoom);
 
         // Step 2: Process List<String> to RoomImage
         if (request.getImages() != null && !request.getImages().isEmpty()) {
@@ -132,11 +144,12 @@ public class RoomService {
      * Get room details by ID
      * <p>
      *
-     * @param roomId - Unique identifier of the room
+     * @param roomId    - Unique identifier of the room
+     * @param viewerKey - Identifies the viewer for unique-viewer counting (user id or client fingerprint), may be null
      * @return RoomResponse - Room details including images and amenities
      * @throws AppException - When room is not found
      */
-    public RoomResponse getRoomById(UUID roomId) {
+    public RoomResponse getRoomById(UUID roomId, String viewerKey) {
         Room room = roomRepository.findById(roomId)
                 .orElseThrow(() -> new AppException(RoomErrorCode.ROOM_NOT_FOUND));
 
@@ -144,11 +157,16 @@ public class RoomService {
             throw new AppException(RoomErrorCode.ROOM_NOT_FOUND);
         }
 
-        room.setViewCount(room.getViewCount() + 1);
-        roomRepository.save(room);
+        // Một UPDATE view_count = view_count + 1 thay vì lưu cả phòng: hai lượt xem cùng lúc không ghi đè nhau.
+        // Không sửa entity (vẫn được quản lý khi open-in-view) để nó không bị ghi lại khi flush
+        roomRepository.incrementViewCount(roomId);
+        roomStatsService.recordView(roomId);
+        roomViewSeriesService.recordView(roomId, viewerKey);
 
         log.info("Retrieved room details for ID: {}", roomId);
-        return RoomResponse.fromRoom(room); // Truyền thêm roomRepository
+        RoomResponse response = RoomResponse.fromRoom(room); // Truyền thêm roomRepository
+        response.setViewCount(room.getViewCount() + 1);
+        return response;
     }
 
     /**
@@ -187,6 +205,8 @@ public class RoomService {
             throw new AppException(RoomErrorCode.ROOM_NOT_FOUND);
         }
 
+        BigDecimal oldPrice = room.getPricePerMonth();
+
         // Cập nhật thông tin cơ bản
         room.setTitle(request.getTitle());
         room.setDescription(request.getDescription());
@@ -237,6 +257,7 @@ public class RoomService {
         }
 
         Room updatedRoom = roomRepository.save(room);
+        priceDropNotificationService.recordPriceDrop(updatedRoom, oldPrice);
         log.info("Updated room with ID: {} by user: {}", roomId, currentUser.getUsername());
         return RoomResponse.fromRoom(updatedRoom);
     }
@@ -299,6 +320,7 @@ public class RoomService {
 
         room.setStatus("deleted");
         roomRepository.save(room);
+        bookmarkIndex.evictRoom(roomId);
         log.info("Soft deleted room with ID: {} by user: {}", roomId, currentUser.getUsername());
     }
 
@@ -0,0 +1,262 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.entity.Room;
+import com.trouni.tro_uni.entity.RoomStats;
+import com.trouni.tro_uni.repository.BookmarkRepository;
+import com.trouni.tro_uni.repository.ReviewRepository;
+import com.trouni.tro_uni.repository.RoomRepository;
+import com.trouni.tro_uni.repository.RoomStatsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.IntSupplier;
+
+/**
+ * RoomStatsService - Duy trì bảng room_stats cho landlord dashboard
+ *
+ * Chức năng chính:
+ * - Các service gọi record*() trong transaction của thao tác ghi; mỗi lần là một câu UPDATE cộng dồn
+ * - Phòng chưa có dòng thống kê (tạo trước khi có bảng này) được tính từ bảng gốc sau khi thao tác ghi
+ *   commit, trong transaction riêng: lỗi khi tạo dòng không làm rollback thao tác của người dùng
+ * - Khởi động: tạo dòng cho các phòng còn thiếu; hằng đêm: tính lại lượt xem, bookmark, rating
+ *   từ bảng gốc theo từng lô để sửa sai lệch (ví dụ xóa user kéo theo xóa bookmark, review)
+ * - Khi tính lại, các dòng thống kê được khóa trước khi đọc bảng gốc nên không ghi đè lên
+ *   các thao tác cộng dồn đang chạy
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class RoomStatsService {
+
+    private final RoomStatsRepository roomStatsRepository;
+    private final RoomRepository roomRepository;
+    private final BookmarkRepository bookmarkRepository;
+    private final ReviewRepository reviewRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int rebuildBatchSize;
+
+    public RoomStatsService(RoomStatsRepository roomStatsRepository,
+                            RoomRepository roomRepository,
+                            BookmarkRepository bookmarkRepository,
+                            ReviewRepository reviewRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.landlord.stats.rebuild-batch-size:500}") int rebuildBatchSize) {
+        this.roomStatsRepository = roomStatsRepository;
+        this.roomRepository = roomRepository;
+        this.bookmarkRepository = bookmarkRepository;
+        this.reviewRepository = reviewRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Luôn là transaction riêng, kể cả khi được gọi từ afterCommit của transaction khác
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.rebuildBatchSize = Math.max(1, rebuildBatchSize);
+    }
+
+    // ===============================
+    // Cập nhật từ các thao tác ghi
+    // ===============================
+
+    @Transactional
+    public void recordRoomCreated(Room room) {
+        roomStatsRepository.save(new RoomStats(room.getId(), room.getOwner().getId()));
+    }
+
+    @Transactional
+    public void recordView(UUID roomId) {
+        apply(roomId, () -> roomStatsRepository.addViews(roomId, 1, LocalDateTime.now()));
+    }
+
+    @Transactional
+    public void recordBookmarkAdded(UUID roomId) {
+        apply(roomId, () -> roomStatsRepository.addBookmarks(roomId, 1, LocalDateTime.now()));
+    }
+
+    @Transactional
+    public void recordBookmarkRemoved(UUID roomId) {
+        apply(roomId, () -> roomStatsRepository.addBookmarks(roomId, -1, LocalDateTime.now()));
+    }
+
+    /**
+     * Review mới, sửa điểm hoặc xóa review: truyền điểm cũ/mới (null nếu không có)
+     */
+    @Transactional
+    public void recordReviewScore(UUID roomId, Integer oldScore, Integer newScore) {
+        long scoreDelta = (newScore != null ? newScore : 0) - (oldScore != null ? oldScore : 0);
+        long countDelta = (newScore != null ? 1 : 0) - (oldScore != null ? 1 : 0);
+        if (scoreDelta == 0 && countDelta == 0) {
+            return;
+        }
+        apply(roomId, () -> roomStatsRepository.addRating(roomId, scoreDelta, countDelta, LocalDateTime.now()));
+    }
+
+    /**
+     * Cuộc chat mới được mở từ trang phòng; chỉ tính khi người nhận là chủ phòng
+     */
+    @Transactional
+    public void recordChatStarted(UUID roomId, UUID ownerId) {
+        roomStatsRepository.incrementChatsStarted(roomId, ownerId, LocalDateTime.now());
+    }
+
+    /**
+     * Chạy câu UPDATE; nếu phòng chưa có dòng thống kê thì tính từ bảng gốc sau khi transaction commit
+     * (khi đó bảng gốc đã có thay đổi vừa ghi nên không cộng thêm)
+     */
+    private void apply(UUID roomId, IntSupplier update) {
+        if (update.getAsInt() != 0) {
+            return;
+        }
+        Runnable rebuild = () -> {
+            try {
+                rebuildInNewTransaction(List.of(roomId));
+            } catch (Exception e) {
+                log.error("Error creating room stats for room {}: {}", roomId, e.getMessage());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    rebuild.run();
+                }
+            });
+        } else {
+            rebuild.run();
+        }
+    }
+
+    // ===============================
+    // Đọc cho dashboard
+    // ===============================
+
+    /**
+     * Số liệu các phòng của một chủ nhà: roomId -> RoomStats
+     */
+    @Transactional(readOnly = true)
+    public Map<UUID, RoomStats> getStatsByOwner(UUID ownerId) {
+        Map<UUID, RoomStats> stats = new HashMap<>();
+        for (RoomStats roomStats : roomStatsRepository.findByOwnerId(ownerId)) {
+            stats.put(roomStats.getRoomId(), roomStats);
+        }
+        return stats;
+    }
+
+    // ===============================
+    // Tính lại từ bảng gốc
+    // ===============================
+
+    /**
+     * Tạo dòng thống kê cho các phòng còn thiếu, theo từng lô
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillMissing() {
+        try {
+            int total = 0;
+            while (true) {
+                List<UUID> roomIds = roomRepository.findIdsWithoutStats(PageRequest.of(0, rebuildBatchSize));
+                if (roomIds.isEmpty()) {
+                    break;
+                }
+                rebuildInNewTransaction(roomIds);
+                total += roomIds.size();
+                if (roomIds.size() < rebuildBatchSize) {
+                    break;
+                }
+            }
+            if (total > 0) {
+                log.info("Backfilled room stats for {} rooms", total);
+            }
+        } catch (Exception e) {
+            log.error("Error during room stats backfill: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Tính lại thống kê của tất cả các phòng, chạy hằng đêm
+     */
+    @Scheduled(cron = "${app.landlord.stats.rebuild-cron:0 0 4 * * *}")
+    public void rebuildAll() {
+        try {
+            int page = 0;
+            int total = 0;
+            while (true) {
+                List<UUID> roomIds = roomRepository.findIdsOrderById(PageRequest.of(page++, rebuildBatchSize));
+                if (roomIds.isEmpty()) {
+                    break;
+                }
+                rebuildInNewTransaction(roomIds);
+                total += roomIds.size();
+                if (roomIds.size() < rebuildBatchSize) {
+                    break;
+                }
+            }
+            log.info("Rebuilt room stats for {} rooms", total);
+        } catch (Exception e) {
+            log.error("Error during room stats rebuild: {}", e.getMessage());
+        }
+    }
+
+    private void rebuildInNewTransaction(Collection<UUID> roomIds) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> rebuild(roomIds));
+        } catch (DataIntegrityViolationException e) {
+            // Thao tác khác vừa tạo dòng cho một phòng trong lô: lần này dòng đã tồn tại và được khóa
+            transactionTemplate.executeWithoutResult(status -> rebuild(roomIds));
+        }
+    }
+
+    /**
+     * Tính lại lượt xem, bookmark và rating của một lô phòng (một truy vấn GROUP BY cho mỗi bảng).
+     * Số chat đã mở không có nguồn để tính lại nên được giữ nguyên.
+     */
+    private void rebuild(Collection<UUID> roomIds) {
+        Map<UUID, RoomStats> stats = new HashMap<>();
+        // Khóa trước rồi mới đọc bảng gốc: thay đổi đã commit trước khi có khóa đều được tính,
+        // thay đổi commit sau đó cộng dồn lên kết quả này
+        for (RoomStats existing : roomStatsRepository.findAllByIdForUpdate(roomIds)) {
+            stats.put(existing.getRoomId(), existing);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (Object[] row : roomRepository.findStatsSourceByIds(roomIds)) {
+            RoomStats roomStats = stats.computeIfAbsent((UUID) row[0], id -> new RoomStats(id, (UUID) row[1]));
+            roomStats.setViewCount(((Number) row[2]).longValue());
+            roomStats.setBookmarkCount(0);
+            roomStats.setRatingSum(0);
+            roomStats.setRatingCount(0);
+            roomStats.setUpdatedAt(now);
+        }
+        for (Object[] row : bookmarkRepository.countByRoomIds(roomIds)) {
+            RoomStats roomStats = stats.get((UUID) row[0]);
+            if (roomStats != null) {
+                roomStats.setBookmarkCount(((Number) row[1]).longValue());
+            }
+        }
+        for (Object[] row : reviewRepository.sumScoresByRoomIds(roomIds)) {
+            RoomStats roomStats = stats.get((UUID) row[0]);
+            if (roomStats != null) {
+                roomStats.setRatingSum(((Number) row[1]).longValue());
+                roomStats.setRatingCount(((Number) row[2]).longValue());
+            }
+        }
+        roomStatsRepository.saveAllAndFlush(stats.values());
+    }
+}
@@ -0,0 +1,283 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.dto.response.landlord.RoomViewSeriesResponse;
+import com.trouni.tro_uni.entity.RoomDailyViews;
+import com.trouni.tro_uni.repository.RoomDailyViewsRepository;
+import com.trouni.tro_uni.util.HyperLogLog;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RoomViewSeriesService - Lượt xem theo ngày của từng phòng
+ *
+ * Chức năng chính:
+ * - Mỗi phòng có một vòng đệm (ring buffer) các bucket theo ngày bằng mảng int, ghi nhận lượt xem
+ *   chỉ là tăng một phần tử trong bộ nhớ
+ * - Mỗi giờ ghi phần chênh lệch chưa lưu xuống bảng room_daily_views (một câu UPDATE cộng dồn cho mỗi
+ *   phòng/ngày), nên nhiều instance cùng ghi vẫn đúng
+ * - Người xem khác nhau: mỗi phòng/ngày một HyperLogLog (user id, hoặc IP + User-Agent với khách),
+ *   ghi cùng lúc với lượt xem bằng cách gộp register vào viewer_sketch
+ * - Chuỗi theo ngày đọc từ room_daily_views theo khóa chính, cộng với phần chưa ghi của instance này
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class RoomViewSeriesService {
+
+    private final RoomDailyViewsRepository roomDailyViewsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int windowDays;
+
+    private final ConcurrentHashMap<UUID, DayRing> rings = new ConcurrentHashMap<>();
+    // Sketch người xem chưa ghi; bị lấy ra khỏi map khi flush nên chỉ giữ các phòng có người xem trong một chu kỳ
+    private final ConcurrentHashMap<SketchKey, HyperLogLog> sketches = new ConcurrentHashMap<>();
+
+    public RoomViewSeriesService(RoomDailyViewsRepository roomDailyViewsRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.landlord.views.window-days:30}") int windowDays) {
+        this.roomDailyViewsRepository = roomDailyViewsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.windowDays = Math.max(1, windowDays);
+    }
+
+    /**
+     * Ghi nhận một lượt xem phòng vào bucket của ngày hôm nay
+     *
+     * @param viewerKey Định danh người xem (null nếu không xác định được), chỉ dùng để hash vào sketch
+     */
+    public void recordView(UUID roomId, String viewerKey) {
+        long today = LocalDate.now().toEpochDay();
+        // compute: không ghi vào vòng đệm vừa bị flush() loại bỏ
+        rings.compute(roomId, (id, ring) -> {
+            DayRing target = ring != null ? ring : new DayRing(windowDays);
+            synchronized (target) {
+                target.increment(today);
+            }
+            return target;
+        });
+
+        if (viewerKey != null) {
+            sketches.compute(new SketchKey(roomId, today), (key, sketch) -> {
+                HyperLogLog target = sketch != null ? sketch : new HyperLogLog();
+                target.add(viewerKey);
+                return target;
+            });
+        }
+    }
+
+    /**
+     * Chuỗi lượt xem của {@code days} ngày gần nhất (tối đa window-days), ngày không có lượt xem trả về 0
+     */
+    public RoomViewSeriesResponse getSeries(UUID roomId, int days) {
+        int length = Math.max(1, Math.min(days, windowDays));
+        LocalDate to = LocalDate.now();
+        LocalDate from = to.minusDays(length - 1L);
+
+        Map<LocalDate, Long> views = new HashMap<>();
+        Map<LocalDate, HyperLogLog> viewers = new HashMap<>();
+        for (RoomDailyViews row : roomDailyViewsRepository.findByRoomIdAndViewDateBetween(roomId, from, to)) {
+            views.put(row.getViewDate(), (long) row.getViews());
+            if (row.getViewerSketch() != null) {
+                viewers.put(row.getViewDate(), HyperLogLog.fromBytes(row.getViewerSketch()));
+            }
+        }
+        DayRing ring = rings.get(roomId);
+        if (ring != null) {
+            synchronized (ring) {
+                for (int slot = 0; slot < ring.days.length; slot++) {
+                    long pending = ring.views[slot] - ring.flushed[slot];
+                    if (ring.days[slot] >= from.toEpochDay() && pending > 0) {
+                        views.merge(LocalDate.ofEpochDay(ring.days[slot]), pending, Long::sum);
+                    }
+                }
+            }
+        }
+
+        List<RoomViewSeriesResponse.DailyViews> series = new ArrayList<>(length);
+        HyperLogLog rangeViewers = new HyperLogLog();
+        long total = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            HyperLogLog dayViewers = viewers.computeIfAbsent(day, d -> new HyperLogLog());
+            sketches.computeIfPresent(new SketchKey(roomId, day.toEpochDay()), (key, sketch) -> {
+                dayViewers.merge(sketch);
+                return sketch;
+            });
+            rangeViewers.merge(dayViewers);
+
+            long count = views.getOrDefault(day, 0L);
+            series.add(new RoomViewSeriesResponse.DailyViews(day, count, dayViewers.estimate()));
+            total += count;
+        }
+        return RoomViewSeriesResponse.builder()
+                .roomId(roomId)
+                .from(from)
+                .to(to)
+                .totalViews(total)
+                .uniqueViewers(rangeViewers.estimate())
+                .days(series)
+                .build();
+    }
+
+    /**
+     * Ghi lượt xem và sketch người xem chưa lưu xuống database, mặc định mỗi giờ
+     */
+    @Scheduled(fixedDelayString = "${app.landlord.views.flush-interval-ms:3600000}",
+            initialDelayString = "${app.landlord.views.flush-interval-ms:3600000}")
+    public void flush() {
+        long oldestKept = LocalDate.now().toEpochDay() - windowDays;
+        Map<SketchKey, PendingWrite> writes = new HashMap<>();
+
+        for (Map.Entry<UUID, DayRing> entry : rings.entrySet()) {
+            UUID roomId = entry.getKey();
+            DayRing ring = entry.getValue();
+            boolean hasPending = false;
+            synchronized (ring) {
+                for (int slot = 0; slot < ring.days.length; slot++) {
+                    int delta = ring.views[slot] - ring.flushed[slot];
+                    if (delta > 0) {
+                        writes.computeIfAbsent(new SketchKey(roomId, ring.days[slot]), key -> new PendingWrite()).views = delta;
+                        hasPending = true;
+                    }
+                }
+            }
+            if (!hasPending) {
+                // Không còn lượt xem mới trong cửa sổ: bỏ vòng đệm để giới hạn bộ nhớ
+                rings.computeIfPresent(roomId, (id, current) -> {
+                    synchronized (current) {
+                        return current.isIdleSince(oldestKept) ? null : current;
+                    }
+                });
+            }
+        }
+        for (SketchKey key : new ArrayList<>(sketches.keySet())) {
+            HyperLogLog sketch = sketches.remove(key);
+            if (sketch != null) {
+                writes.computeIfAbsent(key, k -> new PendingWrite()).sketch = sketch;
+            }
+        }
+
+        int written = 0;
+        for (Map.Entry<SketchKey, PendingWrite> entry : writes.entrySet()) {
+            SketchKey key = entry.getKey();
+            PendingWrite pending = entry.getValue();
+            LocalDate viewDate = LocalDate.ofEpochDay(key.epochDay());
+            try {
+                write(key.roomId(), viewDate, pending);
+                DayRing ring = rings.get(key.roomId());
+                if (ring != null && pending.views > 0) {
+                    synchronized (ring) {
+                        ring.markFlushed(key.epochDay(), pending.views);
+                    }
+                }
+                written++;
+            } catch (Exception e) {
+                // Giữ lại phần chưa ghi, lần sau ghi tiếp (gộp sketch nhiều lần không làm sai số liệu)
+                if (pending.sketch != null) {
+                    sketches.merge(key, pending.sketch, HyperLogLog::merge);
+                }
+                log.error("Error flushing views of room {} for {}: {}", key.roomId(), viewDate, e.getMessage());
+            }
+        }
+        if (written > 0) {
+            log.debug("Flushed {} room daily view buckets", written);
+        }
+    }
+
+    private void write(UUID roomId, LocalDate viewDate, PendingWrite pending) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> mergeInto(roomId, viewDate, pending));
+        } catch (DataIntegrityViolationException e) {
+            // Instance khác vừa tạo dòng của ngày này: lần này dòng đã tồn tại và được khóa
+            transactionTemplate.executeWithoutResult(status -> mergeInto(roomId, viewDate, pending));
+        }
+    }
+
+    private void mergeInto(UUID roomId, LocalDate viewDate, PendingWrite pending) {
+        RoomDailyViews row = roomDailyViewsRepository.findForUpdate(roomId, viewDate)
+                .orElseGet(() -> new RoomDailyViews(roomId, viewDate, 0, null));
+        row.setViews(row.getViews() + pending.views);
+        if (pending.sketch != null) {
+            row.setViewerSketch(HyperLogLog.fromBytes(row.getViewerSketch()).merge(pending.sketch).toBytes());
+        }
+        roomDailyViewsRepository.saveAndFlush(row);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private record SketchKey(UUID roomId, long epochDay) {
+    }
+
+    private static final class PendingWrite {
+        private int views;
+        private HyperLogLog sketch;
+    }
+
+    /**
+     * Vòng đệm theo ngày: slot = epochDay % size. Slot của một ngày cũ được dùng lại khi sang ngày mới;
+     * size = window-days nên phần chưa ghi (tối đa một giờ) không bao giờ bị ghi đè.
+     * Truy cập luôn trong synchronized (ring).
+     */
+    private static final class DayRing {
+        private final long[] days;
+        private final int[] views;
+        private final int[] flushed;
+        private long lastViewDay;
+
+        private DayRing(int size) {
+            this.days = new long[size];
+            this.views = new int[size];
+            this.flushed = new int[size];
+            Arrays.fill(days, Long.MIN_VALUE);
+        }
+
+        private void increment(long epochDay) {
+            int slot = (int) Math.floorMod(epochDay, (long) days.length);
+            if (days[slot] != epochDay) {
+                days[slot] = epochDay;
+                views[slot] = 0;
+                flushed[slot] = 0;
+            }
+            views[slot]++;
+            lastViewDay = epochDay;
+        }
+
+        private boolean isIdleSince(long epochDay) {
+            if (lastViewDay >= epochDay) {
+                return false;
+            }
+            for (int slot = 0; slot < days.length; slot++) {
+                if (views[slot] != flushed[slot]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void markFlushed(long epochDay, int count) {
+            int slot = (int) Math.floorMod(epochDay, (long) days.length);
+            if (days[slot] == epochDay) {
+                flushed[slot] += count;
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.config.RelayDestinationInterceptor;
+import com.trouni.tro_uni.config.WebSocketCoalescingProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeType;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StompFrameCoalescer - Optional coalescing stage on the client outbound channel.
+ * <p>
+ * JSON MESSAGE frames for the same session and subscription are held for a short window
+ * (or until the batch is full) and sent as one frame whose payload is a JSON array of the
+ * original payloads, with a {@code x-batch-size} header so clients can tell the two apart.
+ * A window with a single event is sent unchanged.
+ * <p>
+ * At most one batch per subscription is in flight: events arriving while the previous batch
+ * is still being written are collected and sent once it has been handled, which keeps them
+ * in order and lets batches grow when a client is slow.
+ * <p>
+ * Destinations are matched as the client subscribed to them: user destinations by their
+ * original {@code /user/...} form (the resolved one is {@code /queue/...-user{session}}), and
+ * the configured prefixes also match their broker relay form ({@code /topic/chatRoom.{id}}).
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class StompFrameCoalescer implements ExecutorChannelInterceptor {
+
+    public static final String BATCH_SIZE_HEADER = "x-batch-size";
+    private static final String BATCH_KEY_HEADER = "coalescedBatchKey";
+
+    private final WebSocketCoalescingProperties properties;
+    private final List<String> destinationPrefixes;
+    private final ConcurrentHashMap<BatchKey, Batch> batches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "StompCoalescer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public StompFrameCoalescer(WebSocketCoalescingProperties properties) {
+        this.properties = properties;
+        LinkedHashSet<String> prefixes = new LinkedHashSet<>();
+        for (String prefix : properties.getDestinationPrefixes()) {
+            prefixes.add(prefix);
+            prefixes.add(RelayDestinationInterceptor.translate(prefix));
+        }
+        this.destinationPrefixes = List.copyOf(prefixes);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!properties.isEnabled() || message.getHeaders().containsKey(BATCH_KEY_HEADER)) {
+            return message;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (!isCoalescable(accessor, message)) {
+            return message;
+        }
+
+        BatchKey key = new BatchKey(accessor.getSessionId(), accessor.getSubscriptionId());
+        while (true) {
+            Batch batch = batches.computeIfAbsent(key, k -> new Batch());
+            synchronized (batch) {
+                if (batch.removed) {
+                    continue;
+                }
+                batch.channel = channel;
+                batch.messages.add(message);
+                if (!batch.inFlight) {
+                    if (batch.messages.size() >= properties.getMaxBatchSize()) {
+                        scheduler.execute(() -> flush(key));
+                    } else if (batch.messages.size() == 1) {
+                        scheduler.schedule(() -> flush(key), properties.getWindowMs(), TimeUnit.MILLISECONDS);
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    private boolean isCoalescable(SimpMessageHeaderAccessor accessor, Message<?> message) {
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE || accessor.getSessionId() == null
+                || accessor.getSubscriptionId() == null || accessor.getDestination() == null
+                || !(message.getPayload() instanceof byte[])) {
+            return false;
+        }
+        MimeType contentType = accessor.getContentType();
+        if (contentType == null || !contentType.getSubtype().contains("json")) {
+            return false;
+        }
+        String destination = accessor.getFirstNativeHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION);
+        if (destination == null) {
+            destination = accessor.getDestination();
+        }
+        return destinationPrefixes.stream().anyMatch(destination::startsWith);
+    }
+
+    private void flush(BatchKey key) {
+        Batch batch = batches.get(key);
+        if (batch == null) {
+            return;
+        }
+        List<Message<?>> messages;
+        MessageChannel channel;
+        synchronized (batch) {
+            if (batch.inFlight || batch.messages.isEmpty()) {
+                return;
+            }
+            messages = new ArrayList<>(batch.messages);
+            batch.messages.clear();
+            batch.inFlight = true;
+            channel = batch.channel;
+        }
+        try {
+            // Released in afterMessageHandled, or in afterSendCompletion if it was not sent
+            channel.send(combine(key, messages));
+        } catch (Exception e) {
+            log.error("Failed to send coalesced frame to session {}: {}", key.sessionId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Builds the outgoing frame from the first message's headers; only the headers the STOMP
+     * handler needs are copied, so per-message callbacks of the originals are not carried over.
+     */
+    private Message<byte[]> combine(BatchKey key, List<Message<?>> messages) {
+        SimpMessageHeaderAccessor first = SimpMessageHeaderAccessor.wrap(messages.get(0));
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        Map<String, List<String>> nativeHeaders = first.toNativeHeaderMap();
+        nativeHeaders.forEach((name, values) -> {
+            if (!"content-length".equals(name) && !"message-id".equals(name)) {
+                values.forEach(value -> accessor.addNativeHeader(name, value));
+            }
+        });
+        accessor.setSessionId(key.sessionId());
+        accessor.setSubscriptionId(key.subscriptionId());
+        accessor.setDestination(first.getDestination());
+        accessor.setContentType(first.getContentType());
+        accessor.setUser(first.getUser());
+        accessor.setHeader(BATCH_KEY_HEADER, key);
+
+        if (messages.size() == 1) {
+            return MessageBuilder.createMessage((byte[]) messages.get(0).getPayload(), accessor.getMessageHeaders());
+        }
+
+        accessor.setNativeHeader(BATCH_SIZE_HEADER, String.valueOf(messages.size()));
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        payload.write('[');
+        for (int i = 0; i < messages.size(); i++) {
+            if (i > 0) {
+                payload.write(',');
+            }
+            payload.writeBytes((byte[]) messages.get(i).getPayload());
+        }
+        payload.write(']');
+        return MessageBuilder.createMessage(payload.toByteArray(), accessor.getMessageHeaders());
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        if (message.getHeaders().get(BATCH_KEY_HEADER) instanceof BatchKey key) {
+            release(key);
+        }
+    }
+
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        // Dropped by a later interceptor (e.g. slow-consumer handling): never reaches the handler
+        if (!sent && message.getHeaders().get(BATCH_KEY_HEADER) instanceof BatchKey key) {
+            release(key);
+        }
+    }
+
+    /**
+     * Marks the in-flight batch as handled and sends what has accumulated meanwhile;
+     * an idle subscription is removed so closed sessions do not leave entries behind.
+     */
+    private void release(BatchKey key) {
+        Batch batch = batches.get(key);
+        if (batch == null) {
+            return;
+        }
+        synchronized (batch) {
+            batch.inFlight = false;
+            if (batch.messages.isEmpty()) {
+                batch.removed = true;
+                batches.remove(key, batch);
+                return;
+            }
+        }
+        scheduler.execute(() -> flush(key));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private record BatchKey(String sessionId, String subscriptionId) {
+    }
+
+    private static final class Batch {
+        private final List<Message<?>> messages = new ArrayList<>();
+        private MessageChannel channel;
+        private boolean inFlight;
+        private boolean removed;
+    }
+}
@@ -214,9 +214,9 @@ public class SubscriptionService {
 
     /**
      * Scheduled task to expire subscriptions that have passed their end date
-     * Runs every day at midnight
+     * Disabled by default; enable with app.subscription.expiry-cron (e.g. every day at midnight)
      */
-    @Scheduled(cron = "0 0 0 * * *")
+    @Scheduled(cron = "${app.subscription.expiry-cron:-}")
     @Transactional
     public void expireSubscriptions() {
         List<Subscription> expiredSubscriptions = subscriptionRepository
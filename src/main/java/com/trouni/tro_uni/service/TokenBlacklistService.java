@@ -162,9 +162,9 @@ public class TokenBlacklistService {
     
     /**
      * Tự động cleanup các token đã hết hạn
-     * Chạy mỗi 30 phút
+     * Tắt mặc định, bật bằng app.token-blacklist.cleanup-cron
      */
-    @Scheduled(fixedRate = 1800000) // 30 minutes
+    @Scheduled(cron = "${app.token-blacklist.cleanup-cron:-}")
     @Transactional
     public void cleanupExpiredTokens() {
         try {
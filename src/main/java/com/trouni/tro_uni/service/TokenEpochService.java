@@ -0,0 +1,170 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.entity.User;
+import com.trouni.tro_uni.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * TokenEpochService - Quản lý "token epoch" của từng user để thu hồi toàn bộ JWT
+ * <p>
+ * Chức năng chính:
+ * - Lưu map userId -> epoch hiện tại trong bộ nhớ (tải lười từ cột users.token_epoch)
+ * - Kiểm tra epoch trong JWT với epoch hiện tại trong O(1)
+ * - Tăng epoch để vô hiệu hóa mọi token đã cấp ("đăng xuất khỏi tất cả thiết bị")
+ * - Entry có TTL ngắn để các instance khác nhận được epoch mới từ database
+ * - Giới hạn số entry: khi vượt giới hạn (và định kỳ) entry hết hạn bị xóa, nếu vẫn vượt thì xóa các entry
+ *   tải lâu nhất; đọc không khóa (ConcurrentHashMap) vì được gọi ở mọi request đã xác thực
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class TokenEpochService {
+
+    private final UserRepository userRepository;
+    private final long cacheTtlNanos;
+
+    private final int maxEntries;
+
+    private final ConcurrentHashMap<UUID, CachedEpoch> epochs = new ConcurrentHashMap<>();
+    // Chỉ một luồng dọn map tại một thời điểm; các luồng khác không chờ
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    public TokenEpochService(UserRepository userRepository,
+                             @Value("${app.jwt.epoch-cache-ttl-ms:60000}") long cacheTtlMs,
+                             @Value("${app.jwt.epoch-cache-max-entries:100000}") int cacheMaxEntries) {
+        this.userRepository = userRepository;
+        this.cacheTtlNanos = TimeUnit.MILLISECONDS.toNanos(cacheTtlMs);
+        this.maxEntries = Math.max(1, cacheMaxEntries);
+    }
+
+    /**
+     * Lấy epoch hiện tại của user
+     *
+     * @param userId - ID của user
+     * @return int - Epoch hiện tại (0 nếu user chưa từng bị thu hồi token)
+     */
+    public int getCurrentEpoch(UUID userId) {
+        long now = System.nanoTime();
+        CachedEpoch cached = epochs.get(userId);
+        if (cached != null && now - cached.loadedAt() < cacheTtlNanos) {
+            return cached.epoch();
+        }
+        int epoch = cache(userId, userRepository.findTokenEpochById(userId).orElse(0), now);
+        if (epochs.size() > maxEntries) {
+            sweep();
+        }
+        return epoch;
+    }
+
+    /**
+     * Xóa các entry hết hạn; nếu vẫn vượt giới hạn thì xóa các entry tải lâu nhất (xuống còn 90% giới hạn)
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.epoch-cache-ttl-ms:60000}")
+    public void sweep() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            epochs.values().removeIf(cached -> now - cached.loadedAt() >= cacheTtlNanos);
+            int excess = epochs.size() - maxEntries;
+            if (excess > 0) {
+                // Xóa thêm 10% để lần sắp xếp tiếp theo chỉ xảy ra sau nhiều lần tải mới
+                epochs.entrySet().stream()
+                        .sorted(Comparator.comparingLong(entry -> entry.getValue().loadedAt()))
+                        .limit(excess + maxEntries / 10)
+                        .toList()
+                        .forEach(entry -> epochs.remove(entry.getKey(), entry.getValue()));
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * Kiểm tra token có còn hiệu lực theo epoch không
+     *
+     * @param userId - ID của user trong token
+     * @param tokenEpoch - Epoch được ghi trong token
+     * @return boolean - true nếu token chưa bị thu hồi
+     */
+    public boolean isCurrent(UUID userId, int tokenEpoch) {
+        return tokenEpoch >= getCurrentEpoch(userId);
+    }
+
+    /**
+     * Lấy epoch để ghi vào token mới
+     *
+     * @param user - User được cấp token
+     * @return int - Epoch hiện tại của user
+     */
+    public int epochOf(User user) {
+        return user.getTokenEpoch() != null ? user.getTokenEpoch() : 0;
+    }
+
+    /**
+     * Thu hồi tất cả token của user bằng cách tăng epoch
+     * <p>
+     * Câu UPDATE cộng dồn trong database là nguồn chính: epoch mới được đọc lại từ database
+     * (entity đang giữ có thể đã cũ nếu instance khác vừa thu hồi), còn cột token_epoch không
+     * được ghi bởi save() của entity nên không thể bị ghi đè bằng giá trị cũ.
+     * Bộ nhớ đệm chỉ được cập nhật sau khi transaction commit.
+     *
+     * @param user - User cần thu hồi token
+     */
+    public void revokeAllTokens(User user) {
+        UUID userId = user.getId();
+        userRepository.incrementTokenEpoch(userId);
+        int newEpoch = userRepository.findTokenEpochById(userId).orElse(0);
+        user.setTokenEpoch(newEpoch);
+
+        Runnable apply = () -> cache(userId, newEpoch, System.nanoTime());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+        log.info("Revoked all tokens for user {} (epoch={})", userId, newEpoch);
+    }
+
+    /**
+     * Lưu epoch vào bộ nhớ; epoch chỉ tăng nên một lần tải cũ chạy song song không ghi đè epoch mới hơn
+     *
+     * @return int - Epoch đang được lưu sau khi gộp
+     */
+    private int cache(UUID userId, int epoch, long loadedAt) {
+        CachedEpoch fresh = new CachedEpoch(epoch, loadedAt);
+        return epochs.merge(userId, fresh, (current, loaded) -> loaded.epoch() >= current.epoch() ? loaded : current)
+                .epoch();
+    }
+
+    /**
+     * Xóa epoch của user khỏi bộ nhớ (khi user bị hard delete)
+     *
+     * @param userId - ID của user
+     */
+    public void evict(UUID userId) {
+        epochs.remove(userId);
+    }
+
+    private record CachedEpoch(int epoch, long loadedAt) {
+    }
+}
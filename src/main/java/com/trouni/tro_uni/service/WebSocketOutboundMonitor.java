@@ -0,0 +1,230 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.config.WebSocketOutboundProperties;
+import com.trouni.tro_uni.dto.response.WebSocketOutboundStatsResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WebSocketOutboundMonitor - Tracks outbound WebSocket traffic per session and sheds slow consumers.
+ * <p>
+ * - As a client outbound channel interceptor it counts frames queued for each session; once a
+ *   session has more than {@code degradeQueueDepth} frames pending it is degraded until its queue
+ *   drains. Only chat messages (/topic/chatRoom/{id}) are dropped meanwhile: they carry a per-room
+ *   seq, so the client sees the gap and catches up with a delta sync (history with afterSeq).
+ *   Frames without a seq (notifications, presence, read receipts, typing) cannot be recovered and
+ *   are still queued; a session that does not drain is closed by the send time/buffer limits.
+ * - As a WebSocket handler decorator it wraps each session to measure socket write latency and to
+ *   count sessions Spring closes for exceeding the send time/buffer limits.
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WebSocketOutboundMonitor implements ChannelInterceptor {
+
+    private static final int SLOWEST_SESSIONS_REPORTED = 20;
+    // Chat message topic; "/topic/chatRoom.{id}" once translated for the broker relay
+    private static final String CHAT_ROOM_TOPIC = "/topic/chatRoom";
+
+    private final WebSocketOutboundProperties properties;
+
+    private final ConcurrentHashMap<String, SessionStats> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong droppedSessions = new AtomicLong();
+    private final LongAdder droppedFrames = new LongAdder();
+    private final LongAdder sentFrames = new LongAdder();
+    private final LongAdder sendNanos = new LongAdder();
+    private final AtomicLong maxSendNanos = new AtomicLong();
+
+    /**
+     * Counts frames queued for a session and drops chat messages for degraded sessions.
+     */
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        SessionStats stats = accessor.getSessionId() != null ? sessions.get(accessor.getSessionId()) : null;
+        if (stats == null) {
+            return message;
+        }
+        if (stats.username == null && accessor.getUser() != null) {
+            // The user is only known after the STOMP CONNECT frame has been authenticated
+            stats.username = accessor.getUser().getName();
+        }
+        if (accessor.getMessageType() == SimpMessageType.MESSAGE && isDegraded(stats)
+                && carriesSeq(accessor.getDestination())) {
+            stats.droppedFrames.increment();
+            droppedFrames.increment();
+            return null;
+        }
+        stats.pending.incrementAndGet();
+        return message;
+    }
+
+    private boolean isDegraded(SessionStats stats) {
+        int depth = stats.pending.get();
+        if (stats.degraded) {
+            if (depth > 0) {
+                return true;
+            }
+            stats.degraded = false;
+            log.info("WebSocket session {} caught up, resuming delivery ({} frames dropped)",
+                    stats.sessionId, stats.droppedFrames.sum());
+            return false;
+        }
+        if (depth >= properties.getDegradeQueueDepth()) {
+            stats.degraded = true;
+            log.warn("WebSocket session {} ({}) is a slow consumer with {} frames pending, dropping chat messages until it catches up",
+                    stats.sessionId, stats.username, depth);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Chat messages of a room, the only frames a client can recover through the seq delta sync.
+     * Sub-topics of the room (read receipts, typing) do not carry a seq.
+     */
+    static boolean carriesSeq(String destination) {
+        if (destination == null || destination.length() <= CHAT_ROOM_TOPIC.length() + 1
+                || !destination.startsWith(CHAT_ROOM_TOPIC)) {
+            return false;
+        }
+        char separator = destination.charAt(CHAT_ROOM_TOPIC.length());
+        if (separator != '/' && separator != '.') {
+            return false;
+        }
+        String chatRoomId = destination.substring(CHAT_ROOM_TOPIC.length() + 1);
+        return chatRoomId.indexOf('/') < 0 && chatRoomId.indexOf('.') < 0;
+    }
+
+    /**
+     * Wraps the STOMP handler so every session is metered.
+     */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                Principal principal = session.getPrincipal();
+                sessions.put(session.getId(), new SessionStats(session.getId(), principal != null ? principal.getName() : null));
+                super.afterConnectionEstablished(new MeteredSession(session));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    /**
+     * @return A snapshot of the outbound statistics of this instance.
+     */
+    public WebSocketOutboundStatsResponse getStats() {
+        long sent = sentFrames.sum();
+        List<WebSocketOutboundStatsResponse.SessionQueue> slowest = sessions.values().stream()
+                .sorted(Comparator.comparingInt((SessionStats stats) -> stats.pending.get()).reversed())
+                .limit(SLOWEST_SESSIONS_REPORTED)
+                .map(stats -> WebSocketOutboundStatsResponse.SessionQueue.builder()
+                        .sessionId(stats.sessionId)
+                        .username(stats.username)
+                        .queueDepth(stats.pending.get())
+                        .degraded(stats.degraded)
+                        .droppedFrames(stats.droppedFrames.sum())
+                        .build())
+                .toList();
+
+        return WebSocketOutboundStatsResponse.builder()
+                .activeSessions(sessions.size())
+                .degradedSessions((int) sessions.values().stream().filter(stats -> stats.degraded).count())
+                .droppedSessions(droppedSessions.get())
+                .droppedFrames(droppedFrames.sum())
+                .sentFrames(sent)
+                .averageSendLatencyMs(sent == 0 ? 0 : sendNanos.sum() / (double) sent / 1_000_000)
+                .maxSendLatencyMs(maxSendNanos.get() / 1_000_000.0)
+                .slowestSessions(slowest)
+                .build();
+    }
+
+    private void recordSend(SessionStats stats, long nanos) {
+        stats.pending.updateAndGet(depth -> Math.max(0, depth - 1));
+        sentFrames.increment();
+        sendNanos.add(nanos);
+        maxSendNanos.accumulateAndGet(nanos, Math::max);
+        if (nanos > TimeUnit.MILLISECONDS.toNanos(properties.getSlowSendMs())) {
+            log.warn("Slow WebSocket write to session {} ({}): {} ms",
+                    stats.sessionId, stats.username, TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+    }
+
+    /**
+     * Session wrapper installed below Spring's send-buffer decorator, so it sees actual socket writes.
+     */
+    private class MeteredSession extends WebSocketSessionDecorator {
+
+        private MeteredSession(WebSocketSession session) {
+            super(session);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            long start = System.nanoTime();
+            try {
+                super.sendMessage(message);
+            } finally {
+                SessionStats stats = sessions.get(getId());
+                if (stats != null) {
+                    recordSend(stats, System.nanoTime() - start);
+                }
+            }
+        }
+
+        @Override
+        public void close(CloseStatus status) throws IOException {
+            if (CloseStatus.SESSION_NOT_RELIABLE.equals(status)) {
+                droppedSessions.incrementAndGet();
+                SessionStats stats = sessions.get(getId());
+                log.warn("WebSocket session {} ({}) dropped after exceeding send limits",
+                        getId(), stats != null ? stats.username : null);
+            }
+            super.close(status);
+        }
+    }
+
+    private static final class SessionStats {
+        private final String sessionId;
+        private volatile String username;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final LongAdder droppedFrames = new LongAdder();
+        private volatile boolean degraded;
+
+        private SessionStats(String sessionId, String username) {
+            this.sessionId = sessionId;
+            this.username = username;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.trouni.tro_uni.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HyperLogLog - Ước lượng số phần tử khác nhau với bộ nhớ cố định
+ *
+ * Chức năng chính:
+ * - 2^11 = 2048 register, mỗi register một byte (sai số chuẩn khoảng 2.3%)
+ * - Hai sketch gộp bằng cách lấy max từng register: gộp nhiều ngày, nhiều instance đều cho cùng kết quả
+ *   và gộp lại nhiều lần không làm sai số liệu
+ * - toBytes()/fromBytes() chính là mảng register, lưu thẳng vào database
+ *
+ * Không thread-safe: người gọi tự đồng bộ.
+ *
+ * @author TroUni Team
+ * @version 1.0
+ */
+public final class HyperLogLog {
+
+    public static final int PRECISION = 11;
+    public static final int REGISTER_COUNT = 1 << PRECISION;
+
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTER_COUNT];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    /**
+     * Đọc sketch đã lưu; dữ liệu rỗng hoặc sai kích thước được coi là sketch trống
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != REGISTER_COUNT) {
+            return new HyperLogLog();
+        }
+        return new HyperLogLog(bytes.clone());
+    }
+
+    public byte[] toBytes() {
+        return registers.clone();
+    }
+
+    public void add(String key) {
+        addHash(hash(key));
+    }
+
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - PRECISION));
+        // Bit chặn để rank không vượt quá 64 - PRECISION + 1
+        long remaining = (hash << PRECISION) | (1L << (PRECISION - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    public HyperLogLog merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+        return this;
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+        if (estimate <= 2.5 * REGISTER_COUNT && zeros > 0) {
+            // Tập nhỏ: linear counting chính xác hơn
+            estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Hash 64-bit: FNV-1a trên UTF-8 rồi trộn bằng finalizer của MurmurHash3 để các bit phân bố đều
+     */
+    public static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
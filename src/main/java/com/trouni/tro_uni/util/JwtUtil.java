@@ -1,8 +1,10 @@
 package com.trouni.tro_uni.util;
 
+import com.trouni.tro_uni.entity.User;
 import com.trouni.tro_uni.exception.AppException;
 import com.trouni.tro_uni.exception.errorcode.TokenErrorCode;
 import com.trouni.tro_uni.service.TokenBlacklistService;
+import com.trouni.tro_uni.service.TokenEpochService;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -30,6 +32,7 @@ import java.util.function.Function;
  * - Extract thông tin từ token (username, expiration, claims)
  * - Kiểm tra token có hết hạn không
  * - Parse và decode JWT token
+ * - Ghi và kiểm tra token epoch (thu hồi toàn bộ token của một user)
  * 
  * @author TroUni Team
  * @version 1.0
@@ -42,6 +45,11 @@ public class JwtUtil {
     
     // Dependencies injection
     private final TokenBlacklistService tokenBlacklistService;
+    private final TokenEpochService tokenEpochService;
+
+    // Tên claim lưu user id và token epoch
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_EPOCH = "epoch";
     
     // JWT configuration từ application.properties
     @Value("${app.jwt.secret}")
@@ -113,11 +121,17 @@ public class JwtUtil {
     /**
      * Tạo JWT token từ UserDetails
      * 
+     * Nếu là User entity thì ghi thêm user id và token epoch hiện tại vào claims
+     * 
      * @param userDetails - UserDetails object
      * @return String - JWT token
      */
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof User user && user.getId() != null) {
+            claims.put(CLAIM_USER_ID, user.getId().toString());
+            claims.put(CLAIM_EPOCH, tokenEpochService.epochOf(user));
+        }
         return createToken(claims, userDetails.getUsername());
     }
     
@@ -162,10 +176,11 @@ public class JwtUtil {
      * - Signature có hợp lệ không
      * - Token có hết hạn không
      * - Token có bị blacklist không
+     * - Token epoch có còn bằng epoch hiện tại của user không
      * 
      * @param authToken - JWT token
      * @return boolean - true nếu token hợp lệ
-     * @throws AppException - Khi token không hợp lệ hoặc bị blacklist
+     * @throws AppException - Khi token không hợp lệ, bị blacklist hoặc đã bị thu hồi
      */
     public boolean validateJwtToken(String authToken) {
         try {
@@ -175,7 +190,17 @@ public class JwtUtil {
                 throw new AppException(TokenErrorCode.TOKEN_BLACKLISTED);
             }
             
-            Jwts.parserBuilder().setSigningKey(getSignKey()).build().parse(authToken);
+            Claims claims = extractAllClaims(authToken);
+            
+            // Kiểm tra token epoch (token cũ không có claim được coi là epoch 0)
+            String userId = claims.get(CLAIM_USER_ID, String.class);
+            if (userId != null) {
+                Integer epoch = claims.get(CLAIM_EPOCH, Integer.class);
+                if (!tokenEpochService.isCurrent(UUID.fromString(userId), epoch != null ? epoch : 0)) {
+                    logger.warn("Token epoch is outdated for user: {}", userId);
+                    throw new AppException(TokenErrorCode.TOKEN_REVOKED);
+                }
+            }
             return true;
         } catch (MalformedJwtException e) {
             logger.error("Invalid JWT token: {}", e.getMessage());
@@ -193,7 +218,7 @@ public class JwtUtil {
             logger.error("Invalid JWT token signature: {}", e.getMessage());
             throw new AppException(TokenErrorCode.TOKEN_SIGNATURE_INVALID);
         } catch (AppException e) {
-            // Re-throw AppException từ blacklist check
+            // Re-throw AppException từ blacklist/epoch check
             throw e;
         } catch (Exception e) {
             logger.error("JWT token validation failed: {}", e.getMessage());
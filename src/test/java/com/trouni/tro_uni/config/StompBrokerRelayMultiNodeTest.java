@@ -0,0 +1,182 @@
+package com.trouni.tro_uni.config;
+
+import com.trouni.tro_uni.TroUniApplication;
+import com.trouni.tro_uni.entity.User;
+import com.trouni.tro_uni.repository.UserRepository;
+import com.trouni.tro_uni.util.JwtUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.images.builder.Transferable;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.lang.reflect.Type;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs two application instances in one JVM against a RabbitMQ STOMP broker and checks that
+ * messages sent on one instance reach WebSocket clients connected to the other.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class StompBrokerRelayMultiNodeTest {
+
+    private static final int STOMP_PORT = 61613;
+    private static final String JWT_SECRET = Base64.getEncoder()
+            .encodeToString("multi-node-test-signing-key-0123456789".getBytes());
+
+    @Container
+    static final GenericContainer<?> rabbitMq = new GenericContainer<>(DockerImageName.parse("rabbitmq:3.13"))
+            .withCopyToContainer(Transferable.of("[rabbitmq_stomp]."), "/etc/rabbitmq/enabled_plugins")
+            .withExposedPorts(STOMP_PORT)
+            .waitingFor(Wait.forLogMessage(".*Server startup complete.*", 1));
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    private WebSocketStompClient stompClient;
+    private StompSession session;
+
+    @BeforeAll
+    static void startNodes() throws InterruptedException {
+        nodeA = startNode("nodeA");
+        nodeB = startNode("nodeB");
+        awaitBroker(nodeA);
+        awaitBroker(nodeB);
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (nodeA != null) {
+            nodeA.close();
+        }
+        if (nodeB != null) {
+            nodeB.close();
+        }
+    }
+
+    @AfterEach
+    void disconnect() {
+        if (session != null && session.isConnected()) {
+            session.disconnect();
+        }
+        if (stompClient != null) {
+            stompClient.stop();
+        }
+    }
+
+    @Test
+    void chatRoomTopic_sentOnNodeA_isDeliveredToClientOnNodeB() throws Exception {
+        session = connect(nodeB);
+        String destination = "/topic/chatRoom/" + UUID.randomUUID();
+        BlockingQueue<Map<?, ?>> received = subscribe(destination);
+
+        nodeA.getBean(SimpMessagingTemplate.class).convertAndSend(destination, Map.of("content", "hello from node A"));
+
+        Map<?, ?> payload = received.poll(10, TimeUnit.SECONDS);
+        assertThat(payload).isNotNull();
+        assertThat(payload.get("content")).isEqualTo("hello from node A");
+    }
+
+    @Test
+    void userDestination_sentOnNodeA_isDeliveredToUserConnectedToNodeB() throws Exception {
+        session = connect(nodeB);
+        BlockingQueue<Map<?, ?>> received = subscribe("/user/queue/notifications");
+
+        // Node A has no session for "student", so the message is broadcast and resolved on node B
+        nodeA.getBean(SimpMessagingTemplate.class)
+                .convertAndSendToUser("student", "/queue/notifications", Map.of("title", "price drop"));
+
+        Map<?, ?> payload = received.poll(10, TimeUnit.SECONDS);
+        assertThat(payload).isNotNull();
+        assertThat(payload.get("title")).isEqualTo("price drop");
+    }
+
+    private static ConfigurableApplicationContext startNode(String name) {
+        return new SpringApplicationBuilder(TroUniApplication.class).run(
+                "--spring.profiles.active=test",
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "--app.jwt.secret=" + JWT_SECRET,
+                "--spring.mail.password=test",
+                "--payos.client-id=test",
+                "--payos.api-key=test",
+                "--payos.checksum-key=test",
+                "--app.websocket.broker.mode=RELAY",
+                "--app.websocket.broker.relay-host=" + rabbitMq.getHost(),
+                "--app.websocket.broker.relay-port=" + rabbitMq.getMappedPort(STOMP_PORT));
+    }
+
+    private static void awaitBroker(ConfigurableApplicationContext node) throws InterruptedException {
+        StompBrokerRelayMessageHandler relay = node.getBean(StompBrokerRelayMessageHandler.class);
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!relay.isBrokerAvailable() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertThat(relay.isBrokerAvailable()).isTrue();
+    }
+
+    private StompSession connect(ConfigurableApplicationContext node) throws Exception {
+        User student = node.getBean(UserRepository.class).findByUsername("student").orElseThrow();
+        String token = node.getBean(JwtUtil.class).generateToken(student);
+        int port = ((WebServerApplicationContext) node).getWebServer().getPort();
+
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + token);
+        StompSession stompSession = stompClient.connectAsync("ws://localhost:{port}/ws/websocket",
+                        new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() {
+                        }, port)
+                .get(10, TimeUnit.SECONDS);
+        stompSession.setAutoReceipt(true);
+        return stompSession;
+    }
+
+    /**
+     * Subscribes and waits for the broker's receipt, so the subscription exists before sending.
+     */
+    private BlockingQueue<Map<?, ?>> subscribe(String destination) throws InterruptedException {
+        BlockingQueue<Map<?, ?>> received = new LinkedBlockingQueue<>();
+        CountDownLatch subscribed = new CountDownLatch(1);
+        session.subscribe(destination, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.add((Map<?, ?>) payload);
+            }
+        }).addReceiptTask(subscribed::countDown);
+        assertThat(subscribed.await(10, TimeUnit.SECONDS)).isTrue();
+        return received;
+    }
+}
@@ -0,0 +1,133 @@
+package com.trouni.tro_uni.controller;
+
+import com.trouni.tro_uni.dto.common.ApiResponse;
+import com.trouni.tro_uni.entity.Room;
+import com.trouni.tro_uni.entity.User;
+import com.trouni.tro_uni.enums.AccountStatus;
+import com.trouni.tro_uni.enums.UserRole;
+import com.trouni.tro_uni.repository.RoomRepository;
+import com.trouni.tro_uni.repository.UserRepository;
+import com.trouni.tro_uni.service.BookmarkService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * GET /bookmarks/status: answers a page of rooms from the bookmark index without a query per
+ * room, and reflects bookmark/unbookmark right after they commit.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@ActiveProfiles("test")
+class BookmarkStatusBatchTest {
+
+    @Autowired
+    private BookmarkController bookmarkController;
+    @Autowired
+    private BookmarkService bookmarkService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoomRepository roomRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User student;
+    private Room first;
+    private Room second;
+
+    @BeforeEach
+    void setUp() {
+        student = newUser(UserRole.STUDENT);
+        User landlord = userRepository.findByUsername("landlord").orElseThrow();
+        first = newRoom(landlord);
+        second = newRoom(landlord);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(student, null, student.getAuthorities()));
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void statuses_followBookmarkAndUnbookmark() {
+        assertThat(statuses()).containsEntry(first.getId(), false).containsEntry(second.getId(), false);
+
+        bookmarkService.bookmarkRoom(first.getId());
+        assertThat(statuses()).containsEntry(first.getId(), true).containsEntry(second.getId(), false);
+
+        bookmarkService.unbookmarkRoom(first.getId());
+        assertThat(statuses()).containsEntry(first.getId(), false).containsEntry(second.getId(), false);
+    }
+
+    @Test
+    void cachedStatuses_needNoQuery() {
+        statuses();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertThat(statuses()).hasSize(2);
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void tooManyRoomIds_isRejected() {
+        List<UUID> roomIds = new ArrayList<>();
+        for (int i = 0; i < 101; i++) {
+            roomIds.add(UUID.randomUUID());
+        }
+
+        ResponseEntity<?> response = bookmarkController.checkBookmarkStatuses(student, roomIds);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<UUID, Boolean> statuses() {
+        ResponseEntity<?> response = bookmarkController.checkBookmarkStatuses(student,
+                List.of(first.getId(), second.getId()));
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return ((ApiResponse<Map<UUID, Boolean>>) response.getBody()).getData();
+    }
+
+    private Room newRoom(User owner) {
+        Room room = new Room();
+        room.setOwner(owner);
+        room.setTitle("Phòng test bookmark");
+        room.setPricePerMonth(new BigDecimal("2000000"));
+        return roomRepository.save(room);
+    }
+
+    private User newUser(UserRole role) {
+        String name = "bm-" + UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@trouni.test");
+        user.setPassword("not-used");
+        user.setRole(role);
+        user.setStatus(AccountStatus.ACTIVE);
+        return userRepository.save(user);
+    }
+}
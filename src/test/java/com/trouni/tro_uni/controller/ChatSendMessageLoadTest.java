@@ -0,0 +1,98 @@
+package com.trouni.tro_uni.controller;
+
+import com.trouni.tro_uni.dto.request.chat.ChatMessageRequest;
+import com.trouni.tro_uni.dto.request.chat.CreateChatRoomRequest;
+import com.trouni.tro_uni.entity.User;
+import com.trouni.tro_uni.repository.UserRepository;
+import com.trouni.tro_uni.security.StompUserPrincipal;
+import com.trouni.tro_uni.service.ChatService;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.security.Principal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load test for /app/chat.sendMessage: counts JDBC statements per message with the
+ * session-bound principal versus the previous per-message user lookup.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.chat.persistence.mode=GROUP_COMMIT"
+})
+@ActiveProfiles("test")
+@Slf4j
+class ChatSendMessageLoadTest {
+
+    private static final int MESSAGES = 300;
+
+    @Autowired
+    private ChatController chatController;
+    @Autowired
+    private ChatService chatService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private User student;
+    private UUID chatRoomId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        student = userRepository.findByUsername("student").orElseThrow();
+        User landlord = userRepository.findByUsername("landlord").orElseThrow();
+        chatRoomId = chatService.createChatRoom(student, new CreateChatRoomRequest(landlord.getId())).getId();
+    }
+
+    @Test
+    void sendMessage_usesSessionPrincipal_withoutPerMessageUserQuery() {
+        Principal principal = new UsernamePasswordAuthenticationToken(
+                new StompUserPrincipal(student.getId(), student.getUsername(), student.getRole()),
+                null, student.getAuthorities());
+
+        // Warm up the membership index before measuring
+        chatController.sendMessage(principal, message("warm-up"));
+
+        // Previous behaviour: reload the sender by username for every message
+        statistics.clear();
+        for (int i = 0; i < MESSAGES; i++) {
+            User sender = userRepository.findByUsername(principal.getName()).orElseThrow();
+            chatService.processMessage(sender.getId(), sender.getUsername(), message("lookup " + i));
+        }
+        double lookupStatements = statistics.getPrepareStatementCount() / (double) MESSAGES;
+
+        // Session-bound principal
+        statistics.clear();
+        long start = System.nanoTime();
+        for (int i = 0; i < MESSAGES; i++) {
+            chatController.sendMessage(principal, message("principal " + i));
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        double principalStatements = statistics.getPrepareStatementCount() / (double) MESSAGES;
+        long userLoads = statistics.getEntityStatistics(User.class.getName()).getLoadCount();
+
+        log.info("chat.sendMessage x{}: {} statements/message with user lookup, {} with session principal ({} ms)",
+                MESSAGES, Math.round(lookupStatements * 100) / 100.0, Math.round(principalStatements * 100) / 100.0,
+                elapsedMs);
+
+        assertThat(userLoads).isZero();
+        assertThat(principalStatements).isLessThanOrEqualTo(lookupStatements - 1.0);
+    }
+
+    private ChatMessageRequest message(String content) {
+        return new ChatMessageRequest(chatRoomId, content);
+    }
+}
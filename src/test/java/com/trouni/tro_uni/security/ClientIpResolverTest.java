@@ -0,0 +1,49 @@
+package com.trouni.tro_uni.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Client IP resolution behind trusted proxies: forwarded values a client adds itself are ignored.
+ */
+class ClientIpResolverTest {
+
+    private final ClientIpResolver resolver = new ClientIpResolver(List.of("10.0.0.0/8", "169.254.0.0/16", "::1/128"));
+
+    @Test
+    void directConnection_ignoresForwardedHeader() {
+        assertThat(resolver.resolve(request("203.0.113.7", "198.51.100.1"))).isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    void behindProxy_usesRightmostUntrustedHop() {
+        // The client sent "1.2.3.4" itself; the load balancer appended the real address
+        assertThat(resolver.resolve(request("169.254.1.1", "1.2.3.4, 203.0.113.7"))).isEqualTo("203.0.113.7");
+        assertThat(resolver.resolve(request("10.0.0.5", "1.2.3.4, 203.0.113.7, 10.0.0.9"))).isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    void malformedOrHostnameHops_areNotTrusted() {
+        assertThat(resolver.resolve(request("10.0.0.5", "203.0.113.7, example.com"))).isEqualTo("example.com");
+        assertThat(resolver.resolve(request("10.0.0.5", "unknown"))).isEqualTo("unknown");
+    }
+
+    @Test
+    void onlyTrustedHops_fallsBackToLeftmost() {
+        assertThat(resolver.resolve(request("::1", "10.0.0.1, 10.0.0.2"))).isEqualTo("10.0.0.1");
+        assertThat(resolver.resolve(request("10.0.0.5", null))).isEqualTo("10.0.0.5");
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+}
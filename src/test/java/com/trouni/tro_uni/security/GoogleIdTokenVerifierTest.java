@@ -0,0 +1,143 @@
+package com.trouni.tro_uni.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import com.trouni.tro_uni.config.GoogleAuthProperties;
+import com.trouni.tro_uni.exception.AppException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Verifies Google ID tokens against a local stub JWKS server.
+ */
+class GoogleIdTokenVerifierTest {
+
+    private static final String CLIENT_ID = "test-client.apps.googleusercontent.com";
+
+    private HttpServer stubKeyServer;
+    private final AtomicInteger jwksRequests = new AtomicInteger();
+    private final AtomicReference<String> jwksBody = new AtomicReference<>();
+
+    private KeyPair firstKey;
+    private GoogleIdTokenVerifier verifier;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        firstKey = Keys.keyPairFor(SignatureAlgorithm.RS256);
+        jwksBody.set(jwks("key-1", firstKey));
+
+        stubKeyServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stubKeyServer.createContext("/oauth2/v3/certs", exchange -> {
+            jwksRequests.incrementAndGet();
+            byte[] body = jwksBody.get().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("Cache-Control", "public, max-age=3600");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        stubKeyServer.start();
+
+        GoogleAuthProperties properties = new GoogleAuthProperties();
+        properties.setClientId(CLIENT_ID);
+        properties.setJwksMinRefreshIntervalMs(0);
+        properties.setJwksUri("http://127.0.0.1:" + stubKeyServer.getAddress().getPort() + "/oauth2/v3/certs");
+
+        verifier = new GoogleIdTokenVerifier(RestClient.create(), new ObjectMapper(), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stubKeyServer.stop(0);
+    }
+
+    @Test
+    void verify_validToken_returnsUserInfoAndCachesKeys() {
+        String token = idToken("key-1", firstKey, CLIENT_ID, new Date(System.currentTimeMillis() + 60_000));
+
+        GoogleUserInfo first = verifier.verify(token);
+        GoogleUserInfo second = verifier.verify(token);
+
+        assertThat(first.getEmail()).isEqualTo("student@gmail.com");
+        assertThat(first.getName()).isEqualTo("Student");
+        assertThat(second.getEmail()).isEqualTo("student@gmail.com");
+        assertThat(jwksRequests.get()).isEqualTo(1);
+    }
+
+    @Test
+    void verify_wrongAudience_isRejected() {
+        String token = idToken("key-1", firstKey, "another-client", new Date(System.currentTimeMillis() + 60_000));
+
+        assertThatThrownBy(() -> verifier.verify(token)).isInstanceOf(AppException.class);
+    }
+
+    @Test
+    void verify_expiredToken_isRejected() {
+        String token = idToken("key-1", firstKey, CLIENT_ID, new Date(System.currentTimeMillis() - 3_600_000));
+
+        assertThatThrownBy(() -> verifier.verify(token)).isInstanceOf(AppException.class);
+    }
+
+    @Test
+    void verify_rotatedKey_refreshesKeySet() {
+        verifier.verify(idToken("key-1", firstKey, CLIENT_ID, new Date(System.currentTimeMillis() + 60_000)));
+
+        KeyPair rotatedKey = Keys.keyPairFor(SignatureAlgorithm.RS256);
+        jwksBody.set(jwks("key-2", rotatedKey));
+
+        GoogleUserInfo userInfo = verifier.verify(
+                idToken("key-2", rotatedKey, CLIENT_ID, new Date(System.currentTimeMillis() + 60_000)));
+
+        assertThat(userInfo.getEmail()).isEqualTo("student@gmail.com");
+        assertThat(jwksRequests.get()).isEqualTo(2);
+    }
+
+    private String idToken(String kid, KeyPair keyPair, String audience, Date expiration) {
+        return Jwts.builder()
+                .setHeaderParam("kid", kid)
+                .setIssuer("https://accounts.google.com")
+                .setAudience(audience)
+                .setSubject("1234567890")
+                .claim("email", "student@gmail.com")
+                .claim("email_verified", true)
+                .claim("name", "Student")
+                .setIssuedAt(new Date(expiration.getTime() - 3_600_000))
+                .setExpiration(expiration)
+                .signWith(keyPair.getPrivate(), SignatureAlgorithm.RS256)
+                .compact();
+    }
+
+    private String jwks(String kid, KeyPair keyPair) {
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        return "{\"keys\":[{\"kty\":\"RSA\",\"alg\":\"RS256\",\"use\":\"sig\",\"kid\":\"" + kid + "\","
+                + "\"n\":\"" + base64Url(publicKey.getModulus()) + "\","
+                + "\"e\":\"" + base64Url(publicKey.getPublicExponent()) + "\"}]}";
+    }
+
+    private String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
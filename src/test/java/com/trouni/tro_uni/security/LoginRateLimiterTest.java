@@ -0,0 +1,95 @@
+package com.trouni.tro_uni.security;
+
+import com.trouni.tro_uni.exception.AppException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Token buckets per IP and per account, spoofed X-Forwarded-For values and the bounded key table,
+ * which refuses new keys rather than evicting a throttled one.
+ */
+class LoginRateLimiterTest {
+
+    private final ClientIpResolver clientIpResolver = new ClientIpResolver(List.of("10.0.0.0/8"));
+
+    @Test
+    void ipBucket_throttlesAfterCapacity_evenWithSpoofedForwardedFor() {
+        LoginRateLimiter limiter = new LoginRateLimiter(clientIpResolver, 3, 1, 100, 100, 1_000);
+        for (int i = 0; i < 3; i++) {
+            limiter.checkLimit(request("203.0.113.7", "198.51.100." + i), null);
+        }
+        assertThatThrownBy(() -> limiter.checkLimit(request("203.0.113.7", "198.51.100.99"), null))
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo("RATE_LIMIT_EXCEEDED");
+    }
+
+    @Test
+    void accountBucket_isSharedAcrossIpsAndCaseInsensitive() {
+        LoginRateLimiter limiter = new LoginRateLimiter(clientIpResolver, 100, 100, 2, 1, 1_000);
+        limiter.checkLimit(request("203.0.113.1", null), "Student");
+        limiter.checkLimit(request("203.0.113.2", null), "student ");
+        assertThatThrownBy(() -> limiter.checkLimit(request("203.0.113.3", null), "STUDENT"))
+                .isInstanceOf(AppException.class);
+    }
+
+    @Test
+    void keyTable_staysBoundedUnderConcurrentNewKeys() throws Exception {
+        int maxKeys = 500;
+        LoginRateLimiter limiter = new LoginRateLimiter(clientIpResolver, 5, 5, 5, 5, maxKeys);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    String ip = "198." + thread + "." + (i / 256) + "." + (i % 256);
+                    try {
+                        limiter.checkLimit(request(ip, null), "user-" + thread + "-" + i);
+                    } catch (AppException ignored) {
+                        // Only the table size matters here
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(limiter.trackedIpKeys()).isLessThanOrEqualTo(maxKeys);
+        assertThat(limiter.trackedAccountKeys()).isLessThanOrEqualTo(maxKeys);
+    }
+
+    @Test
+    void fullKeyTable_refusesNewKeysInsteadOfEvictingAThrottledOne() {
+        LoginRateLimiter limiter = new LoginRateLimiter(clientIpResolver, 100, 100, 1, 1, 1);
+        limiter.checkLimit(request("203.0.113.1", null), "victim");
+        assertThatThrownBy(() -> limiter.checkLimit(request("203.0.113.1", null), "victim"))
+                .isInstanceOf(AppException.class);
+
+        // Rotating accounts cannot push the throttled victim out of the table
+        for (int i = 0; i < 20; i++) {
+            String account = "attacker-" + i;
+            assertThatThrownBy(() -> limiter.checkLimit(request("203.0.113.1", null), account))
+                    .isInstanceOf(AppException.class);
+        }
+        assertThatThrownBy(() -> limiter.checkLimit(request("203.0.113.1", null), "victim"))
+                .isInstanceOf(AppException.class);
+        assertThat(limiter.trackedAccountKeys()).isEqualTo(1);
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+}
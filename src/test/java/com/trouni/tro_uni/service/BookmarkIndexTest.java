@@ -0,0 +1,154 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.repository.BookmarkRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bookmark index: updates reach loaded entries, a load that overlaps an update is not cached,
+ * entries expire after the TTL and deleted users and rooms are evicted without a scan.
+ */
+class BookmarkIndexTest {
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID roomId = UUID.randomUUID();
+    private BookmarkRepository bookmarkRepository;
+
+    @BeforeEach
+    void setUp() {
+        bookmarkRepository = Mockito.mock(BookmarkRepository.class);
+    }
+
+    @Test
+    void bookmarkAfterLoad_updatesTheCachedSet() {
+        BookmarkIndex index = index(600_000);
+        when(bookmarkRepository.findRoomIdsByUserId(userId)).thenReturn(List.of());
+        assertThat(index.getBookmarkedRoomIds(userId)).isEmpty();
+
+        index.recordBookmarked(userId, roomId);
+        assertThat(index.getBookmarkedRoomIds(userId)).containsExactly(roomId);
+
+        index.recordUnbookmarked(userId, roomId);
+        assertThat(index.getBookmarkedRoomIds(userId)).isEmpty();
+        verify(bookmarkRepository, times(1)).findRoomIdsByUserId(userId);
+    }
+
+    @Test
+    void bookmarkDuringLoad_isNotLost() {
+        BookmarkIndex index = index(600_000);
+        List<UUID> inDatabase = new ArrayList<>();
+        when(bookmarkRepository.findRoomIdsByUserId(userId)).thenAnswer(invocation -> {
+            // The query's snapshot predates the bookmark, which commits meanwhile
+            List<UUID> snapshot = List.copyOf(inDatabase);
+            inDatabase.add(roomId);
+            index.recordBookmarked(userId, roomId);
+            return snapshot;
+        });
+        assertThat(index.getBookmarkedRoomIds(userId)).isEmpty();
+
+        doAnswer(invocation -> List.copyOf(inDatabase)).when(bookmarkRepository).findRoomIdsByUserId(userId);
+        assertThat(index.getBookmarkedRoomIds(userId)).containsExactly(roomId);
+    }
+
+    @Test
+    void unbookmarkDuringBookmarkerLoad_isNotLost() {
+        BookmarkIndex index = index(600_000);
+        when(bookmarkRepository.findUserIdsByRoomId(roomId)).thenAnswer(invocation -> {
+            index.recordUnbookmarked(userId, roomId);
+            return List.of(userId);
+        });
+        assertThat(index.getBookmarkerIds(roomId)).containsExactly(userId);
+
+        doAnswer(invocation -> List.of()).when(bookmarkRepository).findUserIdsByRoomId(roomId);
+        assertThat(index.getBookmarkerIds(roomId)).isEmpty();
+    }
+
+    @Test
+    void entries_expireAfterTheTtl() {
+        BookmarkIndex index = index(0);
+        when(bookmarkRepository.findRoomIdsByUserId(userId)).thenReturn(List.of(roomId));
+
+        index.getBookmarkedRoomIds(userId);
+        index.getBookmarkedRoomIds(userId);
+
+        verify(bookmarkRepository, times(2)).findRoomIdsByUserId(userId);
+    }
+
+    @Test
+    void evictUser_removesTheUserFromBothDirections() {
+        BookmarkIndex index = index(600_000);
+        UUID otherUser = UUID.randomUUID();
+        when(bookmarkRepository.findRoomIdsByUserId(userId)).thenReturn(List.of(roomId));
+        when(bookmarkRepository.findUserIdsByRoomId(roomId)).thenReturn(List.of(userId, otherUser));
+        index.getBookmarkedRoomIds(userId);
+        index.getBookmarkerIds(roomId);
+
+        index.evictUser(userId, List.of(roomId));
+
+        assertThat(index.getBookmarkerIds(roomId)).containsExactly(otherUser);
+        index.getBookmarkedRoomIds(userId);
+        verify(bookmarkRepository, times(2)).findRoomIdsByUserId(userId);
+        verify(bookmarkRepository, times(1)).findUserIdsByRoomId(roomId);
+    }
+
+    @Test
+    void evictRoom_dropsOnlyTheBookmarkers() {
+        BookmarkIndex index = index(600_000);
+        when(bookmarkRepository.findRoomIdsByUserId(userId)).thenReturn(List.of(roomId));
+        when(bookmarkRepository.findUserIdsByRoomId(roomId)).thenReturn(List.of(userId));
+        index.getBookmarkedRoomIds(userId);
+        index.getBookmarkerIds(roomId);
+
+        index.evictRoom(roomId);
+
+        index.getBookmarkerIds(roomId);
+        verify(bookmarkRepository, times(2)).findUserIdsByRoomId(roomId);
+        // Xóa mềm: bookmark vẫn còn
+        assertThat(index.getBookmarkedRoomIds(userId)).containsExactly(roomId);
+    }
+
+    @Test
+    void evictDeletedRoom_removesTheRoomFromItsBookmarkers() {
+        BookmarkIndex index = index(600_000);
+        UUID keptRoom = UUID.randomUUID();
+        when(bookmarkRepository.findRoomIdsByUserId(userId)).thenReturn(List.of(roomId, keptRoom));
+        when(bookmarkRepository.findUserIdsByRoomId(roomId)).thenReturn(List.of(userId));
+        index.getBookmarkedRoomIds(userId);
+        index.getBookmarkerIds(roomId);
+
+        index.evictDeletedRoom(roomId, List.of(userId));
+
+        assertThat(index.getBookmarkedRoomIds(userId)).containsExactly(keptRoom);
+        doAnswer(invocation -> List.of()).when(bookmarkRepository).findUserIdsByRoomId(roomId);
+        assertThat(index.getBookmarkerIds(roomId)).isEmpty();
+        verify(bookmarkRepository, times(1)).findRoomIdsByUserId(userId);
+    }
+
+    @Test
+    void evictAllDuringLoad_isNotCached() {
+        BookmarkIndex index = index(600_000);
+        when(bookmarkRepository.findRoomIdsByUserId(userId)).thenAnswer(invocation -> {
+            index.evictAll();
+            return List.of(roomId);
+        });
+        index.getBookmarkedRoomIds(userId);
+
+        doAnswer(invocation -> List.of()).when(bookmarkRepository).findRoomIdsByUserId(userId);
+        assertThat(index.getBookmarkedRoomIds(userId)).isEmpty();
+    }
+
+    private BookmarkIndex index(long ttlMs) {
+        return new BookmarkIndex(bookmarkRepository, 100, 100, ttlMs);
+    }
+}
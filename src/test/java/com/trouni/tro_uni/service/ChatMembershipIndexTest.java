@@ -0,0 +1,152 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.entity.ChatRoom;
+import com.trouni.tro_uni.entity.User;
+import com.trouni.tro_uni.repository.ChatRoomRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Membership index: a lazy load that overlaps a new room or an eviction does not leave a stale
+ * entry, evictions for deleted users and rooms take effect, and user entries expire and are bounded.
+ */
+class ChatMembershipIndexTest {
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private ChatRoomRepository chatRoomRepository;
+    private ChatMembershipIndex index;
+
+    @BeforeEach
+    void setUp() {
+        chatRoomRepository = Mockito.mock(ChatRoomRepository.class);
+        index = new ChatMembershipIndex(chatRoomRepository, 100, 60_000);
+    }
+
+    @Test
+    void roomRegisteredWhileUserRoomsLoad_isNotLost() {
+        UUID existing = UUID.randomUUID();
+        ChatRoom created = room(alice, bob);
+        List<UUID> inDatabase = new ArrayList<>(List.of(existing));
+        when(chatRoomRepository.findChatRoomIdsByParticipantId(alice)).thenAnswer(invocation -> {
+            // The query's snapshot predates the new room, which commits and registers meanwhile
+            List<UUID> snapshot = List.copyOf(inDatabase);
+            inDatabase.add(created.getId());
+            index.register(created);
+            return snapshot;
+        });
+
+        assertThat(index.getChatRoomIds(alice)).containsExactly(existing);
+
+        doAnswer(invocation -> List.copyOf(inDatabase)).when(chatRoomRepository).findChatRoomIdsByParticipantId(alice);
+        assertThat(index.getChatRoomIds(alice)).containsExactlyInAnyOrder(existing, created.getId());
+    }
+
+    @Test
+    void roomRegisteredAfterUserRoomsLoaded_isAdded() {
+        when(chatRoomRepository.findChatRoomIdsByParticipantId(bob)).thenReturn(List.of());
+        assertThat(index.getChatRoomIds(bob)).isEmpty();
+
+        ChatRoom created = room(alice, bob);
+        index.register(created);
+
+        assertThat(index.getChatRoomIds(bob)).containsExactly(created.getId());
+        assertThat(index.getParticipantIds(created.getId())).containsExactlyInAnyOrder(alice, bob);
+    }
+
+    @Test
+    void roomEvictedWhileParticipantsLoad_isNotCached() {
+        UUID chatRoomId = UUID.randomUUID();
+        when(chatRoomRepository.findParticipantIdsByChatRoomId(chatRoomId)).thenAnswer(invocation -> {
+            index.evict(chatRoomId);
+            return List.of(alice, bob);
+        });
+        index.getParticipantIds(chatRoomId);
+
+        doReturn(List.of()).when(chatRoomRepository).findParticipantIdsByChatRoomId(chatRoomId);
+        assertThat(index.getParticipantIds(chatRoomId)).isEmpty();
+    }
+
+    @Test
+    void evictUser_dropsTheUserAndTheirRooms() {
+        ChatRoom shared = room(alice, bob);
+        when(chatRoomRepository.findChatRoomIdsByParticipantId(alice)).thenReturn(List.of(shared.getId()));
+        index.getChatRoomIds(alice);
+        index.register(shared);
+
+        index.evictUser(alice);
+
+        when(chatRoomRepository.findChatRoomIdsByParticipantId(alice)).thenReturn(List.of());
+        when(chatRoomRepository.findParticipantIdsByChatRoomId(shared.getId())).thenReturn(List.of(bob));
+        assertThat(index.getChatRoomIds(alice)).isEmpty();
+        assertThat(index.isParticipant(shared.getId(), alice)).isFalse();
+    }
+
+    @Test
+    void evictAll_emptiesTheIndex() {
+        ChatRoom created = room(alice, bob);
+        index.register(created);
+
+        index.evictAll();
+
+        when(chatRoomRepository.findParticipantIdsByChatRoomId(created.getId())).thenReturn(List.of());
+        assertThat(index.getParticipantIds(created.getId())).isEmpty();
+    }
+
+    @Test
+    void roomCreatedOnAnotherInstance_appearsAfterTheTtl() {
+        index = new ChatMembershipIndex(chatRoomRepository, 100, 0);
+        UUID elsewhere = UUID.randomUUID();
+        when(chatRoomRepository.findChatRoomIdsByParticipantId(alice)).thenReturn(List.of());
+        assertThat(index.getChatRoomIds(alice)).isEmpty();
+
+        // Not registered here: only the database knows about it
+        when(chatRoomRepository.findChatRoomIdsByParticipantId(alice)).thenReturn(List.of(elsewhere));
+
+        assertThat(index.getChatRoomIds(alice)).containsExactly(elsewhere);
+    }
+
+    @Test
+    void userEntries_areBoundedLeastRecentlyUsedFirst() {
+        index = new ChatMembershipIndex(chatRoomRepository, 2, 60_000);
+        UUID carol = UUID.randomUUID();
+        when(chatRoomRepository.findChatRoomIdsByParticipantId(any())).thenReturn(List.of());
+        index.getChatRoomIds(alice);
+        index.getChatRoomIds(bob);
+        index.getChatRoomIds(alice);
+
+        index.getChatRoomIds(carol);
+        assertThat(index.cachedUserCount()).isEqualTo(2);
+
+        index.getChatRoomIds(alice);
+        index.getChatRoomIds(bob);
+        verify(chatRoomRepository, times(1)).findChatRoomIdsByParticipantId(alice);
+        verify(chatRoomRepository, times(2)).findChatRoomIdsByParticipantId(bob);
+    }
+
+    private static ChatRoom room(UUID... participantIds) {
+        List<User> participants = new ArrayList<>();
+        for (UUID participantId : participantIds) {
+            User user = new User();
+            user.setId(participantId);
+            participants.add(user);
+        }
+        return ChatRoom.builder()
+                .id(UUID.randomUUID())
+                .participants(participants)
+                .build();
+    }
+}
@@ -0,0 +1,158 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.config.WebSocketBrokerProperties;
+import com.trouni.tro_uni.dto.response.chat.PresenceResponse;
+import com.trouni.tro_uni.enums.StompBrokerMode;
+import com.trouni.tro_uni.enums.UserRole;
+import com.trouni.tro_uni.security.StompUserPrincipal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Presence: leases expire after the TTL unless a frame extends them, offline users are no
+ * longer tracked, only a bounded number of last-seen times is kept, and with the RELAY broker a
+ * contact without a session here is unknown rather than offline.
+ */
+class ChatPresenceRegistryTest {
+
+    // 3 ticks per lease
+    private static final long TTL_MS = 3_000;
+    private static final long TICK_MS = 1_000;
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final UUID carol = UUID.randomUUID();
+    private ChatMembershipIndex chatMembershipIndex;
+    private WebSocketBrokerProperties brokerProperties;
+    private ChatPresenceRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        chatMembershipIndex = Mockito.mock(ChatMembershipIndex.class);
+        brokerProperties = new WebSocketBrokerProperties();
+        registry = registry(100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void lease_expiresAfterTtlUnlessAFrameExtendsIt() {
+        frame(SimpMessageType.CONNECT, "s1", alice);
+        registry.tick();
+        registry.tick();
+        frame(SimpMessageType.HEARTBEAT, "s1", alice);
+
+        registry.tick();
+        registry.tick();
+        assertThat(registry.isOnline(alice)).isTrue();
+
+        registry.tick();
+        assertThat(registry.isOnline(alice)).isFalse();
+        assertThat(registry.trackedUserCount()).isZero();
+
+        // The socket is still sending frames: the session is registered again
+        frame(SimpMessageType.HEARTBEAT, "s1", alice);
+        assertThat(registry.isOnline(alice)).isTrue();
+    }
+
+    @Test
+    void user_staysOnlineUntilTheLastSessionEnds() {
+        frame(SimpMessageType.CONNECT, "s1", alice);
+        frame(SimpMessageType.CONNECT, "s2", alice);
+
+        frame(SimpMessageType.DISCONNECT, "s1", alice);
+        assertThat(registry.isOnline(alice)).isTrue();
+
+        frame(SimpMessageType.DISCONNECT, "s2", alice);
+        assertThat(registry.isOnline(alice)).isFalse();
+        assertThat(registry.trackedUserCount()).isZero();
+    }
+
+    @Test
+    void offlineContacts_keepTheirLastSeenTime() {
+        contacts(alice, bob);
+        frame(SimpMessageType.CONNECT, "s1", bob);
+        frame(SimpMessageType.DISCONNECT, "s1", bob);
+
+        PresenceResponse presence = presenceOf(alice).get(bob);
+
+        assertThat(presence.getOnline()).isFalse();
+        assertThat(presence.getLastSeenAt()).isNotNull();
+    }
+
+    @Test
+    void lastSeenTimes_areBounded() {
+        registry.shutdown();
+        registry = registry(1);
+        contacts(alice, bob, carol);
+
+        frame(SimpMessageType.CONNECT, "s1", bob);
+        frame(SimpMessageType.DISCONNECT, "s1", bob);
+        frame(SimpMessageType.CONNECT, "s2", carol);
+        frame(SimpMessageType.DISCONNECT, "s2", carol);
+
+        Map<UUID, PresenceResponse> presence = presenceOf(alice);
+        assertThat(presence.get(bob).getLastSeenAt()).isNull();
+        assertThat(presence.get(carol).getLastSeenAt()).isNotNull();
+    }
+
+    @Test
+    void relayBroker_reportsContactsWithoutALocalSessionAsUnknown() {
+        brokerProperties.setMode(StompBrokerMode.RELAY);
+        contacts(alice, bob, carol);
+        frame(SimpMessageType.CONNECT, "s1", bob);
+
+        Map<UUID, PresenceResponse> presence = presenceOf(alice);
+
+        assertThat(presence.get(bob).getOnline()).isTrue();
+        // Carol may be connected to another instance
+        assertThat(presence.get(carol).getOnline()).isNull();
+    }
+
+    private ChatPresenceRegistry registry(int lastSeenCapacity) {
+        return new ChatPresenceRegistry(chatMembershipIndex, Mockito.mock(SimpMessagingTemplate.class),
+                brokerProperties, TTL_MS, TICK_MS, lastSeenCapacity);
+    }
+
+    private void contacts(UUID userId, UUID... contactIds) {
+        UUID chatRoomId = UUID.randomUUID();
+        Set<UUID> participants = new HashSet<>(List.of(contactIds));
+        participants.add(userId);
+        when(chatMembershipIndex.getChatRoomIds(userId)).thenReturn(Set.of(chatRoomId));
+        when(chatMembershipIndex.getParticipantIds(chatRoomId)).thenReturn(participants);
+    }
+
+    private Map<UUID, PresenceResponse> presenceOf(UUID userId) {
+        return registry.getContactPresence(userId).stream()
+                .collect(Collectors.toMap(PresenceResponse::getUserId, Function.identity()));
+    }
+
+    private void frame(SimpMessageType type, String sessionId, UUID userId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(sessionId);
+        StompUserPrincipal principal = new StompUserPrincipal(userId, "user-" + userId, UserRole.STUDENT);
+        accessor.setUser(new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+        registry.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null);
+    }
+}
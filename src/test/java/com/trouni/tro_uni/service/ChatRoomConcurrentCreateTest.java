@@ -0,0 +1,81 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.dto.request.chat.CreateChatRoomRequest;
+import com.trouni.tro_uni.entity.User;
+import com.trouni.tro_uni.enums.AccountStatus;
+import com.trouni.tro_uni.enums.UserRole;
+import com.trouni.tro_uni.repository.ChatRoomRepository;
+import com.trouni.tro_uni.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Both users open the same direct chat at the same time: exactly one room is created and
+ * every caller gets it back.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ChatRoomConcurrentCreateTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private ChatService chatService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ChatRoomRepository chatRoomRepository;
+
+    @Test
+    void concurrentCreate_forTheSamePair_returnsOneRoom() throws Exception {
+        User first = newUser(UserRole.STUDENT);
+        User second = newUser(UserRole.LANDLORD);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<UUID>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            User sender = i % 2 == 0 ? first : second;
+            User recipient = i % 2 == 0 ? second : first;
+            results.add(executor.submit(() -> {
+                start.await();
+                return chatService.createChatRoom(sender, new CreateChatRoomRequest(recipient.getId())).getId();
+            }));
+        }
+        start.countDown();
+
+        Set<UUID> chatRoomIds = new HashSet<>();
+        for (Future<UUID> result : results) {
+            chatRoomIds.add(result.get());
+        }
+        executor.shutdown();
+
+        assertThat(chatRoomIds).hasSize(1);
+        assertThat(chatRoomRepository.findChatRoomIdsByParticipantId(first.getId())).containsExactlyElementsOf(chatRoomIds);
+    }
+
+    private User newUser(UserRole role) {
+        String name = "chat-" + UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@trouni.test");
+        user.setPassword("not-used");
+        user.setRole(role);
+        user.setStatus(AccountStatus.ACTIVE);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,145 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.repository.MessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unread counters: changes are counted once committed, stale counters are re-counted on read
+ * (changes made through other instances) and a re-count racing a commit is discarded.
+ */
+class ChatUnreadCounterServiceTest {
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID chatRoomId = UUID.randomUUID();
+    private MessageRepository messageRepository;
+
+    @BeforeEach
+    void setUp() {
+        messageRepository = Mockito.mock(MessageRepository.class);
+    }
+
+    @Test
+    void increment_isCountedOnlyOnceTheMessageIsCommitted() {
+        ChatUnreadCounterService service = service(60_000);
+        databaseCount(2);
+        assertThat(unread(service)).isEqualTo(2);
+
+        CompletableFuture<Void> committed = new CompletableFuture<>();
+        service.increment(userId, chatRoomId, committed);
+        assertThat(unread(service)).isEqualTo(2);
+
+        committed.complete(null);
+        assertThat(unread(service)).isEqualTo(3);
+
+        CompletableFuture<Void> dropped = new CompletableFuture<>();
+        service.increment(userId, chatRoomId, dropped);
+        dropped.completeExceptionally(new IllegalStateException("dropped"));
+        assertThat(unread(service)).isEqualTo(3);
+    }
+
+    @Test
+    void decrement_isAppliedOnceTheReceiptIsCommitted() {
+        ChatUnreadCounterService service = service(60_000);
+        databaseCount(5);
+        assertThat(unread(service)).isEqualTo(5);
+
+        CompletableFuture<Integer> marked = new CompletableFuture<>();
+        service.decrement(userId, chatRoomId, marked);
+        assertThat(unread(service)).isEqualTo(5);
+
+        marked.complete(7);
+        assertThat(unread(service)).isZero();
+    }
+
+    @Test
+    void freshCounter_isServedFromMemory() {
+        ChatUnreadCounterService service = service(60_000);
+        databaseCount(1);
+
+        unread(service);
+        unread(service);
+
+        verify(messageRepository, times(1)).countUnreadGroupByChatRoom(eq(userId), anyCollection());
+    }
+
+    @Test
+    void staleCounter_isRecountedOnRead() {
+        ChatUnreadCounterService service = service(0);
+        databaseCount(2);
+        assertThat(unread(service)).isEqualTo(2);
+
+        // Messages sent through another instance never touch this instance's counter
+        databaseCount(6);
+        assertThat(unread(service)).isEqualTo(6);
+    }
+
+    @Test
+    void recount_isDiscardedWhileAWriteIsInFlight() {
+        ChatUnreadCounterService service = service(0);
+        databaseCount(2);
+        assertThat(unread(service)).isEqualTo(2);
+
+        CompletableFuture<Void> committed = new CompletableFuture<>();
+        service.increment(userId, chatRoomId, committed);
+        // The row is already visible to the query but the counter has not counted it yet
+        databaseCount(3);
+        assertThat(unread(service)).isEqualTo(2);
+
+        committed.complete(null);
+        assertThat(unread(service)).isEqualTo(3);
+    }
+
+    @Test
+    void seed_refreshesOnlyStaleCountersUnchangedSinceTheQuery() {
+        ChatUnreadCounterService service = service(0);
+        long queriedAt = System.nanoTime();
+        assertThat(service.seed(userId, chatRoomId, 4, queriedAt)).isEqualTo(4);
+
+        CompletableFuture<Void> committed = new CompletableFuture<>();
+        service.increment(userId, chatRoomId, committed);
+        committed.complete(null);
+        // Counted after the inbox query started: the query's count is older than the counter
+        assertThat(service.seed(userId, chatRoomId, 4, queriedAt)).isEqualTo(5);
+        assertThat(service.seed(userId, chatRoomId, 9, System.nanoTime())).isEqualTo(9);
+    }
+
+    @Test
+    void evictIdle_dropsCountersAfterIdleTtl() {
+        ChatUnreadCounterService service = new ChatUnreadCounterService(messageRepository, 60_000, 0);
+        databaseCount(1);
+        unread(service);
+
+        service.evictIdle();
+        unread(service);
+
+        verify(messageRepository, times(2)).countUnreadGroupByChatRoom(eq(userId), anyCollection());
+    }
+
+    private ChatUnreadCounterService service(long maxStalenessMs) {
+        return new ChatUnreadCounterService(messageRepository, maxStalenessMs, 3_600_000);
+    }
+
+    private long unread(ChatUnreadCounterService service) {
+        Map<UUID, Long> counts = service.getUnreadCounts(userId, List.of(chatRoomId));
+        return counts.get(chatRoomId);
+    }
+
+    private void databaseCount(long count) {
+        when(messageRepository.countUnreadGroupByChatRoom(eq(userId), anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{chatRoomId, count}));
+    }
+}
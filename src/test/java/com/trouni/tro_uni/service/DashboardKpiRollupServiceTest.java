@@ -0,0 +1,74 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.dto.response.AdminDashboardStatsResponse;
+import com.trouni.tro_uni.dto.response.DailyKpiResponse;
+import com.trouni.tro_uni.entity.User;
+import com.trouni.tro_uni.enums.AccountStatus;
+import com.trouni.tro_uni.enums.UserRole;
+import com.trouni.tro_uni.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * KPI rollups: a delta still pending when its day is rebuilt is not counted again, and the
+ * dashboard counts each delta once whether or not it has been flushed.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class DashboardKpiRollupServiceTest {
+
+    @Autowired
+    private DashboardKpiRollupService rollupService;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void rebuild_dropsPendingDeltasOfTheRebuiltDays() {
+        // Ngày riêng của test này, không trùng dữ liệu khác
+        LocalDate day = LocalDate.of(2001, 1, 1);
+        User user = newUser(day.atTime(10, 0));
+        rollupService.recordUserCreated(user.getCreatedAt());
+
+        rollupService.rebuild(day, day);
+        rollupService.flush();
+
+        List<DailyKpiResponse> series = rollupService.getDailySeries(day, day);
+        assertThat(series).singleElement()
+                .satisfies(kpi -> assertThat(kpi.getNewUsers()).isEqualTo(1));
+    }
+
+    @Test
+    void totals_countAPendingDeltaOnceAcrossAFlush() {
+        rollupService.flush();
+        long before = rollupService.getTotals().getTotalUsers();
+
+        rollupService.recordUserCreated(LocalDateTime.now());
+        AdminDashboardStatsResponse pending = rollupService.getTotals();
+        rollupService.flush();
+        AdminDashboardStatsResponse flushed = rollupService.getTotals();
+
+        assertThat(pending.getTotalUsers()).isEqualTo(before + 1);
+        assertThat(flushed.getTotalUsers()).isEqualTo(before + 1);
+    }
+
+    private User newUser(LocalDateTime createdAt) {
+        String name = "kpi-" + UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@trouni.test");
+        user.setPassword("not-used");
+        user.setRole(UserRole.STUDENT);
+        user.setStatus(AccountStatus.ACTIVE);
+        user.setCreatedAt(createdAt);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,214 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.dto.request.chat.CreateChatRoomRequest;
+import com.trouni.tro_uni.dto.response.chat.InboxItemResponse;
+import com.trouni.tro_uni.entity.ChatRoom;
+import com.trouni.tro_uni.entity.Message;
+import com.trouni.tro_uni.entity.User;
+import com.trouni.tro_uni.enums.AccountStatus;
+import com.trouni.tro_uni.enums.ChatPersistenceMode;
+import com.trouni.tro_uni.enums.UserRole;
+import com.trouni.tro_uni.exception.AppException;
+import com.trouni.tro_uni.repository.ChatRoomRepository;
+import com.trouni.tro_uni.repository.MessageRepository;
+import com.trouni.tro_uni.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Group-commit pipeline: batching, the drop and reject paths (placeholder keeps the seq), a
+ * worker interrupt that must not stop the other shards and the seq backfill of older messages.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.chat.persistence.mode=GROUP_COMMIT",
+        "app.chat.persistence.linger-ms=50"
+})
+@ActiveProfiles("test")
+class MessagePersistencePipelineTest {
+
+    private static final int MESSAGES = 200;
+
+    @Autowired
+    private MessagePersistencePipeline pipeline;
+    @Autowired
+    private MessageSequenceAllocator sequenceAllocator;
+    @Autowired
+    private ChatService chatService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private MessageRepository messageRepository;
+    @Autowired
+    private ChatRoomRepository chatRoomRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private User student;
+    private UUID chatRoomId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        student = userRepository.findByUsername("student").orElseThrow();
+        User landlord = userRepository.findByUsername("landlord").orElseThrow();
+        chatRoomId = chatService.createChatRoom(student, new CreateChatRoomRequest(landlord.getId())).getId();
+    }
+
+    @Test
+    void groupCommit_writesQueuedMessagesInFewTransactions() throws Exception {
+        statistics.clear();
+        List<MessagePersistencePipeline.PendingMessage> pending = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            MessagePersistencePipeline.PendingMessage message = message("batched " + i);
+            pipeline.submit(message);
+            pending.add(message);
+        }
+        CompletableFuture.allOf(pending.stream()
+                .map(MessagePersistencePipeline.PendingMessage::committed)
+                .toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        List<Message> saved = messageRepository.findAllById(pending.stream()
+                .map(MessagePersistencePipeline.PendingMessage::id)
+                .toList());
+        assertThat(saved).hasSize(MESSAGES);
+        assertThat(statistics.getTransactionCount()).isLessThan(MESSAGES / 10);
+    }
+
+    @Test
+    void droppedMessage_keepsItsSeqWithPlaceholder() throws Exception {
+        MessagePersistencePipeline.PendingMessage before = message("before");
+        // Longer than the content column: the insert fails on every attempt
+        MessagePersistencePipeline.PendingMessage dropped = message("x".repeat(5_000));
+        MessagePersistencePipeline.PendingMessage after = message("after");
+        pipeline.submit(before);
+        pipeline.submit(dropped);
+        pipeline.submit(after);
+
+        before.committed().get(10, TimeUnit.SECONDS);
+        after.committed().get(10, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> dropped.committed().get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class);
+
+        Message placeholder = messageRepository.findById(dropped.id()).orElseThrow();
+        assertThat(placeholder.getSeq()).isEqualTo(dropped.seq());
+        assertThat(placeholder.getContent()).isNull();
+        assertThat(messageRepository.findById(after.id()).orElseThrow().getContent()).isEqualTo("after");
+    }
+
+    @Test
+    void inbox_reportsTheSeqOfTheLastWrittenMessage() throws Exception {
+        MessagePersistencePipeline.PendingMessage first = message("first");
+        MessagePersistencePipeline.PendingMessage second = message("second");
+        pipeline.submit(first);
+        pipeline.submit(second);
+        second.committed().get(10, TimeUnit.SECONDS);
+
+        InboxItemResponse item = chatRoomRepository.findInbox(student.getId(), PageRequest.of(0, 100)).stream()
+                .filter(row -> row.getChatRoomId().equals(chatRoomId))
+                .findFirst().orElseThrow();
+        assertThat(item.getLastMessageSeq()).isEqualTo(second.seq());
+        assertThat(item.getLastMessagePreview()).isEqualTo("second");
+    }
+
+    @Test
+    void rejectedMessage_failsItsFutureAndKeepsItsSeq() {
+        // No workers and room for one write: the second submit is rejected right away
+        MessagePersistencePipeline stalled = new MessagePersistencePipeline(entityManager, chatRoomRepository,
+                messageRepository, transactionManager, ChatPersistenceMode.GROUP_COMMIT, 1, 100, 0, 1, 0);
+        stalled.submit(message("queued"));
+        MessagePersistencePipeline.PendingMessage rejected = message("rejected");
+
+        assertThatThrownBy(() -> stalled.submit(rejected)).isInstanceOf(AppException.class);
+
+        assertThat(rejected.committed()).isCompletedExceptionally();
+        Message placeholder = messageRepository.findById(rejected.id()).orElseThrow();
+        assertThat(placeholder.getSeq()).isEqualTo(rejected.seq());
+        assertThat(placeholder.getContent()).isNull();
+    }
+
+    @Test
+    void interruptedWorker_doesNotStopThePipeline() throws Exception {
+        Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("ChatPersist-"))
+                .forEach(Thread::interrupt);
+
+        MessagePersistencePipeline.PendingMessage message = message("after interrupt");
+        pipeline.submit(message);
+        message.committed().get(10, TimeUnit.SECONDS);
+
+        assertThat(messageRepository.findById(message.id())).isPresent();
+    }
+
+    @Test
+    void messagesWithoutSeq_areNumberedBySentAt() {
+        // A room of its own: the student/landlord room is shared with the other tests
+        User sender = newUser();
+        User landlord = userRepository.findByUsername("landlord").orElseThrow();
+        UUID legacyRoomId = chatService.createChatRoom(sender, new CreateChatRoomRequest(landlord.getId())).getId();
+        ChatRoom chatRoom = chatRoomRepository.findById(legacyRoomId).orElseThrow();
+
+        // Written before sequence numbers existed, not in sent_at order
+        LocalDateTime base = LocalDateTime.now().minusDays(1);
+        List<UUID> ids = new ArrayList<>();
+        for (int minutes : new int[]{3, 1, 2}) {
+            Message message = Message.builder()
+                    .id(UUID.randomUUID())
+                    .chatRoom(chatRoom)
+                    .sender(sender)
+                    .content("legacy " + minutes)
+                    .sentAt(base.plusMinutes(minutes))
+                    .build();
+            ids.add(messageRepository.save(message).getId());
+        }
+
+        assertThat(sequenceAllocator.next(legacyRoomId)).isEqualTo(4);
+
+        List<Message> numbered = messageRepository.findAllById(ids).stream()
+                .sorted(Comparator.comparing(Message::getSentAt))
+                .toList();
+        assertThat(numbered).extracting(Message::getSeq).containsExactly(1L, 2L, 3L);
+    }
+
+    private User newUser() {
+        String name = "seq-" + UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@trouni.test");
+        user.setPassword("not-used");
+        user.setRole(UserRole.STUDENT);
+        user.setStatus(AccountStatus.ACTIVE);
+        return userRepository.save(user);
+    }
+
+    private MessagePersistencePipeline.PendingMessage message(String content) {
+        return new MessagePersistencePipeline.PendingMessage(UUID.randomUUID(), chatRoomId, student.getId(),
+                content, LocalDateTime.now(), sequenceAllocator.next(chatRoomId));
+    }
+}
@@ -0,0 +1,235 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.dto.response.ModerationQueueItemResponse;
+import com.trouni.tro_uni.entity.Report;
+import com.trouni.tro_uni.entity.ReportedContentCounter;
+import com.trouni.tro_uni.entity.ReportedContentCounterId;
+import com.trouni.tro_uni.entity.Room;
+import com.trouni.tro_uni.entity.RoommatePost;
+import com.trouni.tro_uni.entity.User;
+import com.trouni.tro_uni.enums.AccountStatus;
+import com.trouni.tro_uni.enums.UserRole;
+import com.trouni.tro_uni.repository.ReportRepository;
+import com.trouni.tro_uni.repository.ReportedContentCounterRepository;
+import com.trouni.tro_uni.repository.RoomRepository;
+import com.trouni.tro_uni.repository.RoommatePostRepository;
+import com.trouni.tro_uni.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+/**
+ * Moderation queue: auto-hide and restore, ranking by weight and decay, stale snapshots and
+ * the nightly counter rebuild.
+ */
+@SpringBootTest(properties = {
+        "app.moderation.auto-hide-threshold=3",
+        "app.moderation.half-life-hours=24",
+        "app.moderation.type-weights=user:2.0,room:1.5,roommate_post:1.0,review:0.5"
+})
+@ActiveProfiles("test")
+class ModerationQueueServiceTest {
+
+    private static final int THRESHOLD = 3;
+
+    @Autowired
+    private ModerationQueueService service;
+    @Autowired
+    private ReportRepository reportRepository;
+    @Autowired
+    private ReportedContentCounterRepository counterRepository;
+    @Autowired
+    private RoomRepository roomRepository;
+    @Autowired
+    private RoommatePostRepository roommatePostRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User landlord;
+    private User student;
+
+    @BeforeEach
+    void setUp() {
+        landlord = newUser(UserRole.LANDLORD);
+        student = newUser(UserRole.STUDENT);
+    }
+
+    @Test
+    void room_isHiddenAtThreshold_andRestoredWhenReportsAreDismissed() {
+        Room room = newRoom("rented");
+        List<Report> reports = report("room", room.getId(), THRESHOLD, LocalDateTime.now());
+
+        assertThat(roomRepository.findStatusById(room.getId())).contains("hidden");
+        ReportedContentCounter counter = counter("room", room.getId());
+        assertThat(counter.isAutoHidden()).isTrue();
+        assertThat(counter.getHiddenFromStatus()).isEqualTo("rented");
+
+        changeStatus(reports.get(0), "dismissed");
+
+        assertThat(roomRepository.findStatusById(room.getId())).contains("rented");
+        counter = counter("room", room.getId());
+        assertThat(counter.isAutoHidden()).isFalse();
+        assertThat(counter.getHiddenFromStatus()).isNull();
+        assertThat(counter.getPendingCount()).isEqualTo(THRESHOLD - 1);
+    }
+
+    @Test
+    void restore_keepsStatusChangedByModerator() {
+        RoommatePost post = newPost();
+        List<Report> reports = report("roommate_post", post.getId(), THRESHOLD, LocalDateTime.now());
+        assertThat(roommatePostRepository.findStatusById(post.getId())).contains("hidden");
+
+        transactionTemplate.executeWithoutResult(status ->
+                roommatePostRepository.updateStatusIfCurrent(post.getId(), "hidden", "closed", LocalDateTime.now()));
+        changeStatus(reports.get(0), "resolved");
+
+        assertThat(roommatePostRepository.findStatusById(post.getId())).contains("closed");
+        assertThat(counter("roommate_post", post.getId()).isAutoHidden()).isFalse();
+    }
+
+    @Test
+    void queue_ranksByWeightedPendingReportsWithDecay() {
+        UUID reportedUser = newUser(UserRole.STUDENT).getId();
+        Room freshRoom = newRoom("available");
+        Room oldRoom = newRoom("available");
+        // user: 2.0 × 1; phòng mới: 1.5 × 1; phòng cũ 3 ngày: 1.5 × 2 × 2^-3
+        report("user", reportedUser, 1, LocalDateTime.now());
+        report("room", freshRoom.getId(), 1, LocalDateTime.now());
+        report("room", oldRoom.getId(), 2, LocalDateTime.now().minusDays(3));
+
+        List<UUID> order = topIds(Set.of(reportedUser, freshRoom.getId(), oldRoom.getId()));
+
+        assertThat(order).containsExactly(reportedUser, freshRoom.getId(), oldRoom.getId());
+        ModerationQueueItemResponse old = service.getTop(Integer.MAX_VALUE).stream()
+                .filter(item -> item.getContentId().equals(oldRoom.getId()))
+                .findFirst().orElseThrow();
+        assertThat(old.getUrgency()).isCloseTo(1.5 * 2 / 8, offset(0.01));
+    }
+
+    @Test
+    void index_ignoresOlderRevisions_andDropsContentWithoutPendingReports() {
+        UUID contentId = UUID.randomUUID();
+        service.index(snapshot(contentId, 5, 2));
+        service.index(snapshot(contentId, 4, 7));
+
+        assertThat(pendingInQueue(contentId)).isEqualTo(2L);
+
+        service.index(snapshot(contentId, 6, 0));
+
+        assertThat(pendingInQueue(contentId)).isNull();
+    }
+
+    @Test
+    void rebuildCounters_fixesCountsAndRestoresVisibility() {
+        RoommatePost post = newPost();
+        List<Report> reports = report("roommate_post", post.getId(), THRESHOLD, LocalDateTime.now());
+        assertThat(roommatePostRepository.findStatusById(post.getId())).contains("hidden");
+
+        // Báo cáo đổi trạng thái mà không qua service: bộ đếm lệch cho đến lần tính lại
+        for (Report report : reports) {
+            report.setStatus("dismissed");
+        }
+        reportRepository.saveAll(reports);
+        assertThat(counter("roommate_post", post.getId()).getPendingCount()).isEqualTo(THRESHOLD);
+
+        service.rebuildCounters();
+
+        ReportedContentCounter counter = counter("roommate_post", post.getId());
+        assertThat(counter.getPendingCount()).isZero();
+        assertThat(counter.getTotalCount()).isEqualTo(THRESHOLD);
+        assertThat(counter.isAutoHidden()).isFalse();
+        assertThat(roommatePostRepository.findStatusById(post.getId())).contains("open");
+        assertThat(pendingInQueue(post.getId())).isNull();
+    }
+
+    private List<Report> report(String contentType, UUID contentId, int count, LocalDateTime reportedAt) {
+        List<Report> reports = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Report report = new Report();
+            report.setReporter(newUser(UserRole.STUDENT));
+            report.setReportedContentType(contentType);
+            report.setReportedContentId(contentId);
+            report.setReason("test");
+            report.setCreatedAt(reportedAt);
+            reports.add(reportRepository.save(report));
+            service.recordReportCreated(contentType, contentId, reportedAt);
+        }
+        return reports;
+    }
+
+    private void changeStatus(Report report, String status) {
+        String oldStatus = report.getStatus();
+        report.setStatus(status);
+        reportRepository.save(report);
+        service.recordStatusChanged(report.getReportedContentType(), report.getReportedContentId(), oldStatus, status);
+    }
+
+    private ReportedContentCounter counter(String contentType, UUID contentId) {
+        return counterRepository.findById(new ReportedContentCounterId(contentType, contentId)).orElseThrow();
+    }
+
+    private List<UUID> topIds(Set<UUID> contentIds) {
+        return service.getTop(Integer.MAX_VALUE).stream()
+                .map(ModerationQueueItemResponse::getContentId)
+                .filter(contentIds::contains)
+                .toList();
+    }
+
+    private Long pendingInQueue(UUID contentId) {
+        return service.getTop(Integer.MAX_VALUE).stream()
+                .filter(item -> item.getContentId().equals(contentId))
+                .map(ModerationQueueItemResponse::getPendingReports)
+                .findFirst().orElse(null);
+    }
+
+    private static ReportedContentCounter snapshot(UUID contentId, long revision, long pending) {
+        ReportedContentCounter counter = new ReportedContentCounter("review", contentId);
+        counter.setRevision(revision);
+        counter.setPendingCount(pending);
+        counter.setTotalCount(pending);
+        counter.setLastReportedAt(LocalDateTime.now());
+        return counter;
+    }
+
+    private Room newRoom(String status) {
+        Room room = new Room();
+        room.setOwner(landlord);
+        room.setTitle("Phòng test");
+        room.setPricePerMonth(new BigDecimal("3000000"));
+        room.setStatus(status);
+        return roomRepository.save(room);
+    }
+
+    private RoommatePost newPost() {
+        RoommatePost post = new RoommatePost();
+        post.setAuthor(student);
+        post.setTitle("Tìm bạn ở ghép");
+        return roommatePostRepository.save(post);
+    }
+
+    private User newUser(UserRole role) {
+        String name = "mod-" + UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@trouni.test");
+        user.setPassword("not-used");
+        user.setRole(role);
+        user.setStatus(AccountStatus.ACTIVE);
+        return userRepository.save(user);
+    }
+}
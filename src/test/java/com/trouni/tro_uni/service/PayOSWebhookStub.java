@@ -0,0 +1,87 @@
+package com.trouni.tro_uni.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Local stand-in for PayOS: builds webhook bodies signed the way PayOS signs them
+ * (data fields sorted by key, joined as key=value&..., HMAC-SHA256 with the checksum key),
+ * so tests can replay payment notifications without calling PayOS.
+ */
+class PayOSWebhookStub {
+
+    private final String checksumKey;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    PayOSWebhookStub(String checksumKey) {
+        this.checksumKey = checksumKey;
+    }
+
+    /**
+     * A successful payment notification ("00").
+     */
+    String paid(long orderCode, long amount, String reference) {
+        return webhook(orderCode, amount, reference, "00", "success");
+    }
+
+    /**
+     * A notification for a payment that did not go through.
+     */
+    String failed(long orderCode, long amount, String reference) {
+        return webhook(orderCode, amount, reference, "01", "failed");
+    }
+
+    private String webhook(long orderCode, long amount, String reference, String code, String desc) {
+        // Every field is set, so the signature does not depend on how empty fields are serialized
+        Map<String, Object> data = new TreeMap<>();
+        data.put("orderCode", orderCode);
+        data.put("amount", amount);
+        data.put("description", "TroUni " + orderCode);
+        data.put("accountNumber", "12345678");
+        data.put("reference", reference);
+        data.put("transactionDateTime", "2025-01-01 10:00:00");
+        data.put("currency", "VND");
+        data.put("paymentLinkId", "link-" + orderCode);
+        data.put("code", code);
+        data.put("desc", desc);
+        data.put("counterAccountBankId", "970422");
+        data.put("counterAccountBankName", "MB");
+        data.put("counterAccountName", "NGUYEN VAN A");
+        data.put("counterAccountNumber", "0123456789");
+        data.put("virtualAccountName", "TROUNI");
+        data.put("virtualAccountNumber", "9876543210");
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("code", code);
+        body.put("desc", desc);
+        body.put("success", "00".equals(code));
+        body.put("data", data);
+        body.put("signature", sign(data));
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String sign(Map<String, Object> sortedData) {
+        String query = sortedData.entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + entry.getValue())
+                .collect(Collectors.joining("&"));
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(checksumKey.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(query.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
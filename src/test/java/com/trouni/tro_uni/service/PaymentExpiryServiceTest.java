@@ -0,0 +1,89 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.entity.Payment;
+import com.trouni.tro_uni.entity.Room;
+import com.trouni.tro_uni.entity.User;
+import com.trouni.tro_uni.enums.PaymentMethod;
+import com.trouni.tro_uni.enums.PaymentStatus;
+import com.trouni.tro_uni.repository.PaymentRepository;
+import com.trouni.tro_uni.repository.RoomRepository;
+import com.trouni.tro_uni.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Chunked expiry: every overdue PENDING payment is expired across several chunks, newer or
+ * settled payments are left alone and rooms are not touched.
+ */
+@SpringBootTest(properties = {
+        "app.payment.expiry.timeout-minutes=15",
+        "app.payment.expiry.chunk-size=3",
+        "app.payment.expiry.interval-ms=3600000"
+})
+@ActiveProfiles("test")
+class PaymentExpiryServiceTest {
+
+    // Nhiều hơn hai lô, lô cuối không đầy
+    private static final int STALE_PAYMENTS = 8;
+
+    @Autowired
+    private PaymentExpiryService expiryService;
+    @Autowired
+    private PaymentRepository paymentRepository;
+    @Autowired
+    private RoomRepository roomRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void expireStalePayments_expiresEveryOverduePaymentInChunks() {
+        User student = userRepository.findByUsername("student").orElseThrow();
+        User landlord = userRepository.findByUsername("landlord").orElseThrow();
+        Room room = new Room();
+        room.setOwner(landlord);
+        room.setTitle("Phòng test hết hạn thanh toán");
+        room.setPricePerMonth(new BigDecimal("2500000"));
+        room.setStatus("rented");
+        room = roomRepository.save(room);
+
+        LocalDateTime overdue = LocalDateTime.now().minusHours(1);
+        List<UUID> stale = new ArrayList<>();
+        for (int i = 0; i < STALE_PAYMENTS; i++) {
+            stale.add(payment(student, i == 0 ? room : null, PaymentStatus.PENDING, overdue).getId());
+        }
+        UUID recent = payment(student, null, PaymentStatus.PENDING, LocalDateTime.now()).getId();
+        UUID completed = payment(student, room, PaymentStatus.COMPLETED, overdue).getId();
+
+        expiryService.expireStalePayments();
+
+        assertThat(paymentRepository.findAllById(stale))
+                .hasSize(STALE_PAYMENTS)
+                .allSatisfy(payment -> assertThat(payment.getStatus()).isEqualTo(PaymentStatus.EXPIRED.name()));
+        assertThat(paymentRepository.findById(recent).orElseThrow().getStatus()).isEqualTo(PaymentStatus.PENDING.name());
+        assertThat(paymentRepository.findById(completed).orElseThrow().getStatus()).isEqualTo(PaymentStatus.COMPLETED.name());
+        assertThat(roomRepository.findStatusById(room.getId())).contains("rented");
+        assertThat(expiryService.getBacklog().getLastRunExpired()).isGreaterThanOrEqualTo(STALE_PAYMENTS);
+        assertThat(expiryService.getBacklog().getExpiredBacklog()).isZero();
+    }
+
+    private Payment payment(User user, Room room, PaymentStatus status, LocalDateTime createdAt) {
+        Payment payment = new Payment();
+        payment.setUser(user);
+        payment.setRoom(room);
+        payment.setAmount(BigDecimal.valueOf(10_000));
+        payment.setPaymentMethod(PaymentMethod.PAYOS.name());
+        payment.setStatus(status.name());
+        payment.setCreatedAt(createdAt);
+        return paymentRepository.save(payment);
+    }
+}
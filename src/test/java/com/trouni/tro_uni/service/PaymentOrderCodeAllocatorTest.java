@@ -0,0 +1,109 @@
+package com.trouni.tro_uni.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Hammers the order code allocator from many threads and checks that codes are unique,
+ * within the PayOS range and carry the node id.
+ */
+@Slf4j
+class PaymentOrderCodeAllocatorTest {
+
+    private static final int THREADS = 32;
+    private static final int CODES_PER_THREAD = 50_000;
+
+    @Test
+    void concurrentAllocation_producesUniqueCodesWithinPayOSLimit() throws Exception {
+        PaymentOrderCodeAllocator allocator = new PaymentOrderCodeAllocator(7);
+        long[][] codes = allocate(allocator);
+
+        long[] all = Arrays.stream(codes).flatMapToLong(Arrays::stream).sorted().toArray();
+        assertThat(all).hasSize(THREADS * CODES_PER_THREAD);
+        for (int i = 1; i < all.length; i++) {
+            assertThat(all[i]).isGreaterThan(all[i - 1]);
+        }
+        assertThat(all[0]).isPositive();
+        assertThat(all[all.length - 1]).isLessThanOrEqualTo(9_007_199_254_740_991L);
+        assertThat(Arrays.stream(all).allMatch(code -> PaymentOrderCodeAllocator.nodeIdOf(code) == 7)).isTrue();
+
+        // Each thread sees strictly increasing codes
+        for (long[] perThread : codes) {
+            for (int i = 1; i < perThread.length; i++) {
+                assertThat(perThread[i]).isGreaterThan(perThread[i - 1]);
+            }
+        }
+    }
+
+    @Test
+    void differentNodes_neverCollide_evenWithTheSameClock() {
+        AtomicLong frozen = new AtomicLong(System.currentTimeMillis());
+        PaymentOrderCodeAllocator nodeA = new PaymentOrderCodeAllocator(1, frozen::get);
+        PaymentOrderCodeAllocator nodeB = new PaymentOrderCodeAllocator(2, frozen::get);
+
+        long[] a = new long[5_000];
+        long[] b = new long[5_000];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = nodeA.next();
+            b[i] = nodeB.next();
+        }
+        Arrays.sort(b);
+        assertThat(Arrays.stream(a).noneMatch(code -> Arrays.binarySearch(b, code) >= 0)).isTrue();
+    }
+
+    @Test
+    void clockGoingBackwards_keepsCodesIncreasing() {
+        AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+        PaymentOrderCodeAllocator allocator = new PaymentOrderCodeAllocator(0, clock::get);
+
+        long before = allocator.next();
+        clock.addAndGet(-5_000);
+        assertThat(allocator.next()).isGreaterThan(before);
+    }
+
+    @Test
+    void nodeIdOutOfRange_isRejected() {
+        assertThatThrownBy(() -> new PaymentOrderCodeAllocator(16)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private long[][] allocate(PaymentOrderCodeAllocator allocator) throws InterruptedException {
+        long[][] codes = new long[THREADS][CODES_PER_THREAD];
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            long[] out = codes[t];
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < out.length; i++) {
+                        out[i] = allocator.next();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        assertThat(done.await(60, TimeUnit.SECONDS)).isTrue();
+        long elapsedNanos = System.nanoTime() - begin;
+        executor.shutdown();
+
+        log.info("order codes x{} from {} threads: {} codes/s",
+                THREADS * CODES_PER_THREAD, THREADS, Math.round(THREADS * CODES_PER_THREAD * 1e9 / elapsedNanos));
+        return codes;
+    }
+}
@@ -0,0 +1,229 @@
+package com.trouni.tro_uni.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trouni.tro_uni.entity.Payment;
+import com.trouni.tro_uni.entity.PaymentWebhookEvent;
+import com.trouni.tro_uni.entity.User;
+import com.trouni.tro_uni.enums.PaymentMethod;
+import com.trouni.tro_uni.enums.PaymentStatus;
+import com.trouni.tro_uni.enums.WebhookEventStatus;
+import com.trouni.tro_uni.repository.PaymentRepository;
+import com.trouni.tro_uni.repository.PaymentWebhookEventRepository;
+import com.trouni.tro_uni.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Replays bursts of PayOS webhooks (with retries of the same notification) through the
+ * webhook intake and checks that every payment is processed exactly once, also when several
+ * instances requeue the same event.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:payos-webhook;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "payos.checksum-key=" + PaymentWebhookReplayTest.CHECKSUM_KEY
+})
+@ActiveProfiles("test")
+@Slf4j
+class PaymentWebhookReplayTest {
+
+    static final String CHECKSUM_KEY = "local-payos-checksum-key";
+    private static final int PAYMENTS = 100;
+    private static final int DELIVERIES_PER_WEBHOOK = 5;
+    private static final long AMOUNT = 50_000;
+
+    @Autowired
+    private PaymentWebhookService paymentWebhookService;
+    @Autowired
+    private PaymentRepository paymentRepository;
+    @Autowired
+    private PaymentWebhookEventRepository webhookEventRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PaymentService paymentService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final PayOSWebhookStub payOS = new PayOSWebhookStub(CHECKSUM_KEY);
+    private static final AtomicLong orderCodes = new AtomicLong(System.currentTimeMillis());
+    private List<Long> orderCodesUnderTest;
+
+    @BeforeEach
+    void setUp() {
+        User student = userRepository.findByUsername("student").orElseThrow();
+        orderCodesUnderTest = new ArrayList<>();
+        for (int i = 0; i < PAYMENTS; i++) {
+            long orderCode = orderCodes.incrementAndGet();
+            Payment payment = new Payment();
+            payment.setUser(student);
+            payment.setAmount(BigDecimal.valueOf(AMOUNT));
+            payment.setPaymentMethod(PaymentMethod.PAYOS.name());
+            payment.setStatus(PaymentStatus.PENDING.name());
+            payment.setTransactionCode(String.valueOf(orderCode));
+            paymentRepository.save(payment);
+            orderCodesUnderTest.add(orderCode);
+        }
+    }
+
+    @Test
+    void burstWithRetries_processesEachPaymentOnce() throws Exception {
+        List<String> deliveries = new ArrayList<>();
+        for (long orderCode : orderCodesUnderTest) {
+            String body = payOS.paid(orderCode, AMOUNT, "FT" + orderCode);
+            for (int i = 0; i < DELIVERIES_PER_WEBHOOK; i++) {
+                deliveries.add(body);
+            }
+        }
+        Collections.shuffle(deliveries);
+
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger duplicates = new AtomicInteger();
+        ExecutorService senders = Executors.newFixedThreadPool(16);
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (String body : deliveries) {
+            futures.add(senders.submit(() -> {
+                if (paymentWebhookService.receive(body)) {
+                    accepted.incrementAndGet();
+                } else {
+                    duplicates.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long intakeMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        senders.shutdown();
+
+        awaitProcessed();
+        long totalMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        log.info("PayOS webhooks x{}: intake {} ms ({}/s), all processed after {} ms",
+                deliveries.size(), intakeMs, deliveries.size() * 1000L / intakeMs, totalMs);
+
+        assertThat(accepted.get()).isEqualTo(PAYMENTS);
+        assertThat(duplicates.get()).isEqualTo(PAYMENTS * (DELIVERIES_PER_WEBHOOK - 1));
+        for (long orderCode : orderCodesUnderTest) {
+            Payment payment = paymentRepository.findByTransactionCode(String.valueOf(orderCode)).orElseThrow();
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.COMPLETED.name());
+        }
+
+        // A late retry after processing is still acknowledged and changes nothing
+        long first = orderCodesUnderTest.get(0);
+        assertThat(paymentWebhookService.receive(payOS.paid(first, AMOUNT, "FT" + first))).isFalse();
+    }
+
+    @Test
+    void webhookForUnknownOrder_isIgnored() throws Exception {
+        long unknown = orderCodes.incrementAndGet() + 1_000_000;
+        assertThat(paymentWebhookService.receive(payOS.failed(unknown, AMOUNT, "FT" + unknown))).isTrue();
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        PaymentWebhookEvent event;
+        do {
+            Thread.sleep(20);
+            event = webhookEventRepository.findAll().stream()
+                    .filter(e -> e.getOrderCode() == unknown)
+                    .findFirst().orElseThrow();
+        } while ((WebhookEventStatus.RECEIVED.name().equals(event.getStatus())
+                || WebhookEventStatus.PROCESSING.name().equals(event.getStatus()))
+                && System.currentTimeMillis() < deadline);
+
+        assertThat(event.getStatus()).isEqualTo(WebhookEventStatus.IGNORED.name());
+    }
+
+    @Test
+    void concurrentClaims_onlyOneWorkerWins() throws Exception {
+        long orderCode = orderCodesUnderTest.get(0);
+        // Received just now, so the scheduled recovery job does not claim it during the test
+        PaymentWebhookEvent event = storedEvent(orderCode, WebhookEventStatus.RECEIVED, LocalDateTime.now(), null);
+
+        // Workers on different instances picked the same event up from the recovery job
+        int workers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<Future<Integer>> claims = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            claims.add(executor.submit(() -> {
+                start.await();
+                return webhookEventRepository.claim(event.getId(), WebhookEventStatus.RECEIVED.name(),
+                        WebhookEventStatus.PROCESSING.name(), LocalDateTime.now());
+            }));
+        }
+        start.countDown();
+        int won = 0;
+        for (Future<Integer> claim : claims) {
+            won += claim.get();
+        }
+        executor.shutdown();
+
+        assertThat(won).isEqualTo(1);
+        PaymentWebhookEvent claimed = webhookEventRepository.findById(event.getId()).orElseThrow();
+        assertThat(claimed.getStatus()).isEqualTo(WebhookEventStatus.PROCESSING.name());
+        assertThat(claimed.getAttempts()).isEqualTo(1);
+        webhookEventRepository.delete(claimed);
+    }
+
+    @Test
+    void staleClaim_isReleasedAndProcessed() throws Exception {
+        long orderCode = orderCodesUnderTest.get(0);
+        LocalDateTime anHourAgo = LocalDateTime.now().minusHours(1);
+        PaymentWebhookEvent event = storedEvent(orderCode, WebhookEventStatus.PROCESSING, anHourAgo, anHourAgo);
+
+        paymentWebhookService.requeuePendingEvents();
+        awaitProcessed();
+
+        assertThat(webhookEventRepository.findById(event.getId()).orElseThrow().getStatus())
+                .isEqualTo(WebhookEventStatus.PROCESSED.name());
+        assertThat(paymentRepository.findByTransactionCode(String.valueOf(orderCode)).orElseThrow().getStatus())
+                .isEqualTo(PaymentStatus.COMPLETED.name());
+    }
+
+    /**
+     * An event stored directly, bypassing the intake queue
+     */
+    private PaymentWebhookEvent storedEvent(long orderCode, WebhookEventStatus status,
+                                            LocalDateTime receivedAt, LocalDateTime claimedAt) throws Exception {
+        PaymentWebhookEvent event = new PaymentWebhookEvent();
+        event.setDedupeKey(orderCode + ":FT" + orderCode);
+        event.setOrderCode(orderCode);
+        event.setReference("FT" + orderCode);
+        event.setPayload(objectMapper.writeValueAsString(
+                paymentService.validateAndParsePayOSWebhook(payOS.paid(orderCode, AMOUNT, "FT" + orderCode))));
+        event.setStatus(status.name());
+        event.setClaimedAt(claimedAt);
+        event.setReceivedAt(receivedAt);
+        return webhookEventRepository.save(event);
+    }
+
+    private long unfinished() {
+        return webhookEventRepository.countByStatus(WebhookEventStatus.RECEIVED.name())
+                + webhookEventRepository.countByStatus(WebhookEventStatus.PROCESSING.name());
+    }
+
+    private void awaitProcessed() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (unfinished() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(unfinished()).isZero();
+    }
+}
@@ -0,0 +1,170 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.config.WebSocketBrokerProperties;
+import com.trouni.tro_uni.entity.Notification;
+import com.trouni.tro_uni.entity.Room;
+import com.trouni.tro_uni.entity.User;
+import com.trouni.tro_uni.enums.StompBrokerMode;
+import com.trouni.tro_uni.repository.NotificationRepository;
+import com.trouni.tro_uni.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Price drop fan-out: bookmarkers except the owner get a notification, written in batches, and
+ * are pushed to only when online (SIMPLE broker) or always (RELAY broker).
+ */
+class PriceDropNotificationServiceTest {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final UUID ownerId = UUID.randomUUID();
+    private BookmarkIndex bookmarkIndex;
+    private NotificationRepository notificationRepository;
+    private UserRepository userRepository;
+    private ChatPresenceRegistry presenceRegistry;
+    private SimpMessagingTemplate messagingTemplate;
+    private WebSocketBrokerProperties brokerProperties;
+    private PriceDropNotificationService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        bookmarkIndex = Mockito.mock(BookmarkIndex.class);
+        notificationRepository = Mockito.mock(NotificationRepository.class);
+        userRepository = Mockito.mock(UserRepository.class);
+        presenceRegistry = Mockito.mock(ChatPresenceRegistry.class);
+        messagingTemplate = Mockito.mock(SimpMessagingTemplate.class);
+        brokerProperties = new WebSocketBrokerProperties();
+
+        when(userRepository.findUsernamesByIds(anyCollection())).thenAnswer(invocation -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (UUID userId : (Collection<UUID>) invocation.getArgument(0)) {
+                rows.add(new Object[]{userId, username(userId)});
+            }
+            return rows;
+        });
+        when(userRepository.getReferenceById(any())).thenAnswer(invocation -> {
+            User user = new User();
+            user.setId(invocation.getArgument(0));
+            return user;
+        });
+        when(notificationRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Executor chạy ngay trên luồng test; không có transaction thật nên gửi ngay lập tức
+        service = new PriceDropNotificationService(bookmarkIndex, notificationRepository, userRepository,
+                presenceRegistry, messagingTemplate, brokerProperties,
+                Mockito.mock(PlatformTransactionManager.class), Runnable::run, BATCH_SIZE);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void notifications_areWrittenInBatches_andSkipTheOwner() {
+        Room room = room("available");
+        Set<UUID> bookmarkers = users(250);
+        bookmarkers.add(ownerId);
+        when(bookmarkIndex.getBookmarkerIds(room.getId())).thenReturn(bookmarkers);
+
+        service.recordPriceDrop(room, new BigDecimal("3000000"));
+
+        ArgumentCaptor<List<Notification>> batches = ArgumentCaptor.forClass(List.class);
+        verify(notificationRepository, times(3)).saveAll(batches.capture());
+        assertThat(batches.getAllValues()).extracting(List::size).containsExactly(100, 100, 50);
+        assertThat(batches.getAllValues()).flatExtracting(batch -> batch)
+                .extracting(notification -> notification.getUser().getId())
+                .hasSize(250)
+                .doesNotContain(ownerId);
+        verify(messagingTemplate, never()).convertAndSendToUser(eq(username(ownerId)), anyString(), any());
+    }
+
+    @Test
+    void simpleBroker_pushesOnlyToOnlineUsers() {
+        brokerProperties.setMode(StompBrokerMode.SIMPLE);
+        Room room = room("available");
+        UUID online = UUID.randomUUID();
+        UUID offline = UUID.randomUUID();
+        when(bookmarkIndex.getBookmarkerIds(room.getId())).thenReturn(Set.of(online, offline));
+        when(presenceRegistry.isOnline(online)).thenReturn(true);
+
+        service.recordPriceDrop(room, new BigDecimal("3000000"));
+
+        verify(notificationRepository, times(1)).saveAll(anyList());
+        verify(messagingTemplate).convertAndSendToUser(eq(username(online)), eq("/queue/notifications"), any());
+        verify(messagingTemplate, never()).convertAndSendToUser(eq(username(offline)), anyString(), any());
+    }
+
+    @Test
+    void relayBroker_pushesToEveryRecipient() {
+        brokerProperties.setMode(StompBrokerMode.RELAY);
+        Room room = room("available");
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        when(bookmarkIndex.getBookmarkerIds(room.getId())).thenReturn(Set.of(first, second));
+
+        service.recordPriceDrop(room, new BigDecimal("3000000"));
+
+        verify(messagingTemplate).convertAndSendToUser(eq(username(first)), eq("/queue/notifications"), any());
+        verify(messagingTemplate).convertAndSendToUser(eq(username(second)), eq("/queue/notifications"), any());
+        verify(presenceRegistry, never()).isOnline(any());
+    }
+
+    @Test
+    void priceIncreaseOrUnavailableRoom_sendsNothing() {
+        Room available = room("available");
+        Room rented = room("rented");
+        when(bookmarkIndex.getBookmarkerIds(any())).thenReturn(users(3));
+
+        service.recordPriceDrop(available, new BigDecimal("1000000"));
+        service.recordPriceDrop(rented, new BigDecimal("3000000"));
+
+        verify(bookmarkIndex, never()).getBookmarkerIds(any());
+        verify(notificationRepository, never()).saveAll(anyList());
+    }
+
+    private Room room(String status) {
+        User owner = new User();
+        owner.setId(ownerId);
+        Room room = new Room();
+        room.setId(UUID.randomUUID());
+        room.setOwner(owner);
+        room.setTitle("Phòng test giảm giá");
+        room.setPricePerMonth(new BigDecimal("2000000"));
+        room.setStatus(status);
+        return room;
+    }
+
+    private static Set<UUID> users(int count) {
+        Set<UUID> userIds = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            userIds.add(UUID.randomUUID());
+        }
+        return userIds;
+    }
+
+    private static String username(UUID userId) {
+        return "user-" + userId;
+    }
+}
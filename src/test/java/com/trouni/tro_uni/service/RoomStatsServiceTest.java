@@ -0,0 +1,188 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.entity.Bookmark;
+import com.trouni.tro_uni.entity.Room;
+import com.trouni.tro_uni.entity.RoomStats;
+import com.trouni.tro_uni.entity.User;
+import com.trouni.tro_uni.enums.AccountStatus;
+import com.trouni.tro_uni.enums.UserRole;
+import com.trouni.tro_uni.repository.BookmarkRepository;
+import com.trouni.tro_uni.repository.RoomRepository;
+import com.trouni.tro_uni.repository.RoomStatsRepository;
+import com.trouni.tro_uni.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Room stats: a missing row is created from the source tables once the write commits, the
+ * rebuild neither loses increments that race with it nor keeps drifted counts, and concurrent
+ * room views are all counted.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class RoomStatsServiceTest {
+
+    @Autowired
+    private RoomStatsService roomStatsService;
+    @Autowired
+    private RoomService roomService;
+    @Autowired
+    private RoomStatsRepository roomStatsRepository;
+    @Autowired
+    private RoomRepository roomRepository;
+    @Autowired
+    private BookmarkRepository bookmarkRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User landlord;
+
+    @BeforeEach
+    void setUp() {
+        landlord = userRepository.findByUsername("landlord").orElseThrow();
+    }
+
+    @Test
+    void missingRow_isCreatedFromSourceTablesAfterCommit() {
+        Room room = newRoom();
+        assertThat(roomStatsRepository.findById(room.getId())).isEmpty();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            bookmark(newUser(), room);
+            roomStatsService.recordBookmarkAdded(room.getId());
+            assertThat(roomStatsRepository.findById(room.getId())).isEmpty();
+        });
+
+        RoomStats stats = roomStatsRepository.findById(room.getId()).orElseThrow();
+        assertThat(stats.getBookmarkCount()).isEqualTo(1);
+        assertThat(stats.getOwnerId()).isEqualTo(landlord.getId());
+    }
+
+    @Test
+    void rebuildAll_doesNotOverwriteAnIncrementInFlight() throws Exception {
+        Room room = newRoom();
+        roomStatsService.recordRoomCreated(room);
+        User student = newUser();
+
+        CountDownLatch incremented = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        AtomicBoolean bookmarkCommitted = new AtomicBoolean();
+        Thread writer = new Thread(() -> transactionTemplate.executeWithoutResult(status -> {
+            bookmark(student, room);
+            roomStatsService.recordBookmarkAdded(room.getId());
+            incremented.countDown();
+            await(commit);
+            bookmarkCommitted.set(true);
+        }));
+        writer.start();
+        assertThat(incremented.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // The rebuild waits on the row locked by the increment instead of reading the bookmark table now
+        Thread rebuild = new Thread(roomStatsService::rebuildAll);
+        rebuild.start();
+        Thread.sleep(300);
+        commit.countDown();
+        writer.join(10_000);
+        rebuild.join(10_000);
+
+        assertThat(bookmarkCommitted).isTrue();
+        assertThat(roomStatsRepository.findById(room.getId()).orElseThrow().getBookmarkCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rebuildAll_fixesDriftedCounts() {
+        Room room = newRoom();
+        roomStatsService.recordRoomCreated(room);
+        bookmark(newUser(), room);
+        RoomStats drifted = roomStatsRepository.findById(room.getId()).orElseThrow();
+        drifted.setBookmarkCount(5);
+        drifted.setChatsStarted(2);
+        roomStatsRepository.save(drifted);
+
+        roomStatsService.rebuildAll();
+
+        RoomStats stats = roomStatsRepository.findById(room.getId()).orElseThrow();
+        assertThat(stats.getBookmarkCount()).isEqualTo(1);
+        assertThat(stats.getChatsStarted()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentViews_areAllCounted() throws Exception {
+        Room room = newRoom();
+        roomStatsService.recordRoomCreated(room);
+        int views = 40;
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService viewers = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < views; i++) {
+            String viewerKey = "viewer-" + i;
+            futures.add(viewers.submit(() -> {
+                await(start);
+                // Stands in for open-in-view: the response reads lazy collections of the room
+                transactionTemplate.executeWithoutResult(status -> roomService.getRoomById(room.getId(), viewerKey));
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        viewers.shutdown();
+
+        assertThat(roomRepository.findById(room.getId()).orElseThrow().getViewCount()).isEqualTo(views);
+        assertThat(roomStatsRepository.findById(room.getId()).orElseThrow().getViewCount()).isEqualTo(views);
+    }
+
+    private void bookmark(User user, Room room) {
+        Bookmark bookmark = new Bookmark();
+        bookmark.setUser(user);
+        bookmark.setRoom(room);
+        bookmarkRepository.save(bookmark);
+    }
+
+    private Room newRoom() {
+        Room room = new Room();
+        room.setOwner(landlord);
+        room.setTitle("Phòng test thống kê");
+        room.setPricePerMonth(new BigDecimal("2500000"));
+        return roomRepository.save(room);
+    }
+
+    private User newUser() {
+        String name = "stats-" + UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@trouni.test");
+        user.setPassword("not-used");
+        user.setRole(UserRole.STUDENT);
+        user.setStatus(AccountStatus.ACTIVE);
+        return userRepository.save(user);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.config.WebSocketCoalescingProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark for the client outbound channel: bursts of small JSON events to many sessions,
+ * with and without frame coalescing. Reports frames/s, events/s and process CPU time.
+ */
+@Slf4j
+class StompFrameCoalescerBenchmarkTest {
+
+    private static final int SESSIONS = 50;
+    private static final int EVENTS_PER_SESSION = 400;
+    private static final int TOTAL_EVENTS = SESSIONS * EVENTS_PER_SESSION;
+    // Stands in for the socket write syscall of each frame
+    private static final long WRITE_COST_NANOS = 20_000;
+    private static final Pattern SEQ = Pattern.compile("\"seq\":(\\d+)");
+
+    @Test
+    void coalescing_sendsFewerFrames_andKeepsEventsInOrder() throws Exception {
+        Result plain = run(false);
+        Result coalesced = run(true);
+
+        log.info("outbound x{} events: without coalescing {} frames, {} frames/s, {} events/s, {} ms CPU",
+                TOTAL_EVENTS, plain.frames, Math.round(plain.framesPerSecond()), Math.round(plain.eventsPerSecond()),
+                plain.cpuMs);
+        log.info("outbound x{} events: with coalescing    {} frames, {} frames/s, {} events/s, {} ms CPU",
+                TOTAL_EVENTS, coalesced.frames, Math.round(coalesced.framesPerSecond()),
+                Math.round(coalesced.eventsPerSecond()), coalesced.cpuMs);
+
+        assertThat(plain.events).isEqualTo(TOTAL_EVENTS);
+        assertThat(plain.frames).isEqualTo(TOTAL_EVENTS);
+        assertThat(coalesced.events).isEqualTo(TOTAL_EVENTS);
+        assertThat(coalesced.frames).isLessThan(TOTAL_EVENTS / 2);
+        assertThat(coalesced.outOfOrder).isZero();
+    }
+
+    private Result run(boolean coalescing) throws InterruptedException {
+        WebSocketCoalescingProperties properties = new WebSocketCoalescingProperties();
+        properties.setEnabled(coalescing);
+        properties.setWindowMs(2);
+        StompFrameCoalescer coalescer = new StompFrameCoalescer(properties);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        AtomicLong frames = new AtomicLong();
+        AtomicLong events = new AtomicLong();
+        AtomicLong outOfOrder = new AtomicLong();
+        Map<String, Long> lastSeq = new ConcurrentHashMap<>();
+        StompEncoder encoder = new StompEncoder();
+
+        ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(executor);
+        channel.addInterceptor(coalescer);
+        channel.subscribe(toClient(encoder, frames, events, outOfOrder, lastSeq));
+
+        long cpuStart = processCpuNanos();
+        long start = System.nanoTime();
+        for (int seq = 0; seq < EVENTS_PER_SESSION; seq++) {
+            for (int session = 0; session < SESSIONS; session++) {
+                channel.send(event("session-" + session, seq));
+            }
+        }
+        long deadline = System.nanoTime() + 60_000_000_000L;
+        while (events.get() < TOTAL_EVENTS && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        long cpuMs = (processCpuNanos() - cpuStart) / 1_000_000;
+
+        executor.shutdown();
+        coalescer.shutdown();
+        return new Result(frames.get(), events.get(), outOfOrder.get(), elapsedNanos, cpuMs);
+    }
+
+    private MessageHandler toClient(StompEncoder encoder, AtomicLong frames, AtomicLong events,
+                                    AtomicLong outOfOrder, Map<String, Long> lastSeq) {
+        return message -> {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+            StompHeaderAccessor stomp = StompHeaderAccessor.create(StompCommand.MESSAGE);
+            stomp.setDestination(accessor.getDestination());
+            stomp.setSubscriptionId(accessor.getSubscriptionId());
+            stomp.setMessageId(accessor.getSessionId() + "-" + frames.get());
+            encoder.encode(MessageBuilder.createMessage((byte[]) message.getPayload(), stomp.getMessageHeaders()));
+            LockSupport.parkNanos(WRITE_COST_NANOS);
+
+            Matcher matcher = SEQ.matcher(new String((byte[]) message.getPayload(), StandardCharsets.UTF_8));
+            while (matcher.find()) {
+                long seq = Long.parseLong(matcher.group(1));
+                Long previous = lastSeq.put(accessor.getSessionId(), seq);
+                if (previous != null && previous >= seq) {
+                    outOfOrder.incrementAndGet();
+                }
+                events.incrementAndGet();
+            }
+            frames.incrementAndGet();
+        };
+    }
+
+    private Message<byte[]> event(String sessionId, int seq) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId("sub-0");
+        accessor.setDestination("/topic/chatRoom/" + sessionId);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        byte[] payload = ("{\"type\":\"TYPING\",\"seq\":" + seq + "}").getBytes(StandardCharsets.UTF_8);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+
+    private long processCpuNanos() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            return os.getProcessCpuTime();
+        }
+        return 0;
+    }
+
+    private record Result(long frames, long events, long outOfOrder, long elapsedNanos, long cpuMs) {
+        double framesPerSecond() {
+            return frames * 1e9 / elapsedNanos;
+        }
+
+        double eventsPerSecond() {
+            return events * 1e9 / elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.trouni.tro_uni.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trouni.tro_uni.config.WebSocketCoalescingProperties;
+import com.trouni.tro_uni.entity.User;
+import com.trouni.tro_uni.repository.UserRepository;
+import com.trouni.tro_uni.util.JwtUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Coalescing on the real outbound path: events sent with SimpMessagingTemplate to a user
+ * destination and to a chat room topic reach a STOMP client as one batched frame.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "app.websocket.coalescing.enabled=true",
+        "app.websocket.coalescing.window-ms=200"
+})
+@ActiveProfiles("test")
+class StompFrameCoalescerIntegrationTest {
+
+    private static final int EVENTS = 5;
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private WebSocketStompClient stompClient;
+    private StompSession session;
+
+    @AfterEach
+    void disconnect() {
+        if (session != null && session.isConnected()) {
+            session.disconnect();
+        }
+        if (stompClient != null) {
+            stompClient.stop();
+        }
+    }
+
+    @Test
+    void userDestination_eventsAreSentAsOneFrame() throws Exception {
+        session = connect();
+        BlockingQueue<Frame> frames = subscribe("/user/queue/notifications",
+                () -> messagingTemplate.convertAndSendToUser("student", "/queue/notifications", Map.of("probe", true)));
+
+        for (int i = 0; i < EVENTS; i++) {
+            messagingTemplate.convertAndSendToUser("student", "/queue/notifications", Map.of("n", i));
+        }
+
+        assertBatched(frames.poll(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void chatRoomTopic_eventsAreSentAsOneFrame() throws Exception {
+        session = connect();
+        String destination = "/topic/chatRoom/" + UUID.randomUUID();
+        BlockingQueue<Frame> frames = subscribe(destination,
+                () -> messagingTemplate.convertAndSend(destination, Map.of("probe", true)));
+
+        for (int i = 0; i < EVENTS; i++) {
+            messagingTemplate.convertAndSend(destination, Map.of("n", i));
+        }
+
+        assertBatched(frames.poll(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void relayDestinationNames_matchTheConfiguredPrefixes() throws Exception {
+        WebSocketCoalescingProperties properties = new WebSocketCoalescingProperties();
+        properties.setEnabled(true);
+        properties.setWindowMs(100);
+        StompFrameCoalescer coalescer = new StompFrameCoalescer(properties);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<Message<?>> delivered = new CopyOnWriteArrayList<>();
+        CountDownLatch twoFrames = new CountDownLatch(2);
+        ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(executor);
+        channel.addInterceptor(coalescer);
+        channel.subscribe(message -> {
+            delivered.add(message);
+            twoFrames.countDown();
+        });
+
+        for (int i = 0; i < EVENTS; i++) {
+            // Room topic as rewritten by RelayDestinationInterceptor
+            channel.send(event("sub-room", "/topic/chatRoom." + i, null));
+            // User queue as resolved by the user destination handler
+            channel.send(event("sub-user", "/queue/notifications-usersession-1", "/user/queue/notifications"));
+        }
+
+        assertThat(twoFrames.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(delivered).hasSize(2);
+        assertThat(delivered).allSatisfy(message -> assertThat(SimpMessageHeaderAccessor.wrap(message)
+                .getFirstNativeHeader(StompFrameCoalescer.BATCH_SIZE_HEADER)).isEqualTo(String.valueOf(EVENTS)));
+
+        executor.shutdown();
+        coalescer.shutdown();
+    }
+
+    private void assertBatched(Frame frame) throws Exception {
+        assertThat(frame).isNotNull();
+        assertThat(frame.headers().getFirst(StompFrameCoalescer.BATCH_SIZE_HEADER)).isEqualTo(String.valueOf(EVENTS));
+        JsonNode events = objectMapper.readTree(frame.payload());
+        assertThat(events.isArray()).isTrue();
+        assertThat(events).hasSize(EVENTS);
+        for (int i = 0; i < EVENTS; i++) {
+            assertThat(events.get(i).get("n").asInt()).isEqualTo(i);
+        }
+    }
+
+    private StompSession connect() throws Exception {
+        User student = userRepository.findByUsername("student").orElseThrow();
+        String token = jwtUtil.generateToken(student);
+
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + token);
+        StompSession stompSession = stompClient.connectAsync("ws://localhost:{port}/ws/websocket",
+                        new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() {
+                        }, port)
+                .get(10, TimeUnit.SECONDS);
+        return stompSession;
+    }
+
+    /**
+     * Subscribes and sends probes until one arrives, so the subscription exists before the
+     * measured events; the probe frames are discarded once the coalescing window has passed.
+     */
+    private BlockingQueue<Frame> subscribe(String destination, Runnable probe) throws InterruptedException {
+        BlockingQueue<Frame> frames = new LinkedBlockingQueue<>();
+        session.subscribe(destination, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                frames.add(new Frame(headers, new String((byte[]) payload, StandardCharsets.UTF_8)));
+            }
+        });
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        do {
+            probe.run();
+        } while (frames.poll(100, TimeUnit.MILLISECONDS) == null && System.nanoTime() < deadline);
+        Thread.sleep(500);
+        frames.clear();
+        return frames;
+    }
+
+    private static Message<byte[]> event(String subscriptionId, String destination, String originalDestination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId("session-1");
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        if (originalDestination != null) {
+            accessor.setNativeHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION, originalDestination);
+        }
+        return MessageBuilder.createMessage("{}".getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+
+    private record Frame(StompHeaders headers, String payload) {
+    }
+}
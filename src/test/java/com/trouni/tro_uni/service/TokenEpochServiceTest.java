@@ -0,0 +1,128 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.entity.User;
+import com.trouni.tro_uni.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Token epochs: cached per user up to the TTL, bounded by dropping expired and then the oldest
+ * loaded entries, and moved to the database's epoch once a revocation commits.
+ */
+class TokenEpochServiceTest {
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final UUID carol = UUID.randomUUID();
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = Mockito.mock(UserRepository.class);
+        when(userRepository.findTokenEpochById(any())).thenReturn(Optional.of(1));
+    }
+
+    @Test
+    void cachedEpoch_isServedWithoutAQuery() {
+        TokenEpochService service = new TokenEpochService(userRepository, 60_000, 100);
+
+        assertThat(service.isCurrent(alice, 1)).isTrue();
+        assertThat(service.isCurrent(alice, 0)).isFalse();
+
+        verify(userRepository, times(1)).findTokenEpochById(alice);
+    }
+
+    @Test
+    void expiredEpoch_isReloaded() {
+        TokenEpochService service = new TokenEpochService(userRepository, 0, 100);
+
+        service.getCurrentEpoch(alice);
+        service.getCurrentEpoch(alice);
+
+        verify(userRepository, times(2)).findTokenEpochById(alice);
+    }
+
+    @Test
+    void cache_dropsTheOldestLoadedUsersBeyondTheLimit() {
+        TokenEpochService service = new TokenEpochService(userRepository, 60_000, 2);
+        service.getCurrentEpoch(alice);
+        service.getCurrentEpoch(bob);
+
+        service.getCurrentEpoch(carol);
+
+        service.getCurrentEpoch(bob);
+        service.getCurrentEpoch(carol);
+        service.getCurrentEpoch(alice);
+        verify(userRepository, times(1)).findTokenEpochById(bob);
+        verify(userRepository, times(1)).findTokenEpochById(carol);
+        verify(userRepository, times(2)).findTokenEpochById(alice);
+    }
+
+    @Test
+    void revokeAllTokens_usesTheEpochFromTheDatabase() {
+        TokenEpochService service = new TokenEpochService(userRepository, 60_000, 100);
+        // The entity is stale: another instance revoked in the meantime
+        User user = user(alice, 1);
+        when(userRepository.findTokenEpochById(alice)).thenReturn(Optional.of(5));
+
+        service.revokeAllTokens(user);
+
+        assertThat(user.getTokenEpoch()).isEqualTo(5);
+        assertThat(service.isCurrent(alice, 4)).isFalse();
+        assertThat(service.isCurrent(alice, 5)).isTrue();
+        verify(userRepository, times(1)).findTokenEpochById(alice);
+    }
+
+    @Test
+    void revokeAllTokens_updatesTheCacheOnlyAfterCommit() {
+        TokenEpochService service = new TokenEpochService(userRepository, 60_000, 100);
+        assertThat(service.isCurrent(alice, 1)).isTrue();
+        when(userRepository.findTokenEpochById(alice)).thenReturn(Optional.of(2));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.revokeAllTokens(user(alice, 1));
+            assertThat(service.isCurrent(alice, 1)).isTrue();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(service.isCurrent(alice, 1)).isFalse();
+    }
+
+    @Test
+    void revokeAllTokens_rolledBack_keepsTheCachedEpoch() {
+        TokenEpochService service = new TokenEpochService(userRepository, 60_000, 100);
+        assertThat(service.isCurrent(alice, 1)).isTrue();
+        when(userRepository.findTokenEpochById(alice)).thenReturn(Optional.of(2));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.revokeAllTokens(user(alice, 1));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(service.isCurrent(alice, 1)).isTrue();
+    }
+
+    private static User user(UUID userId, int tokenEpoch) {
+        User user = new User();
+        user.setId(userId);
+        user.setTokenEpoch(tokenEpoch);
+        return user;
+    }
+}
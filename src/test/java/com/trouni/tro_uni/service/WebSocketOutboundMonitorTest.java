@@ -0,0 +1,115 @@
+package com.trouni.tro_uni.service;
+
+import com.trouni.tro_uni.config.WebSocketOutboundProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Slow consumers: a session with too many pending frames is degraded, drops only chat messages
+ * (which carry a seq) while degraded, and recovers once its queue has drained.
+ */
+class WebSocketOutboundMonitorTest {
+
+    private static final int DEGRADE_DEPTH = 3;
+    private static final String SESSION_ID = "s1";
+
+    private final String chatRoom = "/topic/chatRoom/" + UUID.randomUUID();
+    private WebSocketOutboundMonitor monitor;
+    private WebSocketSession metered;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        WebSocketOutboundProperties properties = new WebSocketOutboundProperties();
+        properties.setDegradeQueueDepth(DEGRADE_DEPTH);
+        monitor = new WebSocketOutboundMonitor(properties);
+
+        WebSocketHandler handler = Mockito.mock(WebSocketHandler.class);
+        WebSocketSession session = Mockito.mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(SESSION_ID);
+        monitor.decorate(handler).afterConnectionEstablished(session);
+
+        ArgumentCaptor<WebSocketSession> wrapped = ArgumentCaptor.forClass(WebSocketSession.class);
+        verify(handler).afterConnectionEstablished(wrapped.capture());
+        metered = wrapped.getValue();
+    }
+
+    @Test
+    void degradedSession_dropsOnlyChatMessages() {
+        fill();
+
+        assertThat(send(chatRoom)).isNull();
+        assertThat(send("/topic/chatRoom." + UUID.randomUUID())).isNull();
+        assertThat(send("/user/queue/notifications")).isNotNull();
+        assertThat(send("/user/queue/presence")).isNotNull();
+        assertThat(send(chatRoom + "/read")).isNotNull();
+
+        assertThat(monitor.getStats().getDegradedSessions()).isEqualTo(1);
+        assertThat(monitor.getStats().getDroppedFrames()).isEqualTo(2);
+        assertThat(monitor.getStats().getSlowestSessions()).singleElement()
+                .satisfies(session -> {
+                    assertThat(session.getQueueDepth()).isEqualTo(DEGRADE_DEPTH + 3);
+                    assertThat(session.getDroppedFrames()).isEqualTo(2);
+                });
+    }
+
+    @Test
+    void degradedSession_recoversOnceItsQueueDrains() throws Exception {
+        fill();
+        assertThat(send(chatRoom)).isNull();
+
+        drain(DEGRADE_DEPTH - 1);
+        assertThat(send(chatRoom)).isNull();
+
+        drain(1);
+        assertThat(send(chatRoom)).isNotNull();
+        assertThat(monitor.getStats().getDegradedSessions()).isZero();
+        assertThat(monitor.getStats().getDroppedFrames()).isEqualTo(2);
+    }
+
+    @Test
+    void carriesSeq_onlyForChatRoomMessages() {
+        assertThat(WebSocketOutboundMonitor.carriesSeq(chatRoom)).isTrue();
+        assertThat(WebSocketOutboundMonitor.carriesSeq("/topic/chatRoom.abc")).isTrue();
+        assertThat(WebSocketOutboundMonitor.carriesSeq(chatRoom + "/read")).isFalse();
+        assertThat(WebSocketOutboundMonitor.carriesSeq("/topic/chatRoom.abc.typing")).isFalse();
+        assertThat(WebSocketOutboundMonitor.carriesSeq("/topic/chatRoomStats")).isFalse();
+        assertThat(WebSocketOutboundMonitor.carriesSeq(null)).isFalse();
+    }
+
+    /**
+     * Queues frames up to the degrade depth without any being written.
+     */
+    private void fill() {
+        for (int i = 0; i < DEGRADE_DEPTH; i++) {
+            assertThat(send(chatRoom)).isNotNull();
+        }
+    }
+
+    private void drain(int frames) throws Exception {
+        for (int i = 0; i < frames; i++) {
+            metered.sendMessage(new TextMessage("frame"));
+        }
+    }
+
+    private Message<?> send(String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(SESSION_ID);
+        accessor.setDestination(destination);
+        return monitor.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null);
+    }
+}
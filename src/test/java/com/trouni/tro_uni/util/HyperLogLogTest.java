@@ -0,0 +1,54 @@
+package com.trouni.tro_uni.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Checks the unique-viewer sketch: accuracy, duplicate insensitivity, and that merging
+ * per-day / per-node sketches matches a single sketch of the union.
+ */
+class HyperLogLogTest {
+
+    @Test
+    void estimate_isWithinErrorBound_andIgnoresDuplicates() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int repeat = 0; repeat < 3; repeat++) {
+            for (int i = 0; i < 50_000; i++) {
+                sketch.add("u:" + i);
+            }
+        }
+        assertThat((double) sketch.estimate()).isCloseTo(50_000, within(50_000 * 0.07));
+    }
+
+    @Test
+    void smallSets_areNearlyExact() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100; i++) {
+            sketch.add("c:10.0.0." + i + "|Mozilla/5.0");
+        }
+        assertThat((double) sketch.estimate()).isCloseTo(100, within(5.0));
+    }
+
+    @Test
+    void merge_ofOverlappingDays_equalsSketchOfUnion_andSurvivesSerialization() {
+        HyperLogLog monday = new HyperLogLog();
+        HyperLogLog tuesday = new HyperLogLog();
+        HyperLogLog union = new HyperLogLog();
+        for (int i = 0; i < 20_000; i++) {
+            monday.add("u:" + i);
+            union.add("u:" + i);
+        }
+        for (int i = 10_000; i < 30_000; i++) {
+            tuesday.add("u:" + i);
+            union.add("u:" + i);
+        }
+
+        HyperLogLog week = HyperLogLog.fromBytes(monday.toBytes()).merge(HyperLogLog.fromBytes(tuesday.toBytes()));
+
+        assertThat(monday.toBytes()).hasSize(HyperLogLog.REGISTER_COUNT);
+        assertThat(week.toBytes()).isEqualTo(union.toBytes());
+        assertThat((double) week.estimate()).isCloseTo(30_000, within(30_000 * 0.07));
+    }
+}